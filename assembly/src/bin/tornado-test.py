@@ -42,6 +42,7 @@ class TestEntry:
 ## List of classes to be tested. Include new unittest classes here
 __TEST_THE_WORLD__ = [
 	TestEntry("uk.ac.manchester.tornado.unittests.TestHello"),
+	TestEntry("uk.ac.manchester.tornado.unittests.mm.TestFreeListHeapAllocator"),
 	TestEntry("uk.ac.manchester.tornado.unittests.arrays.TestArrays"),
 	TestEntry("uk.ac.manchester.tornado.unittests.functional.TestLambdas"),
 	TestEntry("uk.ac.manchester.tornado.unittests.vectortypes.TestFloats"),
@@ -52,6 +53,13 @@ __TEST_THE_WORLD__ = [
 	TestEntry("uk.ac.manchester.tornado.unittests.virtualization.TestsVirtualLayer"),
 	TestEntry("uk.ac.manchester.tornado.unittests.tasks.TestSingleTaskSingleDevice"),
 	TestEntry("uk.ac.manchester.tornado.unittests.tasks.TestMultipleTasksSingleDevice"),
+	TestEntry(testName="uk.ac.manchester.tornado.unittests.tasks.TestConcurrentCompilation",
+			  testParameters=["-Dtornado.compile.concurrent=True"]),
+	TestEntry(testName="uk.ac.manchester.tornado.unittests.tasks.TestTieredExecution",
+			  testParameters=["-Dtornado.tiered=True", "-Dtornado.profiler=True"]),
+	TestEntry("uk.ac.manchester.tornado.unittests.tasks.TestCoExecution"),
+	TestEntry("uk.ac.manchester.tornado.unittests.tasks.TestTaskFusion"),
+	TestEntry("uk.ac.manchester.tornado.unittests.sketcher.TestSketcher"),
 	TestEntry("uk.ac.manchester.tornado.unittests.images.TestImages"),
 	TestEntry("uk.ac.manchester.tornado.unittests.images.TestResizeImage"),
 	TestEntry("uk.ac.manchester.tornado.unittests.branching.TestConditionals"),
@@ -68,11 +76,19 @@ __TEST_THE_WORLD__ = [
 	TestEntry("uk.ac.manchester.tornado.unittests.api.TestAPI"),
 	TestEntry("uk.ac.manchester.tornado.unittests.math.TestMath"),
 	TestEntry("uk.ac.manchester.tornado.unittests.batches.TestBatches"),
+	TestEntry(testName="uk.ac.manchester.tornado.unittests.batches.TestBytecodeOptimizer",
+			  testParameters=["-Dtornado.tvm.optimize=False"]),
+	TestEntry(testName="uk.ac.manchester.tornado.unittests.batches.TestBytecodeOptimizer",
+			  testParameters=["-Dtornado.tvm.optimize=True", "-Dtornado.tvm.optimize.verify=True"]),
 	TestEntry("uk.ac.manchester.tornado.unittests.lambdas.TestLambdas"),
 	TestEntry("uk.ac.manchester.tornado.unittests.flatmap.TestFlatMap"),
 	TestEntry("uk.ac.manchester.tornado.unittests.logic.TestLogic"),
 	TestEntry("uk.ac.manchester.tornado.unittests.reductions.TestReductionsAutomatic"),
 	TestEntry("uk.ac.manchester.tornado.unittests.fields.TestFields"),
+	TestEntry(testName="uk.ac.manchester.tornado.unittests.kernelcache.TestKernelCache",
+			  testParameters=["-Dtornado.kernelcache.dir=" + os.environ["TORNADO_SDK"] + "/kernel-cache-unittests"]),
+	TestEntry(testName="uk.ac.manchester.tornado.unittests.kernelcache.TestInstalledCodeCache",
+			  testParameters=["-Dtornado.kernelcache.shared=True"]),
 	TestEntry("uk.ac.manchester.tornado.unittests.profiler.TestProfiler"),
 	TestEntry("uk.ac.manchester.tornado.unittests.reductions.MultipleReductions"),
 	TestEntry("uk.ac.manchester.tornado.unittests.bitsets.BitSetTests"),
@@ -87,8 +103,16 @@ __TEST_THE_WORLD__ = [
 	TestEntry("uk.ac.manchester.tornado.unittests.fails.CodeFail"),
 	TestEntry("uk.ac.manchester.tornado.unittests.codegen.CodeGen"),
 	TestEntry("uk.ac.manchester.tornado.unittests.grid.TestGrid"),
+	TestEntry(testName="uk.ac.manchester.tornado.unittests.grid.TestAutoTuning",
+			  testParameters=["-Dtornado.autotune.db=" + os.environ["TORNADO_SDK"] + "/autotune-unittests.properties"]),
 	TestEntry("uk.ac.manchester.tornado.unittests.atomics.TestAtomics"),
 	TestEntry("uk.ac.manchester.tornado.unittests.dynamic.TestDynamic"),
+	TestEntry(testName="uk.ac.manchester.tornado.unittests.dynamic.TestDynamicHistory",
+			  testParameters=["-Dtornado.reconfiguration.history.db=" + os.environ["TORNADO_SDK"] + "/reconfiguration-history-unittests.properties"]),
+	TestEntry(testName="uk.ac.manchester.tornado.unittests.dynamic.TestDynamicEnergy",
+			  testParameters=["-Dtornado.energy.monitor=file", "-Dtornado.energy.file=" + os.environ["TORNADO_SDK"] + "/energy-unittests.properties"]),
+	TestEntry(testName="uk.ac.manchester.tornado.unittests.arrays.TestStagingBuffers",
+			  testParameters=["-Dtornado.opencl.staging=True", "-Dtornado.opencl.staging.size=8388608"]),
 	TestEntry(testName="uk.ac.manchester.tornado.unittests.virtual.TestVirtualDeviceKernel", testMethods=["testVirtualDeviceKernelGPU"],
 			  testParameters=["-Dtornado.device.desc=" + os.environ["TORNADO_SDK"] + "/examples/virtual-device-GPU.json", "-Dtornado.print.kernel=True", "-Dtornado.virtual.device=True", "-Dtornado.print.kernel.dir=" + os.environ["TORNADO_SDK"] + "/virtualKernelOut.out"]),
 	TestEntry(testName="uk.ac.manchester.tornado.unittests.virtual.TestVirtualDeviceKernel", testMethods=["testVirtualDeviceKernelCPU"],
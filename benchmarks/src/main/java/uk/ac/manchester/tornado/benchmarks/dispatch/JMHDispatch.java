@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.manchester.tornado.benchmarks.dispatch;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.benchmarks.LinearAlgebraArrays;
+
+/**
+ * Measures the overhead of the TornadoVM interpreter when dispatching the
+ * bytecodes of a task-schedule with many small tasks. The benchmark runs on
+ * the default device, so every execution goes through the launches of the
+ * tasks. The arrays are small and the input is only copied on the first
+ * execution, so the score is dominated by the dispatch of the tasks rather
+ * than by the kernels:
+ *
+ * <code>
+ * tornado uk.ac.manchester.tornado.benchmarks.dispatch.JMHDispatch
+ * </code>
+ *
+ * The score is the time per dispatched task, and the GC profiler reports the
+ * bytes allocated per task. The virtual device cannot be used: it only runs
+ * the warm-up path of the interpreter, which skips the launches.
+ */
+public class JMHDispatch {
+
+    private static final int TASKS = 32;
+
+    @State(Scope.Thread)
+    public static class BenchmarkSetup {
+
+        private int numElements = Integer.parseInt(System.getProperty("x", "256"));
+        private float[] x;
+        private float[] y;
+        private final float alpha = 2f;
+
+        private TaskSchedule ts;
+
+        @Setup(Level.Trial)
+        public void doSetup() {
+            x = new float[numElements];
+            y = new float[numElements];
+
+            for (int i = 0; i < numElements; i++) {
+                x[i] = i;
+            }
+
+            ts = new TaskSchedule("benchmark");
+            for (int i = 0; i < TASKS; i++) {
+                ts.task("t" + i, LinearAlgebraArrays::saxpy, alpha, x, y);
+            }
+            ts.streamOut(y);
+            ts.warmup();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Warmup(iterations = 2, time = 10, timeUnit = TimeUnit.SECONDS)
+    @Measurement(iterations = 5, time = 10, timeUnit = TimeUnit.SECONDS)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @OperationsPerInvocation(TASKS)
+    @Fork(1)
+    public void dispatchTornado(BenchmarkSetup state, Blackhole blackhole) {
+        TaskSchedule t = state.ts;
+        t.execute();
+        blackhole.consume(t);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder() //
+                .include(JMHDispatch.class.getName() + ".*") //
+                .mode(Mode.AverageTime) //
+                .timeUnit(TimeUnit.NANOSECONDS) //
+                .warmupTime(TimeValue.seconds(10)) //
+                .warmupIterations(2) //
+                .measurementTime(TimeValue.seconds(10)) //
+                .measurementIterations(5) //
+                .addProfiler(GCProfiler.class) //
+                .forks(1) //
+                .build();
+        new Runner(opt).run();
+    }
+}
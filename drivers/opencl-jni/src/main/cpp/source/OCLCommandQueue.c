@@ -263,3 +263,43 @@ JNIEXPORT jlong JNICALL Java_uk_ac_manchester_tornado_drivers_opencl_OCLCommandQ
 
     return (jlong) event;
 }
+
+/*
+ * Class:     uk_ac_manchester_tornado_drivers_opencl_OCLCommandQueue
+ * Method:    clEnqueueMapBuffer
+ * Signature: (JJZJJJ[J)J
+ */
+JNIEXPORT jlong JNICALL Java_uk_ac_manchester_tornado_drivers_opencl_OCLCommandQueue_clEnqueueMapBuffer
+(JNIEnv *env, jclass clazz, jlong queue_id, jlong buffer, jboolean blocking, jlong flags, jlong offset, jlong size, jlongArray array) {
+    OPENCL_PROLOGUE;
+
+    OPENCL_DECODE_WAITLIST(array, events, len);
+
+    void *host_ptr;
+    OPENCL_CHECK_ERROR("clEnqueueMapBuffer",
+            host_ptr = clEnqueueMapBuffer((cl_command_queue) queue_id, (cl_mem) buffer, blocking ? CL_TRUE : CL_FALSE, (cl_map_flags) flags, (size_t) offset, (size_t) size, len, (cl_event *) events, NULL, &error_id), 0);
+
+    OPENCL_RELEASE_WAITLIST(array)
+
+    return (jlong) host_ptr;
+}
+
+/*
+ * Class:     uk_ac_manchester_tornado_drivers_opencl_OCLCommandQueue
+ * Method:    clEnqueueUnmapMemObject
+ * Signature: (JJJ[J)J
+ */
+JNIEXPORT jlong JNICALL Java_uk_ac_manchester_tornado_drivers_opencl_OCLCommandQueue_clEnqueueUnmapMemObject
+(JNIEnv *env, jclass clazz, jlong queue_id, jlong buffer, jlong host_ptr, jlongArray array) {
+    OPENCL_PROLOGUE;
+
+    OPENCL_DECODE_WAITLIST(array, events, len);
+
+    cl_event event;
+    OPENCL_SOFT_ERROR("clEnqueueUnmapMemObject",
+            clEnqueueUnmapMemObject((cl_command_queue) queue_id, (cl_mem) buffer, (void *) host_ptr, len, (cl_event *) events, &event), 0);
+
+    OPENCL_RELEASE_WAITLIST(array)
+
+    return (jlong) event;
+}
@@ -90,26 +90,18 @@ extern "C" {
     /*
      * Class:     uk_ac_manchester_tornado_drivers_opencl_OCLCommandQueue
      * Method:    clEnqueueMapBuffer
-     * Signature: (JJJZIJJ[J)J
+     * Signature: (JJZJJJ[J)J
      */
     JNIEXPORT jlong JNICALL Java_uk_ac_manchester_tornado_drivers_opencl_OCLCommandQueue_clEnqueueMapBuffer
-    (JNIEnv *, jclass, jlong, jlong, jlong, jboolean, jint, jlong, jlong, jlongArray);
-
-    /*
-     * Class:     uk_ac_manchester_tornado_drivers_opencl_OCLCommandQueue
-     * Method:    clEnqueueMapBuffer2
-     * Signature: (JJZIJJ[J)Luk/ac/manchester/tornado/drivers/opencl/OCLCommandQueue/OCLMapResult;
-     */
-    JNIEXPORT jobject JNICALL Java_uk_ac_manchester_tornado_drivers_opencl_OCLCommandQueue_clEnqueueMapBuffer2
-    (JNIEnv *, jclass, jlong, jlong, jboolean, jint, jlong, jlong, jlongArray);
+    (JNIEnv *, jclass, jlong, jlong, jboolean, jlong, jlong, jlong, jlongArray);
 
     /*
      * Class:     uk_ac_manchester_tornado_drivers_opencl_OCLCommandQueue
      * Method:    clEnqueueUnmapMemObject
-     * Signature: (JJLjava/nio/ByteBuffer;[J)J
+     * Signature: (JJJ[J)J
      */
     JNIEXPORT jlong JNICALL Java_uk_ac_manchester_tornado_drivers_opencl_OCLCommandQueue_clEnqueueUnmapMemObject
-    (JNIEnv *, jclass, jlong, jlong, jobject, jlongArray);
+    (JNIEnv *, jclass, jlong, jlong, jlong, jlongArray);
 
     /*
      * Class:     uk_ac_manchester_tornado_drivers_opencl_OCLCommandQueue
@@ -225,6 +217,22 @@ extern "C" {
     JNIEXPORT jlong JNICALL Java_uk_ac_manchester_tornado_drivers_opencl_OCLCommandQueue_readArrayFromDevice__J_3DJZJJJ_3J
     (JNIEnv *, jclass, jlong, jdoubleArray, jboolean, jlong, jlong, jlong, jlongArray);
 
+    /*
+     * Class:     uk_ac_manchester_tornado_drivers_opencl_OCLCommandQueue
+     * Method:    writeArrayToDevice
+     * Signature: (JLjava/nio/ByteBuffer;JZJJJ[J)J
+     */
+    JNIEXPORT jlong JNICALL Java_uk_ac_manchester_tornado_drivers_opencl_OCLCommandQueue_writeArrayToDevice__JLjava_nio_ByteBuffer_2JZJJJ_3J
+    (JNIEnv *, jclass, jlong, jobject, jlong hostOffset, jboolean, jlong, jlong, jlong, jlongArray);
+
+    /*
+     * Class:     uk_ac_manchester_tornado_drivers_opencl_OCLCommandQueue
+     * Method:    readArrayFromDevice
+     * Signature: (JLjava/nio/ByteBuffer;JZJJJ[J)J
+     */
+    JNIEXPORT jlong JNICALL Java_uk_ac_manchester_tornado_drivers_opencl_OCLCommandQueue_readArrayFromDevice__JLjava_nio_ByteBuffer_2JZJJJ_3J
+    (JNIEnv *, jclass, jlong, jobject, jlong hostOffset, jboolean, jlong, jlong, jlong, jlongArray);
+
     /*
      * Class:     uk_ac_manchester_tornado_drivers_opencl_OCLCommandQueue
      * Method:    clEnqueueMarker
@@ -140,3 +140,59 @@ READ_ARRAY(Java_uk_ac_manchester_tornado_drivers_opencl_OCLCommandQueue, I, int)
 READ_ARRAY(Java_uk_ac_manchester_tornado_drivers_opencl_OCLCommandQueue, J, long)
 READ_ARRAY(Java_uk_ac_manchester_tornado_drivers_opencl_OCLCommandQueue, F, float)
 READ_ARRAY(Java_uk_ac_manchester_tornado_drivers_opencl_OCLCommandQueue, D, double)
+
+
+/*
+ * Transfers from/to direct (off-heap) buffers. The host memory is not moved by
+ * the Java GC, so there is no need to pin and release the array around the call
+ * and non-blocking transfers do not have to wait for the event to complete.
+ */
+JNIEXPORT jlong JNICALL Java_uk_ac_manchester_tornado_drivers_opencl_OCLCommandQueue_writeArrayToDevice__JLjava_nio_ByteBuffer_2JZJJJ_3J
+    (JNIEnv *env, jclass clazz, jlong queue_id, jobject byteBuffer, jlong hostOffset, jboolean blocking, jlong offset, jlong cb, jlong device_ptr, jlongArray array2) {
+    OPENCL_PROLOGUE;
+    cl_bool blocking_write = blocking ? CL_TRUE : CL_FALSE;
+    jbyte *buffer = (*env)->GetDirectBufferAddress(env, byteBuffer);
+    jlong num_bytes = (cb != -1) ? cb : (*env)->GetDirectBufferCapacity(env, byteBuffer);
+    if (buffer == NULL) {
+        printf("[ERROR] writeArrayToDevice: buffer is not a direct buffer\n");
+        return -1;
+    }
+    OPENCL_DECODE_WAITLIST(array2, events, num_events)
+    if (PRINT_DATA_SIZES) {
+        printf("uk.ac.manchester.tornado.drivers.opencl> write direct buffer 0x%lx (%ld bytes) from %p \n", offset, num_bytes, buffer);
+    }
+    cl_event event;
+    cl_int status = clEnqueueWriteBuffer((cl_command_queue) queue_id, (cl_mem) device_ptr, blocking_write, (size_t) offset, (size_t) num_bytes, &buffer[hostOffset], (cl_uint) num_events, (cl_event*) events, &event);
+    OPENCL_RELEASE_WAITLIST(array2);
+    OPENCL_SOFT_ERROR("clEnqueueWriteBuffer (direct)", status, -1);
+    if (PRINT_DATA_TIMES) {
+        long writeTime = getTimeEvent(event);
+        printf("H2D time: %ld (ns) \n", writeTime);
+    }
+    return (jlong) event;
+}
+
+JNIEXPORT jlong JNICALL Java_uk_ac_manchester_tornado_drivers_opencl_OCLCommandQueue_readArrayFromDevice__JLjava_nio_ByteBuffer_2JZJJJ_3J
+    (JNIEnv *env, jclass clazz, jlong queue_id, jobject byteBuffer, jlong hostOffset, jboolean blocking, jlong offset, jlong cb, jlong device_ptr, jlongArray array2) {
+    OPENCL_PROLOGUE;
+    cl_bool blocking_read = blocking ? CL_TRUE : CL_FALSE;
+    jbyte *buffer = (*env)->GetDirectBufferAddress(env, byteBuffer);
+    jlong num_bytes = (cb != -1) ? cb : (*env)->GetDirectBufferCapacity(env, byteBuffer);
+    if (buffer == NULL) {
+        printf("[ERROR] readArrayFromDevice: buffer is not a direct buffer\n");
+        return -1;
+    }
+    OPENCL_DECODE_WAITLIST(array2, events, num_events)
+    if (PRINT_DATA_SIZES) {
+        printf("uk.ac.manchester.tornado.drivers.opencl> read direct buffer 0x%lx (%ld bytes) to %p\n", offset, num_bytes, buffer);
+    }
+    cl_event event;
+    cl_int status = clEnqueueReadBuffer((cl_command_queue) queue_id, (cl_mem) device_ptr, blocking_read, (size_t) offset, (size_t) num_bytes, (void *) &buffer[hostOffset], (cl_uint) num_events, (cl_event*) events, &event);
+    OPENCL_RELEASE_WAITLIST(array2);
+    OPENCL_SOFT_ERROR("clEnqueueReadBuffer (direct)", status, -1);
+    if (PRINT_DATA_TIMES) {
+        long readTime = getTimeEvent(event);
+        printf("D2H time: %ld (ns) \n", readTime);
+    }
+    return (jlong) event;
+}
@@ -55,12 +55,17 @@ import uk.ac.manchester.tornado.drivers.opencl.enums.OCLBuildStatus;
 import uk.ac.manchester.tornado.drivers.opencl.enums.OCLDeviceType;
 import uk.ac.manchester.tornado.drivers.opencl.exceptions.OCLException;
 import uk.ac.manchester.tornado.drivers.opencl.graal.OCLInstalledCode;
+import uk.ac.manchester.tornado.runtime.TornadoCoreRuntime;
 import uk.ac.manchester.tornado.runtime.common.RuntimeUtilities;
 import uk.ac.manchester.tornado.runtime.common.Tornado;
+import uk.ac.manchester.tornado.runtime.common.TornadoCodeCache;
+import uk.ac.manchester.tornado.runtime.common.TornadoInstalledCode;
+import uk.ac.manchester.tornado.runtime.common.TornadoKernelCache;
 import uk.ac.manchester.tornado.runtime.common.TornadoOptions;
+import uk.ac.manchester.tornado.runtime.domain.DomainTree;
 import uk.ac.manchester.tornado.runtime.tasks.meta.TaskMetaData;
 
-public class OCLCodeCache {
+public class OCLCodeCache implements TornadoCodeCache {
 
     public static final String LOOKUP_BUFFER_KERNEL_NAME = "lookupBufferAddress";
 
@@ -111,6 +116,8 @@ public class OCLCodeCache {
 
     private HashMap<String, String> precompiledBinariesPerDevice;
 
+    private final TornadoKernelCache kernelCache;
+
     private static class Pair {
         private String taskName;
         private String entryPoint;
@@ -134,6 +141,14 @@ public class OCLCodeCache {
                 processPrecompiledBinaries();
             }
         }
+
+        kernelCache = (TornadoKernelCache.isEnabled() && !deviceContext.isPlatformFPGA()) ? new TornadoKernelCache(getDeviceIdentity(), OCLCodeCache.class) : null;
+    }
+
+    String getDeviceIdentity() {
+        final OCLTargetDevice device = deviceContext.getDevice();
+        final TornadoPlatform platform = deviceContext.getPlatformContext().getPlatform();
+        return String.join(";", platform.getVendor(), platform.getName(), device.getDeviceName(), device.getVersion(), device.getDriverVersion(), device.getDeviceOpenCLCVersion()).trim();
     }
 
     private void parseFPGAConfigurationFile() {
@@ -519,6 +534,55 @@ public class OCLCodeCache {
         return code;
     }
 
+    /**
+     * @return the persistent kernel cache of the device, or null if it is
+     *         disabled.
+     */
+    public TornadoKernelCache getKernelCache() {
+        return kernelCache;
+    }
+
+    /**
+     * Installs a kernel found in the persistent kernel cache. The cached binary
+     * is preferred, as it skips the OpenCL compiler; if the driver rejects it
+     * the kernel is rebuilt from the cached source.
+     */
+    public OCLInstalledCode installFromKernelCache(TaskMetaData meta, String id, String key, TornadoKernelCache.Entry entry) {
+        final String entryPoint = entry.getEntryPoint();
+        if (entry.hasBinary()) {
+            final byte[] binary = entry.getBinary();
+            final OCLProgram program = deviceContext.createProgramWithBinary(binary, new long[] { binary.length });
+            if (program != null) {
+                program.build(meta.getCompilerFlags());
+                final OCLKernel kernel = (program.getStatus(deviceContext.getDeviceId()) == CL_BUILD_SUCCESS) ? program.getKernel(entryPoint) : null;
+                if (kernel != null) {
+                    RuntimeUtilities.maybePrintSource(entry.getSource());
+                    final OCLInstalledCode code = new OCLInstalledCode(entryPoint, entry.getSource(), (OCLDeviceContext) deviceContext, program, kernel);
+                    cache.put(id + "-" + entryPoint, code);
+                    return code;
+                }
+            }
+            warn("\tunable to load cached binary for %s, rebuilding it from the cached source", entryPoint);
+            kernelCache.invalidate(key);
+        }
+        return installSource(meta, id, entryPoint, entry.getSource());
+    }
+
+    /**
+     * Stores a kernel built from source in the persistent kernel cache, together
+     * with its binary when the driver can provide it.
+     */
+    public void storeInKernelCache(String key, OCLInstalledCode code, DomainTree domain) {
+        if (!code.isValid()) {
+            return;
+        }
+        byte[] binary = null;
+        if (!deviceContext.getPlatformContext().getPlatform().getVendor().equalsIgnoreCase("Apple")) {
+            binary = code.getProgram().getBinary();
+        }
+        kernelCache.store(key, code.getName(), domain, code.getCode(), binary);
+    }
+
     private OCLInstalledCode installBinary(String id, String entryPoint, byte[] binary) throws OCLException {
         info("Installing binary for %s into code cache", entryPoint);
 
@@ -599,6 +663,22 @@ public class OCLCodeCache {
             code.invalidate();
         }
         cache.clear();
+        TornadoCoreRuntime.getInstalledCodeCache().invalidate(this);
+    }
+
+    /**
+     * Releases a kernel evicted from the shared installed-code cache, together
+     * with its program. Kernels installed from source or from the kernel cache
+     * own their program.
+     */
+    @Override
+    public void release(TornadoInstalledCode code) {
+        cache.values().removeIf(installedCode -> installedCode == code);
+        final OCLInstalledCode installedCode = (OCLInstalledCode) code;
+        if (installedCode.isValid()) {
+            installedCode.invalidate();
+            installedCode.getProgram().cleanup();
+        }
     }
 
     public OCLInstalledCode installEntryPointForBinaryForFPGAs(String id, Path lookupPath, String entrypoint) {
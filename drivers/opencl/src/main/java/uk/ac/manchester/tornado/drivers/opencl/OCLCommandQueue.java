@@ -112,6 +112,18 @@ public class OCLCommandQueue extends TornadoLogger {
 
     native static long readArrayFromDevice(long queueId, double[] buffer, long hostOffset, boolean blocking, long offset, long bytes, long ptr, long[] events) throws OCLException;
 
+    /*
+     * Transfers from/to direct buffers: the host memory is not copied nor pinned
+     * by the JVM, and non-blocking transfers return as soon as they are enqueued.
+     */
+    native static long writeArrayToDevice(long queueId, ByteBuffer buffer, long hostOffset, boolean blocking, long offset, long bytes, long ptr, long[] events) throws OCLException;
+
+    native static long readArrayFromDevice(long queueId, ByteBuffer buffer, long hostOffset, boolean blocking, long offset, long bytes, long ptr, long[] events) throws OCLException;
+
+    native static long clEnqueueMapBuffer(long queueId, long buffer, boolean blocking, long flags, long offset, long bytes, long[] events) throws OCLException;
+
+    native static long clEnqueueUnmapMemObject(long queueId, long buffer, long hostPointer, long[] events) throws OCLException;
+
     /*
      * for OpenCL 1.1 compatibility
      */
@@ -369,6 +381,61 @@ public class OCLCommandQueue extends TornadoLogger {
         return -1;
     }
 
+    /**
+     * Enqueues a write from a direct buffer. When the write is non-blocking, the
+     * contents of the buffer must not be modified until the returned event has
+     * completed.
+     */
+    public long enqueueWrite(long devicePtr, boolean blocking, long offset, long bytes, ByteBuffer buffer, long hostOffset, long[] waitEvents) {
+        guarantee(buffer != null && buffer.isDirect(), "buffer is null or not direct");
+        try {
+            return writeArrayToDevice(commandQueue, buffer, hostOffset, blocking, offset, bytes, devicePtr, waitEvents);
+        } catch (OCLException e) {
+            error(e.getMessage());
+        }
+        return -1;
+    }
+
+    /**
+     * Enqueues a read into a direct buffer. When the read is non-blocking, the
+     * contents of the buffer are only valid once the returned event has
+     * completed.
+     */
+    public long enqueueRead(long devicePtr, boolean blocking, long offset, long bytes, ByteBuffer buffer, long hostOffset, long[] waitEvents) {
+        guarantee(buffer != null && buffer.isDirect(), "buffer is null or not direct");
+        try {
+            return readArrayFromDevice(commandQueue, buffer, hostOffset, blocking, offset, bytes, devicePtr, waitEvents);
+        } catch (OCLException e) {
+            error(e.getMessage());
+        }
+        return -1;
+    }
+
+    /**
+     * Maps a region of a device buffer in the host address space. The call blocks
+     * until the region is mapped.
+     *
+     * @return host address of the mapped region, or 0 if the buffer could not be
+     *         mapped.
+     */
+    public long mapBuffer(long devicePtr, long flags, long offset, long bytes) {
+        try {
+            return clEnqueueMapBuffer(commandQueue, devicePtr, OpenCLBlocking.TRUE, flags, offset, bytes, null);
+        } catch (OCLException e) {
+            error(e.getMessage());
+        }
+        return 0;
+    }
+
+    public long enqueueUnmap(long devicePtr, long hostPointer, long[] waitEvents) {
+        try {
+            return clEnqueueUnmapMemObject(commandQueue, devicePtr, hostPointer, waitEvents);
+        } catch (OCLException e) {
+            error(e.getMessage());
+        }
+        return -1;
+    }
+
     public void finish() {
         try {
             clFinish(commandQueue);
@@ -301,6 +301,19 @@ public class OCLContext extends TornadoLogger implements OCLExecutionEnvironment
         return devicePtr;
     }
 
+    /**
+     * Releases a buffer created with {@link #createBuffer(long, long)}.
+     */
+    public void releaseBuffer(long devicePtr) {
+        try {
+            if (allocatedRegions.remove(Long.valueOf(devicePtr))) {
+                clReleaseMemObject(devicePtr);
+            }
+        } catch (OCLException e) {
+            error(e.getMessage());
+        }
+    }
+
     public int getPlatformIndex() {
         return platform.getIndex();
     }
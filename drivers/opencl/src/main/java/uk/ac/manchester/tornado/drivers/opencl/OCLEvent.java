@@ -68,6 +68,7 @@ public class OCLEvent extends TornadoLogger implements Event {
             "readFromDevice - double[]",
             "sync - marker",
             "sync - barrier",
+            "unmap - buffer",
             "none"
     };
     // @formatter:on
@@ -88,7 +89,8 @@ public class OCLEvent extends TornadoLogger implements Event {
     protected static final int DESC_READ_DOUBLE = 13;
     protected static final int DESC_SYNC_MARKER = 14;
     protected static final int DESC_SYNC_BARRIER = 15;
-    protected static final int EVENT_NONE = 16;
+    protected static final int DESC_UNMAP_BUFFER = 16;
+    protected static final int EVENT_NONE = 17;
 
     private static final long[] internalBuffer = new long[2];
 
@@ -151,6 +153,13 @@ public class OCLEvent extends TornadoLogger implements Event {
         } catch (OCLException e) {
             e.printStackTrace();
         }
+        notifyWait();
+    }
+
+    private void notifyWait() {
+        if (eventsWrapper != null) {
+            eventsWrapper.notifyWait();
+        }
     }
 
     long getCLQueuedTime() {
@@ -201,6 +210,7 @@ public class OCLEvent extends TornadoLogger implements Event {
             case CL_UNKNOWN:
                 fatal("error on event: %s", name);
         }
+        notifyWait();
     }
 
     private void waitOnPassive() {
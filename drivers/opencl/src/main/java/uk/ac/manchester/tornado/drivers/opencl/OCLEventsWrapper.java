@@ -43,7 +43,10 @@ import static uk.ac.manchester.tornado.runtime.common.TornadoOptions.CIRCULAR_EV
  * and handles event registration and serialization. Also contains extra
  * information such as events description and tag.
  * 
- * Only one instance of this class is created per device.
+ * Only one instance of this class is created per device. Task-schedules can
+ * enqueue commands on the same device from several threads, so the event table
+ * is updated under the lock of the wrapper, and each thread serialises its wait
+ * lists in its own buffer.
  */
 class OCLEventsWrapper {
 
@@ -55,7 +58,8 @@ class OCLEventsWrapper {
     private int eventIndex;
 
     private final OCLEvent internalEvent;
-    protected final long[] waitEventsBuffer;
+    private Runnable waitListener;
+    private final ThreadLocal<long[]> waitEventsBuffer;
 
     protected OCLEventsWrapper() {
         this.retain = new BitSet(EVENT_WINDOW);
@@ -65,11 +69,11 @@ class OCLEventsWrapper {
         this.tags = new long[EVENT_WINDOW];
         this.eventQueues = new OCLCommandQueue[EVENT_WINDOW];
         this.eventIndex = 0;
-        this.waitEventsBuffer = new long[MAX_WAIT_EVENTS];
+        this.waitEventsBuffer = ThreadLocal.withInitial(() -> new long[MAX_WAIT_EVENTS]);
         this.internalEvent = new OCLEvent();
     }
 
-    protected int registerEvent(long oclEventId, int descriptorId, long tag, OCLCommandQueue queue) {
+    protected synchronized int registerEvent(long oclEventId, int descriptorId, long tag, OCLCommandQueue queue) {
         if (retain.get(eventIndex)) {
             findNextEventSlot();
         }
@@ -110,12 +114,19 @@ class OCLEventsWrapper {
         guarantee(eventIndex != -1, "event window is full (retained=%d, capacity=%d)", retain.cardinality(), EVENT_WINDOW);
     }
 
-    protected boolean serialiseEvents(int[] dependencies, OCLCommandQueue queue) {
+    /**
+     * Writes the OpenCL events of the dependencies in the wait list buffer of the
+     * calling thread, which is returned by {@link #getWaitEventsBuffer()}.
+     *
+     * @return true if there is at least one event to wait for.
+     */
+    protected synchronized boolean serialiseEvents(int[] dependencies, OCLCommandQueue queue) {
         boolean outOfOrderQueue = (queue.getProperties() & CL_QUEUE_OUT_OF_ORDER_EXEC_MODE_ENABLE) == 1;
         if (dependencies == null || dependencies.length == 0 || !outOfOrderQueue) {
             return false;
         }
 
+        final long[] waitEventsBuffer = this.waitEventsBuffer.get();
         Arrays.fill(waitEventsBuffer, 0);
 
         int index = 0;
@@ -132,7 +143,14 @@ class OCLEventsWrapper {
         return (index > 0);
     }
 
-    public List<OCLEvent> getEvents() {
+    /**
+     * @return the wait list buffer of the calling thread.
+     */
+    protected long[] getWaitEventsBuffer() {
+        return waitEventsBuffer.get();
+    }
+
+    public synchronized List<OCLEvent> getEvents() {
         List<OCLEvent> result = new ArrayList<>();
         for (int i = 0; i < eventIndex; i++) {
             final long eventId = events[i];
@@ -144,20 +162,34 @@ class OCLEventsWrapper {
         return result;
     }
 
-    protected void reset() {
+    protected synchronized void reset() {
         Arrays.fill(events, 0);
         eventIndex = 0;
     }
 
-    protected void retainEvent(int localEventID) {
+    /**
+     * Sets the action that runs every time an event of the device has been
+     * waited for.
+     */
+    protected void setWaitListener(Runnable listener) {
+        this.waitListener = listener;
+    }
+
+    protected void notifyWait() {
+        if (waitListener != null) {
+            waitListener.run();
+        }
+    }
+
+    protected synchronized void retainEvent(int localEventID) {
         retain.set(localEventID);
     }
 
-    protected void releaseEvent(int localEventID) {
+    protected synchronized void releaseEvent(int localEventID) {
         retain.clear(localEventID);
     }
 
-    protected long getOCLEvent(int localEventID) {
+    protected synchronized long getOCLEvent(int localEventID) {
         return events[localEventID];
     }
 
@@ -46,6 +46,11 @@ public class OCLGPUScheduler extends OCLKernelScheduler {
         maxWorkGroupSize = device.getDeviceMaxWorkGroupSize();
     }
 
+    @Override
+    protected boolean supportsAutoTuning() {
+        return true;
+    }
+
     @Override
     public void calculateGlobalWork(final TaskMetaData meta, long batchThreads) {
         final long[] globalWork = meta.getGlobalWork();
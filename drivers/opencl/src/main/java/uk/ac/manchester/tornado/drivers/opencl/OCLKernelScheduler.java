@@ -37,10 +37,59 @@ public abstract class OCLKernelScheduler {
     protected double min;
     protected double max;
 
+    private String kernelName;
+    private byte[] kernelSource;
+    private OCLWorkGroupTuner tuner;
+
     OCLKernelScheduler(final OCLDeviceContext context) {
         deviceContext = context;
     }
 
+    /**
+     * @return true if the scheduler selects the work-group size of the kernels,
+     *         so it can be auto-tuned.
+     */
+    protected boolean supportsAutoTuning() {
+        return false;
+    }
+
+    /**
+     * Allows the work-group size of a kernel to be auto-tuned for the tasks that
+     * enable it with {@code -Dtornado.autotune=True}. The auto-tuner is created on
+     * the first launch of such a task.
+     *
+     * @param entryPoint
+     *            name of the kernel.
+     * @param source
+     *            OpenCL C source of the kernel.
+     */
+    public void setKernelSource(String entryPoint, byte[] source) {
+        if (supportsAutoTuning()) {
+            this.kernelName = entryPoint;
+            this.kernelSource = source;
+        }
+    }
+
+    /**
+     * The work-group size is tuned unless it is set by the user, with a
+     * {@link WorkerGrid} or with the meta-data of the task, or it is left to the
+     * OpenCL driver.
+     */
+    private synchronized OCLWorkGroupTuner getWorkGroupTuner(final TaskMetaData meta) {
+        if (kernelSource == null || !meta.enableAutoTuning() || meta.isWorkerGridAvailable() || meta.isGlobalWorkDefined() || meta.isLocalWorkDefined()
+                || meta.shouldUseOpenCLDriverScheduling() || meta.getDims() == 0) {
+            return null;
+        }
+        if (tuner == null) {
+            tuner = OCLWorkGroupTuner.create(kernelName, kernelSource, deviceContext);
+            if (tuner == null) {
+                // The kernel cannot be tuned
+                kernelSource = null;
+            }
+        }
+        return tuner;
+    }
+
     public abstract void calculateGlobalWork(final TaskMetaData meta, long batchThreads);
 
     public abstract void calculateLocalWork(final TaskMetaData meta);
@@ -85,10 +134,19 @@ public abstract class OCLKernelScheduler {
             }
         }
 
+        final OCLWorkGroupTuner workGroupTuner = getWorkGroupTuner(meta);
+        final OCLWorkGroupTuner.Trial trial = (workGroupTuner != null) ? workGroupTuner.apply(meta) : null;
+
         if (meta.isDebug()) {
             meta.printThreadDims();
         }
         final int taskEvent = launch(kernel, meta, waitEvents, batchThreads);
+        if (trial != null) {
+            // Candidates are measured synchronously while the kernel is tuned
+            Event event = deviceContext.resolveEvent(taskEvent);
+            event.waitForEvents();
+            workGroupTuner.record(trial, event.getExecutionTime());
+        }
         updateProfiler(taskEvent, meta);
         return taskEvent;
     }
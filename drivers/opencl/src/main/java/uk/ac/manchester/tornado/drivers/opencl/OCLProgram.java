@@ -38,7 +38,6 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
-import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -169,7 +168,11 @@ public class OCLProgram extends TornadoLogger {
         return result;
     }
 
-    public void dumpBinaries(String filenamePrefix) {
+    /**
+     * Returns the binary built for the device of this program, or null if the
+     * driver cannot provide it.
+     */
+    public byte[] getBinary() {
 
         final long[] devices = getDevices();
         final int numDevices = getNumDevices();
@@ -192,20 +195,29 @@ public class OCLProgram extends TornadoLogger {
         final ByteBuffer binary = ByteBuffer.allocateDirect(totalSize);
         try {
             getBinaries(id, numDevices, binary);
-
-            info("dumping binary %s", filenamePrefix);
-            try (FileOutputStream fis = new FileOutputStream(filenamePrefix); FileChannel vChannel = fis.getChannel();) {
-                binary.position(offset);
-                binary.limit(offset + (int) sizes[index]);
-                vChannel.write(binary);
-            } catch (IOException e) {
-                error("unable to dump binary: %s", e.getMessage());
-            }
-
         } catch (OCLException e) {
             error("unable to retrieve binary from OpenCL driver: %s", e.getMessage());
+            return null;
         }
 
+        final byte[] result = new byte[(int) sizes[index]];
+        binary.position(offset);
+        binary.get(result);
+        return result;
+    }
+
+    public void dumpBinaries(String filenamePrefix) {
+        final byte[] binary = getBinary();
+        if (binary == null) {
+            return;
+        }
+
+        info("dumping binary %s", filenamePrefix);
+        try (FileOutputStream fos = new FileOutputStream(filenamePrefix)) {
+            fos.write(binary);
+        } catch (IOException e) {
+            error("unable to dump binary: %s", e.getMessage());
+        }
     }
 
     @Override
@@ -52,5 +52,7 @@ public interface OCLTargetDevice extends TornadoTargetDevice {
 
     String getDeviceOpenCLCVersion();
 
+    String getDriverVersion();
+
     boolean isLittleEndian();
 }
@@ -0,0 +1,322 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * School of Engineering, The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.drivers.opencl;
+
+import static uk.ac.manchester.tornado.runtime.common.RuntimeUtilities.hash;
+import static uk.ac.manchester.tornado.runtime.common.Tornado.info;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import uk.ac.manchester.tornado.runtime.common.Tornado;
+import uk.ac.manchester.tornado.runtime.common.TornadoOptions;
+import uk.ac.manchester.tornado.runtime.common.TornadoTuningDatabase;
+import uk.ac.manchester.tornado.runtime.tasks.meta.TaskMetaData;
+
+/**
+ * Auto-tuner of the work-group sizes of a kernel.
+ * <p>
+ * The first invocations of the kernel for each bucket of global sizes (a
+ * power of two per dimension) run with a different candidate work-group size,
+ * and each candidate is measured {@code tornado.autotune.samples} times. The
+ * fastest candidate is then used for all the following invocations, and it is
+ * recorded in the {@link TornadoTuningDatabase}, so later runs reuse it without
+ * tuning again. Results are keyed by the kernel source and the device, so a
+ * change in either of them triggers a new tuning.
+ * <p>
+ * The kernels generated for {@code @Parallel} loops on GPUs iterate with a
+ * stride of the global size, so they can run with a global size that is
+ * padded to a multiple of the work-group size. This avoids the work-groups of
+ * a single thread that the default heuristic selects for prime sizes. Kernels
+ * that use work-group built-ins, such as reductions, depend on the work-group
+ * size chosen by the runtime and are not tuned.
+ */
+public class OCLWorkGroupTuner {
+
+    private static final String[] WORK_GROUP_BUILTINS = { "barrier(", "get_local_id(", "get_local_size(", "get_group_id(", "get_num_groups(" };
+    private static final String GRID_STRIDE_BUILTIN = "get_global_size(";
+
+    private static final long[] GROUP_SIZES_1D = { 32, 64, 128, 256, 512, 1024 };
+    private static final long[][] GROUP_SHAPES_2D = { { 8, 8 }, { 16, 4 }, { 32, 2 }, { 64, 1 }, { 8, 16 }, { 16, 8 }, { 32, 4 }, { 64, 2 }, { 128, 1 }, { 16, 16 }, { 32, 8 }, { 64, 4 },
+            { 128, 2 }, { 256, 1 } };
+
+    private final String kernelKey;
+    private final boolean padding;
+    private final long[] maxWorkItemSizes;
+    private final long maxWorkGroupSize;
+    private final TornadoTuningDatabase database;
+
+    private final Map<String, long[]> results;
+    private final Map<String, Session> sessions;
+
+    /**
+     * Candidate that is being measured.
+     */
+    static final class Trial {
+        private final Session session;
+        private final int candidate;
+
+        private Trial(Session session, int candidate) {
+            this.session = session;
+            this.candidate = candidate;
+        }
+    }
+
+    /**
+     * Tuning of the work-group size for a bucket of global sizes.
+     */
+    private static final class Session {
+        private final String key;
+        private final long[][] candidates;
+        private final long[] bestTimes;
+        private final int[] samples;
+        private int next;
+
+        private Session(String key, long[][] candidates) {
+            this.key = key;
+            this.candidates = candidates;
+            this.bestTimes = new long[candidates.length];
+            this.samples = new int[candidates.length];
+            Arrays.fill(bestTimes, Long.MAX_VALUE);
+        }
+
+        private boolean isComplete() {
+            for (int sample : samples) {
+                if (sample < TornadoOptions.AUTOTUNE_SAMPLES) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private long[] getBest() {
+            int best = 0;
+            for (int i = 1; i < candidates.length; i++) {
+                if (bestTimes[i] < bestTimes[best]) {
+                    best = i;
+                }
+            }
+            return candidates[best];
+        }
+    }
+
+    private OCLWorkGroupTuner(String kernelKey, boolean padding, OCLTargetDevice device) {
+        this.kernelKey = kernelKey;
+        this.padding = padding;
+        this.maxWorkItemSizes = device.getDeviceMaxWorkItemSizes();
+        this.maxWorkGroupSize = device.getDeviceMaxWorkGroupSize()[0];
+        this.database = TornadoTuningDatabase.getDatabase();
+        this.results = new HashMap<>();
+        this.sessions = new HashMap<>();
+    }
+
+    /**
+     * Creates the auto-tuner of a kernel.
+     *
+     * @param entryPoint
+     *            name of the kernel.
+     * @param source
+     *            OpenCL C source of the kernel.
+     * @return the auto-tuner, or null if the kernel cannot be tuned.
+     */
+    static OCLWorkGroupTuner create(String entryPoint, byte[] source, OCLDeviceContext deviceContext) {
+        if (source == null || !Tornado.ENABLE_PROFILING || deviceContext.isPlatformFPGA()) {
+            return null;
+        }
+        final String code = new String(source, StandardCharsets.UTF_8);
+        for (String builtin : WORK_GROUP_BUILTINS) {
+            if (code.contains(builtin)) {
+                return null;
+            }
+        }
+        final String kernelKey = entryPoint + "." + hash(code) + "." + hash(deviceContext.getCodeCache().getDeviceIdentity());
+        return new OCLWorkGroupTuner(kernelKey, code.contains(GRID_STRIDE_BUILTIN), deviceContext.getDevice());
+    }
+
+    private static int bucket(long globalSize) {
+        return 64 - Long.numberOfLeadingZeros(Math.max(1, globalSize) - 1);
+    }
+
+    private String getKey(TaskMetaData meta) {
+        final StringBuilder key = new StringBuilder(kernelKey).append('.');
+        for (int i = 0; i < meta.getDims(); i++) {
+            key.append((i == 0) ? "" : "x").append(bucket(meta.getGlobalWork()[i]));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Sets the work-group size, and pads the global size if needed, for the next
+     * launch of the kernel. The heuristic sizes already set in the meta-data are
+     * kept when the tuned work-group size cannot be used for the global size.
+     *
+     * @return the candidate to measure, or null if the bucket has been tuned.
+     */
+    synchronized Trial apply(TaskMetaData meta) {
+        final String key = getKey(meta);
+        long[] result = results.get(key);
+        if (result == null) {
+            result = decode(database.get(key));
+            if (result != null) {
+                results.put(key, result);
+            }
+        }
+        if (result != null) {
+            applyTo(meta, result);
+            return null;
+        }
+
+        Session session = sessions.get(key);
+        if (session == null) {
+            session = new Session(key, buildCandidates(meta));
+            sessions.put(key, session);
+        }
+        final int candidate = session.next;
+        session.next = (session.next + 1) % session.candidates.length;
+        applyTo(meta, session.candidates[candidate]);
+        return new Trial(session, candidate);
+    }
+
+    /**
+     * Records the execution time of a candidate. Once all the candidates have
+     * been measured, the fastest one is stored in the database.
+     */
+    synchronized void record(Trial trial, long executionTime) {
+        final Session session = trial.session;
+        if (results.containsKey(session.key)) {
+            return;
+        }
+        session.samples[trial.candidate]++;
+        if (executionTime > 0) {
+            session.bestTimes[trial.candidate] = Math.min(session.bestTimes[trial.candidate], executionTime);
+        }
+        if (session.isComplete()) {
+            final long[] best = session.getBest();
+            results.put(session.key, best);
+            sessions.remove(session.key);
+            database.put(session.key, encode(best));
+            info("auto-tuning of %s: work-group %s", session.key, Arrays.toString(best));
+        }
+    }
+
+    private boolean isApplicable(long[] local, long[] global, int dims) {
+        for (int i = 0; i < dims; i++) {
+            if (local[i] <= 0 || local[i] > maxWorkItemSizes[i] || (!padding && global[i] % local[i] != 0)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void applyTo(TaskMetaData meta, long[] local) {
+        final long[] global = meta.getGlobalWork();
+        if (!isApplicable(local, global, meta.getDims())) {
+            return;
+        }
+        final long[] localWork = meta.getLocalWork();
+        for (int i = 0; i < meta.getDims(); i++) {
+            localWork[i] = local[i];
+            global[i] = ((global[i] + local[i] - 1) / local[i]) * local[i];
+        }
+    }
+
+    /**
+     * Builds the work-group sizes to measure. The first candidate is the one
+     * selected by the default heuristic.
+     */
+    private long[][] buildCandidates(TaskMetaData meta) {
+        final int dims = meta.getDims();
+        final long[] global = meta.getGlobalWork();
+        final List<long[]> candidates = new ArrayList<>();
+        candidates.add(Arrays.copyOf(meta.getLocalWork(), 3));
+
+        final List<long[]> shapes = new ArrayList<>();
+        if (dims == 1) {
+            for (long size : GROUP_SIZES_1D) {
+                shapes.add(new long[] { size, 1, 1 });
+            }
+        } else {
+            for (long[] shape : GROUP_SHAPES_2D) {
+                shapes.add(new long[] { shape[0], shape[1], 1 });
+            }
+        }
+
+        for (long[] shape : shapes) {
+            if (shape[0] * shape[1] > maxWorkGroupSize || !isApplicable(shape, global, dims) || isOversized(shape, global, dims) || contains(candidates, shape)) {
+                continue;
+            }
+            candidates.add(shape);
+        }
+        return candidates.toArray(new long[0][]);
+    }
+
+    /**
+     * A work-group that is larger than twice the global size only adds idle
+     * threads.
+     */
+    private static boolean isOversized(long[] local, long[] global, int dims) {
+        for (int i = 0; i < dims; i++) {
+            if (local[i] >= 2 * global[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean contains(List<long[]> candidates, long[] local) {
+        for (long[] candidate : candidates) {
+            if (Arrays.equals(candidate, local)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String encode(long[] local) {
+        return local[0] + "," + local[1] + "," + local[2];
+    }
+
+    private static long[] decode(String value) {
+        if (value == null) {
+            return null;
+        }
+        final String[] values = value.split(",");
+        if (values.length != 3) {
+            return null;
+        }
+        try {
+            final long[] local = new long[3];
+            for (int i = 0; i < 3; i++) {
+                local[i] = Long.parseLong(values[i].trim());
+            }
+            return local;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -41,7 +41,6 @@ import uk.ac.manchester.tornado.runtime.tasks.meta.TaskMetaData;
 
 import java.nio.ByteOrder;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 
 import static uk.ac.manchester.tornado.runtime.common.Tornado.getProperty;
@@ -197,7 +196,7 @@ public class OpenCL {
         CallStack stack = tornadoDevice.createStack(numArgs);
 
         // Fill header of call stack with empty values
-        stack.setHeader(new HashMap<>());
+        stack.setHeader(new long[0]);
 
         // Pass arguments to the call stack
         for (int i = 0; i < numArgs; i++) {
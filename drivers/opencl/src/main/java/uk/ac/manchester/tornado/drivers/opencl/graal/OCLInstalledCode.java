@@ -67,6 +67,15 @@ public class OCLInstalledCode extends InstalledCode implements TornadoInstalledC
     private final OCLKernelScheduler scheduler;
     private final int[] internalEvents = new int[1];
 
+    /**
+     * Call stack bound to the arguments of the kernel. The installed code can be
+     * shared by several task-schedules, each with its own call stack, so the
+     * arguments are bound again when the kernel is launched with another stack.
+     * Launches are synchronised on the installed code, since the arguments of
+     * the kernel are only captured when the kernel is enqueued.
+     */
+    private OCLByteBuffer boundStack;
+
     private final long[] singleThreadGlobalWorkSize = new long[] { 1 };
     private final long[] singleThreadLocalWorkSize = new long[] { 1 };
 
@@ -75,6 +84,9 @@ public class OCLInstalledCode extends InstalledCode implements TornadoInstalledC
         this.code = code;
         this.deviceContext = deviceContext;
         this.scheduler = OCLScheduler.create(deviceContext);
+        if (scheduler != null && !deviceContext.isPlatformFPGA()) {
+            scheduler.setKernelSource(entryPoint, code);
+        }
         this.DEFAULT_SCHEDULER = new OCLGPUScheduler(deviceContext);
         this.kernel = kernel;
         this.program = program;
@@ -112,7 +124,7 @@ public class OCLInstalledCode extends InstalledCode implements TornadoInstalledC
      *            {@link TaskMetaData} netadata
      * @return int with the event ID.
      */
-    public int executeTask(final OCLByteBuffer stack, final ObjectBuffer atomicSpace, final TaskMetaData meta) {
+    public synchronized int executeTask(final OCLByteBuffer stack, final ObjectBuffer atomicSpace, final TaskMetaData meta) {
         debug("kernel submitted: id=0x%x, method = %s, device =%s", kernel.getOclKernelID(), kernel.getName(), deviceContext.getDevice().getDeviceName());
         debug("\tstack    : buffer id=0x%x, address=0x%x relative=0x%x", stack.toBuffer(), stack.toAbsoluteAddress(), stack.toRelativeAddress());
 
@@ -181,6 +193,7 @@ public class OCLInstalledCode extends InstalledCode implements TornadoInstalledC
      *            task metadata {@link TaskMetaData}
      */
     private void setKernelArgs(final OCLByteBuffer stack, final ObjectBuffer atomicSpace, TaskMetaData meta) {
+        boundStack = stack;
         int index = 0;
 
         if (deviceContext.needsBump()) {
@@ -233,7 +246,7 @@ public class OCLInstalledCode extends InstalledCode implements TornadoInstalledC
 
     }
 
-    public int submitWithEvents(final OCLCallStack stack, final ObjectBuffer atomicSpace, final TaskMetaData meta, final int[] events, long batchThreads) {
+    public synchronized int submitWithEvents(final OCLCallStack stack, final ObjectBuffer atomicSpace, final TaskMetaData meta, final int[] events, long batchThreads) {
         guarantee(kernel != null, "kernel is null");
 
         if (DEBUG) {
@@ -250,6 +263,9 @@ public class OCLInstalledCode extends InstalledCode implements TornadoInstalledC
             internalEvents[0] = stack.enqueueWrite(events);
             waitEvents = internalEvents;
         } else {
+            if (stack != boundStack) {
+                setKernelArgs(stack, atomicSpace, meta);
+            }
             waitEvents = events;
         }
 
@@ -359,7 +375,7 @@ public class OCLInstalledCode extends InstalledCode implements TornadoInstalledC
         }
     }
 
-    private void submitWithoutEvents(final OCLCallStack stack, final ObjectBuffer atomicSpace, final TaskMetaData meta, long batchThreads) {
+    private synchronized void submitWithoutEvents(final OCLCallStack stack, final ObjectBuffer atomicSpace, final TaskMetaData meta, long batchThreads) {
 
         checkKernelNotNull();
 
@@ -374,6 +390,8 @@ public class OCLInstalledCode extends InstalledCode implements TornadoInstalledC
         if (!stack.isOnDevice()) {
             setKernelArgs(stack, atomicSpace, meta);
             stack.enqueueWrite();
+        } else if (stack != boundStack) {
+            setKernelArgs(stack, atomicSpace, meta);
         }
 
         guarantee(kernel != null, "kernel is null");
@@ -25,8 +25,6 @@
  */
 package uk.ac.manchester.tornado.drivers.opencl.mm;
 
-import java.util.ArrayList;
-import java.util.List;
 
 import uk.ac.manchester.tornado.api.exceptions.TornadoMemoryException;
 import uk.ac.manchester.tornado.api.exceptions.TornadoOutOfMemoryException;
@@ -87,12 +85,12 @@ public class AtomicsBuffer implements ObjectBuffer {
     }
 
     @Override
-    public List<Integer> enqueueWrite(Object reference, long batchSize, long hostOffset, int[] events, boolean useDeps) {
+    public int[] enqueueWrite(Object reference, long batchSize, long hostOffset, int[] events, boolean useDeps) {
         // Non-blocking write
         if (atomicsList.length == 0) {
             return null;
         }
-        return new ArrayList<>(deviceContext.enqueueWriteBuffer(deviceContext.getMemoryManager().toAtomicAddress(), OFFSET, 4 * atomicsList.length, atomicsList, 0, events));
+        return new int[] { deviceContext.enqueueWriteBuffer(deviceContext.getMemoryManager().toAtomicAddress(), OFFSET, 4 * atomicsList.length, atomicsList, 0, events) };
     }
 
     @Override
@@ -100,6 +98,11 @@ public class AtomicsBuffer implements ObjectBuffer {
         deviceContext.getMemoryManager().allocateAtomicRegion();
     }
 
+    @Override
+    public void deallocate() {
+        // The atomics region is shared by all kernels of the device
+    }
+
     @Override
     public int getAlignment() {
         throw new TornadoRuntimeException("Not implemented");
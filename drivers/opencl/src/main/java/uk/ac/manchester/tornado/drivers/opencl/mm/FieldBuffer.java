@@ -32,7 +32,6 @@ import static uk.ac.manchester.tornado.runtime.common.Tornado.warn;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
-import java.util.List;
 
 import uk.ac.manchester.tornado.api.exceptions.TornadoMemoryException;
 import uk.ac.manchester.tornado.api.exceptions.TornadoOutOfMemoryException;
@@ -58,6 +57,10 @@ public class FieldBuffer {
         objectBuffer.allocate(getFieldValue(ref), batchSize);
     }
 
+    public void deallocate() {
+        objectBuffer.deallocate();
+    }
+
     public int enqueueRead(final Object ref, final int[] events, boolean useDeps) {
         if (DEBUG) {
             trace("fieldBuffer: enqueueRead* - field=%s, parent=0x%x, child=0x%x", field, ref.hashCode(), getFieldValue(ref).hashCode());
@@ -66,13 +69,29 @@ public class FieldBuffer {
         return (useDeps) ? objectBuffer.enqueueRead(getFieldValue(ref), 0, (useDeps) ? events : null, useDeps) : -1;
     }
 
-    public List<Integer> enqueueWrite(final Object ref, final int[] events, boolean useDeps) {
+    public int[] enqueueWrite(final Object ref, final int[] events, boolean useDeps) {
         if (DEBUG) {
             trace("fieldBuffer: enqueueWrite* - field=%s, parent=0x%x, child=0x%x", field, ref.hashCode(), getFieldValue(ref).hashCode());
         }
         return (useDeps) ? objectBuffer.enqueueWrite(getFieldValue(ref), 0, 0, (useDeps) ? events : null, useDeps) : null;
     }
 
+    public int enqueueRead(final Object ref, long hostOffset, final int[] events, boolean useDeps) {
+        if (DEBUG) {
+            trace("fieldBuffer: enqueueRead* - field=%s, parent=0x%x, child=0x%x, offset=%d", field, ref.hashCode(), getFieldValue(ref).hashCode(), hostOffset);
+        }
+        int eventId = objectBuffer.enqueueRead(getFieldValue(ref), hostOffset, (useDeps) ? events : null, useDeps);
+        return (useDeps) ? eventId : -1;
+    }
+
+    public int[] enqueueWrite(final Object ref, long batchSize, long hostOffset, final int[] events, boolean useDeps) {
+        if (DEBUG) {
+            trace("fieldBuffer: enqueueWrite* - field=%s, parent=0x%x, child=0x%x, batchSize=%d, offset=%d", field, ref.hashCode(), getFieldValue(ref).hashCode(), batchSize, hostOffset);
+        }
+        int[] eventsIds = objectBuffer.enqueueWrite(getFieldValue(ref), batchSize, hostOffset, (useDeps) ? events : null, useDeps);
+        return (useDeps) ? eventsIds : null;
+    }
+
     public int getAlignment() {
         return objectBuffer.getAlignment();
     }
@@ -107,6 +126,13 @@ public class FieldBuffer {
         return objectBuffer.read(getFieldValue(ref), 0, events, useDeps);
     }
 
+    public int read(final Object ref, long hostOffset, int[] events, boolean useDeps) {
+        if (DEBUG) {
+            debug("fieldBuffer: read - field=%s, parent=0x%x, child=0x%x, offset=%d", field, ref.hashCode(), getFieldValue(ref).hashCode(), hostOffset);
+        }
+        return objectBuffer.read(getFieldValue(ref), hostOffset, events, useDeps);
+    }
+
     public long toAbsoluteAddress() {
         return objectBuffer.toAbsoluteAddress();
     }
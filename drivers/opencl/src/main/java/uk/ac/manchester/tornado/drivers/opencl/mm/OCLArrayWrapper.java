@@ -34,8 +34,6 @@ import static uk.ac.manchester.tornado.runtime.common.Tornado.info;
 import static uk.ac.manchester.tornado.runtime.common.TornadoOptions.OPENCL_ARRAY_ALIGNMENT;
 
 import java.lang.reflect.Array;
-import java.util.ArrayList;
-import java.util.List;
 
 import jdk.vm.ci.meta.JavaKind;
 import uk.ac.manchester.tornado.api.exceptions.TornadoMemoryException;
@@ -46,13 +44,18 @@ import uk.ac.manchester.tornado.runtime.common.Tornado;
 
 public abstract class OCLArrayWrapper<T> implements ObjectBuffer {
 
+    private static final int[] NO_EVENTS = new int[0];
+
     private final int arrayHeaderSize;
 
     private final int arrayLengthOffset;
 
     private long bufferOffset;
 
+    private long heapGeneration;
+
     private long bytesToAllocate;
+    private long bufferCapacity;
 
     protected final OCLDeviceContext deviceContext;
 
@@ -99,7 +102,8 @@ public abstract class OCLArrayWrapper<T> implements ObjectBuffer {
             newBufferSize = sizeOfBatch(batchSize);
         }
 
-        if ((batchSize > 0) && (bufferOffset != -1) && (newBufferSize < bytesToAllocate)) {
+        if ((batchSize > 0) && (bufferOffset != -1) && (newBufferSize <= bufferCapacity)) {
+            // Batches of different sizes reuse the same region
             bytesToAllocate = newBufferSize;
         }
 
@@ -116,6 +120,8 @@ public abstract class OCLArrayWrapper<T> implements ObjectBuffer {
             }
 
             bufferOffset = deviceContext.getMemoryManager().tryAllocate(bytesToAllocate, arrayHeaderSize, getAlignment());
+            bufferCapacity = bytesToAllocate;
+            heapGeneration = deviceContext.getMemoryManager().getHeapGeneration();
 
             if (Tornado.FULL_DEBUG) {
                 info("allocated: array kind=%s, size=%s, length offset=%d, header size=%d, bo=0x%x", kind.getJavaName(), humanReadableByteCount(bytesToAllocate, true), arrayLengthOffset,
@@ -126,6 +132,21 @@ public abstract class OCLArrayWrapper<T> implements ObjectBuffer {
 
     }
 
+    @Override
+    public void deallocate() {
+        if (bufferOffset == -1) {
+            return;
+        }
+        deviceContext.getMemoryManager().free(bufferOffset, heapGeneration);
+        if (Tornado.FULL_DEBUG) {
+            info("deallocated: %s", toString());
+        }
+        bufferOffset = -1;
+        bytesToAllocate = 0;
+        bufferCapacity = 0;
+        onDevice = false;
+    }
+
     @Override
     public long size() {
         return bytesToAllocate;
@@ -165,9 +186,9 @@ public abstract class OCLArrayWrapper<T> implements ObjectBuffer {
         }
         final int returnEvent;
         if (isFinal) {
-            returnEvent = enqueueReadArrayData(toBuffer(), bufferOffset + arrayHeaderSize, bytesToAllocate - arrayHeaderSize, array, hostOffset, (useDeps) ? events : null);
+            returnEvent = enqueueReadData(toBuffer(), bufferOffset + arrayHeaderSize, bytesToAllocate - arrayHeaderSize, array, hostOffset, (useDeps) ? events : null);
         } else {
-            returnEvent = enqueueReadArrayData(toBuffer(), bufferOffset + arrayHeaderSize, bytesToAllocate - arrayHeaderSize, array, hostOffset, (useDeps) ? events : null);
+            returnEvent = enqueueReadData(toBuffer(), bufferOffset + arrayHeaderSize, bytesToAllocate - arrayHeaderSize, array, hostOffset, (useDeps) ? events : null);
         }
         return useDeps ? returnEvent : -1;
     }
@@ -190,33 +211,91 @@ public abstract class OCLArrayWrapper<T> implements ObjectBuffer {
     abstract protected int enqueueReadArrayData(long bufferId, long offset, long bytes, T value, long hostOffset, int[] waitEvents);
 
     @Override
-    public List<Integer> enqueueWrite(final Object value, long batchSize, long hostOffset, final int[] events, boolean useDeps) {
+    public int[] enqueueWrite(final Object value, long batchSize, long hostOffset, final int[] events, boolean useDeps) {
         final T array = cast(value);
-        ArrayList<Integer> listEvents = new ArrayList<>();
+        int[] writeEvents = NO_EVENTS;
 
         if (array == null) {
             throw new TornadoRuntimeException("ERROR] Data to be copied is NULL");
         }
         final int returnEvent;
         if (isFinal && onDevice) {
-            returnEvent = enqueueWriteArrayData(toBuffer(), bufferOffset + arrayHeaderSize, bytesToAllocate - arrayHeaderSize, array, hostOffset, (useDeps) ? events : null);
+            returnEvent = enqueueWriteData(toBuffer(), bufferOffset + arrayHeaderSize, bytesToAllocate - arrayHeaderSize, array, hostOffset, (useDeps) ? events : null);
         } else {
             // We first write the header for the object and then we write actual
             // buffer
             final int headerEvent;
             if (batchSize <= 0) {
-                headerEvent = buildArrayHeader(Array.getLength(array)).enqueueWrite((useDeps) ? events : null);
+                headerEvent = buildArrayHeader(getLength(array)).enqueueWrite((useDeps) ? events : null);
             } else {
                 headerEvent = buildArrayHeaderBatch(batchSize).enqueueWrite((useDeps) ? events : null);
             }
-            returnEvent = enqueueWriteArrayData(toBuffer(), bufferOffset + arrayHeaderSize, bytesToAllocate - arrayHeaderSize, array, hostOffset, (useDeps) ? events : null);
+            returnEvent = enqueueWriteData(toBuffer(), bufferOffset + arrayHeaderSize, bytesToAllocate - arrayHeaderSize, array, hostOffset, (useDeps) ? events : null);
             onDevice = true;
             // returnEvent = deviceContext.enqueueMarker(internalEvents);
 
-            listEvents.add(headerEvent);
-            listEvents.add(returnEvent);
+            writeEvents = new int[] { headerEvent, returnEvent };
+        }
+        return useDeps ? writeEvents : null;
+    }
+
+    @Override
+    public int[] enqueueWriteRange(final Object value, long hostOffset, long bytes, final int[] events, boolean useDeps) {
+        final T array = cast(value);
+        if (array == null) {
+            throw new TornadoRuntimeException("ERROR] Data to be copied is NULL");
+        }
+        if (!onDevice || batchSize > 0 || hostOffset < 0 || hostOffset + bytes > bytesToAllocate - arrayHeaderSize) {
+            return enqueueWrite(value, 0, 0, events, useDeps);
+        }
+        final int returnEvent = enqueueWriteData(toBuffer(), bufferOffset + arrayHeaderSize + hostOffset, bytes, array, hostOffset, (useDeps) ? events : null);
+        return useDeps ? new int[] { returnEvent } : null;
+    }
+
+    /**
+     * @return true if the asynchronous transfers of the host data can go through
+     *         the pinned staging buffers of the device.
+     */
+    protected boolean useStagingBuffers() {
+        return true;
+    }
+
+    private OCLStagingBufferPool getStagingBufferPool(long bytes) {
+        final OCLStagingBufferPool stagingBuffers = useStagingBuffers() ? deviceContext.getStagingBufferPool() : null;
+        return (stagingBuffers != null && stagingBuffers.isStaged(bytes)) ? stagingBuffers : null;
+    }
+
+    private int enqueueWriteData(long bufferId, long offset, long bytes, T value, long hostOffset, int[] waitEvents) {
+        final OCLStagingBufferPool stagingBuffers = getStagingBufferPool(bytes);
+        if (stagingBuffers == null) {
+            return enqueueWriteArrayData(bufferId, offset, bytes, value, hostOffset, waitEvents);
         }
-        return useDeps ? listEvents : null;
+        // The host array can be modified as soon as it is copied to the staging
+        // buffer, the transfer to the device completes asynchronously
+        final OCLStagingBuffer stagingBuffer = stagingBuffers.acquire(bytes);
+        if (stagingBuffer == null) {
+            return enqueueWriteArrayData(bufferId, offset, bytes, value, hostOffset, waitEvents);
+        }
+        stagingBuffer.put(value, hostOffset, bytes);
+        final int event = deviceContext.enqueueWriteBuffer(bufferId, offset, bytes, stagingBuffer.getBuffer(), 0, waitEvents);
+        stagingBuffers.release(stagingBuffer, event);
+        return event;
+    }
+
+    private int enqueueReadData(long bufferId, long offset, long bytes, T value, long hostOffset, int[] waitEvents) {
+        final OCLStagingBufferPool stagingBuffers = getStagingBufferPool(bytes);
+        if (stagingBuffers == null) {
+            return enqueueReadArrayData(bufferId, offset, bytes, value, hostOffset, waitEvents);
+        }
+        final OCLStagingBuffer stagingBuffer = stagingBuffers.acquire(bytes);
+        if (stagingBuffer == null) {
+            return enqueueReadArrayData(bufferId, offset, bytes, value, hostOffset, waitEvents);
+        }
+        // The host array is updated when the read completes, once its event is
+        // waited for or the device is synchronised
+        final int event = deviceContext.enqueueReadBuffer(bufferId, offset, bytes, stagingBuffer.getBuffer(), 0, waitEvents);
+        stagingBuffers.deferRead(stagingBuffer, event, value, hostOffset, bytes);
+        return event;
     }
 
     /**
@@ -314,8 +393,15 @@ public abstract class OCLArrayWrapper<T> implements ObjectBuffer {
 
     abstract protected int readArrayData(long bufferId, long offset, long bytes, T value, long hostOffset, int[] waitEvents);
 
+    /**
+     * @return number of elements of the host array.
+     */
+    protected int getLength(final T array) {
+        return Array.getLength(array);
+    }
+
     private long sizeOf(final T array) {
-        return (long) arrayHeaderSize + ((long) Array.getLength(array) * (long) kind.getByteCount());
+        return (long) arrayHeaderSize + ((long) getLength(array) * (long) kind.getByteCount());
     }
 
     private long sizeOfBatch(long batchSize) {
@@ -356,9 +442,9 @@ public abstract class OCLArrayWrapper<T> implements ObjectBuffer {
         final OCLByteBuffer header = prepareArrayHeader();
         header.read();
         final int numElements = header.getInt(arrayLengthOffset);
-        final boolean valid = numElements == Array.getLength(array);
+        final boolean valid = numElements == getLength(array);
         if (!valid) {
-            fatal("Array: expected=%d, got=%d", Array.getLength(array), numElements);
+            fatal("Array: expected=%d, got=%d", getLength(array), numElements);
             header.dump(8);
         }
         return valid;
@@ -370,7 +456,7 @@ public abstract class OCLArrayWrapper<T> implements ObjectBuffer {
         if (array == null) {
             throw new TornadoRuntimeException("[ERROR] data is NULL");
         }
-        buildArrayHeader(Array.getLength(array)).write();
+        buildArrayHeader(getLength(array)).write();
         // TODO: Writing with offset != 0
         writeArrayData(toBuffer(), bufferOffset + arrayHeaderSize, bytesToAllocate - arrayHeaderSize, array, 0, null);
         onDevice = true;
@@ -31,7 +31,6 @@ import static uk.ac.manchester.tornado.runtime.common.RuntimeUtilities.isBoxedPr
 import static uk.ac.manchester.tornado.runtime.common.Tornado.DEBUG;
 import static uk.ac.manchester.tornado.runtime.common.Tornado.debug;
 
-import java.util.HashMap;
 
 import uk.ac.manchester.tornado.drivers.opencl.OCLDeviceContext;
 import uk.ac.manchester.tornado.runtime.common.CallStack;
@@ -122,14 +121,10 @@ public class OCLCallStack extends OCLByteBuffer implements CallStack {
     }
 
     @Override
-    public void setHeader(HashMap<Integer, Integer> map) {
+    public void setHeader(long[] header) {
         buffer.clear();
         for (int i = 0; i < RESERVED_SLOTS; i++) {
-            if (map.containsKey(i)) {
-                buffer.putLong(map.get(i));
-            } else {
-                buffer.putLong(0);
-            }
+            buffer.putLong((i < header.length) ? header[i] : 0);
         }
     }
 
@@ -35,6 +35,8 @@ import uk.ac.manchester.tornado.drivers.opencl.graal.backend.OCLBackend;
 import uk.ac.manchester.tornado.runtime.common.RuntimeUtilities;
 import uk.ac.manchester.tornado.runtime.common.Tornado;
 import uk.ac.manchester.tornado.runtime.common.TornadoLogger;
+import uk.ac.manchester.tornado.runtime.mm.TornadoHeapAllocator;
+import uk.ac.manchester.tornado.runtime.mm.TornadoHeapAllocators;
 import uk.ac.manchester.tornado.runtime.tasks.meta.ScheduleMetaData;
 
 public class OCLMemoryManager extends TornadoLogger implements TornadoMemoryProvider {
@@ -49,7 +51,8 @@ public class OCLMemoryManager extends TornadoLogger implements TornadoMemoryProv
     private long constantPointer;
     private long atomicsRegion = -1;
     private long heapLimit;
-    private long heapPosition;
+    private long heapGeneration;
+    private final TornadoHeapAllocator heapAllocator;
     private boolean initialised;
 
     private static final int STACK_ALIGNMENT_SIZE = 128;
@@ -62,6 +65,7 @@ public class OCLMemoryManager extends TornadoLogger implements TornadoMemoryProv
         callStackLimit = OCL_CALL_STACK_LIMIT;
         initialised = false;
         scheduleMeta = new ScheduleMetaData("mm-" + device.getDeviceId());
+        heapAllocator = TornadoHeapAllocators.create();
         reset();
     }
 
@@ -82,18 +86,29 @@ public class OCLMemoryManager extends TornadoLogger implements TornadoMemoryProv
 
     @Override
     public long getHeapAllocated() {
-        return heapPosition - callStackLimit;
+        return heapAllocator.getAllocatedBytes();
     }
 
     @Override
     public long getHeapRemaining() {
-        return heapLimit - heapPosition;
+        return heapAllocator.getFreeBytes();
+    }
+
+    @Override
+    public long getHeapHighWaterMark() {
+        return heapAllocator.getHighWaterMark();
+    }
+
+    @Override
+    public double getHeapFragmentation() {
+        return heapAllocator.getFragmentation();
     }
 
     public final void reset() {
         callStackPosition = 0;
         deviceBufferPosition = 0;
-        heapPosition = callStackLimit;
+        heapAllocator.reset(callStackLimit, heapLimit);
+        heapGeneration++;
         Tornado.info("Reset heap @ 0x%x (%s) on %s", deviceBufferAddress, RuntimeUtilities.humanReadableByteCount(heapLimit, true), deviceContext.getDevice().getDeviceName());
     }
 
@@ -107,18 +122,37 @@ public class OCLMemoryManager extends TornadoLogger implements TornadoMemoryProv
     }
 
     long tryAllocate(final long bytes, final int headerSize, int alignment) {
-        final long alignedDataStart = align(heapPosition + headerSize, alignment);
-        final long headerStart = alignedDataStart - headerSize;
-        if (headerStart + bytes < heapLimit) {
-            heapPosition = headerStart + bytes;
-        } else {
+        final long headerStart = heapAllocator.allocate(bytes, headerSize, alignment);
+        if (headerStart == -1) {
             throw new TornadoOutOfMemoryException("Out of memory on the target device -> " + deviceContext.getDevice().getDeviceName() + ". [Heap Limit is: "
-                    + RuntimeUtilities.humanReadableByteCount(heapLimit, true) + " and the application requires: " + RuntimeUtilities.humanReadableByteCount(headerStart + bytes, true)
+                    + RuntimeUtilities.humanReadableByteCount(heapLimit, true) + " and the application requires: "
+                    + RuntimeUtilities.humanReadableByteCount(callStackLimit + heapAllocator.getAllocatedBytes() + bytes, true)
                     + "]\nUse flag -Dtornado.heap.allocation=<XGB> to tune the device heap. E.g., -Dtornado.heap.allocation=2GB\n");
         }
         return headerStart;
     }
 
+    /**
+     * Returns a region obtained with {@link #tryAllocate} to the device heap.
+     * Regions allocated before the last {@link #reset()} are ignored, since the
+     * heap has already been reclaimed.
+     *
+     * @param offset
+     *            offset of the region within the heap.
+     * @param generation
+     *            value of {@link #getHeapGeneration()} when the region was
+     *            allocated.
+     */
+    void free(final long offset, final long generation) {
+        if (generation == heapGeneration && offset != -1) {
+            heapAllocator.free(offset);
+        }
+    }
+
+    long getHeapGeneration() {
+        return heapGeneration;
+    }
+
     public OCLCallStack createCallStack(final int maxArgs) {
 
         OCLCallStack callStack = new OCLCallStack(callStackPosition, maxArgs, deviceContext);
@@ -140,7 +174,7 @@ public class OCLMemoryManager extends TornadoLogger implements TornadoMemoryProv
     }
 
     public long getBytesRemaining() {
-        return heapLimit - heapPosition;
+        return heapAllocator.getFreeBytes();
     }
 
     /**
@@ -166,6 +200,7 @@ public class OCLMemoryManager extends TornadoLogger implements TornadoMemoryProv
      */
     public void allocateDeviceMemoryRegions(long numBytes) {
         this.heapLimit = numBytes;
+        heapAllocator.reset(callStackLimit, heapLimit);
         this.deviceHeapPointer = deviceContext.getPlatformContext().createBuffer(OCLMemFlags.CL_MEM_READ_WRITE | OCLMemFlags.CL_MEM_ALLOC_HOST_PTR, numBytes);
         this.constantPointer = deviceContext.getPlatformContext().createBuffer(OCLMemFlags.CL_MEM_READ_WRITE | OCLMemFlags.CL_MEM_ALLOC_HOST_PTR, 4);
         this.atomicsRegion = deviceContext.getPlatformContext().createBuffer(OCLMemFlags.CL_MEM_READ_WRITE | OCLMemFlags.CL_MEM_ALLOC_HOST_PTR, INTEGER_BYTES_SIZE * MAX_NUMBER_OF_ATOMICS_PER_KERNEL);
@@ -41,6 +41,7 @@ public class OCLMultiDimArrayWrapper<T, E> extends OCLArrayWrapper<T> {
     private OCLLongArrayWrapper tableWrapper;
     private long[] addresses;
     private OCLArrayWrapper<E>[] wrappers;
+    private Object[] allocatedElements;
     private OCLDeviceContext deviceContext;
 
     public OCLMultiDimArrayWrapper(OCLDeviceContext device, Function<OCLDeviceContext, ? extends OCLArrayWrapper<E>> factory, long batchSize) {
@@ -100,8 +101,15 @@ public class OCLMultiDimArrayWrapper<T, E> extends OCLArrayWrapper<T> {
         if (Array.getLength(value) < 0) {
             throw new TornadoMemoryException("[ERROR] Bytes Allocated < 0: " + Array.getLength(value));
         }
+        if (wrappers != null && wrappers.length == Array.getLength(value)) {
+            // Only the inner arrays that have been replaced need new buffers
+            allocateElements((T) value, batchSize);
+            return;
+        }
+        deallocate();
         addresses = new long[Array.getLength(value)];
         wrappers = new OCLArrayWrapper[Array.getLength(value)];
+        allocatedElements = new Object[Array.getLength(value)];
         tableWrapper.allocate(addresses, batchSize);
         allocateElements((T) value, batchSize);
     }
@@ -110,8 +118,15 @@ public class OCLMultiDimArrayWrapper<T, E> extends OCLArrayWrapper<T> {
         final E[] elements = innerCast(values);
         try {
             for (int i = 0; i < elements.length; i++) {
+                if (wrappers[i] != null && allocatedElements[i] == elements[i]) {
+                    continue;
+                }
+                if (wrappers[i] != null) {
+                    wrappers[i].deallocate();
+                }
                 wrappers[i] = innerWrapperFactory.apply(deviceContext);
                 wrappers[i].allocate(elements[i], batchSize);
+                allocatedElements[i] = elements[i];
                 addresses[i] = deviceContext.useRelativeAddresses() ? wrappers[i].toRelativeAddress() : wrappers[i].toAbsoluteAddress();
             }
         } catch (TornadoOutOfMemoryException | TornadoMemoryException e) {
@@ -120,6 +135,24 @@ public class OCLMultiDimArrayWrapper<T, E> extends OCLArrayWrapper<T> {
         }
     }
 
+    private void deallocateElements() {
+        if (wrappers != null) {
+            for (OCLArrayWrapper<E> wrapper : wrappers) {
+                if (wrapper != null) {
+                    wrapper.deallocate();
+                }
+            }
+            wrappers = null;
+            allocatedElements = null;
+        }
+    }
+
+    @Override
+    public void deallocate() {
+        deallocateElements();
+        tableWrapper.deallocate();
+    }
+
     private int writeElements(T values) {
         final E[] elements = innerCast(values);
         for (int i = 0; i < elements.length; i++) {
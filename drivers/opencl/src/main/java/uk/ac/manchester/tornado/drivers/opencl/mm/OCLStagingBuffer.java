@@ -0,0 +1,155 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * School of Engineering, The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.drivers.opencl.mm;
+
+import static uk.ac.manchester.tornado.api.exceptions.TornadoInternalError.unimplemented;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import uk.ac.manchester.tornado.api.enums.TornadoExecutionStatus;
+import uk.ac.manchester.tornado.drivers.opencl.OCLDeviceContext;
+
+/**
+ * Pinned host buffer, allocated with {@code CL_MEM_ALLOC_HOST_PTR} and kept
+ * mapped for its whole lifetime. Host arrays are copied into the buffer and
+ * transferred from there, so the OpenCL runtime can use DMA and the transfer
+ * does not have to complete before the call returns.
+ */
+class OCLStagingBuffer {
+
+    private final OCLDeviceContext deviceContext;
+    private final long bufferId;
+    private final long hostPointer;
+    private final long capacity;
+    private final ByteBuffer buffer;
+
+    /**
+     * Local event of the last asynchronous transfer that uses the buffer, or -1.
+     */
+    private int pendingEvent;
+
+    OCLStagingBuffer(OCLDeviceContext deviceContext, long bufferId, long hostPointer, long capacity) {
+        this.deviceContext = deviceContext;
+        this.bufferId = bufferId;
+        this.hostPointer = hostPointer;
+        this.capacity = capacity;
+        this.buffer = deviceContext.getPlatformContext().toByteBuffer(hostPointer, capacity);
+        this.buffer.order(ByteOrder.nativeOrder());
+        this.pendingEvent = -1;
+    }
+
+    long getBufferId() {
+        return bufferId;
+    }
+
+    long getHostPointer() {
+        return hostPointer;
+    }
+
+    long getCapacity() {
+        return capacity;
+    }
+
+    ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    void setPendingEvent(int event) {
+        if (event != -1) {
+            deviceContext.retainEvent(event);
+        }
+        pendingEvent = event;
+    }
+
+    /**
+     * @return true if the last transfer that uses the buffer has completed. It
+     *         does not block.
+     */
+    boolean isTransferComplete() {
+        return pendingEvent == -1 || deviceContext.resolveEvent(pendingEvent).getStatus() == TornadoExecutionStatus.COMPLETE;
+    }
+
+    /**
+     * Blocks until the last transfer that uses the buffer has completed.
+     */
+    void waitForTransfer() {
+        if (pendingEvent != -1) {
+            deviceContext.resolveEvent(pendingEvent).waitOn();
+            deviceContext.releaseEvent(pendingEvent);
+            pendingEvent = -1;
+        }
+    }
+
+    /**
+     * Copies {@code bytes} bytes of the host array, starting at byte
+     * {@code hostOffset}, to the beginning of the buffer.
+     */
+    void put(Object array, long hostOffset, long bytes) {
+        final ByteBuffer view = buffer.duplicate().order(ByteOrder.nativeOrder());
+        if (array instanceof byte[]) {
+            view.put((byte[]) array, (int) hostOffset, (int) bytes);
+        } else if (array instanceof char[]) {
+            view.asCharBuffer().put((char[]) array, (int) (hostOffset / Character.BYTES), (int) (bytes / Character.BYTES));
+        } else if (array instanceof short[]) {
+            view.asShortBuffer().put((short[]) array, (int) (hostOffset / Short.BYTES), (int) (bytes / Short.BYTES));
+        } else if (array instanceof int[]) {
+            view.asIntBuffer().put((int[]) array, (int) (hostOffset / Integer.BYTES), (int) (bytes / Integer.BYTES));
+        } else if (array instanceof long[]) {
+            view.asLongBuffer().put((long[]) array, (int) (hostOffset / Long.BYTES), (int) (bytes / Long.BYTES));
+        } else if (array instanceof float[]) {
+            view.asFloatBuffer().put((float[]) array, (int) (hostOffset / Float.BYTES), (int) (bytes / Float.BYTES));
+        } else if (array instanceof double[]) {
+            view.asDoubleBuffer().put((double[]) array, (int) (hostOffset / Double.BYTES), (int) (bytes / Double.BYTES));
+        } else {
+            unimplemented("staging of type %s", array.getClass().getName());
+        }
+    }
+
+    /**
+     * Copies {@code bytes} bytes from the beginning of the buffer to the host
+     * array, starting at byte {@code hostOffset}.
+     */
+    void get(Object array, long hostOffset, long bytes) {
+        final ByteBuffer view = buffer.duplicate().order(ByteOrder.nativeOrder());
+        if (array instanceof byte[]) {
+            view.get((byte[]) array, (int) hostOffset, (int) bytes);
+        } else if (array instanceof char[]) {
+            view.asCharBuffer().get((char[]) array, (int) (hostOffset / Character.BYTES), (int) (bytes / Character.BYTES));
+        } else if (array instanceof short[]) {
+            view.asShortBuffer().get((short[]) array, (int) (hostOffset / Short.BYTES), (int) (bytes / Short.BYTES));
+        } else if (array instanceof int[]) {
+            view.asIntBuffer().get((int[]) array, (int) (hostOffset / Integer.BYTES), (int) (bytes / Integer.BYTES));
+        } else if (array instanceof long[]) {
+            view.asLongBuffer().get((long[]) array, (int) (hostOffset / Long.BYTES), (int) (bytes / Long.BYTES));
+        } else if (array instanceof float[]) {
+            view.asFloatBuffer().get((float[]) array, (int) (hostOffset / Float.BYTES), (int) (bytes / Float.BYTES));
+        } else if (array instanceof double[]) {
+            view.asDoubleBuffer().get((double[]) array, (int) (hostOffset / Double.BYTES), (int) (bytes / Double.BYTES));
+        } else {
+            unimplemented("staging of type %s", array.getClass().getName());
+        }
+    }
+
+}
@@ -0,0 +1,223 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * School of Engineering, The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.drivers.opencl.mm;
+
+import static uk.ac.manchester.tornado.runtime.common.Tornado.info;
+import static uk.ac.manchester.tornado.runtime.common.Tornado.warn;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+
+import uk.ac.manchester.tornado.drivers.opencl.OCLDeviceContext;
+import uk.ac.manchester.tornado.drivers.opencl.enums.OCLMemFlags;
+import uk.ac.manchester.tornado.runtime.common.RuntimeUtilities;
+
+/**
+ * Per-device pool of pinned staging buffers used by the asynchronous transfers
+ * of {@link OCLArrayWrapper}. Buffers are rounded up to a page and reused for
+ * transfers of the same size. When the pool grows beyond its limit, the least
+ * recently used buffers that are not in use are unmapped and released.
+ *
+ * Reads from the device complete asynchronously: the data is copied from the
+ * staging buffer to the host array once the transfer has finished, when an
+ * event of the device is waited for or the device is synchronised.
+ */
+public class OCLStagingBufferPool {
+
+    /**
+     * Smaller transfers are not staged, as the extra copy on the host outweighs
+     * the benefit of pinned memory.
+     */
+    private static final long MIN_STAGING_BYTES = 64 * 1024;
+
+    private static final long PAGE_SIZE = 4096;
+
+    private final OCLDeviceContext deviceContext;
+    private final long maxPoolBytes;
+
+    /**
+     * Buffers that are not in use, from the least to the most recently used.
+     */
+    private final LinkedList<OCLStagingBuffer> freeBuffers;
+
+    /**
+     * Reads whose data has not been copied to the host yet, in the order they
+     * were enqueued.
+     */
+    private final LinkedList<PendingRead> pendingReads;
+    private boolean completingReads;
+
+    /**
+     * Bytes held by the pool, including the buffers that are in use.
+     */
+    private long pooledBytes;
+
+    public OCLStagingBufferPool(OCLDeviceContext deviceContext, long maxPoolBytes) {
+        this.deviceContext = deviceContext;
+        this.maxPoolBytes = maxPoolBytes;
+        this.freeBuffers = new LinkedList<>();
+        this.pendingReads = new LinkedList<>();
+        this.pooledBytes = 0;
+    }
+
+    private static long roundUp(long bytes) {
+        return ((bytes + PAGE_SIZE - 1) / PAGE_SIZE) * PAGE_SIZE;
+    }
+
+    /**
+     * @return true if a transfer of {@code bytes} bytes should go through a
+     *         staging buffer.
+     */
+    public boolean isStaged(long bytes) {
+        return bytes >= MIN_STAGING_BYTES && roundUp(bytes) <= maxPoolBytes;
+    }
+
+    private static final class PendingRead {
+        private final OCLStagingBuffer buffer;
+        private final Object array;
+        private final long hostOffset;
+        private final long bytes;
+
+        PendingRead(OCLStagingBuffer buffer, Object array, long hostOffset, long bytes) {
+            this.buffer = buffer;
+            this.array = array;
+            this.hostOffset = hostOffset;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Returns a staging buffer that can hold {@code bytes} bytes. Previous
+     * transfers that used the buffer are complete.
+     *
+     * @return the buffer, or null if a pinned buffer cannot be mapped.
+     */
+    synchronized OCLStagingBuffer acquire(long bytes) {
+        final long capacity = roundUp(bytes);
+        // Reads that have finished give their buffers back to the pool
+        completeReads(true);
+        final Iterator<OCLStagingBuffer> iterator = freeBuffers.descendingIterator();
+        while (iterator.hasNext()) {
+            final OCLStagingBuffer buffer = iterator.next();
+            if (buffer.getCapacity() == capacity) {
+                iterator.remove();
+                buffer.waitForTransfer();
+                return buffer;
+            }
+        }
+        evict(capacity);
+        return allocate(capacity);
+    }
+
+    /**
+     * Returns a buffer to the pool.
+     *
+     * @param event
+     *            local event of the asynchronous transfer that still uses the
+     *            buffer, or -1.
+     */
+    synchronized void release(OCLStagingBuffer buffer, int event) {
+        buffer.setPendingEvent(event);
+        freeBuffers.addLast(buffer);
+        evict(0);
+    }
+
+    /**
+     * Registers the read of {@code bytes} bytes from the device into the staging
+     * buffer. The data is copied to the host array, starting at byte
+     * {@code hostOffset}, once the transfer has completed, and then the buffer
+     * is returned to the pool.
+     *
+     * @param event
+     *            local event of the asynchronous read.
+     */
+    synchronized void deferRead(OCLStagingBuffer buffer, int event, Object array, long hostOffset, long bytes) {
+        buffer.setPendingEvent(event);
+        pendingReads.addLast(new PendingRead(buffer, array, hostOffset, bytes));
+    }
+
+    /**
+     * Copies the data of the pending reads to the host arrays.
+     *
+     * @param onlyCompleted
+     *            if true, it stops at the first read that has not completed
+     *            yet, otherwise it waits for all of them.
+     */
+    public synchronized void completeReads(boolean onlyCompleted) {
+        if (completingReads || pendingReads.isEmpty()) {
+            // Waiting for a transfer below notifies the pool again
+            return;
+        }
+        completingReads = true;
+        try {
+            while (!pendingReads.isEmpty()) {
+                final PendingRead read = pendingReads.getFirst();
+                if (onlyCompleted && !read.buffer.isTransferComplete()) {
+                    break;
+                }
+                pendingReads.removeFirst();
+                read.buffer.waitForTransfer();
+                read.buffer.get(read.array, read.hostOffset, read.bytes);
+                freeBuffers.addLast(read.buffer);
+            }
+            evict(0);
+        } finally {
+            completingReads = false;
+        }
+    }
+
+    /**
+     * Waits for all the pending transfers that use buffers of the pool.
+     */
+    public synchronized void sync() {
+        completeReads(false);
+        for (OCLStagingBuffer buffer : freeBuffers) {
+            buffer.waitForTransfer();
+        }
+    }
+
+    private OCLStagingBuffer allocate(long capacity) {
+        final long bufferId = deviceContext.getPlatformContext().createBuffer(OCLMemFlags.CL_MEM_READ_WRITE | OCLMemFlags.CL_MEM_ALLOC_HOST_PTR, capacity);
+        final long hostPointer = deviceContext.mapBuffer(bufferId, capacity);
+        if (hostPointer == 0) {
+            warn("unable to map a staging buffer of %s, the transfer is not staged", RuntimeUtilities.humanReadableByteCount(capacity, true));
+            deviceContext.getPlatformContext().releaseBuffer(bufferId);
+            return null;
+        }
+        pooledBytes += capacity;
+        info("staging buffer allocated: %s, pool=%s", RuntimeUtilities.humanReadableByteCount(capacity, true), RuntimeUtilities.humanReadableByteCount(pooledBytes, true));
+        return new OCLStagingBuffer(deviceContext, bufferId, hostPointer, capacity);
+    }
+
+    private void evict(long bytesNeeded) {
+        while (!freeBuffers.isEmpty() && pooledBytes + bytesNeeded > maxPoolBytes) {
+            final OCLStagingBuffer buffer = freeBuffers.removeFirst();
+            buffer.waitForTransfer();
+            deviceContext.unmapBuffer(buffer.getBufferId(), buffer.getHostPointer());
+            deviceContext.getPlatformContext().releaseBuffer(buffer.getBufferId());
+            pooledBytes -= buffer.getCapacity();
+        }
+    }
+
+}
@@ -25,15 +25,17 @@
  */
 package uk.ac.manchester.tornado.drivers.opencl.runtime;
 
+import static uk.ac.manchester.tornado.runtime.common.RuntimeUtilities.concatEvents;
+
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -69,6 +71,7 @@ import uk.ac.manchester.tornado.drivers.opencl.mm.AtomicsBuffer;
 import uk.ac.manchester.tornado.drivers.opencl.mm.OCLByteArrayWrapper;
 import uk.ac.manchester.tornado.drivers.opencl.mm.OCLByteBuffer;
 import uk.ac.manchester.tornado.drivers.opencl.mm.OCLCharArrayWrapper;
+import uk.ac.manchester.tornado.drivers.opencl.mm.OCLDirectBufferWrapper;
 import uk.ac.manchester.tornado.drivers.opencl.mm.OCLDoubleArrayWrapper;
 import uk.ac.manchester.tornado.drivers.opencl.mm.OCLFloatArrayWrapper;
 import uk.ac.manchester.tornado.drivers.opencl.mm.OCLIntArrayWrapper;
@@ -78,12 +81,15 @@ import uk.ac.manchester.tornado.drivers.opencl.mm.OCLMultiDimArrayWrapper;
 import uk.ac.manchester.tornado.drivers.opencl.mm.OCLObjectWrapper;
 import uk.ac.manchester.tornado.drivers.opencl.mm.OCLShortArrayWrapper;
 import uk.ac.manchester.tornado.runtime.TornadoCoreRuntime;
+import uk.ac.manchester.tornado.runtime.common.BatchedStorage;
 import uk.ac.manchester.tornado.runtime.common.CallStack;
 import uk.ac.manchester.tornado.runtime.common.DeviceObjectState;
 import uk.ac.manchester.tornado.runtime.common.RuntimeUtilities;
 import uk.ac.manchester.tornado.runtime.common.Tornado;
 import uk.ac.manchester.tornado.runtime.common.TornadoAcceleratorDevice;
 import uk.ac.manchester.tornado.runtime.common.TornadoInstalledCode;
+import uk.ac.manchester.tornado.runtime.common.TornadoInstalledCodeCache;
+import uk.ac.manchester.tornado.runtime.common.TornadoKernelCache;
 import uk.ac.manchester.tornado.runtime.common.TornadoSchedulingStrategy;
 import uk.ac.manchester.tornado.runtime.sketcher.Sketch;
 import uk.ac.manchester.tornado.runtime.sketcher.TornadoSketcher;
@@ -230,7 +236,7 @@ public class OCLTornadoDevice implements TornadoAcceleratorDevice {
         final OCLDeviceContextInterface deviceContext = getDeviceContext();
         final CompilableTask executable = (CompilableTask) task;
         final ResolvedJavaMethod resolvedMethod = TornadoCoreRuntime.getTornadoRuntime().resolveMethod(executable.getMethod());
-        final Sketch sketch = TornadoSketcher.lookup(resolvedMethod, task.meta().getDriverIndex(), task.meta().getDeviceIndex());
+        final Sketch sketch = TornadoSketcher.lookup(resolvedMethod, executable.meta());
         final TaskMetaData sketchMeta = sketch.getMeta();
 
         // Return the code from the cache
@@ -250,13 +256,42 @@ public class OCLTornadoDevice implements TornadoAcceleratorDevice {
             // profiler
             profiler.registerDeviceID(ProfilerType.DEVICE_ID, taskMeta.getId(), taskMeta.getDevice().getDriverIndex() + ":" + taskMeta.getDeviceIndex());
             profiler.registerDeviceName(ProfilerType.DEVICE, taskMeta.getId(), taskMeta.getDevice().getDevice().getDeviceName());
+
+            final long batchThreads = (taskMeta.getNumThreads() > 0) ? taskMeta.getNumThreads() : executable.getBatchThreads();
+            final OCLCodeCache codeCache = deviceContext.getCodeCache();
+
+            // Look up the kernel in the kernels shared by all task-schedules
+            String specialisationKey = null;
+            if (TornadoInstalledCodeCache.isEnabled() && !OCLBackend.isDeviceAnFPGAAccelerator(deviceContext)) {
+                specialisationKey = TornadoKernelCache.computeSpecialisationKey(resolvedMethod, executable.getArguments(), taskMeta, batchThreads);
+                final TornadoInstalledCodeCache.Entry entry = (specialisationKey != null) ? TornadoCoreRuntime.getInstalledCodeCache().lookup(codeCache, specialisationKey, task) : null;
+                if (entry != null) {
+                    return installSharedKernel(executable, resolvedMethod, entry);
+                }
+            }
+
+            // Look up the kernel in the persistent kernel cache
+            final TornadoKernelCache kernelCache = codeCache.getKernelCache();
+            String kernelKey = null;
+            if (kernelCache != null && !OCLBackend.isDeviceAnFPGAAccelerator(deviceContext)) {
+                kernelKey = kernelCache.computeKey(resolvedMethod, executable.getArguments(), taskMeta, batchThreads);
+                final TornadoKernelCache.Entry entry = (kernelKey != null) ? kernelCache.lookup(kernelKey) : null;
+                if (entry != null) {
+                    final TornadoInstalledCode installedCode = installFromKernelCache(executable, resolvedMethod, kernelKey, entry);
+                    if (specialisationKey != null) {
+                        TornadoCoreRuntime.getInstalledCodeCache().put(codeCache, specialisationKey, installedCode, taskMeta.getDomain(), task);
+                    }
+                    return installedCode;
+                }
+            }
+
             profiler.start(ProfilerType.TASK_COMPILE_GRAAL_TIME, taskMeta.getId());
             final OCLCompilationResult result = OCLCompiler.compileSketchForDevice(sketch, executable, providers, getBackend());
 
             // Update atomics buffer for inner methods that are not inlined
             ResolvedJavaMethod[] methods = result.getMethods();
             if (methods.length > 1) {
-                HashMap<Integer, Integer> mapping;
+                Map<Integer, Integer> mapping;
                 for (ResolvedJavaMethod m : methods) {
                     if (TornadoAtomicIntegerNode.globalAtomicsParameters.containsKey(m)) {
                         mapping = TornadoAtomicIntegerNode.globalAtomicsParameters.get(m);
@@ -280,6 +315,14 @@ public class OCLTornadoDevice implements TornadoAcceleratorDevice {
             } else {
                 // B) for CPU multi-core or GPU
                 installedCode = deviceContext.installCode(result);
+                if (!usesAtomics(result)) {
+                    if (kernelKey != null) {
+                        codeCache.storeInKernelCache(kernelKey, installedCode, taskMeta.getDomain());
+                    }
+                    if (specialisationKey != null) {
+                        TornadoCoreRuntime.getInstalledCodeCache().put(codeCache, specialisationKey, installedCode, taskMeta.getDomain(), task);
+                    }
+                }
             }
             profiler.stop(ProfilerType.TASK_COMPILE_DRIVER_TIME, taskMeta.getId());
             profiler.sum(ProfilerType.TOTAL_DRIVER_COMPILE_TIME, profiler.getTaskTimer(ProfilerType.TASK_COMPILE_DRIVER_TIME, taskMeta.getId()));
@@ -293,6 +336,47 @@ public class OCLTornadoDevice implements TornadoAcceleratorDevice {
         }
     }
 
+    /**
+     * The global indexes of atomics are registered during compilation, so kernels
+     * that use them are neither shared nor stored in the persistent kernel cache.
+     */
+    private boolean usesAtomics(OCLCompilationResult result) {
+        for (ResolvedJavaMethod method : result.getMethods()) {
+            if (TornadoAtomicIntegerNode.globalAtomics.containsKey(method) || TornadoAtomicIntegerNode.globalAtomicsParameters.containsKey(method)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private TornadoInstalledCode installSharedKernel(CompilableTask task, ResolvedJavaMethod resolvedMethod, TornadoInstalledCodeCache.Entry entry) {
+        final TaskMetaData taskMeta = task.meta();
+
+        // Restore the state that the compiler would have left in the meta data
+        taskMeta.setCompiledGraph(resolvedMethod);
+        if (entry.getDomain() != null) {
+            taskMeta.setDomain(entry.getDomain());
+        }
+        return entry.getCode();
+    }
+
+    private TornadoInstalledCode installFromKernelCache(CompilableTask task, ResolvedJavaMethod resolvedMethod, String kernelKey, TornadoKernelCache.Entry entry) {
+        final TaskMetaData taskMeta = task.meta();
+        final TornadoProfiler profiler = task.getProfiler();
+
+        // Restore the state that the compiler would have left in the meta data
+        taskMeta.setCompiledGraph(resolvedMethod);
+        if (entry.getDomain() != null) {
+            taskMeta.setDomain(entry.getDomain());
+        }
+
+        profiler.start(ProfilerType.TASK_COMPILE_DRIVER_TIME, taskMeta.getId());
+        final OCLInstalledCode installedCode = getDeviceContext().getCodeCache().installFromKernelCache(taskMeta, task.getId(), kernelKey, entry);
+        profiler.stop(ProfilerType.TASK_COMPILE_DRIVER_TIME, taskMeta.getId());
+        profiler.sum(ProfilerType.TOTAL_DRIVER_COMPILE_TIME, profiler.getTaskTimer(ProfilerType.TASK_COMPILE_DRIVER_TIME, taskMeta.getId()));
+        return installedCode;
+    }
+
     private TornadoInstalledCode compilePreBuiltTask(SchedulableTask task) {
         final OCLDeviceContextInterface deviceContext = getDeviceContext();
         final PrebuiltTask executable = (PrebuiltTask) task;
@@ -366,7 +450,7 @@ public class OCLTornadoDevice implements TornadoAcceleratorDevice {
     @Override
     public int[] checkAtomicsForTask(SchedulableTask task) {
         if (TornadoAtomicIntegerNode.globalAtomics.containsKey(task.meta().getCompiledResolvedJavaMethod())) {
-            ArrayList<Integer> values = TornadoAtomicIntegerNode.globalAtomics.get(task.meta().getCompiledResolvedJavaMethod());
+            List<Integer> values = TornadoAtomicIntegerNode.globalAtomics.get(task.meta().getCompiledResolvedJavaMethod());
             int[] atomicsArray = new int[values.size()];
             int j = 0;
             for (Integer i : values) {
@@ -383,7 +467,7 @@ public class OCLTornadoDevice implements TornadoAcceleratorDevice {
         if (value instanceof AtomicInteger) {
             AtomicInteger ai = (AtomicInteger) value;
             if (TornadoAtomicIntegerNode.globalAtomicsParameters.containsKey(task.meta().getCompiledResolvedJavaMethod())) {
-                HashMap<Integer, Integer> values = TornadoAtomicIntegerNode.globalAtomicsParameters.get(task.meta().getCompiledResolvedJavaMethod());
+                Map<Integer, Integer> values = TornadoAtomicIntegerNode.globalAtomicsParameters.get(task.meta().getCompiledResolvedJavaMethod());
                 int index = values.get(paramIndex);
                 array[index] = ai.get();
             }
@@ -405,7 +489,7 @@ public class OCLTornadoDevice implements TornadoAcceleratorDevice {
     @Override
     public int getAtomicsGlobalIndexForTask(SchedulableTask task, int paramIndex) {
         if (TornadoAtomicIntegerNode.globalAtomicsParameters.containsKey(task.meta().getCompiledResolvedJavaMethod())) {
-            HashMap<Integer, Integer> values = TornadoAtomicIntegerNode.globalAtomicsParameters.get(task.meta().getCompiledResolvedJavaMethod());
+            Map<Integer, Integer> values = TornadoAtomicIntegerNode.globalAtomicsParameters.get(task.meta().getCompiledResolvedJavaMethod());
             return values.get(paramIndex);
         }
         return -1;
@@ -508,6 +592,8 @@ public class OCLTornadoDevice implements TornadoAcceleratorDevice {
         } else if (!type.isPrimitive() && !type.isArray()) {
             if (object instanceof AtomicInteger) {
                 result = new AtomicsBuffer(new int[] {}, deviceContext);
+            } else if (object instanceof ByteBuffer && ((ByteBuffer) object).isDirect()) {
+                result = new OCLDirectBufferWrapper(deviceContext, batchSize);
             } else {
                 result = new OCLObjectWrapper(deviceContext, object, batchSize);
             }
@@ -517,8 +603,8 @@ public class OCLTornadoDevice implements TornadoAcceleratorDevice {
         return result;
     }
 
-    private void checkBatchSize(long batchSize) {
-        if (batchSize > 0) {
+    private void checkBatchSize(Object object, long batchSize) {
+        if (batchSize > 0 && !BatchedStorage.isBatchedStorage(object)) {
             throw new TornadoRuntimeException("[ERROR] Batch computation with non-arrays not supported yet.");
         }
     }
@@ -534,7 +620,7 @@ public class OCLTornadoDevice implements TornadoAcceleratorDevice {
 
         final Class<?> type = object.getClass();
         if (!type.isArray()) {
-            checkBatchSize(batchSize);
+            checkBatchSize(object, batchSize);
         }
 
         state.setValid(true);
@@ -555,8 +641,11 @@ public class OCLTornadoDevice implements TornadoAcceleratorDevice {
             state.getBuffer().allocate(object, batchSize);
             final Class<?> type = object.getClass();
             if (!type.isArray()) {
-                checkBatchSize(batchSize);
-                state.getBuffer().write(object);
+                checkBatchSize(object, batchSize);
+                if (batchSize <= 0) {
+                    // Batches are written by the following stream-in
+                    state.getBuffer().write(object);
+                }
             }
             state.setValid(true);
         } catch (TornadoOutOfMemoryException | TornadoMemoryException e) {
@@ -579,24 +668,53 @@ public class OCLTornadoDevice implements TornadoAcceleratorDevice {
     }
 
     @Override
-    public List<Integer> ensurePresent(Object object, TornadoDeviceObjectState state, int[] events, long batchSize, long offset) {
+    public void deallocate(TornadoDeviceObjectState state) {
+        if (state.hasBuffer() && !state.isAtomicRegionPresent()) {
+            state.getBuffer().deallocate();
+            state.setBuffer(null);
+        }
+        state.setValid(false);
+        state.setContents(false);
+    }
+
+    @Override
+    public int[] ensurePresent(Object object, TornadoDeviceObjectState state, int[] events, long batchSize, long offset) {
         if (!state.isValid()) {
             ensureAllocated(object, batchSize, state);
         }
 
         if (BENCHMARKING_MODE || !state.hasContents()) {
             state.setContents(true);
+            state.clearDirtyRanges();
             return state.getBuffer().enqueueWrite(object, batchSize, offset, events, events == null);
+        } else if (batchSize <= 0 && state.hasDirtyRanges()) {
+            return writeDirtyRanges(object, state, events);
         }
         return null;
     }
 
+    /**
+     * Copies only the regions of the host object that have been marked as
+     * modified since the last transfer.
+     */
+    private int[] writeDirtyRanges(Object object, TornadoDeviceObjectState state, int[] events) {
+        int[] writeEvents = null;
+        for (long[] range : state.getDirtyRanges()) {
+            writeEvents = concatEvents(writeEvents, state.getBuffer().enqueueWriteRange(object, range[0], range[1] - range[0], events, events == null));
+        }
+        state.clearDirtyRanges();
+        return writeEvents;
+    }
+
     @Override
-    public List<Integer> streamIn(Object object, long batchSize, long offset, TornadoDeviceObjectState state, int[] events) {
+    public int[] streamIn(Object object, long batchSize, long offset, TornadoDeviceObjectState state, int[] events) {
         if (batchSize > 0 || !state.isValid()) {
             ensureAllocated(object, batchSize, state);
+        } else if (state.hasContents() && state.hasDirtyRanges()) {
+            return writeDirtyRanges(object, state, events);
         }
         state.setContents(true);
+        state.clearDirtyRanges();
         return state.getBuffer().enqueueWrite(object, batchSize, offset, events, events == null);
     }
 
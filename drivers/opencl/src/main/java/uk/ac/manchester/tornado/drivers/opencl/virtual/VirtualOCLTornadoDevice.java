@@ -29,7 +29,6 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 
 import jdk.vm.ci.meta.ResolvedJavaMethod;
@@ -179,7 +178,7 @@ public class VirtualOCLTornadoDevice implements TornadoAcceleratorDevice {
     private TornadoInstalledCode compileTask(SchedulableTask task) {
         final CompilableTask executable = (CompilableTask) task;
         final ResolvedJavaMethod resolvedMethod = TornadoCoreRuntime.getTornadoRuntime().resolveMethod(executable.getMethod());
-        final Sketch sketch = TornadoSketcher.lookup(resolvedMethod, task.meta().getDriverIndex(), task.meta().getDeviceIndex());
+        final Sketch sketch = TornadoSketcher.lookup(resolvedMethod, executable.meta());
         final TaskMetaData sketchMeta = sketch.getMeta();
 
         // copy meta data into task
@@ -279,13 +278,18 @@ public class VirtualOCLTornadoDevice implements TornadoAcceleratorDevice {
     }
 
     @Override
-    public List<Integer> ensurePresent(Object object, TornadoDeviceObjectState state, int[] events, long batchSize, long offset) {
+    public void deallocate(TornadoDeviceObjectState state) {
+        unimplemented();
+    }
+
+    @Override
+    public int[] ensurePresent(Object object, TornadoDeviceObjectState state, int[] events, long batchSize, long offset) {
         unimplemented();
         return null;
     }
 
     @Override
-    public List<Integer> streamIn(Object object, long batchSize, long offset, TornadoDeviceObjectState state, int[] events) {
+    public int[] streamIn(Object object, long batchSize, long offset, TornadoDeviceObjectState state, int[] events) {
         unimplemented();
         return null;
     }
@@ -87,4 +87,18 @@ JNIEXPORT jint JNICALL Java_uk_ac_manchester_tornado_drivers_ptx_PTXModule_cuOcc
     int block_size;
     CUDA_CHECK_ERROR("cuOccupancyMaxPotentialBlockSize", cuOccupancyMaxPotentialBlockSize (&min_grid_size, &block_size, kernel, 0, 0, 0), result);
     return block_size;
-}
\ No newline at end of file
+}
+
+/*
+ * Class:     uk_ac_manchester_tornado_drivers_ptx_PTXModule
+ * Method:    cuModuleUnload
+ * Signature: ([B)V
+ */
+JNIEXPORT void JNICALL Java_uk_ac_manchester_tornado_drivers_ptx_PTXModule_cuModuleUnload
+  (JNIEnv *env, jclass clazz, jbyteArray module_wrapper) {
+    CUresult result;
+    CUmodule module;
+    array_to_module(env, &module, module_wrapper);
+
+    CUDA_CHECK_ERROR("cuModuleUnload", cuModuleUnload(module), result);
+}
@@ -24,7 +24,6 @@
 package uk.ac.manchester.tornado.drivers.ptx;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 
 import uk.ac.manchester.tornado.api.common.Access;
 import uk.ac.manchester.tornado.api.exceptions.TornadoRuntimeException;
@@ -114,7 +113,7 @@ public class PTX {
         CallStack stack = tornadoDevice.createStack(numArgs);
 
         // Fill header of call stack with empty values
-        stack.setHeader(new HashMap<>());
+        stack.setHeader(new long[0]);
 
         // Pass arguments to the call stack
         for (int i = 0; i < numArgs; i++) {
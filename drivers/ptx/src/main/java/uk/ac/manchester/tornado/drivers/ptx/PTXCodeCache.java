@@ -27,10 +27,13 @@ import java.util.concurrent.ConcurrentHashMap;
 
 import uk.ac.manchester.tornado.api.exceptions.TornadoBailoutRuntimeException;
 import uk.ac.manchester.tornado.drivers.ptx.graal.PTXInstalledCode;
+import uk.ac.manchester.tornado.runtime.TornadoCoreRuntime;
 import uk.ac.manchester.tornado.runtime.common.RuntimeUtilities;
+import uk.ac.manchester.tornado.runtime.common.TornadoCodeCache;
+import uk.ac.manchester.tornado.runtime.common.TornadoInstalledCode;
 import uk.ac.manchester.tornado.runtime.tasks.meta.TaskMetaData;
 
-public class PTXCodeCache {
+public class PTXCodeCache implements TornadoCodeCache {
 
     private final PTXDeviceContext deviceContext;
     private final ConcurrentHashMap<String, PTXInstalledCode> cache;
@@ -68,7 +71,18 @@ public class PTXCodeCache {
         return cache.containsKey(name);
     }
 
+    /**
+     * Unloads the module of a kernel evicted from the shared installed-code
+     * cache.
+     */
+    @Override
+    public void release(TornadoInstalledCode code) {
+        cache.values().removeIf(installedCode -> installedCode == code);
+        ((PTXInstalledCode) code).unload();
+    }
+
     public void reset() {
         cache.clear();
+        TornadoCoreRuntime.getInstalledCodeCache().invalidate(this);
     }
 }
@@ -46,6 +46,8 @@ public class PTXModule {
 
     private native static int cuOccupancyMaxPotentialBlockSize(byte[] module, String funcName);
 
+    private native static void cuModuleUnload(byte[] module);
+
     public int getMaxThreadBlocks() {
         if (maxBlockSize < 0) {
             maxBlockSize = cuOccupancyMaxPotentialBlockSize(moduleWrapper, kernelFunctionName);
@@ -57,6 +59,10 @@ public class PTXModule {
         return source;
     }
 
+    public void unload() {
+        cuModuleUnload(moduleWrapper);
+    }
+
     public boolean isPTXJITSuccess() {
         return moduleWrapper.length != 0;
     }
@@ -52,6 +52,10 @@ public class PTXInstalledCode extends InstalledCode implements TornadoInstalledC
         return deviceContext.enqueueKernelLaunch(module, stack, batchThreads);
     }
 
+    public void unload() {
+        module.unload();
+    }
+
     public String getGeneratedSourceCode() {
         return new String(module.getSource());
     }
@@ -32,7 +32,6 @@ import static uk.ac.manchester.tornado.runtime.common.Tornado.info;
 import static uk.ac.manchester.tornado.runtime.common.TornadoOptions.PTX_ARRAY_ALIGNMENT;
 
 import java.lang.reflect.Array;
-import java.util.ArrayList;
 import java.util.List;
 
 import jdk.vm.ci.meta.JavaKind;
@@ -46,7 +45,10 @@ public abstract class PTXArrayWrapper<T> implements ObjectBuffer {
 
     private int arrayHeaderSize;
     private long bytesToAllocate;
+    private long bufferCapacity;
     private long bufferOffset;
+    private long batchSize;
+    private long heapGeneration;
     protected PTXDeviceContext deviceContext;
     private JavaKind kind;
     private int arrayLengthOffset;
@@ -175,9 +177,8 @@ public abstract class PTXArrayWrapper<T> implements ObjectBuffer {
     }
 
     @Override
-    public List<Integer> enqueueWrite(Object reference, long batchSize, long hostOffset, int[] events, boolean useDeps) {
+    public int[] enqueueWrite(Object reference, long batchSize, long hostOffset, int[] events, boolean useDeps) {
         final T array = cast(reference);
-        ArrayList<Integer> listEvents = new ArrayList<>();
 
         if (array == null) {
             throw new TornadoRuntimeException("ERROR] Data to be copied is NULL");
@@ -185,7 +186,7 @@ public abstract class PTXArrayWrapper<T> implements ObjectBuffer {
         final int returnEvent;
         if (isFinal && onDevice) {
             returnEvent = enqueueWriteArrayData(toBuffer() + bufferOffset + arrayHeaderSize, bytesToAllocate - arrayHeaderSize, array, hostOffset, (useDeps) ? events : null);
-            listEvents.add(returnEvent);
+            return new int[] { returnEvent };
         } else {
             // We first write the header for the object and then we write actual
             // buffer
@@ -199,10 +200,21 @@ public abstract class PTXArrayWrapper<T> implements ObjectBuffer {
             onDevice = true;
             // returnEvent = deviceContext.enqueueMarker(internalEvents);
 
-            listEvents.add(headerEvent);
-            listEvents.add(returnEvent);
+            return new int[] { headerEvent, returnEvent };
         }
-        return listEvents;
+    }
+
+    @Override
+    public int[] enqueueWriteRange(Object reference, long hostOffset, long bytes, int[] events, boolean useDeps) {
+        final T array = cast(reference);
+        if (array == null) {
+            throw new TornadoRuntimeException("ERROR] Data to be copied is NULL");
+        }
+        if (!onDevice || batchSize > 0 || hostOffset < 0 || hostOffset + bytes > bytesToAllocate - arrayHeaderSize) {
+            return enqueueWrite(reference, 0, 0, events, useDeps);
+        }
+        final int returnEvent = enqueueWriteArrayData(toBuffer() + bufferOffset + arrayHeaderSize + hostOffset, bytes, array, hostOffset, (useDeps) ? events : null);
+        return useDeps ? new int[] { returnEvent } : null;
     }
 
     private PTXByteBuffer buildArrayHeaderBatch(long arraySize) {
@@ -219,13 +231,15 @@ public abstract class PTXArrayWrapper<T> implements ObjectBuffer {
 
     @Override
     public void allocate(Object value, long batchSize) {
+        this.batchSize = batchSize;
         long newBufferSize = 0;
         long sizeOfBatch = arrayHeaderSize + batchSize;
         if (batchSize > 0) {
             newBufferSize = sizeOfBatch;
         }
 
-        if ((batchSize > 0) && (bufferOffset != -1) && (newBufferSize < bytesToAllocate)) {
+        if ((batchSize > 0) && (bufferOffset != -1) && (newBufferSize <= bufferCapacity)) {
+            // Batches of different sizes reuse the same region
             bytesToAllocate = newBufferSize;
         }
 
@@ -242,6 +256,8 @@ public abstract class PTXArrayWrapper<T> implements ObjectBuffer {
             }
             assert hostArray != null;
             bufferOffset = deviceContext.getMemoryManager().tryAllocate(bytesToAllocate, arrayHeaderSize, getAlignment());
+            bufferCapacity = bytesToAllocate;
+            heapGeneration = deviceContext.getMemoryManager().getHeapGeneration();
 
             if (Tornado.FULL_DEBUG) {
                 info("allocated: array kind=%s, size=%s, length offset=%d, header size=%d, bo=0x%x", kind.getJavaName(), humanReadableByteCount(bytesToAllocate, true), arrayLengthOffset,
@@ -252,6 +268,21 @@ public abstract class PTXArrayWrapper<T> implements ObjectBuffer {
         }
     }
 
+    @Override
+    public void deallocate() {
+        if (bufferOffset == -1) {
+            return;
+        }
+        deviceContext.getMemoryManager().free(bufferOffset, heapGeneration);
+        if (Tornado.FULL_DEBUG) {
+            info("deallocated: %s", toString());
+        }
+        bufferOffset = -1;
+        bytesToAllocate = 0;
+        bufferCapacity = 0;
+        onDevice = false;
+    }
+
     private long sizeOf(final T array) {
         return (long) arrayHeaderSize + ((long) Array.getLength(array) * (long) kind.getByteCount());
     }
@@ -28,7 +28,6 @@ import uk.ac.manchester.tornado.runtime.common.CallStack;
 import uk.ac.manchester.tornado.runtime.common.DeviceObjectState;
 
 import java.nio.ByteBuffer;
-import java.util.HashMap;
 
 import static uk.ac.manchester.tornado.api.exceptions.TornadoInternalError.shouldNotReachHere;
 import static uk.ac.manchester.tornado.runtime.common.RuntimeUtilities.isBoxedPrimitive;
@@ -123,14 +122,10 @@ public class PTXCallStack extends PTXByteBuffer implements CallStack {
     }
 
     @Override
-    public void setHeader(HashMap<Integer, Integer> map) {
+    public void setHeader(long[] header) {
         buffer.clear();
         for (int i = 0; i < RESERVED_SLOTS; i++) {
-            if (map.containsKey(i)) {
-                buffer.putLong(map.get(i));
-            } else {
-                buffer.putLong(0);
-            }
+            buffer.putLong((i < header.length) ? header[i] : 0);
         }
     }
 
@@ -32,14 +32,17 @@ import uk.ac.manchester.tornado.drivers.ptx.PTXDeviceContext;
 import uk.ac.manchester.tornado.runtime.common.RuntimeUtilities;
 import uk.ac.manchester.tornado.runtime.common.Tornado;
 import uk.ac.manchester.tornado.runtime.common.TornadoLogger;
+import uk.ac.manchester.tornado.runtime.mm.TornadoHeapAllocator;
+import uk.ac.manchester.tornado.runtime.mm.TornadoHeapAllocators;
 import uk.ac.manchester.tornado.runtime.tasks.meta.ScheduleMetaData;
 
 public class PTXMemoryManager extends TornadoLogger implements TornadoMemoryProvider {
 
     private static final int STACK_ALIGNMENT_SIZE = 128;
 
-    private long heapPosition;
     private long heapLimit;
+    private long heapGeneration;
+    private final TornadoHeapAllocator heapAllocator;
     private PTXDeviceContext deviceContext;
     private long callStackPosition;
     private long callStackLimit;
@@ -52,12 +55,14 @@ public class PTXMemoryManager extends TornadoLogger implements TornadoMemoryProv
         scheduleMeta = new ScheduleMetaData("mm-" + deviceContext.getDevice().getDeviceIndex());
         callStackLimit = PTX_CALL_STACK_LIMIT;
         initialised = false;
+        heapAllocator = TornadoHeapAllocators.create();
         reset();
     }
 
     public void reset() {
         callStackPosition = 0;
-        heapPosition = callStackLimit;
+        heapAllocator.reset(callStackLimit, heapLimit);
+        heapGeneration++;
         Tornado.info("Reset heap @ 0x%x (%s) on %s", deviceHeapPointer, RuntimeUtilities.humanReadableByteCount(heapLimit, true), deviceContext.getDevice().getDeviceName());
     }
 
@@ -83,12 +88,22 @@ public class PTXMemoryManager extends TornadoLogger implements TornadoMemoryProv
 
     @Override
     public long getHeapRemaining() {
-        return heapLimit - heapPosition;
+        return heapAllocator.getFreeBytes();
     }
 
     @Override
     public long getHeapAllocated() {
-        return heapPosition - callStackLimit;
+        return heapAllocator.getAllocatedBytes();
+    }
+
+    @Override
+    public long getHeapHighWaterMark() {
+        return heapAllocator.getHighWaterMark();
+    }
+
+    @Override
+    public double getHeapFragmentation() {
+        return heapAllocator.getFragmentation();
     }
 
     @Override
@@ -110,17 +125,29 @@ public class PTXMemoryManager extends TornadoLogger implements TornadoMemoryProv
     }
 
     public long tryAllocate(long bytes, int headerSize, int alignment) {
-        final long alignedDataStart = align(heapPosition + headerSize, alignment);
-        final long headerStart = alignedDataStart - headerSize;
-        if (headerStart + bytes < heapLimit) {
-            heapPosition = headerStart + bytes;
-        } else {
+        final long headerStart = heapAllocator.allocate(bytes, headerSize, alignment);
+        if (headerStart == -1) {
             throw new TornadoOutOfMemoryException("Out of memory on the target device -> " + deviceContext.getDevice().getDeviceName() + ". [Heap Limit is: "
-                    + RuntimeUtilities.humanReadableByteCount(heapLimit, true) + " and the application requires: " + RuntimeUtilities.humanReadableByteCount(headerStart + bytes, true) + "]");
+                    + RuntimeUtilities.humanReadableByteCount(heapLimit, true) + " and the application requires: "
+                    + RuntimeUtilities.humanReadableByteCount(callStackLimit + heapAllocator.getAllocatedBytes() + bytes, true) + "]");
         }
         return headerStart;
     }
 
+    /**
+     * Returns a region obtained with {@link #tryAllocate} to the device heap.
+     * Regions allocated before the last {@link #reset()} are ignored.
+     */
+    public void free(long offset, long generation) {
+        if (generation == heapGeneration && offset != -1) {
+            heapAllocator.free(offset);
+        }
+    }
+
+    public long getHeapGeneration() {
+        return heapGeneration;
+    }
+
     /**
      * Allocate space on the device
      *
@@ -128,6 +155,7 @@ public class PTXMemoryManager extends TornadoLogger implements TornadoMemoryProv
      */
     public void allocateRegion(long numBytes) {
         this.heapLimit = numBytes;
+        heapAllocator.reset(callStackLimit, heapLimit);
         this.deviceHeapPointer = deviceContext.getDevice().getPTXContext().allocateMemory(numBytes);
     }
 
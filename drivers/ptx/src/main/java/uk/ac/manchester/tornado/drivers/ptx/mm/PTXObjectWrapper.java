@@ -27,6 +27,7 @@ import static uk.ac.manchester.tornado.api.exceptions.TornadoInternalError.shoul
 import static uk.ac.manchester.tornado.api.exceptions.TornadoInternalError.unimplemented;
 import static uk.ac.manchester.tornado.runtime.TornadoCoreRuntime.getVMConfig;
 import static uk.ac.manchester.tornado.runtime.TornadoCoreRuntime.getVMRuntime;
+import static uk.ac.manchester.tornado.runtime.common.RuntimeUtilities.concatEvents;
 import static uk.ac.manchester.tornado.runtime.common.RuntimeUtilities.humanReadableByteCount;
 import static uk.ac.manchester.tornado.runtime.common.Tornado.DEBUG;
 import static uk.ac.manchester.tornado.runtime.common.Tornado.OPENCL_USE_RELATIVE_ADDRESSES;
@@ -37,9 +38,7 @@ import static uk.ac.manchester.tornado.runtime.common.Tornado.warn;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.nio.ByteBuffer;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 
 import jdk.vm.ci.hotspot.HotSpotResolvedJavaField;
 import jdk.vm.ci.hotspot.HotSpotResolvedJavaType;
@@ -49,6 +48,7 @@ import uk.ac.manchester.tornado.api.mm.ObjectBuffer;
 import uk.ac.manchester.tornado.api.type.annotations.Payload;
 import uk.ac.manchester.tornado.api.type.annotations.Vector;
 import uk.ac.manchester.tornado.drivers.ptx.PTXDeviceContext;
+import uk.ac.manchester.tornado.runtime.common.BatchedStorage;
 import uk.ac.manchester.tornado.runtime.common.RuntimeUtilities;
 
 public class PTXObjectWrapper implements ObjectBuffer {
@@ -57,7 +57,10 @@ public class PTXObjectWrapper implements ObjectBuffer {
 
     private final boolean vectorObject;
     private int vectorStorageIndex;
+    private int batchStorageIndex;
+    private long serialisedBatchSize;
     private long bufferOffset;
+    private long heapGeneration;
     private long bytesToAllocate;
     private ByteBuffer buffer;
     private HotSpotResolvedJavaType resolvedType;
@@ -93,6 +96,8 @@ public class PTXObjectWrapper implements ObjectBuffer {
         vectorObject = resolvedType.getAnnotation(Vector.class) != null;
 
         vectorStorageIndex = -1;
+        batchStorageIndex = -1;
+        final boolean batchedStorage = BatchedStorage.isBatchedStorage(object);
 
         fields = (HotSpotResolvedJavaField[]) resolvedType.getInstanceFields(true);
         sortFieldsByOffset();
@@ -112,6 +117,10 @@ public class PTXObjectWrapper implements ObjectBuffer {
                 vectorStorageIndex = index;
             }
 
+            if (batchedStorage && BatchedStorage.isStorageField(reflectedField)) {
+                batchStorageIndex = index;
+            }
+
             if (DEBUG) {
                 trace("field: name=%s, kind=%s, offset=%d", field.getName(), type.getName(), field.getOffset());
             }
@@ -181,15 +190,17 @@ public class PTXObjectWrapper implements ObjectBuffer {
 
         if (bufferOffset == -1) {
             bufferOffset = deviceContext.getMemoryManager().tryAllocate(bytesToAllocate, 32, getAlignment());
+            heapGeneration = deviceContext.getMemoryManager().getHeapGeneration();
         }
 
         if (DEBUG) {
             debug("object: object=0x%x @ 0x%x (0x%x)", reference.hashCode(), toAbsoluteAddress(), toRelativeAddress());
         }
-        for (FieldBuffer buffer : wrappedFields) {
+        for (int i = 0; i < wrappedFields.length; i++) {
+            final FieldBuffer buffer = wrappedFields[i];
             if (buffer != null) {
-                // TODO: support batch sizes for scope/field arguments
-                if (batchSize > 0) {
+                // Only the storage of collection types can be split in batches
+                if (batchSize > 0 && i != batchStorageIndex) {
                     throw new TornadoMemoryException("[ERROR] BatchSize Allocation currently not supported for Objects Fields. BatchSize = " + batchSize + " (bytes)");
                 }
                 buffer.allocate(reference, batchSize);
@@ -197,6 +208,20 @@ public class PTXObjectWrapper implements ObjectBuffer {
         }
     }
 
+    @Override
+    public void deallocate() {
+        for (FieldBuffer fieldBuffer : wrappedFields) {
+            if (fieldBuffer != null) {
+                fieldBuffer.deallocate();
+            }
+        }
+        if (bufferOffset != -1) {
+            deviceContext.getMemoryManager().free(bufferOffset, heapGeneration);
+            bufferOffset = -1;
+        }
+        valid = false;
+    }
+
     private Field getField(Class<?> type, String name) {
         Field result = null;
         try {
@@ -212,11 +237,11 @@ public class PTXObjectWrapper implements ObjectBuffer {
         return result;
     }
 
-    private void writeFieldToBuffer(int index, Field field, Object obj) {
+    private void writeFieldToBuffer(int index, Field field, Object obj, long batchSize) {
         Class<?> fieldType = field.getType();
         if (fieldType.isPrimitive()) {
             try {
-                PrimitiveSerialiser.put(buffer, field.get(obj));
+                PrimitiveSerialiser.put(buffer, BatchedStorage.getBatchFieldValue(obj, field, batchSize));
             } catch (IllegalArgumentException | IllegalAccessException e) {
                 shouldNotReachHere("unable to write primitive to buffer: ", e.getMessage());
             }
@@ -270,7 +295,11 @@ public class PTXObjectWrapper implements ObjectBuffer {
         }
     }
 
-    private void serialise(Object object) {
+    private boolean isBatched() {
+        return batchStorageIndex != -1 && serialisedBatchSize > 0;
+    }
+
+    private void serialise(Object object, long batchSize) {
         buffer.rewind();
         buffer.position(hubOffset);
         buffer.putLong(0);
@@ -285,9 +314,10 @@ public class PTXObjectWrapper implements ObjectBuffer {
                 }
 
                 buffer.position(field.getOffset());
-                writeFieldToBuffer(i, f, object);
+                writeFieldToBuffer(i, f, object, batchSize);
             }
         }
+        serialisedBatchSize = batchSize;
     }
 
     private void deserialise(Object object) {
@@ -324,8 +354,8 @@ public class PTXObjectWrapper implements ObjectBuffer {
             final FieldBuffer fieldBuffer = wrappedFields[vectorStorageIndex];
             fieldBuffer.write(object);
         } else {
-            if (!valid) {
-                serialise(object);
+            if (!valid || isBatched()) {
+                serialise(object, 0);
                 // XXX: Offset 0
                 deviceContext.writeBuffer(toBuffer() + bufferOffset, bytesToAllocate, buffer.array(), 0, null);
             }
@@ -350,6 +380,9 @@ public class PTXObjectWrapper implements ObjectBuffer {
         if (vectorObject) {
             final FieldBuffer fieldBuffer = wrappedFields[vectorStorageIndex];
             event = fieldBuffer.read(object, events, useDeps);
+        } else if (isBatched()) {
+            // The header describes the batch, not the host object
+            event = wrappedFields[batchStorageIndex].read(object, hostOffset, events, useDeps);
         } else {
             buffer.position(buffer.capacity());
             event = deviceContext.readBuffer(toBuffer() + bufferOffset, bytesToAllocate, buffer.array(), hostOffset, (useDeps) ? events : null);
@@ -419,6 +452,8 @@ public class PTXObjectWrapper implements ObjectBuffer {
         if (vectorObject) {
             final FieldBuffer fieldBuffer = wrappedFields[vectorStorageIndex];
             returnEvent = fieldBuffer.enqueueRead(reference, (useDeps) ? events : null, useDeps);
+        } else if (isBatched()) {
+            returnEvent = wrappedFields[batchStorageIndex].enqueueRead(reference, hostOffset, (useDeps) ? events : null, useDeps);
         } else {
             int index = 0;
             int[] internalEvents = new int[fields.length];
@@ -455,27 +490,33 @@ public class PTXObjectWrapper implements ObjectBuffer {
     }
 
     @Override
-    public List<Integer> enqueueWrite(Object ref, long batchSize, long hostOffset, int[] events, boolean useDeps) {
-        ArrayList<Integer> eventList = new ArrayList<>();
+    public int[] enqueueWrite(Object ref, long batchSize, long hostOffset, int[] events, boolean useDeps) {
+        int[] eventList = null;
 
         if (vectorObject) {
             final FieldBuffer fieldBuffer = wrappedFields[vectorStorageIndex];
             if (!valid) {
                 valid = true;
-                eventList.addAll(fieldBuffer.enqueueWrite(ref, (useDeps) ? events : null, useDeps));
-            } else {
-                eventList = null;
+                eventList = fieldBuffer.enqueueWrite(ref, (useDeps) ? events : null, useDeps);
             }
         } else {
             // TODO this needs to run asynchronously
-            if (!valid || (valid && !isFinal)) {
-                serialise(ref);
-                eventList.add(deviceContext.enqueueWriteBuffer(toBuffer() + bufferOffset, bytesToAllocate, buffer.array(), hostOffset, (useDeps) ? events : null));
+            final long objectBatchSize = (batchStorageIndex != -1) ? batchSize : 0;
+            if (!valid || !isFinal || objectBatchSize != serialisedBatchSize) {
+                serialise(ref, objectBatchSize);
+                // The host offset only applies to the batched storage
+                eventList = new int[] { deviceContext.enqueueWriteBuffer(toBuffer() + bufferOffset, bytesToAllocate, buffer.array(), 0, (useDeps) ? events : null) };
                 valid = true;
             }
-            for (final FieldBuffer field : wrappedFields) {
-                if (field != null && field.needsWrite()) {
-                    eventList.addAll(field.enqueueWrite(ref, (useDeps) ? events : null, useDeps));
+            for (int i = 0; i < wrappedFields.length; i++) {
+                final FieldBuffer field = wrappedFields[i];
+                if (field == null) {
+                    continue;
+                }
+                if (i == batchStorageIndex && objectBatchSize > 0) {
+                    eventList = concatEvents(eventList, field.enqueueWrite(ref, batchSize, hostOffset, (useDeps) ? events : null, useDeps));
+                } else if (field.needsWrite()) {
+                    eventList = concatEvents(eventList, field.enqueueWrite(ref, (useDeps) ? events : null, useDeps));
                 }
             }
         }
@@ -24,6 +24,7 @@
 package uk.ac.manchester.tornado.drivers.ptx.runtime;
 
 import static uk.ac.manchester.tornado.drivers.ptx.graal.PTXCodeUtil.buildKernelName;
+import static uk.ac.manchester.tornado.runtime.common.RuntimeUtilities.concatEvents;
 
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -31,7 +32,6 @@ import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 
 import jdk.vm.ci.meta.ResolvedJavaMethod;
@@ -70,12 +70,15 @@ import uk.ac.manchester.tornado.drivers.ptx.mm.PTXMemoryManager;
 import uk.ac.manchester.tornado.drivers.ptx.mm.PTXObjectWrapper;
 import uk.ac.manchester.tornado.drivers.ptx.mm.PTXShortArrayWrapper;
 import uk.ac.manchester.tornado.runtime.TornadoCoreRuntime;
+import uk.ac.manchester.tornado.runtime.common.BatchedStorage;
 import uk.ac.manchester.tornado.runtime.common.CallStack;
 import uk.ac.manchester.tornado.runtime.common.DeviceObjectState;
 import uk.ac.manchester.tornado.runtime.common.RuntimeUtilities;
 import uk.ac.manchester.tornado.runtime.common.Tornado;
 import uk.ac.manchester.tornado.runtime.common.TornadoAcceleratorDevice;
 import uk.ac.manchester.tornado.runtime.common.TornadoInstalledCode;
+import uk.ac.manchester.tornado.runtime.common.TornadoInstalledCodeCache;
+import uk.ac.manchester.tornado.runtime.common.TornadoKernelCache;
 import uk.ac.manchester.tornado.runtime.common.TornadoSchedulingStrategy;
 import uk.ac.manchester.tornado.runtime.sketcher.Sketch;
 import uk.ac.manchester.tornado.runtime.sketcher.TornadoSketcher;
@@ -168,7 +171,7 @@ public class PTXTornadoDevice implements TornadoAcceleratorDevice {
 
         final CompilableTask executable = (CompilableTask) task;
         final ResolvedJavaMethod resolvedMethod = TornadoCoreRuntime.getTornadoRuntime().resolveMethod(executable.getMethod());
-        final Sketch sketch = TornadoSketcher.lookup(resolvedMethod, task.meta().getDriverIndex(), task.meta().getDeviceIndex());
+        final Sketch sketch = TornadoSketcher.lookup(resolvedMethod, executable.meta());
 
         // copy meta data into task
         final TaskMetaData sketchMeta = sketch.getMeta();
@@ -177,6 +180,21 @@ public class PTXTornadoDevice implements TornadoAcceleratorDevice {
         final Access[] taskAccess = taskMeta.getArgumentsAccess();
         System.arraycopy(sketchAccess, 0, taskAccess, 0, sketchAccess.length);
 
+        // Look up the kernel in the kernels shared by all task-schedules
+        String specialisationKey = null;
+        if (TornadoInstalledCodeCache.isEnabled()) {
+            final long batchThreads = (taskMeta.getNumThreads() > 0) ? taskMeta.getNumThreads() : executable.getBatchThreads();
+            specialisationKey = TornadoKernelCache.computeSpecialisationKey(resolvedMethod, executable.getArguments(), taskMeta, batchThreads);
+            final TornadoInstalledCodeCache.Entry entry = (specialisationKey != null) ? TornadoCoreRuntime.getInstalledCodeCache().lookup(deviceContext.getCodeCache(), specialisationKey, task) : null;
+            if (entry != null) {
+                taskMeta.setCompiledGraph(resolvedMethod);
+                if (entry.getDomain() != null) {
+                    taskMeta.setDomain(entry.getDomain());
+                }
+                return entry.getCode();
+            }
+        }
+
         try {
             PTXCompilationResult result;
             if (!deviceContext.isCached(resolvedMethod.getName(), executable)) {
@@ -194,6 +212,9 @@ public class PTXTornadoDevice implements TornadoAcceleratorDevice {
 
             profiler.start(ProfilerType.TASK_COMPILE_DRIVER_TIME, taskMeta.getId());
             TornadoInstalledCode installedCode = deviceContext.installCode(result, resolvedMethod.getName());
+            if (specialisationKey != null) {
+                TornadoCoreRuntime.getInstalledCodeCache().put(deviceContext.getCodeCache(), specialisationKey, installedCode, taskMeta.getDomain(), task);
+            }
             profiler.stop(ProfilerType.TASK_COMPILE_DRIVER_TIME, taskMeta.getId());
             profiler.sum(ProfilerType.TOTAL_DRIVER_COMPILE_TIME, profiler.getTaskTimer(ProfilerType.TASK_COMPILE_DRIVER_TIME, taskMeta.getId()));
             return installedCode;
@@ -285,7 +306,7 @@ public class PTXTornadoDevice implements TornadoAcceleratorDevice {
 
         final Class<?> type = object.getClass();
         if (!type.isArray()) {
-            checkBatchSize(batchSize);
+            checkBatchSize(object, batchSize);
         }
 
         state.setValid(true);
@@ -306,8 +327,11 @@ public class PTXTornadoDevice implements TornadoAcceleratorDevice {
             state.getBuffer().allocate(object, batchSize);
             final Class<?> type = object.getClass();
             if (!type.isArray()) {
-                checkBatchSize(batchSize);
-                state.getBuffer().write(object);
+                checkBatchSize(object, batchSize);
+                if (batchSize <= 0) {
+                    // Batches are written by the following stream-in
+                    state.getBuffer().write(object);
+                }
             }
             state.setValid(true);
         } catch (TornadoOutOfMemoryException | TornadoMemoryException e) {
@@ -315,8 +339,8 @@ public class PTXTornadoDevice implements TornadoAcceleratorDevice {
         }
     }
 
-    private void checkBatchSize(long batchSize) {
-        if (batchSize > 0) {
+    private void checkBatchSize(Object object, long batchSize) {
+        if (batchSize > 0 && !BatchedStorage.isBatchedStorage(object)) {
             throw new TornadoRuntimeException("[ERROR] Batch computation with non-arrays not supported yet.");
         }
     }
@@ -364,6 +388,24 @@ public class PTXTornadoDevice implements TornadoAcceleratorDevice {
         return result;
     }
 
+    /**
+     * It releases the device buffer of an object and returns its region to the
+     * heap of the target device.
+     *
+     * @param state
+     *            state of the object in the target device
+     *            {@link TornadoDeviceObjectState}
+     */
+    @Override
+    public void deallocate(TornadoDeviceObjectState state) {
+        if (state.hasBuffer()) {
+            state.getBuffer().deallocate();
+            state.setBuffer(null);
+        }
+        state.setValid(false);
+        state.setContents(false);
+    }
+
     /**
      * It allocates and copy in the content of the object to the target device.
      *
@@ -383,18 +425,34 @@ public class PTXTornadoDevice implements TornadoAcceleratorDevice {
      * @return an event ID
      */
     @Override
-    public List<Integer> ensurePresent(Object object, TornadoDeviceObjectState objectState, int[] events, long batchSize, long hostOffset) {
+    public int[] ensurePresent(Object object, TornadoDeviceObjectState objectState, int[] events, long batchSize, long hostOffset) {
         if (!objectState.isValid()) {
             ensureAllocated(object, batchSize, objectState);
         }
 
         if (BENCHMARKING_MODE || !objectState.hasContents()) {
             objectState.setContents(true);
+            objectState.clearDirtyRanges();
             return objectState.getBuffer().enqueueWrite(object, batchSize, hostOffset, events, events != null);
+        } else if (batchSize <= 0 && objectState.hasDirtyRanges()) {
+            return writeDirtyRanges(object, objectState, events);
         }
         return null;
     }
 
+    /**
+     * Copies only the regions of the host object that have been marked as
+     * modified since the last transfer.
+     */
+    private int[] writeDirtyRanges(Object object, TornadoDeviceObjectState objectState, int[] events) {
+        int[] writeEvents = null;
+        for (long[] range : objectState.getDirtyRanges()) {
+            writeEvents = concatEvents(writeEvents, objectState.getBuffer().enqueueWriteRange(object, range[0], range[1] - range[0], events, events != null));
+        }
+        objectState.clearDirtyRanges();
+        return writeEvents;
+    }
+
     /**
      * It always copies in the input data (object) from the host to the target
      * device.
@@ -415,11 +473,14 @@ public class PTXTornadoDevice implements TornadoAcceleratorDevice {
      * @return and event ID
      */
     @Override
-    public List<Integer> streamIn(Object object, long batchSize, long hostOffset, TornadoDeviceObjectState objectState, int[] events) {
+    public int[] streamIn(Object object, long batchSize, long hostOffset, TornadoDeviceObjectState objectState, int[] events) {
         if (batchSize > 0 || !objectState.isValid()) {
             ensureAllocated(object, batchSize, objectState);
+        } else if (objectState.hasContents() && objectState.hasDirtyRanges()) {
+            return writeDirtyRanges(object, objectState, events);
         }
         objectState.setContents(true);
+        objectState.clearDirtyRanges();
         return objectState.getBuffer().enqueueWrite(object, batchSize, hostOffset, events, events != null);
     }
 
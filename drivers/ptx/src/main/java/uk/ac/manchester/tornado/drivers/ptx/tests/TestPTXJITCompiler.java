@@ -25,7 +25,6 @@ package uk.ac.manchester.tornado.drivers.ptx.tests;
 
 import java.lang.reflect.Method;
 import java.util.Arrays;
-import java.util.HashMap;
 
 import jdk.vm.ci.meta.ResolvedJavaMethod;
 import uk.ac.manchester.tornado.api.annotations.Parallel;
@@ -141,7 +140,7 @@ public class TestPTXJITCompiler {
         CallStack stack = tornadoDevice.createStack(3);
 
         // Fill header of call stack with empty values
-        stack.setHeader(new HashMap<>());
+        stack.setHeader(new long[0]);
 
         stack.push(a, objectStateA);
         stack.push(b, objectStateB);
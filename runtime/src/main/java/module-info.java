@@ -13,6 +13,7 @@ open module tornado.runtime {
     exports uk.ac.manchester.tornado.runtime.common.exceptions;
     exports uk.ac.manchester.tornado.runtime.directives;
     exports uk.ac.manchester.tornado.runtime.domain;
+    exports uk.ac.manchester.tornado.runtime.energy;
     exports uk.ac.manchester.tornado.runtime.graal;
     exports uk.ac.manchester.tornado.runtime.graal.backend;
     exports uk.ac.manchester.tornado.runtime.graal.compiler;
@@ -23,6 +24,7 @@ open module tornado.runtime {
     exports uk.ac.manchester.tornado.runtime.graal.phases.lir;
     exports uk.ac.manchester.tornado.runtime.graph;
     exports uk.ac.manchester.tornado.runtime.graph.nodes;
+    exports uk.ac.manchester.tornado.runtime.mm;
     exports uk.ac.manchester.tornado.runtime.profiler;
     exports uk.ac.manchester.tornado.runtime.sketcher;
     exports uk.ac.manchester.tornado.runtime.tasks;
@@ -25,7 +25,6 @@
  */
 package uk.ac.manchester.tornado.runtime;
 
-import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 
 import uk.ac.manchester.tornado.api.TornadoDeviceContext;
@@ -74,7 +73,12 @@ public class JVMMapping implements TornadoAcceleratorDevice {
     }
 
     @Override
-    public List<Integer> ensurePresent(Object object, TornadoDeviceObjectState objectState, int[] events, long size, long offset) {
+    public void deallocate(TornadoDeviceObjectState objectState) {
+        TornadoInternalError.unimplemented();
+    }
+
+    @Override
+    public int[] ensurePresent(Object object, TornadoDeviceObjectState objectState, int[] events, long size, long offset) {
         TornadoInternalError.unimplemented();
         return null;
     }
@@ -106,7 +110,7 @@ public class JVMMapping implements TornadoAcceleratorDevice {
     }
 
     @Override
-    public List<Integer> streamIn(Object object, long batchSize, long hostOffset, TornadoDeviceObjectState objectState, int[] events) {
+    public int[] streamIn(Object object, long batchSize, long hostOffset, TornadoDeviceObjectState objectState, int[] events) {
         TornadoInternalError.unimplemented();
         return null;
     }
@@ -30,13 +30,18 @@ package uk.ac.manchester.tornado.runtime;
 import static org.graalvm.compiler.debug.GraalError.guarantee;
 import static uk.ac.manchester.tornado.api.exceptions.TornadoInternalError.shouldNotReachHere;
 import static uk.ac.manchester.tornado.runtime.common.Tornado.SHOULD_LOAD_RMI;
+import static uk.ac.manchester.tornado.runtime.common.TornadoOptions.RECLAIM_DEVICE_BUFFERS;
+import static uk.ac.manchester.tornado.runtime.common.TornadoOptions.SHARED_KERNEL_CACHE_SIZE;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Method;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.ServiceLoader;
-import java.util.WeakHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
@@ -60,6 +65,7 @@ import jdk.vm.ci.runtime.JVMCIBackend;
 import uk.ac.manchester.tornado.api.TornadoDriver;
 import uk.ac.manchester.tornado.api.TornadoRuntimeCI;
 import uk.ac.manchester.tornado.runtime.common.TornadoAcceleratorDevice;
+import uk.ac.manchester.tornado.runtime.common.TornadoInstalledCodeCache;
 import uk.ac.manchester.tornado.runtime.common.TornadoLogger;
 import uk.ac.manchester.tornado.runtime.common.enums.TornadoDrivers;
 import uk.ac.manchester.tornado.runtime.graal.compiler.TornadoSnippetReflectionProvider;
@@ -83,6 +89,7 @@ public class TornadoCoreRuntime extends TornadoLogger implements TornadoRuntimeC
     }
 
     private static final Executor EXECUTOR = Executors.newCachedThreadPool();
+    private static final TornadoInstalledCodeCache INSTALLED_CODE_CACHE = new TornadoInstalledCodeCache(SHARED_KERNEL_CACHE_SIZE);
     private static final TornadoCoreRuntime runtime = new TornadoCoreRuntime();
     private static final JVMMapping JVM = new JVMMapping();
 
@@ -102,6 +109,10 @@ public class TornadoCoreRuntime extends TornadoLogger implements TornadoRuntimeC
         return EXECUTOR;
     }
 
+    public static TornadoInstalledCodeCache getInstalledCodeCache() {
+        return INSTALLED_CODE_CACHE;
+    }
+
     public static JVMCIBackend getVMBackend() {
         return runtime.vmBackend;
     }
@@ -114,7 +125,8 @@ public class TornadoCoreRuntime extends TornadoLogger implements TornadoRuntimeC
         return runtime.vmConfig;
     }
 
-    private final Map<Object, GlobalObjectState> objectMappings;
+    private final Map<ObjectReference, GlobalObjectState> objectMappings;
+    private final ReferenceQueue<Object> collectedObjects;
     private TornadoAcceleratorDriver[] drivers;
     private int driverCount;
     private final JVMCIBackend vmBackend;
@@ -124,7 +136,8 @@ public class TornadoCoreRuntime extends TornadoLogger implements TornadoRuntimeC
     private static final int DEFAULT_DRIVER = 0;
 
     private TornadoCoreRuntime() {
-        objectMappings = new WeakHashMap<>();
+        objectMappings = new HashMap<>();
+        collectedObjects = new ReferenceQueue<>();
 
         guarantee(!GraalOptions.OmitHotExceptionStacktrace.getValue(options), "error");
 
@@ -137,13 +150,30 @@ public class TornadoCoreRuntime extends TornadoLogger implements TornadoRuntimeC
         drivers = loadDrivers();
     }
 
-    public void clearObjectState() {
+    public synchronized void clearObjectState() {
         for (GlobalObjectState gs : objectMappings.values()) {
             gs.clear();
         }
         objectMappings.clear();
     }
 
+    /**
+     * Releases the device buffers of all the objects that have been garbage
+     * collected since the last call. Device buffers are only released from the
+     * threads that use the runtime, never from the garbage collector. The
+     * tracking structures are shared by all the threads that execute
+     * task-schedules, so they are only updated while holding the runtime lock.
+     */
+    public synchronized void releaseCollectedObjects() {
+        Reference<?> reference;
+        while ((reference = collectedObjects.poll()) != null) {
+            final GlobalObjectState state = objectMappings.remove(reference);
+            if (state != null && RECLAIM_DEVICE_BUFFERS) {
+                state.release();
+            }
+        }
+    }
+
     private TornadoAcceleratorDriver[] loadDrivers() {
         ServiceLoader<TornadoDriverProvider> loader = ServiceLoader.load(TornadoDriverProvider.class);
         List<TornadoDriverProvider> providerList = StreamSupport.stream(loader.spliterator(), false).sorted().collect(Collectors.toList());
@@ -166,12 +196,14 @@ public class TornadoCoreRuntime extends TornadoLogger implements TornadoRuntimeC
         return options;
     }
 
-    public GlobalObjectState resolveObject(Object object) {
-        if (!objectMappings.containsKey(object)) {
-            final GlobalObjectState state = new GlobalObjectState();
-            objectMappings.put(object, state);
+    public synchronized GlobalObjectState resolveObject(Object object) {
+        releaseCollectedObjects();
+        GlobalObjectState state = objectMappings.get(new ObjectReference(object, null));
+        if (state == null) {
+            state = new GlobalObjectState();
+            objectMappings.put(new ObjectReference(object, collectedObjects), state);
         }
-        return objectMappings.get(object);
+        return state;
     }
 
     @Override
@@ -230,4 +262,38 @@ public class TornadoCoreRuntime extends TornadoLogger implements TornadoRuntimeC
     public TornadoRuntimeCI callRuntime() {
         return runtime;
     }
+
+    /**
+     * Weak reference to a host object, used as the key of the state of the
+     * object. Keys are compared by the identity of the objects, so distinct
+     * objects that are equal, or that have the same hash code, get their own
+     * state and device buffers. The key of a collected object is only equal to
+     * itself, so it can still be removed once it is enqueued.
+     */
+    private static final class ObjectReference extends WeakReference<Object> {
+
+        private final int hash;
+
+        ObjectReference(Object object, ReferenceQueue<Object> queue) {
+            super(object, queue);
+            this.hash = System.identityHashCode(object);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof ObjectReference)) {
+                return false;
+            }
+            final Object object = get();
+            return object != null && object == ((ObjectReference) other).get();
+        }
+    }
 }
@@ -33,11 +33,15 @@ import static uk.ac.manchester.tornado.runtime.common.TornadoOptions.VIRTUAL_DEV
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
-import java.util.HashMap;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import uk.ac.manchester.tornado.api.GridTask;
@@ -84,6 +88,7 @@ public class TornadoVM extends TornadoLogger {
     private static final Event EMPTY_EVENT = new EmptyEvent();
 
     private static final int MAX_EVENTS = 32;
+    private static final long[] EMPTY_HEADER = new long[0];
     private final boolean useDependencies;
 
     private final TornadoExecutionContext graphContext;
@@ -93,10 +98,14 @@ public class TornadoVM extends TornadoLogger {
 
     private final GlobalObjectState[] globalStates;
     private final CallStack[] stacks;
+    private final List<CallStack[]> bufferSetStacks;
     private final int[][] events;
+    private final int[][] eventContexts;
     private final int[] eventsIndexes;
+    private final int[] localWaitList;
     private final List<TornadoAcceleratorDevice> contexts;
     private final TornadoInstalledCode[] installedCodes;
+    private final ExecutionInfo[] executionInfos;
 
     private final List<Object> constants;
     private final List<SchedulableTask> tasks;
@@ -108,6 +117,9 @@ public class TornadoVM extends TornadoLogger {
     private TornadoProfiler timeProfiler;
     private boolean finishedWarmup;
     private boolean doUpdate;
+    private boolean pendingCompilation;
+    private int bufferSet;
+    private int bufferSetOffset;
 
     private GridTask gridTask;
 
@@ -132,13 +144,23 @@ public class TornadoVM extends TornadoLogger {
         buffer.getInt();
         int taskCount = buffer.getInt();
         stacks = graphContext.getFrames();
+        bufferSetStacks = new ArrayList<>();
+        bufferSetStacks.add(stacks);
         events = new int[buffer.getInt()][MAX_EVENTS];
+        eventContexts = new int[events.length][MAX_EVENTS];
         eventsIndexes = new int[events.length];
+        localWaitList = new int[MAX_EVENTS];
 
         installedCodes = new TornadoInstalledCode[taskCount];
+        pendingCompilation = true;
+        executionInfos = new ExecutionInfo[taskCount];
+        for (int i = 0; i < taskCount; i++) {
+            executionInfos[i] = new ExecutionInfo();
+        }
 
         for (int i = 0; i < events.length; i++) {
             Arrays.fill(events[i], -1);
+            Arrays.fill(eventContexts[i], -1);
             eventsIndexes[i] = 0;
         }
 
@@ -186,7 +208,20 @@ public class TornadoVM extends TornadoLogger {
     }
 
     private DeviceObjectState resolveObjectState(int index, int device) {
-        return globalStates[index].getDeviceState(contexts.get(device));
+        return globalStates[index].getDeviceState(contexts.get(device), bufferSet);
+    }
+
+    /**
+     * The call stacks hold the device addresses of the arguments, so each set of
+     * buffers of a pipelined batch has its own call stacks. The first set uses the
+     * call stacks of the execution context.
+     */
+    private CallStack[] resolveBufferSetStacks() {
+        final int index = bufferSet - bufferSetOffset;
+        while (bufferSetStacks.size() <= index) {
+            bufferSetStacks.add(new CallStack[stacks.length]);
+        }
+        return bufferSetStacks.get(index);
     }
 
     private CallStack resolveStack(int index, int numArgs, CallStack[] stacks, TornadoAcceleratorDevice device, boolean setNewDevice) {
@@ -205,6 +240,38 @@ public class TornadoVM extends TornadoLogger {
         }
     }
 
+    /**
+     * Moves the sets of buffers used by this TornadoVM instance, so that it does
+     * not share the device buffers of its objects with other instances that run
+     * at the same time on the same objects.
+     */
+    public void setBufferSetOffset(int offset) {
+        bufferSetOffset = offset;
+        bufferSet = offset;
+    }
+
+    /**
+     * Takes the state of the object that has replaced the object at an index of
+     * the execution context. The call stacks are written again on the next
+     * launch, so the tasks use the new object with the same bytecodes and
+     * kernels.
+     */
+    public void replaceObject(int index) {
+        globalStates[index] = TornadoCoreRuntime.getTornadoRuntime().resolveObject(objects.get(index));
+        invalidateStacks();
+    }
+
+    /**
+     * Invalidates the objects only on the devices used by this TornadoVM
+     * instance, so other task-schedules can keep using the objects on other
+     * devices.
+     */
+    public void invalidateObjectsOnDevices() {
+        for (GlobalObjectState globalState : globalStates) {
+            contexts.forEach(globalState::invalidate);
+        }
+    }
+
     public void warmup() {
         execute(true);
         finishedWarmup = true;
@@ -226,6 +293,131 @@ public class TornadoVM extends TornadoLogger {
 
     public void clearInstalledCode() {
         Arrays.fill(installedCodes, null);
+        pendingCompilation = true;
+    }
+
+    /**
+     * Pool of threads that compile the tasks of all the task-schedules, bounded
+     * by {@link TornadoOptions#COMPILER_THREADS}.
+     */
+    private static class CompilerPool {
+        private static final AtomicInteger threadId = new AtomicInteger(0);
+        private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(Math.max(1, TornadoOptions.COMPILER_THREADS), runnable -> {
+            Thread thread = new Thread(runnable, "tornado-compiler-" + threadId.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private boolean isConcurrentCompilationEnabled() {
+        if (!TornadoOptions.CONCURRENT_COMPILATION || tasks.size() < 2) {
+            return false;
+        }
+        // FPGA kernels are compiled into a single source by the last task
+        for (TornadoAcceleratorDevice device : contexts) {
+            if (device.getDeviceContext().isPlatformFPGA()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compiles all the tasks of the task-schedule before the first launch. The
+     * LAUNCH bytecodes are scanned to find the device and the batch size of each
+     * task, and every task that has not been compiled is submitted to the
+     * compiler pool. The latency of the first execution is then bounded by the
+     * slowest compilation instead of the sum of all of them. The compile times of
+     * each task are recorded in the profiler by the devices.
+     */
+    private void compileTasksConcurrently() {
+        pendingCompilation = false;
+        if (!isConcurrentCompilationEnabled()) {
+            return;
+        }
+
+        final ByteBuffer code = buffer.duplicate();
+        code.order(ByteOrder.LITTLE_ENDIAN);
+        final List<Future<?>> compilations = new ArrayList<>();
+        final List<SchedulableTask> compiledTasks = new ArrayList<>();
+        final boolean[] submitted = new boolean[installedCodes.length];
+
+        while (code.hasRemaining()) {
+            final byte op = code.get();
+            if (op == TornadoVMBytecodes.LAUNCH.value()) {
+                code.getInt();
+                final int contextIndex = code.getInt();
+                final int taskIndex = code.getInt();
+                final int numArgs = code.getInt();
+                code.getInt();
+                code.getLong();
+                final long batchThreads = code.getLong();
+                code.position(code.position() + numArgs * (Byte.BYTES + Integer.BYTES));
+
+                if (installedCodes[taskIndex] != null || submitted[taskIndex]) {
+                    continue;
+                }
+                submitted[taskIndex] = true;
+
+                final TornadoAcceleratorDevice device = contexts.get(contextIndex);
+                final SchedulableTask task = tasks.get(taskIndex);
+                prepareTask(task, batchThreads);
+                prepareCompilation(task, device, taskIndex);
+                compiledTasks.add(task);
+                compilations.add(CompilerPool.EXECUTOR.submit(() -> {
+                    device.enableThreadSharing();
+                    installedCodes[taskIndex] = device.installCode(task);
+                }));
+            } else if (op == TornadoVMBytecodes.ALLOCATE.value()) {
+                code.position(code.position() + 2 * Integer.BYTES + Long.BYTES);
+            } else if (op == TornadoVMBytecodes.COPY_IN.value() || op == TornadoVMBytecodes.STREAM_IN.value() || op == TornadoVMBytecodes.STREAM_OUT.value()
+                    || op == TornadoVMBytecodes.STREAM_OUT_BLOCKING.value()) {
+                code.position(code.position() + 3 * Integer.BYTES + 2 * Long.BYTES);
+            } else if (op == TornadoVMBytecodes.ADD_DEP.value() || op == TornadoVMBytecodes.BARRIER.value() || op == TornadoVMBytecodes.BUFFER_SET.value()) {
+                code.getInt();
+            } else if (op == TornadoVMBytecodes.END.value()) {
+                break;
+            } else {
+                throwError(op);
+            }
+        }
+
+        for (int i = 0; i < compilations.size(); i++) {
+            try {
+                compilations.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new TornadoBailoutRuntimeException("Interrupted while compiling task " + compiledTasks.get(i).getFullName(), e);
+            } catch (ExecutionException e) {
+                final Throwable cause = e.getCause();
+                throw new TornadoBailoutRuntimeException("Unable to compile task " + compiledTasks.get(i).getFullName() + "\n" + Arrays.toString(cause.getStackTrace()), e);
+            }
+        }
+    }
+
+    private void prepareTask(SchedulableTask task, long batchThreads) {
+        // Set the batch size in the task information
+        task.setBatchThreads(batchThreads);
+        task.enableDefaultThreadScheduler(graphContext.useDefaultThreadScheduler());
+
+        if (gridTask != null && gridTask.get(task.getId()) != null) {
+            TornadoOptions.USER_SCHEDULING = true;
+        }
+    }
+
+    private void prepareCompilation(SchedulableTask task, TornadoAcceleratorDevice device, int taskIndex) {
+        task.mapTo(device);
+        task.attachProfiler(timeProfiler);
+        if (taskIndex == (tasks.size() - 1)) {
+            // If last task within the task-schedule -> we force compilation
+            // This is useful when compiling code for Xilinx/Altera FPGAs, that has to
+            // be a single source
+            task.forceCompilation();
+        }
+        if (doUpdate) {
+            task.forceCompilation();
+            doUpdate = false;
+        }
     }
 
     private int executeAllocate(StringBuilder tornadoVMBytecodeList, final int objectIndex, final int contextIndex, final long sizeBatch) {
@@ -238,7 +430,24 @@ public class TornadoVM extends TornadoLogger {
         }
 
         final DeviceObjectState objectState = resolveObjectState(objectIndex, contextIndex);
-        return device.ensureAllocated(object, sizeBatch, objectState);
+        final boolean hasBuffer = objectState.hasBuffer();
+        final int event = device.ensureAllocated(object, sizeBatch, objectState);
+        if (!hasBuffer) {
+            // The object has been given a new region of the heap, so the
+            // addresses stored in the call stacks are no longer valid
+            invalidateStacks();
+        }
+        return event;
+    }
+
+    private void invalidateStacks() {
+        for (CallStack[] setStacks : bufferSetStacks) {
+            for (CallStack stack : setStacks) {
+                if (stack != null) {
+                    stack.reset();
+                }
+            }
+        }
     }
 
     private boolean isObjectAtomic(Object object) {
@@ -256,7 +465,7 @@ public class TornadoVM extends TornadoLogger {
             tornadoVMBytecodeList.append(verbose).append("\n");
         }
 
-        List<Integer> allEvents;
+        int[] allEvents;
         if (sizeBatch > 0) {
             // We need to stream-in when using batches, because the
             // whole data is not copied yet.
@@ -268,7 +477,7 @@ public class TornadoVM extends TornadoLogger {
         resetEventIndexes(eventList);
 
         if (TornadoOptions.isProfilerEnabled() && allEvents != null) {
-            for (Integer e : allEvents) {
+            for (int e : allEvents) {
                 Event event = device.resolveEvent(e);
                 event.waitForEvents();
                 long copyInTimer = timeProfiler.getTimer(ProfilerType.COPY_IN_TIME);
@@ -295,12 +504,12 @@ public class TornadoVM extends TornadoLogger {
         }
 
         final DeviceObjectState objectState = resolveObjectState(objectIndex, contextIndex);
-        List<Integer> allEvents = device.streamIn(object, sizeBatch, offset, objectState, waitList);
+        int[] allEvents = device.streamIn(object, sizeBatch, offset, objectState, waitList);
 
         resetEventIndexes(eventList);
 
         if (TornadoOptions.isProfilerEnabled() && allEvents != null) {
-            for (Integer e : allEvents) {
+            for (int e : allEvents) {
                 Event event = device.resolveEvent(e);
                 event.waitForEvents();
                 long copyInTimer = timeProfiler.getTimer(ProfilerType.COPY_IN_TIME);
@@ -371,14 +580,14 @@ public class TornadoVM extends TornadoLogger {
 
     }
 
+    /**
+     * Launch record of a task. There is one record per task, reused across
+     * executions, so dispatching a LAUNCH bytecode does not allocate.
+     */
     private static class ExecutionInfo {
         CallStack stack;
         int[] waitList;
-
-        public ExecutionInfo(CallStack stack, int[] waitList) {
-            this.stack = stack;
-            this.waitList = waitList;
-        }
+        long[] header;
     }
 
     private ExecutionInfo compileTaskFromBytecodeToBinary(final int contextIndex, final int stackIndex, final int numArgs, final int eventList, final int taskIndex, final long batchThreads) {
@@ -390,39 +599,24 @@ public class TornadoVM extends TornadoLogger {
 
         boolean redeployOnDevice = graphContext.redeployOnDevice();
 
-        final CallStack stack = resolveStack(stackIndex, numArgs, stacks, device, redeployOnDevice);
+        final CallStack stack = resolveStack(stackIndex, numArgs, resolveBufferSetStacks(), device, redeployOnDevice);
 
-        final int[] waitList = (useDependencies && eventList != -1) ? events[eventList] : null;
+        final int[] waitList = resolveWaitList(eventList, contextIndex);
         final SchedulableTask task = tasks.get(taskIndex);
-
-        // Set the batch size in the task information
-        task.setBatchThreads(batchThreads);
-        task.enableDefaultThreadScheduler(graphContext.useDefaultThreadScheduler());
-
-        if (gridTask != null && gridTask.get(task.getId()) != null) {
-            TornadoOptions.USER_SCHEDULING = true;
-        }
+        prepareTask(task, batchThreads);
 
         if (installedCodes[taskIndex] == null) {
-            task.mapTo(device);
             try {
-                task.attachProfiler(timeProfiler);
-                if (taskIndex == (tasks.size() - 1)) {
-                    // If last task within the task-schedule -> we force compilation
-                    // This is useful when compiling code for Xilinx/Altera FPGAs, that has to
-                    // be a single source
-                    task.forceCompilation();
-                }
-                if (doUpdate) {
-                    task.forceCompilation();
-                }
+                prepareCompilation(task, device, taskIndex);
                 installedCodes[taskIndex] = device.installCode(task);
-                doUpdate = false;
             } catch (Exception e) {
                 throw new TornadoBailoutRuntimeException("Unable to compile task " + task.getFullName() + "\n" + Arrays.toString(e.getStackTrace()), e);
             }
         }
-        return new ExecutionInfo(stack, waitList);
+        final ExecutionInfo info = executionInfos[taskIndex];
+        info.stack = stack;
+        info.waitList = waitList;
+        return info;
     }
 
     private void setObjectOwnerShip(GlobalObjectState globalState, DeviceObjectState objectState, TornadoDevice device) {
@@ -435,6 +629,26 @@ public class TornadoVM extends TornadoLogger {
         return objectState.isAtomicRegionPresent() && device.checkAtomicsParametersForTask(task);
     }
 
+    /**
+     * The header of the call stack holds the global work sizes of the task when
+     * it is launched with a {@link GridTask}. The worker grid can be updated
+     * between executions, so the header is refreshed in place on every launch.
+     */
+    private long[] buildStackHeader(ExecutionInfo info, SchedulableTask task) {
+        final WorkerGrid workerGrid = (gridTask != null) ? gridTask.get(task.getId()) : null;
+        if (workerGrid == null) {
+            return EMPTY_HEADER;
+        }
+        final long[] global = workerGrid.getGlobalWork();
+        if (info.header == null || info.header.length != global.length) {
+            info.header = new long[global.length];
+        }
+        for (int i = 0; i < global.length; i++) {
+            info.header[i] = (int) global[i];
+        }
+        return info.header;
+    }
+
     private int executeLaunch(StringBuilder tornadoVMBytecodeList, final int contextIndex, final int numArgs, final int eventList, final int taskIndex, final long batchThreads, final long offset,
             ExecutionInfo info) {
 
@@ -468,16 +682,7 @@ public class TornadoVM extends TornadoLogger {
             stack.reset();
         }
 
-        HashMap<Integer, Integer> map = new HashMap<>();
-        if (gridTask != null && gridTask.get(task.getId()) != null) {
-            WorkerGrid workerGrid = gridTask.get(task.getId());
-            long[] global = workerGrid.getGlobalWork();
-            int i = 0;
-            for (long maxThread : global) {
-                map.put(i++, (int) maxThread);
-            }
-        }
-        stack.setHeader(map);
+        stack.setHeader(buildStackHeader(info, task));
 
         ObjectBuffer bufferAtomics = null;
 
@@ -487,7 +692,7 @@ public class TornadoVM extends TornadoLogger {
 
             if (argType == TornadoVMBytecodes.REFERENCE_ARGUMENT.value()) {
                 final GlobalObjectState globalState = resolveGlobalObjectState(argIndex);
-                final DeviceObjectState objectState = globalState.getDeviceState(contexts.get(contextIndex));
+                final DeviceObjectState objectState = globalState.getDeviceState(contexts.get(contextIndex), bufferSet);
 
                 if (isObjectInAtomicRegion(objectState, device, task)) {
                     atomicsArray = device.updateAtomicRegionAndObjectState(task, atomicsArray, i, objects.get(argIndex), objectState);
@@ -503,7 +708,7 @@ public class TornadoVM extends TornadoLogger {
                 stack.push(constants.get(argIndex));
             } else if (argType == TornadoVMBytecodes.REFERENCE_ARGUMENT.value()) {
                 final GlobalObjectState globalState = resolveGlobalObjectState(argIndex);
-                final DeviceObjectState objectState = globalState.getDeviceState(contexts.get(contextIndex));
+                final DeviceObjectState objectState = globalState.getDeviceState(contexts.get(contextIndex), bufferSet);
 
                 if (!isObjectInAtomicRegion(objectState, device, task)) {
                     final String ERROR_MESSAGE = "object is not valid: %s %s";
@@ -527,9 +732,9 @@ public class TornadoVM extends TornadoLogger {
 
         if (atomicsArray != null) {
             bufferAtomics = device.createOrReuseBuffer(atomicsArray);
-            List<Integer> allEvents = bufferAtomics.enqueueWrite(null, 0, 0, null, false);
-            if (TornadoOptions.isProfilerEnabled()) {
-                for (Integer e : allEvents) {
+            int[] allEvents = bufferAtomics.enqueueWrite(null, 0, 0, null, false);
+            if (TornadoOptions.isProfilerEnabled() && allEvents != null) {
+                for (int e : allEvents) {
                     Event event = device.resolveEvent(e);
                     event.waitForEvents();
                     long value = timeProfiler.getTimer(ProfilerType.COPY_IN_TIME);
@@ -571,7 +776,7 @@ public class TornadoVM extends TornadoLogger {
         return lastEvent;
     }
 
-    private void executeDependency(StringBuilder tornadoVMBytecodeList, int lastEvent, int eventList) {
+    private void executeDependency(StringBuilder tornadoVMBytecodeList, int lastEvent, int lastEventContext, int eventList) {
         if (useDependencies && lastEvent != -1) {
             if (TornadoOptions.printBytecodes) {
                 String verbose = String.format("vm: ADD_DEP %s to event list %d", lastEvent, eventList);
@@ -579,20 +784,57 @@ public class TornadoVM extends TornadoLogger {
             }
             TornadoInternalError.guarantee(eventsIndexes[eventList] < events[eventList].length, "event list is too small");
             events[eventList][eventsIndexes[eventList]] = lastEvent;
+            eventContexts[eventList][eventsIndexes[eventList]] = lastEventContext;
             eventsIndexes[eventList]++;
         }
     }
 
-    private int executeBarrier(StringBuilder tornadoVMBytecodeList, int eventList, int[] waitList, int lastEvent) {
+    /**
+     * Returns the events of the list that a bytecode on the given context has to
+     * wait for. Events are only valid on the device that created them, so when
+     * the task-schedule runs on several devices, the events of the rest of
+     * devices are waited for on the host and only the events of the context are
+     * returned.
+     */
+    private int[] resolveWaitList(int eventList, int contextIndex) {
+        if (!useDependencies || eventList == -1) {
+            return null;
+        }
+        if (contexts.size() == 1) {
+            return events[eventList];
+        }
+        Arrays.fill(localWaitList, -1);
+        int index = 0;
+        for (int i = 0; i < eventsIndexes[eventList]; i++) {
+            final int event = events[eventList][i];
+            final int eventContext = eventContexts[eventList][i];
+            if (eventContext == contextIndex) {
+                localWaitList[index++] = event;
+            } else if (event != -1 && eventContext != -1) {
+                contexts.get(eventContext).resolveEvent(event).waitForEvents();
+            }
+        }
+        return localWaitList;
+    }
+
+    private int executeBarrier(StringBuilder tornadoVMBytecodeList, int eventList, int lastEvent) {
         if (TornadoOptions.printBytecodes) {
             tornadoVMBytecodeList.append(String.format("vm: BARRIER event-list %d\n", eventList));
         }
 
         if (contexts.size() == 1) {
             final TornadoAcceleratorDevice device = contexts.get(0);
-            lastEvent = device.enqueueMarker(waitList);
+            lastEvent = device.enqueueMarker(resolveWaitList(eventList, 0));
         } else if (contexts.size() > 1) {
-            TornadoInternalError.shouldNotReachHere("unimplemented multi-context barrier");
+            // Every device but the last one is synchronised on the host, so the
+            // marker of the last device completes after all of them
+            for (int i = 0; i < contexts.size(); i++) {
+                final TornadoAcceleratorDevice device = contexts.get(i);
+                lastEvent = device.enqueueMarker(resolveWaitList(eventList, i));
+                if (i < contexts.size() - 1 && lastEvent != -1) {
+                    device.resolveEvent(lastEvent).waitForEvents();
+                }
+            }
         }
 
         resetEventIndexes(eventList);
@@ -609,9 +851,13 @@ public class TornadoVM extends TornadoLogger {
     private Event execute(boolean isWarmup) {
         isWarmup = isWarmup || VIRTUAL_DEVICE_ENABLED;
         contexts.forEach(TornadoAcceleratorDevice::enableThreadSharing);
+        if (pendingCompilation) {
+            compileTasksConcurrently();
+        }
 
         final long t0 = System.nanoTime();
         int lastEvent = -1;
+        int lastEventContext = -1;
         initWaitEventList();
 
         StringBuilder tornadoVMBytecodeList = null;
@@ -629,16 +875,17 @@ public class TornadoVM extends TornadoLogger {
                     continue;
                 }
                 lastEvent = executeAllocate(tornadoVMBytecodeList, objectIndex, contextIndex, sizeBatch);
+                lastEventContext = contextIndex;
             } else if (op == TornadoVMBytecodes.COPY_IN.value()) {
                 final int objectIndex = buffer.getInt();
                 final int contextIndex = buffer.getInt();
                 final int eventList = buffer.getInt();
                 final long offset = buffer.getLong();
                 final long sizeBatch = buffer.getLong();
-                final int[] waitList = (useDependencies && eventList != -1) ? events[eventList] : null;
                 if (isWarmup) {
                     continue;
                 }
+                final int[] waitList = resolveWaitList(eventList, contextIndex);
                 executeCopyIn(tornadoVMBytecodeList, objectIndex, contextIndex, offset, eventList, sizeBatch, waitList);
             } else if (op == TornadoVMBytecodes.STREAM_IN.value()) {
                 final int objectIndex = buffer.getInt();
@@ -646,10 +893,10 @@ public class TornadoVM extends TornadoLogger {
                 final int eventList = buffer.getInt();
                 final long offset = buffer.getLong();
                 final long sizeBatch = buffer.getLong();
-                final int[] waitList = (useDependencies && eventList != -1) ? events[eventList] : null;
                 if (isWarmup) {
                     continue;
                 }
+                final int[] waitList = resolveWaitList(eventList, contextIndex);
                 executeStreamIn(tornadoVMBytecodeList, objectIndex, contextIndex, offset, eventList, sizeBatch, waitList);
             } else if (op == TornadoVMBytecodes.STREAM_OUT.value()) {
                 final int objectIndex = buffer.getInt();
@@ -657,11 +904,12 @@ public class TornadoVM extends TornadoLogger {
                 final int eventList = buffer.getInt();
                 final long offset = buffer.getLong();
                 final long sizeBatch = buffer.getLong();
-                final int[] waitList = (useDependencies) ? events[eventList] : null;
                 if (isWarmup) {
                     continue;
                 }
+                final int[] waitList = resolveWaitList(eventList, contextIndex);
                 lastEvent = executeStreamOut(tornadoVMBytecodeList, objectIndex, contextIndex, offset, eventList, sizeBatch, waitList);
+                lastEventContext = contextIndex;
             } else if (op == TornadoVMBytecodes.STREAM_OUT_BLOCKING.value()) {
                 final int objectIndex = buffer.getInt();
                 final int contextIndex = buffer.getInt();
@@ -669,10 +917,10 @@ public class TornadoVM extends TornadoLogger {
                 final long offset = buffer.getLong();
                 final long sizeBatch = buffer.getLong();
 
-                final int[] waitList = (useDependencies) ? events[eventList] : null;
                 if (isWarmup) {
                     continue;
                 }
+                final int[] waitList = resolveWaitList(eventList, contextIndex);
                 executeStreamOutBlocking(tornadoVMBytecodeList, objectIndex, contextIndex, offset, eventList, sizeBatch, waitList);
 
             } else if (op == TornadoVMBytecodes.LAUNCH.value()) {
@@ -689,19 +937,24 @@ public class TornadoVM extends TornadoLogger {
                     continue;
                 }
                 lastEvent = executeLaunch(tornadoVMBytecodeList, contextIndex, numArgs, eventList, taskIndex, batchThreads, offset, info);
+                lastEventContext = contextIndex;
             } else if (op == TornadoVMBytecodes.ADD_DEP.value()) {
                 final int eventList = buffer.getInt();
                 if (isWarmup) {
                     continue;
                 }
-                executeDependency(tornadoVMBytecodeList, lastEvent, eventList);
+                executeDependency(tornadoVMBytecodeList, lastEvent, lastEventContext, eventList);
             } else if (op == TornadoVMBytecodes.BARRIER.value()) {
                 final int eventList = buffer.getInt();
-                final int[] waitList = (useDependencies && eventList != -1) ? events[eventList] : null;
                 if (isWarmup) {
                     continue;
                 }
-                executeBarrier(tornadoVMBytecodeList, eventList, waitList, lastEvent);
+                executeBarrier(tornadoVMBytecodeList, eventList, lastEvent);
+            } else if (op == TornadoVMBytecodes.BUFFER_SET.value()) {
+                bufferSet = bufferSetOffset + buffer.getInt();
+                if (TornadoOptions.printBytecodes) {
+                    tornadoVMBytecodeList.append(String.format("vm: BUFFER_SET %d\n", bufferSet));
+                }
             } else if (op == TornadoVMBytecodes.END.value()) {
                 if (TornadoOptions.printBytecodes) {
                     tornadoVMBytecodeList.append("END\n");
@@ -716,6 +969,11 @@ public class TornadoVM extends TornadoLogger {
         if (!isWarmup) {
             for (TornadoAcceleratorDevice dev : contexts) {
                 if (useDependencies) {
+                    // Only the marker of the last device is returned to the caller, so
+                    // the rest of devices are synchronised here
+                    if (barrier != EMPTY_EVENT) {
+                        barrier.waitForEvents();
+                    }
                     final int event = dev.enqueueMarker();
                     barrier = dev.resolveEvent(event);
                 }
@@ -738,6 +996,7 @@ public class TornadoVM extends TornadoLogger {
         }
 
         buffer.reset();
+        bufferSet = bufferSetOffset;
 
         if (TornadoOptions.printBytecodes) {
             System.out.println(tornadoVMBytecodeList.toString());
@@ -0,0 +1,207 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * School of Engineering, The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.runtime.common;
+
+import static uk.ac.manchester.tornado.api.exceptions.TornadoInternalError.shouldNotReachHere;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.List;
+
+import jdk.vm.ci.meta.JavaKind;
+import uk.ac.manchester.tornado.api.collections.types.ImageByte3;
+import uk.ac.manchester.tornado.api.collections.types.ImageByte4;
+import uk.ac.manchester.tornado.api.collections.types.ImageFloat;
+import uk.ac.manchester.tornado.api.collections.types.ImageFloat3;
+import uk.ac.manchester.tornado.api.collections.types.ImageFloat4;
+import uk.ac.manchester.tornado.api.collections.types.ImageFloat8;
+import uk.ac.manchester.tornado.api.collections.types.Matrix2DDouble;
+import uk.ac.manchester.tornado.api.collections.types.Matrix2DFloat;
+import uk.ac.manchester.tornado.api.collections.types.Matrix2DFloat4;
+import uk.ac.manchester.tornado.api.collections.types.Matrix2DInt;
+import uk.ac.manchester.tornado.api.collections.types.PrimitiveStorage;
+import uk.ac.manchester.tornado.api.collections.types.VectorDouble;
+import uk.ac.manchester.tornado.api.collections.types.VectorDouble2;
+import uk.ac.manchester.tornado.api.collections.types.VectorDouble3;
+import uk.ac.manchester.tornado.api.collections.types.VectorDouble4;
+import uk.ac.manchester.tornado.api.collections.types.VectorDouble8;
+import uk.ac.manchester.tornado.api.collections.types.VectorFloat;
+import uk.ac.manchester.tornado.api.collections.types.VectorFloat2;
+import uk.ac.manchester.tornado.api.collections.types.VectorFloat3;
+import uk.ac.manchester.tornado.api.collections.types.VectorFloat4;
+import uk.ac.manchester.tornado.api.collections.types.VectorFloat8;
+import uk.ac.manchester.tornado.api.collections.types.VectorInt;
+import uk.ac.manchester.tornado.api.collections.types.VectorInt2;
+import uk.ac.manchester.tornado.api.collections.types.VectorInt3;
+import uk.ac.manchester.tornado.api.collections.types.VectorInt4;
+import uk.ac.manchester.tornado.api.collections.types.VectorInt8;
+
+/**
+ * Batch processing of the collection types that implement
+ * {@link PrimitiveStorage}. The storage array of a collection is split along its
+ * outermost dimension: the elements of a vector, the rows of an image or the
+ * rows of a 2D matrix. For each batch, the fields that hold the outermost
+ * dimension and the number of elements are replaced with the values of the
+ * batch.
+ */
+public final class BatchedStorage {
+
+    private static final String STORAGE_FIELD = "storage";
+    private static final String NUM_ELEMENTS_FIELD = "numElements";
+
+    private static final List<Class<? extends PrimitiveStorage<?>>> VECTOR_TYPES = Arrays.asList( //
+            VectorDouble.class, //
+            VectorDouble2.class, //
+            VectorDouble3.class, //
+            VectorDouble4.class, //
+            VectorDouble8.class, //
+            VectorFloat.class, //
+            VectorFloat2.class, //
+            VectorFloat3.class, //
+            VectorFloat4.class, //
+            VectorFloat8.class, //
+            VectorInt.class, //
+            VectorInt2.class, //
+            VectorInt3.class, //
+            VectorInt4.class, //
+            VectorInt8.class);
+
+    private static final List<Class<? extends PrimitiveStorage<?>>> IMAGE_TYPES = Arrays.asList( //
+            ImageByte3.class, //
+            ImageByte4.class, //
+            ImageFloat.class, //
+            ImageFloat3.class, //
+            ImageFloat4.class, //
+            ImageFloat8.class);
+
+    private static final List<Class<? extends PrimitiveStorage<?>>> MATRIX_2D_TYPES = Arrays.asList( //
+            Matrix2DDouble.class, //
+            Matrix2DFloat.class, //
+            Matrix2DFloat4.class, //
+            Matrix2DInt.class);
+
+    private BatchedStorage() {
+    }
+
+    /**
+     * @return true if the object is a collection that can be split in batches.
+     */
+    public static boolean isBatchedStorage(Object object) {
+        return object instanceof PrimitiveStorage && getOuterDimensionField(object.getClass()) != null;
+    }
+
+    public static boolean isStorageField(Field field) {
+        return STORAGE_FIELD.equals(field.getName()) && field.getType().isArray();
+    }
+
+    private static boolean isSubtypeOf(Class<?> type, List<Class<? extends PrimitiveStorage<?>>> types) {
+        for (Class<?> candidate : types) {
+            if (candidate.isAssignableFrom(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String getOuterDimensionField(Class<?> type) {
+        if (isSubtypeOf(type, VECTOR_TYPES)) {
+            return NUM_ELEMENTS_FIELD;
+        } else if (isSubtypeOf(type, IMAGE_TYPES)) {
+            return "Y";
+        } else if (isSubtypeOf(type, MATRIX_2D_TYPES)) {
+            return "M";
+        }
+        return null;
+    }
+
+    private static Field getField(Class<?> type, String name) {
+        try {
+            final Field field = type.getDeclaredField(name);
+            field.setAccessible(true);
+            return field;
+        } catch (NoSuchFieldException e) {
+            if (type.getSuperclass() != null) {
+                return getField(type.getSuperclass(), name);
+            }
+            shouldNotReachHere("unable to get field: class=%s, field=%s", type.getName(), name);
+            return null;
+        }
+    }
+
+    private static int getIntField(Object object, String name) {
+        try {
+            return getField(object.getClass(), name).getInt(object);
+        } catch (IllegalAccessException e) {
+            shouldNotReachHere("unable to read field: ", e.getMessage());
+            return -1;
+        }
+    }
+
+    public static Object getStorage(Object object) {
+        try {
+            return getField(object.getClass(), STORAGE_FIELD).get(object);
+        } catch (IllegalAccessException e) {
+            shouldNotReachHere("unable to read field: ", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return number of elements in the outermost dimension of the collection.
+     */
+    public static int getOuterDimension(Object object) {
+        return getIntField(object, getOuterDimensionField(object.getClass()));
+    }
+
+    /**
+     * @return size in bytes of the storage array of the collection.
+     */
+    public static long getStorageSize(Object object) {
+        final Object storage = getStorage(object);
+        return (long) Array.getLength(storage) * JavaKind.fromJavaClass(storage.getClass().getComponentType()).getByteCount();
+    }
+
+    /**
+     * Returns the value of a field of the collection for a batch of
+     * {@code batchSize} bytes of its storage.
+     */
+    public static Object getBatchFieldValue(Object object, Field field, long batchSize) throws IllegalAccessException {
+        final Object value = field.get(object);
+        if (batchSize <= 0) {
+            return value;
+        }
+        final String outerDimensionField = getOuterDimensionField(object.getClass());
+        if (outerDimensionField == null || (!field.getName().equals(outerDimensionField) && !field.getName().equals(NUM_ELEMENTS_FIELD))) {
+            return value;
+        }
+        final long storageSize = getStorageSize(object);
+        final int outerDimension = getOuterDimension(object);
+        final long batchOuterDimension = (outerDimension * batchSize) / storageSize;
+        if (field.getName().equals(outerDimensionField)) {
+            return (int) batchOuterDimension;
+        }
+        return (int) (((long) (Integer) value * batchOuterDimension) / outerDimension);
+    }
+}
@@ -25,8 +25,6 @@
  */
 package uk.ac.manchester.tornado.runtime.common;
 
-import java.util.HashMap;
-
 public interface CallStack {
 
     void reset();
@@ -45,5 +43,9 @@ public interface CallStack {
 
     void dump();
 
-    void setHeader(HashMap<Integer, Integer> map);
+    /**
+     * Writes the reserved slots at the start of the call stack. The slots that
+     * are not covered by {@code header} are set to 0.
+     */
+    void setHeader(long[] header);
 }
@@ -27,11 +27,22 @@ package uk.ac.manchester.tornado.runtime.common;
 
 import static uk.ac.manchester.tornado.runtime.common.RuntimeUtilities.humanReadableByteCount;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
 import uk.ac.manchester.tornado.api.mm.ObjectBuffer;
 import uk.ac.manchester.tornado.api.mm.TornadoDeviceObjectState;
 
 public class DeviceObjectState implements TornadoDeviceObjectState {
 
+    /**
+     * Above this number of dirty ranges, the ranges are coalesced into a single
+     * one to bound the number of transfers issued for the object.
+     */
+    private static final int MAX_DIRTY_RANGES = 32;
+
     private boolean valid;
     private boolean modified;
     private boolean contents;
@@ -39,11 +50,16 @@ public class DeviceObjectState implements TornadoDeviceObjectState {
     private ObjectBuffer buffer;
     private boolean atomicRegionPresent;
 
+    // Start offset -> end offset of the host regions modified since the last
+    // transfer
+    private final TreeMap<Long, Long> dirtyRanges;
+
     public DeviceObjectState() {
         valid = false;
         modified = false;
         contents = false;
         buffer = null;
+        dirtyRanges = new TreeMap<>();
     }
 
     public void setBuffer(ObjectBuffer value) {
@@ -94,6 +110,7 @@ public class DeviceObjectState implements TornadoDeviceObjectState {
         sb.append((isValid()) ? "V" : "-");
         sb.append((isModified()) ? "M" : "-");
         sb.append((hasContents()) ? "C" : "-");
+        sb.append((hasDirtyRanges()) ? "D" : "-");
         if (hasBuffer()) {
             sb.append(String.format(" address=0x%x, size=%s ", buffer.toAbsoluteAddress(), humanReadableByteCount(buffer.size(), true)));
         } else {
@@ -124,4 +141,54 @@ public class DeviceObjectState implements TornadoDeviceObjectState {
         this.atomicRegionPresent = true;
     }
 
+    @Override
+    public void markDirty(long fromOffset, long toOffset) {
+        long from = fromOffset;
+        long to = toOffset;
+        if (from >= to) {
+            return;
+        }
+
+        // Merge with the ranges that overlap or touch [from, to)
+        final Map.Entry<Long, Long> previous = dirtyRanges.floorEntry(from);
+        if (previous != null && previous.getValue() >= from) {
+            from = previous.getKey();
+            to = Math.max(to, previous.getValue());
+            dirtyRanges.remove(previous.getKey());
+        }
+        Map.Entry<Long, Long> next = dirtyRanges.ceilingEntry(from);
+        while (next != null && next.getKey() <= to) {
+            to = Math.max(to, next.getValue());
+            dirtyRanges.remove(next.getKey());
+            next = dirtyRanges.ceilingEntry(from);
+        }
+        dirtyRanges.put(from, to);
+
+        if (dirtyRanges.size() > MAX_DIRTY_RANGES) {
+            final long first = dirtyRanges.firstKey();
+            final long last = dirtyRanges.lastEntry().getValue();
+            dirtyRanges.clear();
+            dirtyRanges.put(first, last);
+        }
+    }
+
+    @Override
+    public boolean hasDirtyRanges() {
+        return !dirtyRanges.isEmpty();
+    }
+
+    @Override
+    public List<long[]> getDirtyRanges() {
+        final List<long[]> ranges = new ArrayList<>(dirtyRanges.size());
+        for (Map.Entry<Long, Long> range : dirtyRanges.entrySet()) {
+            ranges.add(new long[] { range.getKey(), range.getValue() });
+        }
+        return ranges;
+    }
+
+    @Override
+    public void clearDirtyRanges() {
+        dirtyRanges.clear();
+    }
+
 }
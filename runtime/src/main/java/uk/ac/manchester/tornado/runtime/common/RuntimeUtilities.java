@@ -45,6 +45,9 @@ import java.math.RoundingMode;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 
 import jdk.vm.ci.meta.JavaKind;
@@ -249,6 +252,22 @@ public class RuntimeUtilities {
         return componentType.isPrimitive() || isBoxedPrimitive(componentType);
     }
 
+    /**
+     * Appends the events of a transfer to the events of previous transfers.
+     *
+     * @return the events of both transfers, or null if there are none.
+     */
+    public static int[] concatEvents(final int[] events, final int[] other) {
+        if (other == null || other.length == 0) {
+            return events;
+        } else if (events == null || events.length == 0) {
+            return other;
+        }
+        final int[] result = Arrays.copyOf(events, events.length + other.length);
+        System.arraycopy(other, 0, result, events.length, other.length);
+        return result;
+    }
+
     public static void printBuffer(final ByteBuffer buffer) {
 
         System.out.printf("buffer : position=%d, remaining=%d, capacity=%d, limit=%d\n", buffer.position(), buffer.remaining(), buffer.capacity(), buffer.limit());
@@ -349,6 +368,23 @@ public class RuntimeUtilities {
         return sb.toString();
     }
 
+    /**
+     * @return the first 64 bits of the SHA-256 hash of a string, in hexadecimal,
+     *         which is used to build short keys of the tuning databases.
+     */
+    public static String hash(String value) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            final StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 8; i++) {
+                sb.append(String.format("%02x", digest[i]));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
     public static boolean ifFileExists(File fileName) {
         return fileName.exists();
     }
@@ -0,0 +1,226 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * School of Engineering, The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.runtime.common;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+import uk.ac.manchester.tornado.runtime.domain.DomainTree;
+
+/**
+ * Process-wide cache of installed kernels, shared by all the task-schedules.
+ * Kernels are keyed by the device they are installed on and by the
+ * specialisation key of the task (see
+ * {@link TornadoKernelCache#computeSpecialisationKey}), so a task that runs
+ * the same method with the same specialised arguments as a task of another
+ * task-schedule reuses its kernel instead of compiling it again.
+ *
+ * Each kernel counts the tasks that use it. Tasks are referenced weakly, so a
+ * kernel is no longer referenced once all its task-schedules have been garbage
+ * collected. When the number of kernels exceeds the bound, the least recently
+ * used kernels that are not referenced are evicted, and their kernels and
+ * programs are released by the code cache of their backend.
+ */
+public class TornadoInstalledCodeCache {
+
+    /**
+     * A kernel in the cache, together with the parallel domain discovered by the
+     * compiler, which has to be restored in the meta-data of the tasks that reuse
+     * it.
+     */
+    public static class Entry {
+        private final TornadoInstalledCode code;
+        private final DomainTree domain;
+        private final List<WeakReference<Object>> owners;
+
+        private Entry(TornadoInstalledCode code, DomainTree domain) {
+            this.code = code;
+            this.domain = domain;
+            this.owners = new ArrayList<>();
+        }
+
+        public TornadoInstalledCode getCode() {
+            return code;
+        }
+
+        public DomainTree getDomain() {
+            return domain;
+        }
+
+        private void addOwner(Object owner) {
+            for (WeakReference<Object> reference : owners) {
+                if (reference.get() == owner) {
+                    return;
+                }
+            }
+            owners.add(new WeakReference<>(owner));
+        }
+
+        private int getReferenceCount() {
+            owners.removeIf(reference -> reference.get() == null);
+            return owners.size();
+        }
+    }
+
+    private static final class Key {
+        private final TornadoCodeCache device;
+        private final String specialisationKey;
+
+        private Key(TornadoCodeCache device, String specialisationKey) {
+            this.device = device;
+            this.specialisationKey = specialisationKey;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return device == other.device && specialisationKey.equals(other.specialisationKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(device), specialisationKey);
+        }
+    }
+
+    private final int maxEntries;
+    private final LinkedHashMap<Key, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private static volatile boolean enabledAtRuntime = false;
+
+    /**
+     * @param maxEntries
+     *            maximum number of kernels kept in the cache. A value of 0 or
+     *            less makes the cache unbounded.
+     */
+    public TornadoInstalledCodeCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    public static boolean isEnabled() {
+        return TornadoOptions.SHARED_KERNEL_CACHE || enabledAtRuntime;
+    }
+
+    /**
+     * Enables the cache for the rest of the execution, regardless of the
+     * {@code tornado.kernelcache.shared} option. It is used by the features that
+     * rely on sharing kernels between task-schedules.
+     */
+    public static void enable() {
+        enabledAtRuntime = true;
+    }
+
+    /**
+     * Looks up a kernel and, on a hit, adds the owner to the tasks that use it.
+     *
+     * @param device
+     *            the code cache of the device the kernel is installed on.
+     * @param specialisationKey
+     *            the specialisation key of the task.
+     * @param owner
+     *            the task that is going to use the kernel.
+     * @return the entry, or null on a miss.
+     */
+    public synchronized Entry lookup(TornadoCodeCache device, String specialisationKey, Object owner) {
+        final Entry entry = entries.get(new Key(device, specialisationKey));
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        entry.addOwner(owner);
+        return entry;
+    }
+
+    /**
+     * Adds a kernel compiled for the owner. If another task installed a kernel
+     * for the same key in the meantime, the first kernel is kept.
+     */
+    public synchronized void put(TornadoCodeCache device, String specialisationKey, TornadoInstalledCode code, DomainTree domain, Object owner) {
+        final Entry entry = entries.computeIfAbsent(new Key(device, specialisationKey), k -> new Entry(code, domain));
+        entry.addOwner(owner);
+        evict();
+    }
+
+    /**
+     * Removes all the kernels of a device, to be called when the code cache of
+     * the device is reset.
+     */
+    public synchronized void invalidate(TornadoCodeCache device) {
+        entries.keySet().removeIf(key -> key.device == device);
+    }
+
+    private void evict() {
+        if (maxEntries <= 0) {
+            return;
+        }
+        Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && iterator.hasNext()) {
+            final Map.Entry<Key, Entry> entry = iterator.next();
+            if (entry.getValue().getReferenceCount() == 0) {
+                iterator.remove();
+                entry.getKey().device.release(entry.getValue().getCode());
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("shared kernel cache: entries=%d/%d, hits=%d, misses=%d, evictions=%d", size(), maxEntries, getHits(), getMisses(), getEvictions());
+    }
+}
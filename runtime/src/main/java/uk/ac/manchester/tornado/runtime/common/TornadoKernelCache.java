@@ -0,0 +1,653 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * School of Engineering, The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.runtime.common;
+
+import static uk.ac.manchester.tornado.runtime.common.Tornado.debug;
+import static uk.ac.manchester.tornado.runtime.common.Tornado.info;
+import static uk.ac.manchester.tornado.runtime.common.Tornado.warn;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import org.graalvm.compiler.bytecode.BytecodeStream;
+import org.graalvm.compiler.bytecode.Bytecodes;
+
+import jdk.vm.ci.meta.ConstantPool;
+import jdk.vm.ci.meta.JavaConstant;
+import jdk.vm.ci.meta.JavaField;
+import jdk.vm.ci.meta.JavaMethod;
+import jdk.vm.ci.meta.JavaType;
+import jdk.vm.ci.meta.ResolvedJavaField;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.meta.ResolvedJavaType;
+import uk.ac.manchester.tornado.runtime.TornadoCoreRuntime;
+import uk.ac.manchester.tornado.runtime.domain.Domain;
+import uk.ac.manchester.tornado.runtime.domain.DomainTree;
+import uk.ac.manchester.tornado.runtime.domain.IntDomain;
+import uk.ac.manchester.tornado.runtime.tasks.meta.FusedTaskMetaData;
+import uk.ac.manchester.tornado.runtime.tasks.meta.TaskMetaData;
+
+/**
+ * Persistent cache of generated kernels, shared by all the runs of the
+ * TornadoVM on the same machine. Each entry holds the generated source, the
+ * device binary when the backend can provide one, and the parallel domain
+ * discovered by the compiler.
+ *
+ * Entries are keyed by a SHA-256 hash of everything the generated code depends
+ * on: the bytecodes of the task method and of every method it may call,
+ * including the overriding methods that virtual calls resolve to for the
+ * concrete types of the arguments, the
+ * constants referenced from their constant pools, the values the compiler
+ * specialises (boxed scalars, array lengths and the fields of objects), the
+ * Tornado options, the compiler build and the device and driver identity. A
+ * change to any of them produces a different key, so stale entries are never
+ * hit. Entries that fail their checksums are deleted on lookup.
+ */
+public class TornadoKernelCache {
+
+    private static final int FORMAT_VERSION = 2;
+
+    private static final String TORNADO_OPTIONS_PREFIX = "tornado.";
+    private static final String KERNEL_CACHE_OPTIONS_PREFIX = "tornado.kernelcache.";
+    private static final String[] JDK_PACKAGES = { "java.", "javax.", "jdk.", "sun." };
+    private static final int MAX_SPECIALISATION_DEPTH = 4;
+
+    private static final String ENTRY_FILE = "entry.properties";
+    private static final String SOURCE_FILE = "kernel.src";
+    private static final String BINARY_FILE = "kernel.bin";
+
+    private static final String FORMAT_PROPERTY = "format";
+    private static final String ENTRY_POINT_PROPERTY = "entryPoint";
+    private static final String DOMAIN_PROPERTY = "domain";
+    private static final String SOURCE_HASH_PROPERTY = "source.sha256";
+    private static final String BINARY_HASH_PROPERTY = "binary.sha256";
+
+    private final Path directory;
+    private final String deviceIdentity;
+    private final String compilerIdentity;
+
+    /**
+     * Kernel found in the cache.
+     */
+    public static class Entry {
+
+        private final String entryPoint;
+        private final byte[] source;
+        private final byte[] binary;
+        private final DomainTree domain;
+
+        Entry(String entryPoint, byte[] source, byte[] binary, DomainTree domain) {
+            this.entryPoint = entryPoint;
+            this.source = source;
+            this.binary = binary;
+            this.domain = domain;
+        }
+
+        public String getEntryPoint() {
+            return entryPoint;
+        }
+
+        public byte[] getSource() {
+            return source;
+        }
+
+        public boolean hasBinary() {
+            return binary != null;
+        }
+
+        public byte[] getBinary() {
+            return binary;
+        }
+
+        public DomainTree getDomain() {
+            return domain;
+        }
+    }
+
+    private static class UncacheableTaskException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        UncacheableTaskException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * @param deviceIdentity
+     *            description of the device, the platform and the driver version.
+     *            Kernels are only reused on devices with the same identity.
+     * @param backendClass
+     *            a class of the backend that generates the kernels, used to
+     *            invalidate the cache when the compiler is rebuilt.
+     */
+    public TornadoKernelCache(String deviceIdentity, Class<?> backendClass) {
+        this.directory = resolveCacheDirectory();
+        this.deviceIdentity = deviceIdentity;
+        this.compilerIdentity = getCodeSourceIdentity(TornadoKernelCache.class) + ";" + getCodeSourceIdentity(backendClass);
+    }
+
+    public static boolean isEnabled() {
+        return TornadoOptions.KERNEL_CACHE;
+    }
+
+    private static Path resolveCacheDirectory() {
+        final Path dir = Paths.get(TornadoOptions.KERNEL_CACHE_DIR);
+        final String tornadoRoot = System.getenv("TORNADO_SDK");
+        if (dir.isAbsolute() || tornadoRoot == null) {
+            return dir.toAbsolutePath();
+        }
+        return Paths.get(tornadoRoot).resolve(dir).toAbsolutePath();
+    }
+
+    private static String getCodeSourceIdentity(Class<?> klass) {
+        final CodeSource codeSource = klass.getProtectionDomain().getCodeSource();
+        if (codeSource == null || codeSource.getLocation() == null) {
+            return klass.getName();
+        }
+        try {
+            final File file = new File(codeSource.getLocation().toURI());
+            return file.getAbsolutePath() + ":" + file.length() + ":" + file.lastModified();
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return codeSource.getLocation().toString();
+        }
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String toHexString(byte[] bytes) {
+        final StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    private static String hash(byte[] bytes) {
+        return toHexString(createDigest().digest(bytes));
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private static boolean isJDKClass(String className) {
+        for (String jdkPackage : JDK_PACKAGES) {
+            if (className.startsWith(jdkPackage)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Computes the key of the kernel generated for a task.
+     *
+     * @param method
+     *            the task method.
+     * @param args
+     *            the arguments the kernel is specialised for.
+     * @param meta
+     *            the meta-data of the task.
+     * @param batchThreads
+     *            number of threads used to specialise array lengths, or 0.
+     * @return the key, or null if the task cannot be cached.
+     */
+    public String computeKey(ResolvedJavaMethod method, Object[] args, TaskMetaData meta, long batchThreads) {
+        final String specialisation = computeSpecialisationKey(method, args, meta, batchThreads);
+        if (specialisation == null) {
+            return null;
+        }
+        final MessageDigest digest = createDigest();
+        update(digest, "format=" + FORMAT_VERSION);
+        update(digest, "jvm=" + System.getProperty("java.vm.version"));
+        update(digest, "compiler=" + compilerIdentity);
+        update(digest, "device=" + deviceIdentity);
+        update(digest, "specialisation=" + specialisation);
+        return toHexString(digest.digest());
+    }
+
+    /**
+     * Computes the part of the key that does not depend on the device or on the
+     * compiler build: the code of the task, the values it is specialised for and
+     * the options. Two tasks with the same specialisation key generate the same
+     * kernel on the same device, whatever task-schedule they belong to.
+     *
+     * @return the key, or null if the task cannot be cached.
+     */
+    public static String computeSpecialisationKey(ResolvedJavaMethod method, Object[] args, TaskMetaData meta, long batchThreads) {
+        final MessageDigest digest = createDigest();
+        update(digest, "flags=" + meta.getCompilerFlags());
+        update(digest, "batch=" + batchThreads);
+        hashOptions(digest, meta.getId());
+
+        try {
+            final IdentityHashMap<Object, Boolean> visited = new IdentityHashMap<>();
+            final Set<Class<?>> receiverTypes = new LinkedHashSet<>();
+            for (Object arg : args) {
+                hashSpecialisation(digest, arg, visited, receiverTypes, 0);
+            }
+            hashMethods(digest, method, receiverTypes);
+            if (meta instanceof FusedTaskMetaData) {
+                // The kernel also runs the code of the other fused tasks
+                final FusedTaskMetaData fusedMeta = (FusedTaskMetaData) meta;
+                for (int i = 1; i < fusedMeta.getMethods().length; i++) {
+                    hashMethods(digest, fusedMeta.getMethods()[i], receiverTypes);
+                }
+                update(digest, "fusion=" + fusedMeta.getLayout());
+            }
+        } catch (UncacheableTaskException | RuntimeException e) {
+            debug("task %s is not cached: %s", meta.getId(), e.getMessage());
+            return null;
+        }
+        return toHexString(digest.digest());
+    }
+
+    /**
+     * Hashes the Tornado options and the options of the task-schedule, which
+     * tune the compiler. The options of the task-schedule are hashed without the
+     * name of the task-schedule.
+     */
+    private static void hashOptions(MessageDigest digest, String taskId) {
+        final String schedulePrefix = taskId.substring(0, taskId.indexOf('.') + 1);
+        final TreeMap<String, String> options = new TreeMap<>();
+        final Properties properties = System.getProperties();
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith(TORNADO_OPTIONS_PREFIX) && !key.startsWith(KERNEL_CACHE_OPTIONS_PREFIX)) {
+                options.put(key, properties.getProperty(key));
+            } else if (!schedulePrefix.isEmpty() && key.startsWith(schedulePrefix)) {
+                options.put("schedule." + key.substring(schedulePrefix.length()), properties.getProperty(key));
+            }
+        }
+        options.forEach((key, value) -> update(digest, key + "=" + value));
+    }
+
+    /**
+     * Hashes the bytecodes of the method and of all the methods that can be
+     * reached from it. Methods of the JDK are identified by their signature only,
+     * as they are covered by the JVM version.
+     *
+     * The compiler devirtualises calls on the concrete types of the arguments,
+     * so a virtual call is followed to the method it resolves to for each of the
+     * {@code receiverTypes}. A virtual call that none of them implements cannot
+     * be fingerprinted and the task is not cached.
+     */
+    private static void hashMethods(MessageDigest digest, ResolvedJavaMethod root, Set<Class<?>> receiverTypes) throws UncacheableTaskException {
+        final Deque<ResolvedJavaMethod> workList = new ArrayDeque<>();
+        final Set<ResolvedJavaMethod> visited = new HashSet<>();
+        workList.push(root);
+        visited.add(root);
+
+        while (!workList.isEmpty()) {
+            final ResolvedJavaMethod method = workList.removeFirst();
+            update(digest, method.format("method=%H.%n(%P)%R"));
+            final byte[] code = method.getCode();
+            if (code == null) {
+                continue;
+            }
+            digest.update(code);
+
+            final ConstantPool constantPool = method.getConstantPool();
+            final BytecodeStream stream = new BytecodeStream(code);
+            while (stream.currentBC() != Bytecodes.END) {
+                final int opcode = stream.currentBC();
+                switch (opcode) {
+                    case Bytecodes.INVOKEVIRTUAL:
+                    case Bytecodes.INVOKESPECIAL:
+                    case Bytecodes.INVOKESTATIC:
+                    case Bytecodes.INVOKEINTERFACE: {
+                        final JavaMethod target = constantPool.lookupMethod(stream.readCPI(), opcode);
+                        update(digest, target.format("call=%H.%n(%P)%R"));
+                        if (!(target instanceof ResolvedJavaMethod) || isJDKClass(target.getDeclaringClass().toJavaName())) {
+                            break;
+                        }
+                        final ResolvedJavaMethod resolvedTarget = (ResolvedJavaMethod) target;
+                        final boolean isVirtual = opcode == Bytecodes.INVOKEVIRTUAL || opcode == Bytecodes.INVOKEINTERFACE;
+                        final List<ResolvedJavaMethod> implementations = (isVirtual && !resolvedTarget.canBeStaticallyBound()) ? resolveImplementations(resolvedTarget, receiverTypes)
+                                : Collections.singletonList(resolvedTarget);
+                        for (ResolvedJavaMethod implementation : implementations) {
+                            update(digest, implementation.format("dispatch=%H.%n(%P)%R"));
+                            if (visited.add(implementation)) {
+                                workList.addLast(implementation);
+                            }
+                        }
+                        break;
+                    }
+                    case Bytecodes.GETSTATIC:
+                    case Bytecodes.PUTSTATIC:
+                    case Bytecodes.GETFIELD:
+                    case Bytecodes.PUTFIELD: {
+                        final JavaField field = constantPool.lookupField(stream.readCPI(), method, opcode);
+                        update(digest, field.format("field=%H.%n:%T"));
+                        if (opcode == Bytecodes.GETSTATIC) {
+                            hashStaticFinalField(digest, field);
+                        }
+                        break;
+                    }
+                    case Bytecodes.LDC:
+                    case Bytecodes.LDC_W:
+                    case Bytecodes.LDC2_W: {
+                        final Object constant = constantPool.lookupConstant(stream.readCPI());
+                        if (constant instanceof JavaConstant && ((JavaConstant) constant).getJavaKind().isPrimitive()) {
+                            update(digest, "ldc=" + constant);
+                        } else if (constant instanceof JavaType) {
+                            update(digest, "ldc=" + ((JavaType) constant).toJavaName());
+                        } else if (constant != null) {
+                            update(digest, "ldc=" + constant.getClass().getName());
+                        }
+                        break;
+                    }
+                    case Bytecodes.NEW:
+                    case Bytecodes.ANEWARRAY:
+                    case Bytecodes.CHECKCAST:
+                    case Bytecodes.INSTANCEOF:
+                    case Bytecodes.MULTIANEWARRAY:
+                        update(digest, "type=" + constantPool.lookupType(stream.readCPI(), opcode).toJavaName());
+                        break;
+                    default:
+                        break;
+                }
+                stream.next();
+            }
+        }
+    }
+
+    /**
+     * @return the methods that a virtual call to {@code target} resolves to for
+     *         the receiver types, sorted by name.
+     */
+    private static List<ResolvedJavaMethod> resolveImplementations(ResolvedJavaMethod target, Set<Class<?>> receiverTypes) throws UncacheableTaskException {
+        final ResolvedJavaType declaringClass = target.getDeclaringClass();
+        final Set<ResolvedJavaMethod> implementations = new HashSet<>();
+        for (Class<?> receiverType : receiverTypes) {
+            final ResolvedJavaType type = TornadoCoreRuntime.getTornadoRuntime().getMetaAccess().lookupJavaType(receiverType);
+            if (declaringClass.isAssignableFrom(type)) {
+                final ResolvedJavaMethod implementation = type.resolveConcreteMethod(target, type);
+                if (implementation != null) {
+                    implementations.add(implementation);
+                }
+            }
+        }
+        if (implementations.isEmpty()) {
+            throw new UncacheableTaskException("unable to resolve the virtual call to " + target.format("%H.%n(%P)"));
+        }
+        final List<ResolvedJavaMethod> sorted = new ArrayList<>(implementations);
+        sorted.sort(Comparator.comparing((ResolvedJavaMethod method) -> method.format("%H.%n(%P)")));
+        return sorted;
+    }
+
+    /**
+     * Static final fields that are not compile-time constants are folded by the
+     * compiler, so their current value is part of the key.
+     */
+    private static void hashStaticFinalField(MessageDigest digest, JavaField field) {
+        if (!(field instanceof ResolvedJavaField)) {
+            return;
+        }
+        final ResolvedJavaField resolvedField = (ResolvedJavaField) field;
+        if (resolvedField.isStatic() && resolvedField.isFinal() && resolvedField.getJavaKind().isPrimitive()) {
+            final JavaConstant value = TornadoCoreRuntime.getVMBackend().getConstantReflection().readFieldValue(resolvedField, null);
+            update(digest, "value=" + value);
+        }
+    }
+
+    /**
+     * Hashes the parts of an argument that the compiler may turn into constants:
+     * the values of scalars, the lengths of arrays and the fields of objects.
+     * Array contents are not specialised and therefore not hashed. The classes of
+     * the objects are added to {@code receiverTypes}.
+     */
+    private static void hashSpecialisation(MessageDigest digest, Object value, IdentityHashMap<Object, Boolean> visited, Set<Class<?>> receiverTypes, int depth)
+            throws UncacheableTaskException {
+        if (value == null) {
+            update(digest, "null");
+            return;
+        }
+
+        final Class<?> type = value.getClass();
+        update(digest, type.getName());
+        if (RuntimeUtilities.isBoxedPrimitive(value)) {
+            update(digest, value.toString());
+        } else if (type.isArray()) {
+            update(digest, Integer.toString(Array.getLength(value)));
+        } else if (visited.put(value, Boolean.TRUE) != null) {
+            update(digest, "visited");
+        } else if (depth >= MAX_SPECIALISATION_DEPTH || isJDKClass(type.getName())) {
+            throw new UncacheableTaskException("unable to fingerprint argument of type " + type.getName());
+        } else {
+            receiverTypes.add(type);
+            for (Field field : getInstanceFields(type)) {
+                update(digest, field.getName());
+                try {
+                    hashSpecialisation(digest, field.get(value), visited, receiverTypes, depth + 1);
+                } catch (IllegalAccessException e) {
+                    throw new UncacheableTaskException("unable to read field " + field.getName() + " of " + type.getName());
+                }
+            }
+        }
+    }
+
+    private static List<Field> getInstanceFields(Class<?> type) {
+        final List<Field> fields = new ArrayList<>();
+        for (Class<?> klass = type; klass != null && klass != Object.class; klass = klass.getSuperclass()) {
+            for (Field field : klass.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    field.setAccessible(true);
+                    fields.add(field);
+                }
+            }
+        }
+        fields.sort(Comparator.comparing((Field field) -> field.getDeclaringClass().getName()).thenComparing(Field::getName));
+        return fields;
+    }
+
+    private static String encodeDomain(DomainTree domain) {
+        if (domain == null) {
+            return null;
+        }
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < domain.getDepth(); i++) {
+            final Domain dom = domain.get(i);
+            if (!(dom instanceof IntDomain)) {
+                return null;
+            }
+            final IntDomain intDomain = (IntDomain) dom;
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(intDomain.getOffset()).append(':').append(intDomain.getStep()).append(':').append(intDomain.cardinality());
+        }
+        return sb.toString();
+    }
+
+    private static DomainTree decodeDomain(String value) {
+        if (value == null) {
+            return null;
+        }
+        final String[] domains = value.split(",");
+        final DomainTree domain = new DomainTree(domains.length);
+        for (int i = 0; i < domains.length; i++) {
+            final String[] range = domains[i].split(":");
+            domain.set(i, new IntDomain(Integer.parseInt(range[0]), Integer.parseInt(range[1]), Integer.parseInt(range[2])));
+        }
+        return domain;
+    }
+
+    /**
+     * Looks up the kernel stored under the given key. Entries that cannot be read
+     * or whose contents do not match their checksums are removed.
+     *
+     * @return the entry, or null on a miss.
+     */
+    public Entry lookup(String key) {
+        final Path entryDir = directory.resolve(key);
+        if (!Files.isDirectory(entryDir)) {
+            return null;
+        }
+
+        try {
+            final Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(entryDir.resolve(ENTRY_FILE))) {
+                properties.load(in);
+            }
+            if (!Integer.toString(FORMAT_VERSION).equals(properties.getProperty(FORMAT_PROPERTY))) {
+                throw new IOException("unsupported format " + properties.getProperty(FORMAT_PROPERTY));
+            }
+
+            final byte[] source = readChecked(entryDir.resolve(SOURCE_FILE), properties.getProperty(SOURCE_HASH_PROPERTY));
+            byte[] binary = null;
+            if (properties.getProperty(BINARY_HASH_PROPERTY) != null) {
+                binary = readChecked(entryDir.resolve(BINARY_FILE), properties.getProperty(BINARY_HASH_PROPERTY));
+            }
+
+            info("kernel cache hit for %s (%s)", properties.getProperty(ENTRY_POINT_PROPERTY), key);
+            return new Entry(properties.getProperty(ENTRY_POINT_PROPERTY), source, binary, decodeDomain(properties.getProperty(DOMAIN_PROPERTY)));
+        } catch (IOException | RuntimeException e) {
+            warn("discarding kernel cache entry %s: %s", key, e.getMessage());
+            invalidate(key);
+            return null;
+        }
+    }
+
+    private static byte[] readChecked(Path file, String expectedHash) throws IOException {
+        final byte[] contents = Files.readAllBytes(file);
+        if (!hash(contents).equals(expectedHash)) {
+            throw new IOException("checksum mismatch for " + file.getFileName());
+        }
+        return contents;
+    }
+
+    /**
+     * Stores a kernel under the given key. The entry is written to a temporary
+     * directory and renamed, so concurrent processes never observe a partial
+     * entry.
+     *
+     * @param binary
+     *            the device binary, or null if it is not available.
+     */
+    public void store(String key, String entryPoint, DomainTree domain, byte[] source, byte[] binary) {
+        final Path entryDir = directory.resolve(key);
+        if (Files.isDirectory(entryDir)) {
+            return;
+        }
+
+        Path tmpDir = null;
+        try {
+            Files.createDirectories(directory);
+            tmpDir = Files.createTempDirectory(directory, key + ".tmp");
+
+            final Properties properties = new Properties();
+            properties.setProperty(FORMAT_PROPERTY, Integer.toString(FORMAT_VERSION));
+            properties.setProperty(ENTRY_POINT_PROPERTY, entryPoint);
+            properties.setProperty(SOURCE_HASH_PROPERTY, hash(source));
+            Files.write(tmpDir.resolve(SOURCE_FILE), source);
+            if (binary != null && binary.length > 0) {
+                properties.setProperty(BINARY_HASH_PROPERTY, hash(binary));
+                Files.write(tmpDir.resolve(BINARY_FILE), binary);
+            }
+            final String encodedDomain = encodeDomain(domain);
+            if (encodedDomain != null) {
+                properties.setProperty(DOMAIN_PROPERTY, encodedDomain);
+            }
+            try (OutputStream out = Files.newOutputStream(tmpDir.resolve(ENTRY_FILE))) {
+                properties.store(out, entryPoint);
+            }
+
+            Files.move(tmpDir, entryDir, StandardCopyOption.ATOMIC_MOVE);
+            tmpDir = null;
+            debug("stored kernel %s in the kernel cache (%s)", entryPoint, key);
+        } catch (FileAlreadyExistsException | DirectoryNotEmptyException e) {
+            debug("kernel %s has already been stored by another process", entryPoint);
+        } catch (IOException e) {
+            warn("unable to store kernel %s in the kernel cache: %s", entryPoint, e.getMessage());
+        } finally {
+            if (tmpDir != null) {
+                deleteRecursively(tmpDir);
+            }
+        }
+    }
+
+    /**
+     * Removes the entry stored under the given key, e.g. when the driver rejects
+     * the cached binary.
+     */
+    public void invalidate(String key) {
+        deleteRecursively(directory.resolve(key));
+    }
+
+    private static void deleteRecursively(Path path) {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            final Path[] paths = files.sorted(Comparator.reverseOrder()).toArray(Path[]::new);
+            for (Path file : paths) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            warn("unable to delete %s: %s", path, e.getMessage());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("kernel cache: dir=%s, device=%s", directory, deviceIdentity);
+    }
+}
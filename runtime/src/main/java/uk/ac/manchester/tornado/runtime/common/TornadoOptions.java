@@ -114,6 +114,162 @@ public class TornadoOptions {
      */
     public static final int OPENCL_ARRAY_ALIGNMENT = Integer.parseInt(getProperty("tornado.opencl.array.align", "128"));
 
+    /**
+     * Selects the allocator used for the device heap: {@code freelist} reuses the
+     * regions released by dead buffers, {@code bump} only reclaims memory when the
+     * device is reset. Default is freelist.
+     */
+    public static final String HEAP_ALLOCATOR = getProperty("tornado.heap.allocator", "freelist");
+
+    /**
+     * Returns the device buffers of host objects to the device heap once the host
+     * objects have been garbage collected. Default is True.
+     */
+    public static final boolean RECLAIM_DEVICE_BUFFERS = getBooleanValue("tornado.reclaim.buffers", "True");
+
+    /**
+     * Stages the asynchronous transfers of arrays through a pool of pinned host
+     * buffers in the OpenCL backend. Default is False.
+     */
+    public static final boolean OPENCL_STAGING_BUFFERS = getBooleanValue("tornado.opencl.staging", "False");
+
+    /**
+     * Maximum number of bytes of pinned host memory kept by the staging-buffer
+     * pool of each OpenCL device. Default is 256MB.
+     */
+    public static final long OPENCL_STAGING_POOL_SIZE = Long.parseLong(getProperty("tornado.opencl.staging.size", "268435456"));
+
+    /**
+     * Runs the peephole optimizer over the TornadoVM bytecodes of each
+     * task-schedule. Default is True.
+     */
+    public static final boolean TVM_OPTIMIZE = getBooleanValue("tornado.tvm.optimize", "True");
+
+    /**
+     * Prints the TornadoVM bytecodes before and after the peephole optimizer.
+     * Default is False.
+     */
+    public static final boolean TVM_OPTIMIZE_DUMP = getBooleanValue("tornado.tvm.optimize.dump", "False");
+
+    /**
+     * Verifies that the optimized TornadoVM bytecodes are well formed and
+     * equivalent to the original ones. Default is False.
+     */
+    public static final boolean TVM_OPTIMIZE_VERIFY = getBooleanValue("tornado.tvm.optimize.verify", "False");
+
+    /**
+     * Compiles all the tasks of a task-schedule concurrently before the first
+     * launch, instead of compiling each task when its LAUNCH bytecode is reached.
+     * Default is True.
+     */
+    public static final boolean CONCURRENT_COMPILATION = getBooleanValue("tornado.compile.concurrent", "True");
+
+    /**
+     * Number of threads used to compile tasks concurrently. Default is the number
+     * of available processors.
+     */
+    public static final int COMPILER_THREADS = Integer.parseInt(getProperty("tornado.compile.threads", Integer.toString(Runtime.getRuntime().availableProcessors())));
+
+    /**
+     * Tiered execution: task-schedules run on the host with their sequential Java
+     * implementation while their kernels are compiled in the background, and
+     * switch to the device once the kernels are installed. Default is False.
+     */
+    public static final boolean TIERED_EXECUTION = getBooleanValue("tornado.tiered", "False");
+
+    /**
+     * Stores the generated kernels on disk and reuses them in later runs when the
+     * bytecodes, the specialised arguments, the options and the device are the
+     * same. Default is False.
+     */
+    public static final boolean KERNEL_CACHE = getBooleanValue("tornado.kernelcache.enable", "False");
+
+    /**
+     * Directory of the persistent kernel cache. Relative paths are resolved
+     * against ${TORNADO_SDK}. Default is var/kernel-cache.
+     */
+    public static final String KERNEL_CACHE_DIR = getProperty("tornado.kernelcache.dir", "var/kernel-cache");
+
+    /**
+     * Shares the installed kernels between task-schedules: a task that runs the
+     * same method with the same specialised arguments on the same device as a
+     * task of another task-schedule reuses its kernel. Default is False.
+     */
+    public static final boolean SHARED_KERNEL_CACHE = getBooleanValue("tornado.kernelcache.shared", "False");
+
+    /**
+     * Maximum number of kernels kept by the shared kernel cache. Default is 256.
+     */
+    public static final int SHARED_KERNEL_CACHE_SIZE = Integer.parseInt(getProperty("tornado.kernelcache.shared.size", "256"));
+
+    /**
+     * Maximum number of sketches kept by the sketcher. The least recently used
+     * sketches are evicted once the bound is reached, and a value of 0 makes the
+     * cache unbounded. Default is 2048.
+     */
+    public static final int SKETCHER_CACHE_SIZE = Integer.parseInt(getProperty("tornado.sketcher.cache.size", "2048"));
+
+    /**
+     * The host computes a partition of the iteration space with the sequential
+     * implementation of the tasks when a task-schedule runs with co-execution.
+     * Default is True.
+     */
+    public static final boolean CO_EXECUTION_HOST = getBooleanValue("tornado.coexec.host", "True");
+
+    /**
+     * Maximum number of execution contexts of a task-schedule that is executed
+     * concurrently from several threads. Each context holds its own device
+     * buffers. Default is 4.
+     */
+    public static final int CONCURRENT_CONTEXTS = Integer.parseInt(getProperty("tornado.concurrent.contexts", "4"));
+
+    /**
+     * Number of times each candidate work-group size is measured by the
+     * auto-tuner before the best one is chosen. Default is 3.
+     */
+    public static final int AUTOTUNE_SAMPLES = Integer.parseInt(getProperty("tornado.autotune.samples", "3"));
+
+    /**
+     * File of the auto-tuning database, which keeps the best work-group sizes
+     * found for each kernel, device and global size. Relative paths are resolved
+     * against ${TORNADO_SDK}. Default is var/autotune.properties.
+     */
+    public static final String AUTOTUNE_DATABASE = getProperty("tornado.autotune.db", "var/autotune.properties");
+
+    /**
+     * Selects the energy monitor used by the ENERGY policy of the dynamic
+     * reconfiguration: {@code rapl}, {@code file} or the name of a class that
+     * implements the monitor. Default is rapl.
+     */
+    public static final String ENERGY_MONITOR = getProperty("tornado.energy.monitor", "rapl");
+
+    /**
+     * Directory of the powercap sysfs interface read by the RAPL energy monitor.
+     * Default is /sys/class/powercap.
+     */
+    public static final String ENERGY_RAPL_DIRECTORY = getProperty("tornado.energy.rapl.dir", "/sys/class/powercap");
+
+    /**
+     * Properties file with the power of each device, in watts, read by the file
+     * energy monitor. Default is energy.properties.
+     */
+    public static final String ENERGY_MONITOR_FILE = getProperty("tornado.energy.file", "energy.properties");
+
+    /**
+     * File of the execution history of the dynamic reconfiguration with
+     * {@code executeWithProfilerSequentialGlobal}, which keeps the metric of each
+     * device for the input sizes already profiled. Relative paths are resolved
+     * against ${TORNADO_SDK}. Default is var/reconfiguration-history.properties.
+     */
+    public static final String RECONFIGURATION_HISTORY_DATABASE = getProperty("tornado.reconfiguration.history.db", "var/reconfiguration-history.properties");
+
+    /**
+     * Minimum number of input sizes profiled on a device before the execution
+     * history predicts the metric of that device for new input sizes. Default is
+     * 5.
+     */
+    public static final int RECONFIGURATION_HISTORY_POINTS = Integer.parseInt(getProperty("tornado.reconfiguration.history.points", "5"));
+
     /**
      * Enables OpenCL code generation based on a virtual device. Default is False.
      */
@@ -0,0 +1,154 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * School of Engineering, The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.runtime.common;
+
+import static uk.ac.manchester.tornado.runtime.common.Tornado.debug;
+import static uk.ac.manchester.tornado.runtime.common.Tornado.info;
+import static uk.ac.manchester.tornado.runtime.common.Tornado.warn;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * File-based database of the results of the auto-tuning of kernel launch
+ * parameters and of the execution history of the dynamic reconfiguration. The
+ * database is a properties file that is loaded the first time it is used and
+ * written back every time a new result is recorded, so the results are reused
+ * by later runs of the TornadoVM on the same machine.
+ *
+ * The file is written to a temporary file and renamed. The entries stored by
+ * other processes since the file was loaded are merged before writing, so
+ * concurrent processes do not lose each other's results.
+ */
+public class TornadoTuningDatabase {
+
+    private static final Map<Path, TornadoTuningDatabase> instances = new HashMap<>();
+
+    private final Path file;
+    private final Properties entries;
+
+    TornadoTuningDatabase(Path file) {
+        this.file = file;
+        this.entries = new Properties();
+        load(file, entries);
+        info("loaded %d entries from %s", entries.size(), file);
+    }
+
+    /**
+     * @return the database in the file given by
+     *         {@code -Dtornado.autotune.db}.
+     */
+    public static TornadoTuningDatabase getDatabase() {
+        return getDatabase(TornadoOptions.AUTOTUNE_DATABASE);
+    }
+
+    /**
+     * @param fileName
+     *            Path of the database. Relative paths are resolved against
+     *            ${TORNADO_SDK}.
+     * @return the database stored in the given file.
+     */
+    public static synchronized TornadoTuningDatabase getDatabase(String fileName) {
+        return instances.computeIfAbsent(resolveDatabaseFile(fileName), TornadoTuningDatabase::new);
+    }
+
+    private static Path resolveDatabaseFile(String fileName) {
+        final Path path = Paths.get(fileName);
+        final String tornadoRoot = System.getenv("TORNADO_SDK");
+        if (path.isAbsolute() || tornadoRoot == null) {
+            return path.toAbsolutePath();
+        }
+        return Paths.get(tornadoRoot).resolve(path).toAbsolutePath();
+    }
+
+    private static void load(Path path, Properties properties) {
+        if (!Files.isRegularFile(path)) {
+            return;
+        }
+        try (InputStream in = Files.newInputStream(path)) {
+            properties.load(in);
+        } catch (IOException | IllegalArgumentException e) {
+            warn("unable to read the database %s: %s", path, e.getMessage());
+        }
+    }
+
+    /**
+     * @return the value stored under the given key, or null if the key has not
+     *         been recorded.
+     */
+    public synchronized String get(String key) {
+        return entries.getProperty(key);
+    }
+
+    /**
+     * Records a result and writes the database to disk.
+     */
+    public void put(String key, String value) {
+        putAll(Collections.singletonMap(key, value));
+    }
+
+    /**
+     * Records several results and writes the database to disk once.
+     */
+    public synchronized void putAll(Map<String, String> values) {
+        entries.putAll(values);
+
+        Path tmpFile = null;
+        try {
+            final Properties merged = new Properties();
+            load(file, merged);
+            merged.putAll(entries);
+            entries.putAll(merged);
+
+            final Path directory = file.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            tmpFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try (OutputStream out = Files.newOutputStream(tmpFile)) {
+                merged.store(out, "TornadoVM tuning database");
+            }
+            Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            tmpFile = null;
+            debug("stored %s in %s", values, file);
+        } catch (IOException e) {
+            warn("unable to write the database %s: %s", file, e.getMessage());
+        } finally {
+            if (tmpFile != null) {
+                try {
+                    Files.deleteIfExists(tmpFile);
+                } catch (IOException e) {
+                    warn("unable to delete %s: %s", tmpFile, e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * School of Engineering, The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.runtime.energy;
+
+/**
+ * Source of energy measurements for the ENERGY policy of the dynamic
+ * reconfiguration. A monitor exposes, for each device, a counter of the energy
+ * consumed by the power domain that includes the device. The energy of an
+ * execution is the difference between two readings.
+ */
+public interface EnergyMonitor {
+
+    /**
+     * Device index used to read the energy of the host, where the sequential
+     * implementation of the tasks runs.
+     */
+    int HOST = -1;
+
+    /**
+     * @return true if the monitor is able to read energy counters.
+     */
+    boolean isAvailable();
+
+    /**
+     * Reads the energy counter of the power domain of a device.
+     *
+     * @param driverIndex
+     *            index of the driver of the device.
+     * @param deviceIndex
+     *            index of the device in the driver, or {@link #HOST}.
+     * @return energy in joules consumed since an arbitrary point in time.
+     */
+    double readEnergy(int driverIndex, int deviceIndex);
+
+    /**
+     * @return name of the monitor.
+     */
+    String getName();
+}
@@ -0,0 +1,72 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * School of Engineering, The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.runtime.energy;
+
+import static uk.ac.manchester.tornado.runtime.common.TornadoOptions.ENERGY_MONITOR;
+import static uk.ac.manchester.tornado.runtime.common.TornadoOptions.ENERGY_MONITOR_FILE;
+import static uk.ac.manchester.tornado.runtime.common.TornadoOptions.ENERGY_RAPL_DIRECTORY;
+
+import java.lang.reflect.InvocationTargetException;
+
+import uk.ac.manchester.tornado.api.exceptions.TornadoRuntimeException;
+
+public class EnergyMonitors {
+
+    private static final String RAPL_MONITOR = "rapl";
+    private static final String FILE_MONITOR = "file";
+
+    private static EnergyMonitor monitor;
+
+    /**
+     * Creates the energy monitor selected with
+     * {@code -Dtornado.energy.monitor=<rapl|file|class name>}. Other monitors
+     * are plugged in with the name of a class that implements
+     * {@link EnergyMonitor} and has a public constructor with no parameters.
+     */
+    public static EnergyMonitor create() {
+        switch (ENERGY_MONITOR) {
+            case RAPL_MONITOR:
+                return new RAPLEnergyMonitor(ENERGY_RAPL_DIRECTORY);
+            case FILE_MONITOR:
+                return new FileEnergyMonitor(ENERGY_MONITOR_FILE);
+            default:
+                try {
+                    Class<?> klass = Class.forName(ENERGY_MONITOR);
+                    return (EnergyMonitor) klass.getConstructor().newInstance();
+                } catch (ClassNotFoundException | ClassCastException | InstantiationException | IllegalAccessException | NoSuchMethodException | InvocationTargetException e) {
+                    throw new TornadoRuntimeException("[ERROR] Unable to create the energy monitor " + ENERGY_MONITOR + ": " + e);
+                }
+        }
+    }
+
+    /**
+     * @return the energy monitor shared by all the task-schedules.
+     */
+    public static synchronized EnergyMonitor getMonitor() {
+        if (monitor == null) {
+            monitor = create();
+        }
+        return monitor;
+    }
+}
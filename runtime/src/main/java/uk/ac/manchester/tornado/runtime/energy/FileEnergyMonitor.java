@@ -0,0 +1,104 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * School of Engineering, The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.runtime.energy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+
+import uk.ac.manchester.tornado.runtime.common.Tornado;
+
+/**
+ * Energy monitor that models each device with a constant power draw, read from
+ * a file. It is meant for testing the ENERGY policy on machines without energy
+ * counters. The file contains one line per device, with the power in watts.
+ * Empty lines and lines starting with {@code #} are ignored:
+ *
+ * <pre>
+ * host=35.0
+ * 0:0=15.5
+ * 0:1=120
+ * </pre>
+ *
+ * Devices that are not in the file use the value of the {@code default} entry,
+ * or 0 watts if there is none. The energy of a device grows with the elapsed
+ * time at the power of the device.
+ */
+public class FileEnergyMonitor implements EnergyMonitor {
+
+    private static final String HOST_KEY = "host";
+    private static final String DEFAULT_KEY = "default";
+
+    private final HashMap<String, Double> powers;
+    private final long startTime;
+    private final boolean available;
+
+    public FileEnergyMonitor(String file) {
+        powers = new HashMap<>();
+        boolean loaded = false;
+        try {
+            for (String line : Files.readAllLines(Paths.get(file))) {
+                line = line.trim();
+                final int separator = line.indexOf('=');
+                if (line.isEmpty() || line.startsWith("#") || separator == -1) {
+                    continue;
+                }
+                final String key = line.substring(0, separator).trim();
+                final String value = line.substring(separator + 1).trim();
+                try {
+                    powers.put(key, Double.parseDouble(value));
+                } catch (NumberFormatException e) {
+                    Tornado.warn("Invalid power %s for device %s in %s", value, key, file);
+                }
+            }
+            loaded = true;
+        } catch (IOException e) {
+            Tornado.warn("Unable to read the power file %s: %s", file, e.getMessage());
+        }
+        available = loaded;
+        startTime = System.nanoTime();
+    }
+
+    private double getPower(int driverIndex, int deviceIndex) {
+        final String key = (deviceIndex == HOST) ? HOST_KEY : driverIndex + ":" + deviceIndex;
+        return powers.getOrDefault(key, powers.getOrDefault(DEFAULT_KEY, 0.0));
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return available;
+    }
+
+    @Override
+    public double readEnergy(int driverIndex, int deviceIndex) {
+        final double elapsed = (System.nanoTime() - startTime) * 1e-9;
+        return getPower(driverIndex, deviceIndex) * elapsed;
+    }
+
+    @Override
+    public String getName() {
+        return "file";
+    }
+}
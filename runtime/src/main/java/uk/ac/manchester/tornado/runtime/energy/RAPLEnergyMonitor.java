@@ -0,0 +1,118 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * School of Engineering, The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.runtime.energy;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import uk.ac.manchester.tornado.runtime.common.Tornado;
+
+/**
+ * Energy monitor based on the Running Average Power Limit (RAPL) counters that
+ * Linux exposes through the powercap sysfs interface. The energy of all the
+ * CPU packages is added up, and it is the same for every device: RAPL does not
+ * see the energy of discrete accelerators, only the energy spent by the host
+ * while they run.
+ * <p>
+ * The counters wrap around after {@code max_energy_range_uj} micro-joules,
+ * which is handled by accumulating the difference between readings. Recent
+ * kernels only allow root to read the counters, in which case the monitor is
+ * not available.
+ */
+public class RAPLEnergyMonitor implements EnergyMonitor {
+
+    private static final Pattern PACKAGE_DOMAIN = Pattern.compile("intel-rapl:\\d+");
+    private static final String ENERGY_FILE = "energy_uj";
+    private static final String MAX_ENERGY_FILE = "max_energy_range_uj";
+
+    private final File[] domains;
+    private final long[] maxEnergy;
+    private final long[] lastReading;
+    private long accumulated;
+
+    public RAPLEnergyMonitor(String powercapDirectory) {
+        final List<File> packages = new ArrayList<>();
+        final File[] files = new File(powercapDirectory).listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (PACKAGE_DOMAIN.matcher(file.getName()).matches() && new File(file, ENERGY_FILE).canRead()) {
+                    packages.add(file);
+                }
+            }
+        }
+        domains = packages.toArray(new File[0]);
+        Arrays.sort(domains);
+        maxEnergy = new long[domains.length];
+        lastReading = new long[domains.length];
+        for (int i = 0; i < domains.length; i++) {
+            maxEnergy[i] = readCounter(new File(domains[i], MAX_ENERGY_FILE));
+            lastReading[i] = readCounter(new File(domains[i], ENERGY_FILE));
+        }
+        if (domains.length == 0) {
+            Tornado.warn("No readable RAPL domains in %s. Energy measurements are not available", powercapDirectory);
+        }
+    }
+
+    private static long readCounter(File file) {
+        try {
+            return Long.parseLong(new String(Files.readAllBytes(file.toPath()), StandardCharsets.US_ASCII).trim());
+        } catch (IOException | NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return domains.length > 0;
+    }
+
+    @Override
+    public synchronized double readEnergy(int driverIndex, int deviceIndex) {
+        for (int i = 0; i < domains.length; i++) {
+            final long reading = readCounter(new File(domains[i], ENERGY_FILE));
+            if (reading < 0) {
+                continue;
+            }
+            long delta = reading - lastReading[i];
+            if (delta < 0 && maxEnergy[i] > 0) {
+                // The counter wrapped around
+                delta += maxEnergy[i];
+            }
+            accumulated += Math.max(delta, 0);
+            lastReading[i] = reading;
+        }
+        return accumulated * 1e-6;
+    }
+
+    @Override
+    public String getName() {
+        return "rapl";
+    }
+}
@@ -31,6 +31,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
@@ -52,7 +53,10 @@ public class TornadoExecutionContext {
 
     private final List<SchedulableTask> tasks;
     private final List<Object> constants;
-    private final Map<Integer, Integer> objectMap;
+    private final Map<Object, Integer> constantMap;
+    // Objects are indexed by identity: two objects that are equal or share a
+    // hash code still need different buffers on the device
+    private final Map<Object, Integer> objectMap;
     private final List<Object> objects;
     private final List<LocalObjectState> objectState;
     private final List<TornadoAcceleratorDevice> devices;
@@ -70,7 +74,8 @@ public class TornadoExecutionContext {
         meta = new ScheduleMetaData(name);
         tasks = new ArrayList<>();
         constants = new ArrayList<>();
-        objectMap = new HashMap<>();
+        constantMap = new HashMap<>();
+        objectMap = new IdentityHashMap<>();
         objects = new ArrayList<>();
         objectState = new ArrayList<>();
         devices = new ArrayList<>();
@@ -86,24 +91,52 @@ public class TornadoExecutionContext {
     }
 
     public int insertVariable(Object var) {
-        int index = -1;
+        Integer index;
         if (var.getClass().isPrimitive() || RuntimeUtilities.isBoxedPrimitiveClass(var.getClass())) {
-            index = constants.indexOf(var);
-            if (index == -1) {
+            index = constantMap.get(var);
+            if (index == null) {
                 index = constants.size();
                 constants.add(var);
+                constantMap.put(var, index);
             }
-        } else if (objectMap.containsKey(var.hashCode())) {
-            index = objectMap.get(var.hashCode());
         } else {
-            index = objects.size();
-            objects.add(var);
-            objectMap.put(var.hashCode(), index);
-            objectState.add(index, new LocalObjectState(var));
+            index = objectMap.get(var);
+            if (index == null) {
+                index = objects.size();
+                objects.add(var);
+                objectMap.put(var, index);
+                objectState.add(index, new LocalObjectState(var));
+            }
         }
         return index;
     }
 
+    /**
+     * Replaces an object of the context with {@code newRef}, keeping its index so
+     * that the call stacks of the tasks remain valid.
+     *
+     * @return the state of the replaced object, or null if {@code oldRef} is not
+     *         an object of the context.
+     */
+    public LocalObjectState replaceVariable(Object oldRef, Object newRef) {
+        final Integer index = objectMap.remove(oldRef);
+        if (index == null) {
+            return null;
+        }
+        objects.set(index, newRef);
+        objectMap.put(newRef, index);
+        return objectState.set(index, new LocalObjectState(newRef));
+    }
+
+    /**
+     * @return the index of an object of the context, or -1 if it is not an
+     *         object of the context.
+     */
+    public int getObjectIndex(Object object) {
+        final Integer index = objectMap.get(object);
+        return (index == null) ? -1 : index;
+    }
+
     public int getTaskCount() {
         return nextTask;
     }
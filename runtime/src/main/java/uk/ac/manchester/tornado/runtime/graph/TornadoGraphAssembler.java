@@ -47,7 +47,8 @@ public class TornadoGraphAssembler {
         CONTEXT((byte) 20),             // CONTEXT(ctx)
         END((byte) 21),                 // END(ctx)
         CONSTANT_ARGUMENT((byte) 22),
-        REFERENCE_ARGUMENT((byte) 23);
+        REFERENCE_ARGUMENT((byte) 23),
+        BUFFER_SET((byte) 24);          // BUFFER_SET(index)
         // @formatter:on
 
         private byte value;
@@ -135,6 +136,15 @@ public class TornadoGraphAssembler {
         buffer.putLong(size);
     }
 
+    void streamOutBlockingOfContext(int obj, int ctx, int dep, long offset, long size) {
+        buffer.put(TornadoVMBytecodes.STREAM_OUT_BLOCKING.value);
+        buffer.putInt(obj);
+        buffer.putInt(ctx);
+        buffer.putInt(dep);
+        buffer.putLong(offset);
+        buffer.putLong(size);
+    }
+
     void launch(int gtid, int ctx, int task, int numParameters, int dep, long offset, long size) {
         buffer.put(TornadoVMBytecodes.LAUNCH.value);
         buffer.putInt(gtid);
@@ -151,6 +161,11 @@ public class TornadoGraphAssembler {
         buffer.putInt(dep);
     }
 
+    void bufferSet(int index) {
+        buffer.put(TornadoVMBytecodes.BUFFER_SET.value);
+        buffer.putInt(index);
+    }
+
     void constantArg(int index) {
         buffer.put(TornadoVMBytecodes.CONSTANT_ARGUMENT.value);
         buffer.putInt(index);
@@ -76,8 +76,28 @@ public class TornadoGraphBuilder {
         args[argIndex] = copyInNode;
     }
 
-    private static boolean shouldPerformSharedObjectCopy(AbstractNode arg, ContextNode contextNode) {
-        return ((ContextOpNode) arg).getContext().getUses().size() != 1 && contextNode.getDeviceIndex() != ((ContextOpNode) arg).getContext().getDeviceIndex();
+    /**
+     * An object that has been written by a task on another device is copied back
+     * to the host once the task has finished, and then it is streamed in to the
+     * device of the current task.
+     */
+    private static void createCrossDeviceCopyNodes(ContextNode context, TornadoGraph graph, DependentReadNode arg, AbstractNode[] args, int argIndex) {
+        final ContextNode producer = arg.getContext();
+        final CopyOutNode copyOutNode = new CopyOutNode(producer);
+        copyOutNode.setValue(arg);
+        graph.add(copyOutNode);
+        producer.addUse(copyOutNode);
+
+        final StreamInNode streamInNode = new StreamInNode(context);
+        streamInNode.setValue(arg.getValue());
+        streamInNode.setDependent(copyOutNode);
+        graph.add(streamInNode);
+        context.addUse(streamInNode);
+        args[argIndex] = streamInNode;
+    }
+
+    private static boolean isOnAnotherDevice(AbstractNode arg, ContextNode contextNode) {
+        return contextNode.getDeviceIndex() != ((ContextOpNode) arg).getContext().getDeviceIndex();
     }
 
     public static TornadoGraph buildGraph(TornadoExecutionContext graphContext, ByteBuffer buffer) {
@@ -132,10 +152,21 @@ public class TornadoGraphBuilder {
                             createCopyInNode(context, graph, arg, args, argIndex);
                         }
                     }
-                } else {
-                    if (shouldPerformSharedObjectCopy(arg, context)) {
+                } else if (isOnAnotherDevice(arg, context)) {
+                    if (arg instanceof DependentReadNode && ((DependentReadNode) arg).getValue() != null) {
+                        createCrossDeviceCopyNodes(context, graph, (DependentReadNode) arg, args, argIndex);
+                    } else if (arg instanceof StreamInNode && ((StreamInNode) arg).getDependent() != null) {
+                        // The host copy is updated by a cross-device copy
+                        final StreamInNode streamInNode = new StreamInNode(context);
+                        streamInNode.setValue(((StreamInNode) arg).getValue());
+                        streamInNode.setDependent(((StreamInNode) arg).getDependent());
+                        graph.add(streamInNode);
+                        context.addUse(streamInNode);
+                        args[argIndex] = streamInNode;
+                    } else {
                         createCopyInNode(context, graph, arg.getInputs().get(0), args, argIndex);
                     }
+                } else {
                     args[argIndex] = arg;
                 }
 
@@ -147,7 +178,7 @@ public class TornadoGraphBuilder {
                         value = (ObjectNode) objectNodes[variableIndex];
                     } else if (objectNodes[variableIndex] instanceof DependentReadNode) {
                         value = ((DependentReadNode) objectNodes[variableIndex]).getValue();
-                        if (states.get(variableIndex).isForcedStreamIn()) {
+                        if (states.get(variableIndex).isForcedStreamIn() && !(args[argIndex] instanceof StreamInNode)) {
                             createStreamInNode(context, graph, value, args, argIndex);
                         }
                     } else if (objectNodes[variableIndex] instanceof CopyInNode) {
@@ -185,8 +216,9 @@ public class TornadoGraphBuilder {
                 context = graph.addUnique(new ContextNode(graphContext.getDeviceIndexForTask(globalTaskId)));
 
                 if (task instanceof CompilableTask) {
-                    final ResolvedJavaMethod resolvedMethod = TornadoCoreRuntime.getTornadoRuntime().resolveMethod(((CompilableTask) task).getMethod());
-                    Sketch sketch = TornadoSketcher.lookup(resolvedMethod, task.meta().getDriverIndex(), task.meta().getDeviceIndex());
+                    final CompilableTask compilableTask = (CompilableTask) task;
+                    final ResolvedJavaMethod resolvedMethod = TornadoCoreRuntime.getTornadoRuntime().resolveMethod(compilableTask.getMethod());
+                    Sketch sketch = TornadoSketcher.lookup(resolvedMethod, compilableTask.meta());
                     accesses = sketch.getMeta().getArgumentsAccess();
                 } else {
                     accesses = task.getArgumentsAccess();
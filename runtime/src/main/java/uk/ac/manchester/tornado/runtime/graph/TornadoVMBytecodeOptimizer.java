@@ -0,0 +1,507 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * School of Engineering, The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.runtime.graph;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import uk.ac.manchester.tornado.api.exceptions.TornadoRuntimeException;
+import uk.ac.manchester.tornado.runtime.common.TornadoOptions;
+import uk.ac.manchester.tornado.runtime.graph.TornadoGraphAssembler.TornadoVMBytecodes;
+
+/**
+ * Peephole optimizer for the TornadoVM bytecodes generated by
+ * {@link TornadoVMGraphCompiler}. The passes only remove bytecodes whose effect
+ * on the interpreter is void:
+ *
+ * <ul>
+ * <li>ALLOCATE and COPY_IN of objects that are not split in batches, which are
+ * emitted again for every chunk, are kept only for their first occurrence in
+ * each set of buffers.</li>
+ * <li>ADD_DEP bytecodes that add an event that is already in the list, or that
+ * follow an ALLOCATE (which does not produce an event), are removed.</li>
+ * <li>Adjacent BARRIER bytecodes over the same event list are merged.</li>
+ * </ul>
+ *
+ * With {@code -Dtornado.tvm.optimize.dump=True} the bytecodes are printed before
+ * and after the optimization, and with {@code -Dtornado.tvm.optimize.verify=True}
+ * the optimized bytecodes are checked against the original ones.
+ */
+public class TornadoVMBytecodeOptimizer {
+
+    private static class Instruction {
+        final TornadoVMBytecodes op;
+        final int[] operands;
+        final long[] values;
+        final TornadoVMBytecodes[] argTypes;
+        final int[] args;
+
+        Instruction(TornadoVMBytecodes op, int[] operands, long[] values, TornadoVMBytecodes[] argTypes, int[] args) {
+            this.op = op;
+            this.operands = operands;
+            this.values = values;
+            this.argTypes = argTypes;
+            this.args = args;
+        }
+
+        Instruction(TornadoVMBytecodes op, int... operands) {
+            this(op, operands, new long[0], null, null);
+        }
+
+        int getObject() {
+            return operands[0];
+        }
+
+        int getContext() {
+            return operands[1];
+        }
+
+        int getDependency() {
+            return (op == TornadoVMBytecodes.LAUNCH) ? operands[4] : operands[2];
+        }
+
+        long getOffset() {
+            return values[0];
+        }
+
+        long getSize() {
+            return values[values.length - 1];
+        }
+
+        boolean isTransfer() {
+            return op == TornadoVMBytecodes.COPY_IN || op == TornadoVMBytecodes.STREAM_IN || op == TornadoVMBytecodes.STREAM_OUT || op == TornadoVMBytecodes.STREAM_OUT_BLOCKING;
+        }
+
+        /**
+         * @return true if the interpreter updates the last event with the result of
+         *         the bytecode. The ADD_DEP bytecodes that follow add that event to
+         *         an event list.
+         */
+        boolean producesEvent() {
+            return op == TornadoVMBytecodes.ALLOCATE || op == TornadoVMBytecodes.STREAM_OUT || op == TornadoVMBytecodes.LAUNCH;
+        }
+
+        /**
+         * @return the event list that is consumed and reset by the bytecode, or -1.
+         */
+        int getConsumedEventList() {
+            if (isTransfer() || op == TornadoVMBytecodes.LAUNCH) {
+                return getDependency();
+            } else if (op == TornadoVMBytecodes.BARRIER) {
+                return operands[0];
+            }
+            return -1;
+        }
+
+        boolean isEquivalent(Instruction other) {
+            return op == other.op && Arrays.equals(operands, other.operands) && Arrays.equals(values, other.values) && Arrays.equals(argTypes, other.argTypes) && Arrays.equals(args, other.args);
+        }
+
+        @Override
+        public String toString() {
+            switch (op) {
+                case ALLOCATE:
+                    return String.format("%s object=%d context=%d size=%d", op, getObject(), getContext(), getSize());
+                case COPY_IN:
+                case STREAM_IN:
+                case STREAM_OUT:
+                case STREAM_OUT_BLOCKING:
+                    return String.format("%s object=%d context=%d event-list=%d offset=%d size=%d", op, getObject(), getContext(), getDependency(), getOffset(), getSize());
+                case LAUNCH:
+                    StringBuilder sb = new StringBuilder();
+                    sb.append(String.format("%s stack=%d context=%d task=%d event-list=%d offset=%d threads=%d args=[", op, operands[0], operands[1], operands[2], getDependency(), getOffset(), getSize()));
+                    for (int i = 0; i < args.length; i++) {
+                        sb.append((i > 0) ? ", " : "").append((argTypes[i] == TornadoVMBytecodes.CONSTANT_ARGUMENT) ? "constant " : "object ").append(args[i]);
+                    }
+                    return sb.append("]").toString();
+                default:
+                    return (operands.length == 0) ? op.toString() : op + " " + Arrays.toString(operands);
+            }
+        }
+    }
+
+    private TornadoVMBytecodeOptimizer() {
+    }
+
+    /**
+     * Optimizes the bytecodes of {@code result} in place.
+     */
+    public static void optimize(TornadoVMGraphCompilationResult result, TornadoExecutionContext context) {
+        final List<Instruction> original = decode(result.getCode(), result.getCodeSize());
+        final List<Instruction> optimized = runPasses(original);
+
+        if (TornadoOptions.TVM_OPTIMIZE_DUMP) {
+            System.out.printf("TornadoVM bytecodes of %s: %d -> %d bytecodes\n", context.getId(), original.size(), optimized.size());
+            System.out.println("before:");
+            print(original);
+            System.out.println("after:");
+            print(optimized);
+        }
+
+        if (TornadoOptions.TVM_OPTIMIZE_VERIFY) {
+            verify(original, optimized, context);
+        }
+
+        encode(optimized, result.getAssembler());
+    }
+
+    /**
+     * Optimizes the first {@code codeSize} bytes of TornadoVM bytecodes of
+     * {@code code} in place.
+     *
+     * @return the size of the optimized bytecodes.
+     */
+    public static int optimize(byte[] code, int codeSize) {
+        final TornadoGraphAssembler asm = new TornadoGraphAssembler(code);
+        encode(runPasses(decode(code, codeSize)), asm);
+        return asm.position();
+    }
+
+    /**
+     * @return the number of {@code op} bytecodes in the first {@code codeSize}
+     *         bytes of {@code code}.
+     */
+    public static int countBytecodes(byte[] code, int codeSize, TornadoVMBytecodes op) {
+        return (int) decode(code, codeSize).stream().filter(instruction -> instruction.op == op).count();
+    }
+
+    private static List<Instruction> runPasses(List<Instruction> instructions) {
+        List<Instruction> optimized = hoistInvariantTransfers(instructions);
+        optimized = removeRedundantDependencies(optimized);
+        return mergeBarriers(optimized);
+    }
+
+    private static TornadoVMBytecodes decodeOp(byte value) {
+        for (TornadoVMBytecodes op : TornadoVMBytecodes.values()) {
+            if (op.value() == value) {
+                return op;
+            }
+        }
+        throw new TornadoRuntimeException("[ERROR] TornadoVM Bytecode not recognized: " + value);
+    }
+
+    private static List<Instruction> decode(byte[] code, int codeSize) {
+        final ByteBuffer buffer = ByteBuffer.wrap(code, 0, codeSize);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        final List<Instruction> instructions = new ArrayList<>();
+        while (buffer.hasRemaining()) {
+            final TornadoVMBytecodes op = decodeOp(buffer.get());
+            switch (op) {
+                case SETUP:
+                    instructions.add(new Instruction(op, buffer.getInt(), buffer.getInt(), buffer.getInt()));
+                    break;
+                case CONTEXT:
+                case ADD_DEP:
+                case BARRIER:
+                case BUFFER_SET:
+                    instructions.add(new Instruction(op, buffer.getInt()));
+                    break;
+                case BEGIN:
+                case END:
+                    instructions.add(new Instruction(op));
+                    break;
+                case ALLOCATE:
+                    instructions.add(new Instruction(op, new int[] { buffer.getInt(), buffer.getInt() }, new long[] { buffer.getLong() }, null, null));
+                    break;
+                case COPY_IN:
+                case STREAM_IN:
+                case STREAM_OUT:
+                case STREAM_OUT_BLOCKING:
+                    instructions.add(new Instruction(op, new int[] { buffer.getInt(), buffer.getInt(), buffer.getInt() }, new long[] { buffer.getLong(), buffer.getLong() }, null, null));
+                    break;
+                case LAUNCH:
+                    final int[] operands = new int[] { buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt() };
+                    final long[] values = new long[] { buffer.getLong(), buffer.getLong() };
+                    final int numArgs = operands[3];
+                    final TornadoVMBytecodes[] argTypes = new TornadoVMBytecodes[numArgs];
+                    final int[] args = new int[numArgs];
+                    for (int i = 0; i < numArgs; i++) {
+                        argTypes[i] = decodeOp(buffer.get());
+                        args[i] = buffer.getInt();
+                    }
+                    instructions.add(new Instruction(op, operands, values, argTypes, args));
+                    break;
+                default:
+                    throw new TornadoRuntimeException("[ERROR] Unexpected TornadoVM bytecode " + op);
+            }
+        }
+        return instructions;
+    }
+
+    private static void encode(List<Instruction> instructions, TornadoGraphAssembler asm) {
+        asm.reset();
+        for (Instruction instruction : instructions) {
+            final int[] operands = instruction.operands;
+            switch (instruction.op) {
+                case SETUP:
+                    asm.setup(operands[0], operands[1], operands[2]);
+                    break;
+                case CONTEXT:
+                    asm.context(operands[0]);
+                    break;
+                case BEGIN:
+                    asm.begin();
+                    break;
+                case END:
+                    asm.end();
+                    break;
+                case ADD_DEP:
+                    asm.addDependency(operands[0]);
+                    break;
+                case BARRIER:
+                    asm.barrier(operands[0]);
+                    break;
+                case BUFFER_SET:
+                    asm.bufferSet(operands[0]);
+                    break;
+                case ALLOCATE:
+                    asm.allocate(instruction.getObject(), instruction.getContext(), instruction.getSize());
+                    break;
+                case COPY_IN:
+                    asm.copyToContext(instruction.getObject(), instruction.getContext(), instruction.getDependency(), instruction.getOffset(), instruction.getSize());
+                    break;
+                case STREAM_IN:
+                    asm.streamInToContext(instruction.getObject(), instruction.getContext(), instruction.getDependency(), instruction.getOffset(), instruction.getSize());
+                    break;
+                case STREAM_OUT:
+                    asm.streamOutOfContext(instruction.getObject(), instruction.getContext(), instruction.getDependency(), instruction.getOffset(), instruction.getSize());
+                    break;
+                case STREAM_OUT_BLOCKING:
+                    asm.streamOutBlockingOfContext(instruction.getObject(), instruction.getContext(), instruction.getDependency(), instruction.getOffset(), instruction.getSize());
+                    break;
+                case LAUNCH:
+                    asm.launch(operands[0], operands[1], operands[2], operands[3], operands[4], instruction.getOffset(), instruction.getSize());
+                    for (int i = 0; i < instruction.args.length; i++) {
+                        if (instruction.argTypes[i] == TornadoVMBytecodes.CONSTANT_ARGUMENT) {
+                            asm.constantArg(instruction.args[i]);
+                        } else {
+                            asm.referenceArg(instruction.args[i]);
+                        }
+                    }
+                    break;
+                default:
+                    throw new TornadoRuntimeException("[ERROR] Unexpected TornadoVM bytecode " + instruction.op);
+            }
+        }
+    }
+
+    private static long getObjectKey(int bufferSet, int contextIndex, int objectIndex) {
+        return ((long) bufferSet << 48) | ((long) contextIndex << 32) | (objectIndex & 0xFFFFFFFFL);
+    }
+
+    private static long getObjectKey(int bufferSet, Instruction instruction) {
+        return getObjectKey(bufferSet, instruction.getContext(), instruction.getObject());
+    }
+
+    /**
+     * Objects that are not split in batches are allocated and copied with a size
+     * of 0 in every chunk. Only the first ALLOCATE and COPY_IN of each object in
+     * each set of buffers have an effect, as the device buffer is already present
+     * for the rest of chunks.
+     *
+     * The ALLOCATE bytecode sets the last event to -1, so the ADD_DEP bytecodes
+     * that follow a removed ALLOCATE, until the next bytecode that produces an
+     * event, are removed as well. COPY_IN bytecodes with an event list are kept,
+     * as they reset the list.
+     */
+    private static List<Instruction> hoistInvariantTransfers(List<Instruction> instructions) {
+        final List<Instruction> optimized = new ArrayList<>(instructions.size());
+        final Set<Long> allocated = new HashSet<>();
+        final Set<Long> copied = new HashSet<>();
+        int bufferSet = 0;
+        boolean skipDependencies = false;
+
+        for (Instruction instruction : instructions) {
+            switch (instruction.op) {
+                case BUFFER_SET:
+                    bufferSet = instruction.operands[0];
+                    break;
+                case ALLOCATE:
+                    if (!allocated.add(getObjectKey(bufferSet, instruction)) && instruction.getSize() == 0) {
+                        skipDependencies = true;
+                        continue;
+                    }
+                    break;
+                case COPY_IN:
+                    if (!copied.add(getObjectKey(bufferSet, instruction)) && instruction.getSize() == 0 && instruction.getOffset() == 0 && instruction.getDependency() == -1) {
+                        continue;
+                    }
+                    break;
+                case ADD_DEP:
+                    if (skipDependencies) {
+                        continue;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            if (instruction.producesEvent()) {
+                skipDependencies = false;
+            }
+            optimized.add(instruction);
+        }
+        return optimized;
+    }
+
+    /**
+     * Removes the ADD_DEP bytecodes that have no effect: those that add the last
+     * event to a list that already contains it, and those whose last event was
+     * produced by an ALLOCATE (or by no bytecode at all), which is always -1.
+     */
+    private static List<Instruction> removeRedundantDependencies(List<Instruction> instructions) {
+        final List<Instruction> optimized = new ArrayList<>(instructions.size());
+        // Event lists that contain the last event
+        final BitSet lists = new BitSet();
+        boolean noEvent = true;
+
+        for (Instruction instruction : instructions) {
+            if (instruction.op == TornadoVMBytecodes.ADD_DEP) {
+                final int list = instruction.operands[0];
+                if (noEvent || lists.get(list)) {
+                    continue;
+                }
+                lists.set(list);
+            } else {
+                final int consumed = instruction.getConsumedEventList();
+                if (consumed != -1) {
+                    lists.clear(consumed);
+                }
+                if (instruction.producesEvent()) {
+                    lists.clear();
+                    noEvent = instruction.op == TornadoVMBytecodes.ALLOCATE;
+                }
+            }
+            optimized.add(instruction);
+        }
+        return optimized;
+    }
+
+    private static List<Instruction> mergeBarriers(List<Instruction> instructions) {
+        final List<Instruction> optimized = new ArrayList<>(instructions.size());
+        Instruction previous = null;
+        for (Instruction instruction : instructions) {
+            if (previous != null && previous.op == TornadoVMBytecodes.BARRIER && instruction.isEquivalent(previous)) {
+                continue;
+            }
+            optimized.add(instruction);
+            previous = instruction;
+        }
+        return optimized;
+    }
+
+    private static void print(List<Instruction> instructions) {
+        for (int i = 0; i < instructions.size(); i++) {
+            System.out.printf("[%4d]: %s\n", i, instructions.get(i));
+        }
+    }
+
+    private static void verificationError(String message, Object... args) {
+        throw new TornadoRuntimeException("[ERROR] TornadoVM bytecode verification failed: " + String.format(message, args));
+    }
+
+    private static boolean isObservable(Instruction instruction) {
+        return instruction.op == TornadoVMBytecodes.LAUNCH || instruction.op == TornadoVMBytecodes.STREAM_IN || instruction.op == TornadoVMBytecodes.STREAM_OUT
+                || instruction.op == TornadoVMBytecodes.STREAM_OUT_BLOCKING || instruction.op == TornadoVMBytecodes.BUFFER_SET;
+    }
+
+    /**
+     * Checks that the optimized bytecodes are well formed and that they perform
+     * the same launches and streams as the original ones. Every object used by a
+     * launch or a stream-out must be present on the device, in the same set of
+     * buffers, by an earlier ALLOCATE, COPY_IN or STREAM_IN.
+     */
+    private static void verify(List<Instruction> original, List<Instruction> optimized, TornadoExecutionContext context) {
+        final List<Instruction> expected = new ArrayList<>();
+        original.stream().filter(TornadoVMBytecodeOptimizer::isObservable).forEach(expected::add);
+        final List<Instruction> actual = new ArrayList<>();
+        optimized.stream().filter(TornadoVMBytecodeOptimizer::isObservable).forEach(actual::add);
+        if (expected.size() != actual.size()) {
+            verificationError("%d launches and streams expected, found %d", expected.size(), actual.size());
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            if (!expected.get(i).isEquivalent(actual.get(i))) {
+                verificationError("expected %s, found %s", expected.get(i), actual.get(i));
+            }
+        }
+
+        if (optimized.isEmpty() || optimized.get(0).op != TornadoVMBytecodes.SETUP || optimized.get(optimized.size() - 1).op != TornadoVMBytecodes.END) {
+            verificationError("bytecodes must start with SETUP and finish with END");
+        }
+        final int numContexts = optimized.get(0).operands[0];
+        final int numDepLists = optimized.get(0).operands[2];
+        final int numObjects = context.getObjects().size();
+
+        final Set<Long> present = new HashSet<>();
+        int bufferSet = 0;
+        for (Instruction instruction : optimized) {
+            final int list = (instruction.op == TornadoVMBytecodes.ADD_DEP) ? instruction.operands[0] : instruction.getConsumedEventList();
+            if (list < -1 || list >= numDepLists) {
+                verificationError("invalid event list in %s", instruction);
+            }
+            switch (instruction.op) {
+                case BUFFER_SET:
+                    bufferSet = instruction.operands[0];
+                    break;
+                case ALLOCATE:
+                case COPY_IN:
+                case STREAM_IN:
+                case STREAM_OUT:
+                case STREAM_OUT_BLOCKING:
+                    if (instruction.getObject() < 0 || instruction.getObject() >= numObjects || instruction.getContext() < 0 || instruction.getContext() >= numContexts) {
+                        verificationError("invalid object or context in %s", instruction);
+                    }
+                    final long key = getObjectKey(bufferSet, instruction);
+                    if (instruction.op == TornadoVMBytecodes.STREAM_OUT || instruction.op == TornadoVMBytecodes.STREAM_OUT_BLOCKING) {
+                        if (!present.contains(key)) {
+                            verificationError("object %d is not on the device in %s", instruction.getObject(), instruction);
+                        }
+                    } else {
+                        present.add(key);
+                    }
+                    break;
+                case LAUNCH:
+                    if (instruction.getContext() < 0 || instruction.getContext() >= numContexts || instruction.operands[2] >= context.getTasks().size()) {
+                        verificationError("invalid task or context in %s", instruction);
+                    }
+                    for (int i = 0; i < instruction.args.length; i++) {
+                        if (instruction.argTypes[i] == TornadoVMBytecodes.REFERENCE_ARGUMENT) {
+                            if (!present.contains(getObjectKey(bufferSet, instruction.getContext(), instruction.args[i]))) {
+                                verificationError("object %d is not on the device in %s", instruction.args[i], instruction);
+                            }
+                        }
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+}
@@ -111,6 +111,10 @@ public class TornadoVMGraphCompilationResult {
         }
     }
 
+    void emitBufferSet(int index) {
+        bitcodeASM.bufferSet(index);
+    }
+
     public void emitAddDep(int dep) {
         bitcodeASM.addDependency(dep);
     }
@@ -119,6 +123,10 @@ public class TornadoVMGraphCompilationResult {
         bitcodeASM.dump();
     }
 
+    TornadoGraphAssembler getAssembler() {
+        return bitcodeASM;
+    }
+
     public byte[] getCode() {
         return code;
     }
@@ -30,7 +30,6 @@ import java.nio.BufferOverflowException;
 import java.util.Arrays;
 import java.util.BitSet;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 
 import org.graalvm.compiler.graph.Node;
@@ -40,12 +39,19 @@ import org.graalvm.compiler.loop.LoopsData;
 import org.graalvm.compiler.nodes.StructuredGraph;
 
 import uk.ac.manchester.tornado.api.exceptions.TornadoRuntimeException;
+import uk.ac.manchester.tornado.runtime.common.BatchedStorage;
 import uk.ac.manchester.tornado.runtime.common.Tornado;
+import uk.ac.manchester.tornado.runtime.common.TornadoOptions;
 import uk.ac.manchester.tornado.runtime.graal.nodes.ParallelRangeNode;
 import uk.ac.manchester.tornado.runtime.graph.TornadoGraphAssembler.TornadoVMBytecodes;
 import uk.ac.manchester.tornado.runtime.graph.nodes.AbstractNode;
+import uk.ac.manchester.tornado.runtime.graph.nodes.AllocateNode;
 import uk.ac.manchester.tornado.runtime.graph.nodes.ContextOpNode;
+import uk.ac.manchester.tornado.runtime.graph.nodes.CopyInNode;
+import uk.ac.manchester.tornado.runtime.graph.nodes.CopyOutNode;
 import uk.ac.manchester.tornado.runtime.graph.nodes.DependentReadNode;
+import uk.ac.manchester.tornado.runtime.graph.nodes.ObjectNode;
+import uk.ac.manchester.tornado.runtime.graph.nodes.StreamInNode;
 import uk.ac.manchester.tornado.runtime.graph.nodes.TaskNode;
 
 public class TornadoVMGraphCompiler {
@@ -73,77 +79,226 @@ public class TornadoVMGraphCompiler {
      * @return {@link TornadoVMGraphCompilationResult}
      */
     public static TornadoVMGraphCompilationResult compile(TornadoGraph graph, TornadoExecutionContext context, long batchSize) {
-        return compileContext(graph, context, batchSize);
+        return compile(graph, context, batchSize, 1);
+    }
+
+    /**
+     * Generate TornadoVM byte-code from a Tornado Task Graph. When processing in
+     * batches with more than one set of buffers, the transfers of consecutive
+     * batches are interleaved with the kernels.
+     *
+     * @param graph
+     *            TornadoVM execution Graph.
+     * @param context
+     *            TornadoVM execution context.
+     * @param batchSize
+     *            Batch size
+     * @param batchBuffers
+     *            Number of sets of device buffers used to pipeline the batches.
+     * @return {@link TornadoVMGraphCompilationResult}
+     */
+    public static TornadoVMGraphCompilationResult compile(TornadoGraph graph, TornadoExecutionContext context, long batchSize, int batchBuffers) {
+        final BatchSizeMetaData sizeBatch = (batchSize != -1) ? computeChunkSizes(context, batchSize) : null;
+        final TornadoVMGraphCompilationResult result = compileContext(graph, context, sizeBatch, batchBuffers);
+        if (TornadoOptions.TVM_OPTIMIZE) {
+            TornadoVMBytecodeOptimizer.optimize(result, context);
+        }
+        return result;
+    }
+
+    /**
+     * Generate TornadoVM byte-code that only computes a partition of the
+     * iteration space, as a single batch. It is used for co-execution, where
+     * each device of the co-execution computes its own partition.
+     *
+     * @param graph
+     *            TornadoVM execution Graph.
+     * @param context
+     *            TornadoVM execution context.
+     * @param iterationSpace
+     *            Number of iterations of the whole task-schedule.
+     * @param firstIteration
+     *            First iteration of the partition.
+     * @param numIterations
+     *            Number of iterations of the partition.
+     * @return {@link TornadoVMGraphCompilationResult}
+     */
+    public static TornadoVMGraphCompilationResult compilePartition(TornadoGraph graph, TornadoExecutionContext context, long iterationSpace, long firstIteration, long numIterations) {
+        final BatchSizeMetaData partition = computePartitionSizes(context, iterationSpace, firstIteration, numIterations);
+        checkPartitionedOutputs(graph, context, partition);
+        final TornadoVMGraphCompilationResult result = compileContext(graph, context, partition, 1);
+        if (TornadoOptions.TVM_OPTIMIZE) {
+            TornadoVMBytecodeOptimizer.optimize(result, context);
+        }
+        return result;
     }
 
     private static class BatchSizeMetaData {
 
         private final int totalChunks;
-        private final int remainingChunkSize;
-        private final short numBytesType;
+        private final long chunkIterations;
+        private final long remainingIterations;
+        private final long[] bytesPerIteration;
+        private final long firstIteration;
 
-        BatchSizeMetaData(int totalChunks, int remainingChunkSize, short numBytesType) {
+        BatchSizeMetaData(int totalChunks, long chunkIterations, long remainingIterations, long[] bytesPerIteration) {
+            this(totalChunks, chunkIterations, remainingIterations, bytesPerIteration, 0);
+        }
+
+        BatchSizeMetaData(int totalChunks, long chunkIterations, long remainingIterations, long[] bytesPerIteration, long firstIteration) {
             this.totalChunks = totalChunks;
-            this.remainingChunkSize = remainingChunkSize;
-            this.numBytesType = numBytesType;
+            this.chunkIterations = chunkIterations;
+            this.remainingIterations = remainingIterations;
+            this.bytesPerIteration = bytesPerIteration;
+            this.firstIteration = firstIteration;
+        }
+
+        private int getNumChunks() {
+            return (remainingIterations != 0) ? totalChunks + 1 : totalChunks;
+        }
+
+        private long getNumThreads(int chunk) {
+            return (chunk < totalChunks) ? chunkIterations : remainingIterations;
+        }
+
+        private long getFirstIteration(int chunk) {
+            return firstIteration + chunk * chunkIterations;
         }
 
-        private int getTotalChunks() {
-            return totalChunks;
+        private boolean isBatched(int objectIndex) {
+            // If all the data fits in one batch, the objects are copied as a whole
+            return totalChunks > 0 && objectIndex != -1 && bytesPerIteration[objectIndex] > 0;
         }
 
-        private int getRemainingChunkSize() {
-            return remainingChunkSize;
+        private long getOffset(int objectIndex, int chunk) {
+            return isBatched(objectIndex) ? getFirstIteration(chunk) * bytesPerIteration[objectIndex] : 0;
         }
 
-        private short getNumBytesType() {
-            return numBytesType;
+        private long getBatchSize(int objectIndex, int chunk) {
+            return isBatched(objectIndex) ? getNumThreads(chunk) * bytesPerIteration[objectIndex] : 0;
         }
     }
 
+    /**
+     * Splits the iteration space in chunks. The iteration space is given by the
+     * shortest array that does not fit in one batch. Arrays whose length is a
+     * multiple of the iteration space are split in chunks, with as many elements
+     * per iteration as the multiple. The rest of objects, such as lookup tables,
+     * are copied as a whole. Collection types are handled as arrays of their
+     * outermost dimension (see {@link BatchedStorage}).
+     */
     private static BatchSizeMetaData computeChunkSizes(TornadoExecutionContext context, long batchSize) {
-        // Get the size of the batch
         List<Object> inputObjects = context.getObjects();
-        long totalSize = 0;
-        byte typeSize = 1;
-
-        HashSet<Class<?>> classObjects = new HashSet<>();
-        HashSet<Long> inputSizes = new HashSet<>();
-
-        // XXX: Get a list for all objects
-        for (Object o : inputObjects) {
+        final long[] lengths = new long[inputObjects.size()];
+        final long[] bytesPerIteration = new long[inputObjects.size()];
+        final long[] typeSizes = new long[inputObjects.size()];
+
+        long iterationSpace = -1;
+        long maxLength = 0;
+        for (int i = 0; i < inputObjects.size(); i++) {
+            final Object o = inputObjects.get(i);
             if (o.getClass().isArray()) {
                 Class<?> componentType = o.getClass().getComponentType();
                 if (dataTypesSize.get(componentType) == null) {
                     throw new TornadoRuntimeException("[UNSUPPORTED] Data type not supported for processing in batches");
                 }
-                long size = Array.getLength(o);
-                typeSize = dataTypesSize.get(componentType);
-                totalSize = size * typeSize;
-
-                classObjects.add(componentType);
-                inputSizes.add(totalSize);
-                if (classObjects.size() > 1) {
-                    throw new TornadoRuntimeException("[UNSUPPORTED] Input objects with different data types not currently supported");
-                }
-                if (inputSizes.size() > 1) {
-                    throw new TornadoRuntimeException("[UNSUPPORTED] Input objects with different sizes not currently supported");
-                }
+                lengths[i] = Array.getLength(o);
+                typeSizes[i] = dataTypesSize.get(componentType);
+            } else if (BatchedStorage.isBatchedStorage(o)) {
+                // Collections are split by their outermost dimension
+                lengths[i] = BatchedStorage.getOuterDimension(o);
+                typeSizes[i] = (lengths[i] == 0) ? 0 : BatchedStorage.getStorageSize(o) / lengths[i];
+            } else {
+                continue;
+            }
+            maxLength = Math.max(maxLength, lengths[i]);
+            if (lengths[i] * typeSizes[i] > batchSize && (iterationSpace == -1 || lengths[i] < iterationSpace)) {
+                iterationSpace = lengths[i];
+            }
+        }
+
+        if (iterationSpace == -1) {
+            // All the data fits in one batch
+            return new BatchSizeMetaData(0, maxLength, maxLength, bytesPerIteration);
+        }
+
+        long maxBytesPerIteration = 0;
+        for (int i = 0; i < inputObjects.size(); i++) {
+            if (lengths[i] == 0) {
+                continue;
+            }
+            if (lengths[i] % iterationSpace == 0) {
+                bytesPerIteration[i] = (lengths[i] / iterationSpace) * typeSizes[i];
+                maxBytesPerIteration = Math.max(maxBytesPerIteration, bytesPerIteration[i]);
+            } else if (lengths[i] * typeSizes[i] > batchSize) {
+                throw new TornadoRuntimeException(
+                        "[UNSUPPORTED] Input objects with a size that is not a multiple of the iteration space (" + iterationSpace + " elements) not currently supported");
             }
         }
 
-        int totalChunks = (int) (totalSize / batchSize);
-        int remainingChunkSize = (int) (totalSize % batchSize);
+        final long chunkIterations = batchSize / maxBytesPerIteration;
+        if (chunkIterations == 0) {
+            throw new TornadoRuntimeException("[ERROR] Batch size of " + batchSize + " bytes is too small. At least " + maxBytesPerIteration + " bytes are required");
+        }
+        int totalChunks = (int) (iterationSpace / chunkIterations);
+        long remainingIterations = iterationSpace % chunkIterations;
 
         if (Tornado.DEBUG) {
             System.out.println("Batch Size: " + batchSize);
+            System.out.println("Iteration space: " + iterationSpace);
             System.out.println("Total chunks: " + totalChunks);
-            System.out.println("remainingChunkSize: " + remainingChunkSize);
+            System.out.println("remainingIterations: " + remainingIterations);
         }
-        return new BatchSizeMetaData(totalChunks, remainingChunkSize, typeSize);
+        return new BatchSizeMetaData(totalChunks, chunkIterations, remainingIterations, bytesPerIteration);
     }
 
-    private static TornadoVMGraphCompilationResult compileContext(TornadoGraph graph, TornadoExecutionContext context, long batchSize) {
+    /**
+     * Splits the objects of the task-schedule for a partition of the iteration
+     * space. Arrays whose length is a multiple of the iteration space are split,
+     * and the rest of objects are copied as a whole.
+     */
+    private static BatchSizeMetaData computePartitionSizes(TornadoExecutionContext context, long iterationSpace, long firstIteration, long numIterations) {
+        if (iterationSpace <= 0 || firstIteration < 0 || numIterations <= 0 || firstIteration + numIterations > iterationSpace) {
+            throw new TornadoRuntimeException("[ERROR] Invalid partition [" + firstIteration + ", " + (firstIteration + numIterations) + ") of an iteration space of " + iterationSpace + " elements");
+        }
+        List<Object> inputObjects = context.getObjects();
+        final long[] bytesPerIteration = new long[inputObjects.size()];
+        for (int i = 0; i < inputObjects.size(); i++) {
+            final Object o = inputObjects.get(i);
+            long length;
+            long typeSize;
+            if (o.getClass().isArray() && dataTypesSize.get(o.getClass().getComponentType()) != null) {
+                length = Array.getLength(o);
+                typeSize = dataTypesSize.get(o.getClass().getComponentType());
+            } else if (BatchedStorage.isBatchedStorage(o)) {
+                length = BatchedStorage.getOuterDimension(o);
+                typeSize = (length == 0) ? 0 : BatchedStorage.getStorageSize(o) / length;
+            } else {
+                continue;
+            }
+            if (length != 0 && length % iterationSpace == 0) {
+                bytesPerIteration[i] = (length / iterationSpace) * typeSize;
+            }
+        }
+        return new BatchSizeMetaData(1, numIterations, 0, bytesPerIteration, firstIteration);
+    }
+
+    /**
+     * The partitions of all the devices are copied back to the same host
+     * objects, so every object that is copied out has to be split.
+     */
+    private static void checkPartitionedOutputs(TornadoGraph graph, TornadoExecutionContext context, BatchSizeMetaData partition) {
+        final BitSet copyOuts = graph.filter(CopyOutNode.class);
+        for (int i = copyOuts.nextSetBit(0); i != -1 && i < copyOuts.length(); i = copyOuts.nextSetBit(i + 1)) {
+            final int objectIndex = getObjectIndex(graph.getNode(i));
+            if (objectIndex != -1 && !partition.isBatched(objectIndex)) {
+                throw new TornadoRuntimeException("[UNSUPPORTED] Output object " + context.getObjects().get(objectIndex).getClass().getSimpleName()
+                        + " cannot be split by the iteration space of the co-execution");
+            }
+        }
+    }
+
+    private static TornadoVMGraphCompilationResult compileContext(TornadoGraph graph, TornadoExecutionContext context, BatchSizeMetaData sizeBatch, int batchBuffers) {
         final TornadoVMGraphCompilationResult result = new TornadoVMGraphCompilationResult();
 
         final BitSet asyncNodes = graph.filter((AbstractNode n) -> n instanceof ContextOpNode);
@@ -165,31 +320,25 @@ public class TornadoVMGraphCompiler {
             index++;
         }
 
+        final BitSet copyOutNodes = getTerminalCopyOutNodes(graph, nodeIds, dependencies);
+        if (sizeBatch != null && batchBuffers > 1 && !copyOutNodes.isEmpty()) {
+            // Each set of buffers uses its own event lists
+            final int numEventLists = numDepLists * batchBuffers;
+            result.begin(1, tasks.cardinality(), numEventLists + 1);
+            scheduleAndEmitPipelinedBatches(result, graph, nodeIds, dependencies, copyOutNodes, sizeBatch, batchBuffers, numDepLists);
+            synchronizeOperationLastByteCode(result, numEventLists);
+            result.end();
+            return result;
+        }
+
         // Generate BEGIN bytecode
         result.begin(1, tasks.cardinality(), numDepLists + 1);
 
-        BatchSizeMetaData sizeBatch = null;
-        if (batchSize != -1) {
-            sizeBatch = computeChunkSizes(context, batchSize);
-        }
-
-        if (batchSize != -1) {
+        if (sizeBatch != null) {
             // compute in batches
-            long offset = 0;
-            long nthreads = batchSize / sizeBatch.getNumBytesType();
-            for (int i = 0; i < sizeBatch.getTotalChunks(); i++) {
-                offset = (batchSize * i);
-                scheduleAndEmitTornadoVMBytecodes(result, graph, nodeIds, dependencies, offset, batchSize, nthreads);
-            }
-            // Last chunk
-            if (sizeBatch.getRemainingChunkSize() != 0) {
-                offset += (batchSize);
-                nthreads = sizeBatch.getRemainingChunkSize() / sizeBatch.getNumBytesType();
-                long realBatchSize = sizeBatch.getTotalChunks() == 0 ? 0 : sizeBatch.getRemainingChunkSize();
-                long realOffsetSize = sizeBatch.getTotalChunks() == 0 ? 0 : offset;
-                scheduleAndEmitTornadoVMBytecodes(result, graph, nodeIds, dependencies, realOffsetSize, realBatchSize, nthreads);
+            for (int i = 0; i < sizeBatch.getNumChunks(); i++) {
+                scheduleAndEmitTornadoVMBytecodes(result, graph, nodeIds, dependencies, sizeBatch, i);
             }
-
         } else {
             // Generate bytecodes with no batches
             scheduleAndEmitTornadoVMBytecodes(result, graph, nodeIds, dependencies);
@@ -243,14 +392,102 @@ public class TornadoVMGraphCompiler {
         }
     }
 
+    /**
+     * Returns the copy-out operations that no other operation depends on. These
+     * can be delayed until the next batch has been sent to the device.
+     */
+    private static BitSet getTerminalCopyOutNodes(TornadoGraph graph, int[] nodeIds, BitSet[] deps) {
+        final BitSet terminals = new BitSet(deps.length);
+        for (int i = 0; i < deps.length; i++) {
+            if (!(graph.getNode(nodeIds[i]) instanceof CopyOutNode)) {
+                continue;
+            }
+            boolean hasUsages = false;
+            for (int j = 0; j < deps.length && !hasUsages; j++) {
+                hasUsages = deps[j].get(nodeIds[i]);
+            }
+            if (!hasUsages) {
+                terminals.set(i);
+            }
+        }
+        return terminals;
+    }
+
+    /**
+     * Emits the batches in a software pipeline. Batch i uses the set of buffers
+     * i % batchBuffers, and its copy-out operations are emitted after the
+     * copy-in and the launch of batch i+1, so that with an out-of-order command
+     * queue the transfers of neighbouring batches overlap with the kernels.
+     *
+     * A set of buffers is not reused before the copy-out of the batch that used
+     * it has completed, as copy-out operations are blocking and they wait for the
+     * kernels of their batch.
+     */
+    private static void scheduleAndEmitPipelinedBatches(TornadoVMGraphCompilationResult result, TornadoGraph graph, int[] nodeIds, BitSet[] deps, BitSet copyOutNodes, BatchSizeMetaData sizeBatch,
+            int batchBuffers, int numDepLists) {
+        final BitSet kernelNodes = new BitSet(deps.length);
+        kernelNodes.set(0, deps.length);
+        kernelNodes.andNot(copyOutNodes);
+
+        final int numChunks = sizeBatch.getNumChunks();
+        for (int chunk = 0; chunk < numChunks; chunk++) {
+            final int bufferSet = chunk % batchBuffers;
+            result.emitBufferSet(bufferSet);
+            scheduleAndEmitTornadoVMBytecodes(result, graph, nodeIds, deps, kernelNodes, sizeBatch, chunk, bufferSet * numDepLists);
+
+            if (chunk > 0) {
+                final int previousBufferSet = (chunk - 1) % batchBuffers;
+                result.emitBufferSet(previousBufferSet);
+                scheduleAndEmitTornadoVMBytecodes(result, graph, nodeIds, deps, copyOutNodes, sizeBatch, chunk - 1, previousBufferSet * numDepLists);
+            }
+        }
+
+        if (numChunks > 0) {
+            final int lastBufferSet = (numChunks - 1) % batchBuffers;
+            result.emitBufferSet(lastBufferSet);
+            scheduleAndEmitTornadoVMBytecodes(result, graph, nodeIds, deps, copyOutNodes, sizeBatch, numChunks - 1, lastBufferSet * numDepLists);
+        }
+    }
+
     private static void scheduleAndEmitTornadoVMBytecodes(TornadoVMGraphCompilationResult result, TornadoGraph graph, int[] nodeIds, BitSet[] deps) {
-        scheduleAndEmitTornadoVMBytecodes(result, graph, nodeIds, deps, 0, 0, 0);
+        scheduleAndEmitTornadoVMBytecodes(result, graph, nodeIds, deps, null, 0);
+    }
+
+    private static void scheduleAndEmitTornadoVMBytecodes(TornadoVMGraphCompilationResult result, TornadoGraph graph, int[] nodeIds, BitSet[] deps, BatchSizeMetaData sizeBatch, int chunk) {
+        final BitSet allNodes = new BitSet(deps.length);
+        allNodes.set(0, deps.length);
+        scheduleAndEmitTornadoVMBytecodes(result, graph, nodeIds, deps, allNodes, sizeBatch, chunk, 0);
+    }
+
+    private static int getObjectIndex(AbstractNode node) {
+        if (node instanceof CopyInNode) {
+            return ((CopyInNode) node).getValue().getIndex();
+        } else if (node instanceof AllocateNode) {
+            return ((AllocateNode) node).getValue().getIndex();
+        } else if (node instanceof StreamInNode) {
+            return ((StreamInNode) node).getValue().getIndex();
+        } else if (node instanceof CopyOutNode) {
+            final ObjectNode value = ((CopyOutNode) node).getValue().getValue();
+            return (value != null) ? value.getIndex() : -1;
+        }
+        return -1;
     }
 
-    private static void scheduleAndEmitTornadoVMBytecodes(TornadoVMGraphCompilationResult result, TornadoGraph graph, int[] nodeIds, BitSet[] deps, long offset, long bufferBatchSize, long nThreads) {
+    /**
+     * Emits the operations selected in {@code selected}. The rest of operations
+     * are considered to be already emitted.
+     */
+    private static void scheduleAndEmitTornadoVMBytecodes(TornadoVMGraphCompilationResult result, TornadoGraph graph, int[] nodeIds, BitSet[] deps, BitSet selected, BatchSizeMetaData sizeBatch,
+            int chunk, int depListOffset) {
         final BitSet scheduled = new BitSet(deps.length);
         scheduled.clear();
         final BitSet nodes = new BitSet(graph.getValid().length());
+        for (int i = 0; i < deps.length; i++) {
+            if (!selected.get(i)) {
+                scheduled.set(i);
+                nodes.set(nodeIds[i]);
+            }
+        }
         final int[] depLists = new int[deps.length];
         Arrays.fill(depLists, -1);
         int index = 0;
@@ -275,8 +512,22 @@ public class TornadoVMGraphCompiler {
                     if (outstandingDeps.isEmpty()) {
                         final ContextOpNode asyncNode = (ContextOpNode) graph.getNode(nodeIds[i]);
 
+                        long offset = 0;
+                        long bufferBatchSize = 0;
+                        long nThreads = 0;
+                        if (sizeBatch != null) {
+                            final int objectIndex = getObjectIndex(asyncNode);
+                            nThreads = sizeBatch.getNumThreads(chunk);
+                            if (asyncNode instanceof TaskNode) {
+                                offset = sizeBatch.getFirstIteration(chunk);
+                            } else {
+                                offset = sizeBatch.getOffset(objectIndex, chunk);
+                                bufferBatchSize = sizeBatch.getBatchSize(objectIndex, chunk);
+                            }
+                        }
+
                         try {
-                            result.emitAsyncNode(asyncNode, asyncNode.getContext().getDeviceIndex(), (deps[i].isEmpty()) ? -1 : depLists[i], offset, bufferBatchSize, nThreads);
+                            result.emitAsyncNode(asyncNode, asyncNode.getContext().getDeviceIndex(), (deps[i].isEmpty() || depLists[i] == -1) ? -1 : depLists[i] + depListOffset, offset, bufferBatchSize, nThreads);
                         } catch (BufferOverflowException e) {
                             throw new TornadoRuntimeException("[ERROR] Buffer Overflow exception. Use -Dtornado.tvm.maxbytecodesize=<value> with value > "
                                     + TornadoVMGraphCompilationResult.MAX_TORNADO_VM_BYTECODE_SIZE + " to increase the buffer code size");
@@ -287,7 +538,7 @@ public class TornadoVMGraphCompiler {
                                 continue;
                             }
                             if (deps[j].get(nodeIds[i]) && depLists[j] != -1) {
-                                result.emitAddDep(depLists[j]);
+                                result.emitAddDep(depLists[j] + depListOffset);
                             }
                         }
                         scheduled.set(i);
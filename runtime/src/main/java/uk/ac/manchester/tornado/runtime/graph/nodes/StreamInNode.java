@@ -36,6 +36,7 @@ public class StreamInNode extends ContextOpNode {
     }
 
     private ObjectNode value;
+    private ContextOpNode dependent;
 
     public void setValue(ObjectNode object) {
         value = object;
@@ -45,6 +46,18 @@ public class StreamInNode extends ContextOpNode {
         return value;
     }
 
+    /**
+     * Sets the operation that has to complete before the object is streamed in,
+     * such as the copy to the host of an object written on another device.
+     */
+    public void setDependent(ContextOpNode node) {
+        dependent = node;
+    }
+
+    public ContextOpNode getDependent() {
+        return dependent;
+    }
+
     public String toString() {
         return String.format("[%d]: stream in object %d", id, value.getIndex());
     }
@@ -60,6 +73,9 @@ public class StreamInNode extends ContextOpNode {
 
         final List<AbstractNode> result = new ArrayList<AbstractNode>();
         result.add(value);
+        if (dependent != null) {
+            result.add(dependent);
+        }
         return result;
     }
 }
@@ -0,0 +1,83 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * School of Engineering, The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.runtime.mm;
+
+/**
+ * Linear allocator: the heap position only moves forward and memory is
+ * reclaimed on reset. Individual regions cannot be released. All the
+ * operations are synchronised on the allocator.
+ */
+public class BumpHeapAllocator implements TornadoHeapAllocator {
+
+    private long heapStart;
+    private long heapLimit;
+    private long heapPosition;
+
+    @Override
+    public synchronized void reset(long heapStart, long heapLimit) {
+        this.heapStart = heapStart;
+        this.heapLimit = heapLimit;
+        this.heapPosition = heapStart;
+    }
+
+    @Override
+    public synchronized long allocate(long bytes, int headerSize, int alignment) {
+        final long alignedDataStart = align(heapPosition + headerSize, alignment);
+        final long headerStart = alignedDataStart - headerSize;
+        if (headerStart + bytes < heapLimit) {
+            heapPosition = headerStart + bytes;
+            return headerStart;
+        }
+        return -1;
+    }
+
+    @Override
+    public synchronized boolean free(long offset) {
+        return false;
+    }
+
+    @Override
+    public synchronized long getAllocatedBytes() {
+        return heapPosition - heapStart;
+    }
+
+    @Override
+    public synchronized long getFreeBytes() {
+        return heapLimit - heapPosition;
+    }
+
+    @Override
+    public synchronized long getLargestFreeBlock() {
+        return heapLimit - heapPosition;
+    }
+
+    @Override
+    public synchronized long getHighWaterMark() {
+        return heapPosition - heapStart;
+    }
+
+    static long align(final long address, final long alignment) {
+        return (address % alignment == 0) ? address : address + (alignment - address % alignment);
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * School of Engineering, The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.runtime.mm;
+
+import static uk.ac.manchester.tornado.runtime.mm.BumpHeapAllocator.align;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Heap allocator with segregated free lists. Free regions are kept in
+ * power-of-two size classes and are coalesced with their neighbours when they
+ * are released. Requests that cannot be served from the free lists are served
+ * from the top of the heap, and regions released at the top of the heap give
+ * that space back to it. All the operations are synchronised on the allocator.
+ */
+public class FreeListHeapAllocator implements TornadoHeapAllocator {
+
+    /**
+     * Free fragments smaller than this are kept as part of the allocation they
+     * come from.
+     */
+    private static final long MIN_BLOCK_SIZE = 64;
+
+    private static final int NUM_SIZE_CLASSES = 64;
+
+    private static final class Block {
+        private final long start;
+        private final long size;
+
+        Block(long start, long size) {
+            this.start = start;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Free regions indexed by start offset, used for coalescing.
+     */
+    private final TreeMap<Long, Long> freeBlocks;
+
+    /**
+     * Start offsets of the free regions, grouped by size class.
+     */
+    private final ArrayList<TreeSet<Long>> sizeClasses;
+
+    /**
+     * Regions in use, indexed by the offset returned to the caller.
+     */
+    private final Map<Long, Block> allocatedBlocks;
+
+    private long heapStart;
+    private long heapLimit;
+    private long heapTop;
+    private long highWaterMark;
+    private long allocatedBytes;
+    private long freeListBytes;
+
+    public FreeListHeapAllocator() {
+        freeBlocks = new TreeMap<>();
+        allocatedBlocks = new HashMap<>();
+        sizeClasses = new ArrayList<>(NUM_SIZE_CLASSES);
+        for (int i = 0; i < NUM_SIZE_CLASSES; i++) {
+            sizeClasses.add(new TreeSet<>());
+        }
+    }
+
+    private static int sizeClassOf(long size) {
+        return 63 - Long.numberOfLeadingZeros(size);
+    }
+
+    @Override
+    public synchronized void reset(long heapStart, long heapLimit) {
+        this.heapStart = heapStart;
+        this.heapLimit = heapLimit;
+        this.heapTop = heapStart;
+        this.highWaterMark = 0;
+        this.allocatedBytes = 0;
+        this.freeListBytes = 0;
+        freeBlocks.clear();
+        allocatedBlocks.clear();
+        for (TreeSet<Long> sizeClass : sizeClasses) {
+            sizeClass.clear();
+        }
+    }
+
+    private void insertFreeBlock(long start, long size) {
+        freeBlocks.put(start, size);
+        sizeClasses.get(sizeClassOf(size)).add(start);
+        freeListBytes += size;
+    }
+
+    private void removeFreeBlock(long start, long size) {
+        freeBlocks.remove(start);
+        sizeClasses.get(sizeClassOf(size)).remove(start);
+        freeListBytes -= size;
+    }
+
+    private long allocateFromFreeLists(long bytes, int headerSize, int alignment) {
+        for (int sizeClass = sizeClassOf(bytes); sizeClass < NUM_SIZE_CLASSES; sizeClass++) {
+            for (Long start : sizeClasses.get(sizeClass)) {
+                final long size = freeBlocks.get(start);
+                final long headerStart = align(start + headerSize, alignment) - headerSize;
+                final long end = headerStart + bytes;
+                if (end <= start + size) {
+                    removeFreeBlock(start, size);
+                    return splitBlock(start, size, headerStart, end);
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Hands out [headerStart, end) from the free block [start, start + size) and
+     * returns the leading and trailing fragments to the free lists when they are
+     * large enough.
+     */
+    private long splitBlock(long start, long size, long headerStart, long end) {
+        long blockStart = start;
+        long blockEnd = start + size;
+        if (headerStart - start >= MIN_BLOCK_SIZE) {
+            insertFreeBlock(start, headerStart - start);
+            blockStart = headerStart;
+        }
+        if (blockEnd - end >= MIN_BLOCK_SIZE) {
+            insertFreeBlock(end, blockEnd - end);
+            blockEnd = end;
+        }
+        recordAllocation(headerStart, blockStart, blockEnd - blockStart);
+        return headerStart;
+    }
+
+    private long allocateFromTop(long bytes, int headerSize, int alignment) {
+        final long headerStart = align(heapTop + headerSize, alignment) - headerSize;
+        final long end = headerStart + bytes;
+        if (end >= heapLimit) {
+            return -1;
+        }
+        long blockStart = heapTop;
+        if (headerStart - heapTop >= MIN_BLOCK_SIZE) {
+            insertFreeBlock(heapTop, headerStart - heapTop);
+            blockStart = headerStart;
+        }
+        heapTop = end;
+        highWaterMark = Math.max(highWaterMark, heapTop - heapStart);
+        recordAllocation(headerStart, blockStart, end - blockStart);
+        return headerStart;
+    }
+
+    private void recordAllocation(long offset, long blockStart, long blockSize) {
+        allocatedBlocks.put(offset, new Block(blockStart, blockSize));
+        allocatedBytes += blockSize;
+    }
+
+    @Override
+    public synchronized long allocate(long bytes, int headerSize, int alignment) {
+        final long offset = allocateFromFreeLists(bytes, headerSize, alignment);
+        return (offset != -1) ? offset : allocateFromTop(bytes, headerSize, alignment);
+    }
+
+    @Override
+    public synchronized boolean free(long offset) {
+        final Block block = allocatedBlocks.remove(offset);
+        if (block == null) {
+            return false;
+        }
+        allocatedBytes -= block.size;
+
+        long start = block.start;
+        long size = block.size;
+
+        // Coalesce with the previous free block
+        final Map.Entry<Long, Long> previous = freeBlocks.floorEntry(start);
+        if (previous != null && previous.getKey() + previous.getValue() == start) {
+            removeFreeBlock(previous.getKey(), previous.getValue());
+            start = previous.getKey();
+            size += previous.getValue();
+        }
+
+        // Coalesce with the next free block
+        final Long nextSize = freeBlocks.get(start + size);
+        if (nextSize != null) {
+            removeFreeBlock(start + size, nextSize);
+            size += nextSize;
+        }
+
+        if (start + size == heapTop) {
+            heapTop = start;
+        } else {
+            insertFreeBlock(start, size);
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    @Override
+    public synchronized long getFreeBytes() {
+        return freeListBytes + (heapLimit - heapTop);
+    }
+
+    @Override
+    public synchronized long getLargestFreeBlock() {
+        long largest = heapLimit - heapTop;
+        for (int sizeClass = NUM_SIZE_CLASSES - 1; sizeClass >= 0; sizeClass--) {
+            final TreeSet<Long> blocks = sizeClasses.get(sizeClass);
+            if (!blocks.isEmpty()) {
+                for (Long start : blocks) {
+                    largest = Math.max(largest, freeBlocks.get(start));
+                }
+                break;
+            }
+        }
+        return largest;
+    }
+
+    @Override
+    public synchronized long getHighWaterMark() {
+        return highWaterMark;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * School of Engineering, The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.runtime.mm;
+
+/**
+ * Allocation policy for the region of the device heap that holds arrays and
+ * objects. Memory managers of the different backends own the device buffer and
+ * the call-stack region, and delegate the placement of data buffers to an
+ * allocator. All offsets are relative to the start of the device buffer.
+ * <p>
+ * Allocators are shared by all the task-schedules that run on a device, which
+ * can allocate from several threads, so implementations must be thread-safe.
+ */
+public interface TornadoHeapAllocator {
+
+    /**
+     * Discards all the allocations and sets the region managed by the allocator.
+     *
+     * @param heapStart
+     *            first offset (inclusive) that can be handed out.
+     * @param heapLimit
+     *            last offset (exclusive) that can be handed out.
+     */
+    void reset(long heapStart, long heapLimit);
+
+    /**
+     * Reserves a region for a buffer of {@code bytes} bytes, whose first
+     * {@code headerSize} bytes are a header. The data that follows the header is
+     * aligned to {@code alignment}.
+     *
+     * @return the offset of the header, or -1 if the request does not fit in the
+     *         heap.
+     */
+    long allocate(long bytes, int headerSize, int alignment);
+
+    /**
+     * Returns a region previously obtained with
+     * {@link #allocate(long, int, int)} to the heap.
+     *
+     * @param offset
+     *            offset returned by the allocation.
+     * @return true if the region has been reclaimed.
+     */
+    boolean free(long offset);
+
+    /**
+     * @return number of bytes currently in use, including alignment padding.
+     */
+    long getAllocatedBytes();
+
+    /**
+     * @return number of bytes that can still be handed out.
+     */
+    long getFreeBytes();
+
+    /**
+     * @return size of the largest contiguous region that can be handed out.
+     */
+    long getLargestFreeBlock();
+
+    /**
+     * @return the maximum number of bytes, from the start of the heap, that have
+     *         been in use since the last reset.
+     */
+    long getHighWaterMark();
+
+    /**
+     * External fragmentation of the heap, computed as
+     * {@code 1 - largestFreeBlock / freeBytes}. A value of 0 means that all the
+     * free memory is contiguous.
+     */
+    default double getFragmentation() {
+        final long free = getFreeBytes();
+        return (free == 0) ? 0.0 : 1.0 - ((double) getLargestFreeBlock() / (double) free);
+    }
+
+}
@@ -0,0 +1,50 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * School of Engineering, The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.runtime.mm;
+
+import static uk.ac.manchester.tornado.runtime.common.TornadoOptions.HEAP_ALLOCATOR;
+
+import uk.ac.manchester.tornado.runtime.common.Tornado;
+
+public class TornadoHeapAllocators {
+
+    private static final String FREE_LIST_ALLOCATOR = "freelist";
+    private static final String BUMP_ALLOCATOR = "bump";
+
+    /**
+     * Creates the device heap allocator selected with
+     * {@code -Dtornado.heap.allocator=<freelist|bump>}.
+     */
+    public static TornadoHeapAllocator create() {
+        switch (HEAP_ALLOCATOR.toLowerCase()) {
+            case BUMP_ALLOCATOR:
+                return new BumpHeapAllocator();
+            case FREE_LIST_ALLOCATOR:
+                return new FreeListHeapAllocator();
+            default:
+                Tornado.warn("Unknown heap allocator %s. Using %s", HEAP_ALLOCATOR, FREE_LIST_ALLOCATOR);
+                return new FreeListHeapAllocator();
+        }
+    }
+}
@@ -33,6 +33,7 @@ import java.io.IOException;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.graalvm.compiler.nodes.StructuredGraph;
 
@@ -47,6 +48,7 @@ public class FeatureExtractionUtilities {
 
     private static final String FEATURES_DIRECTORY = Tornado.getProperty("tornado.features.dump.dir", "");
     private static final String LOOKUP_BUFFER_ADDRESS_NAME = "kernellookupBufferAddress";
+    private static final ConcurrentHashMap<String, LinkedHashMap<String, Integer>> extractedFeatures = new ConcurrentHashMap<>();
 
     private FeatureExtractionUtilities() {
     }
@@ -58,6 +60,7 @@ public class FeatureExtractionUtilities {
             HashMap<String, HashMap<String, Integer>> task = new HashMap<>();
             String fullName = getBaseClass(graph.method().getDeclaringClass().toClassName()) + "." + name;
             task.put(fullName, encodeFeatureMap(entry));
+            extractedFeatures.put(graph.method().format("%H.%n"), encodeFeatureMap(entry));
             JsonHandler jsonHandler = new JsonHandler();
             String json = jsonHandler.createJSon(encodeFeatureMap(entry), fullName, deviceContext);
             if (!FEATURES_DIRECTORY.isEmpty()) {
@@ -83,6 +86,17 @@ public class FeatureExtractionUtilities {
         }
     }
 
+    /**
+     * @param methodName
+     *            Fully qualified name of the method, such as
+     *            {@code uk.ac.manchester.Foo.bar}.
+     * @return the last features extracted for the method, or null if it has not
+     *         been compiled with {@code -Dtornado.feature.extraction=True}.
+     */
+    public static Map<String, Integer> getFeatures(String methodName) {
+        return extractedFeatures.get(methodName);
+    }
+
     private static String getBaseClass(String fullDeclaredClass) {
         String[] baseClass = fullDeclaredClass.split("\\.");
         String baseCl = baseClass[baseClass.length - 1];
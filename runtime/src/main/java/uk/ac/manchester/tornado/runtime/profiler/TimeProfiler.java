@@ -30,6 +30,10 @@ import uk.ac.manchester.tornado.api.profiler.TornadoProfiler;
 import uk.ac.manchester.tornado.runtime.common.RuntimeUtilities;
 import uk.ac.manchester.tornado.runtime.common.TornadoOptions;
 
+/**
+ * Timers of a task-schedule. Tasks can be compiled concurrently by the
+ * TornadoVM, so all the accesses to the timers are synchronized.
+ */
 public class TimeProfiler implements TornadoProfiler {
 
     private HashMap<ProfilerType, Long> profilerTime;
@@ -50,7 +54,7 @@ public class TimeProfiler implements TornadoProfiler {
     }
 
     @Override
-    public void addValueToMetric(ProfilerType type, String taskName, long value) {
+    public synchronized void addValueToMetric(ProfilerType type, String taskName, long value) {
         if (!taskThroughputMetrics.containsKey(taskName)) {
             taskThroughputMetrics.put(taskName, new HashMap<>());
         }
@@ -60,13 +64,13 @@ public class TimeProfiler implements TornadoProfiler {
     }
 
     @Override
-    public void start(ProfilerType type) {
+    public synchronized void start(ProfilerType type) {
         long start = System.nanoTime();
         profilerTime.put(type, start);
     }
 
     @Override
-    public void start(ProfilerType type, String taskName) {
+    public synchronized void start(ProfilerType type, String taskName) {
         long start = System.nanoTime();
         if (!taskTimers.containsKey(taskName)) {
             taskTimers.put(taskName, new HashMap<>());
@@ -77,7 +81,7 @@ public class TimeProfiler implements TornadoProfiler {
     }
 
     @Override
-    public void registerMethodHandle(ProfilerType type, String taskName, String methodName) {
+    public synchronized void registerMethodHandle(ProfilerType type, String taskName, String methodName) {
         if (!taskMethodNames.containsKey(taskName)) {
             taskMethodNames.put(taskName, new HashMap<>());
         }
@@ -87,7 +91,7 @@ public class TimeProfiler implements TornadoProfiler {
     }
 
     @Override
-    public void registerDeviceName(ProfilerType type, String taskName, String deviceInfo) {
+    public synchronized void registerDeviceName(ProfilerType type, String taskName, String deviceInfo) {
         if (!taskDeviceIdentifiers.containsKey(taskName)) {
             taskDeviceIdentifiers.put(taskName, new HashMap<>());
         }
@@ -97,7 +101,7 @@ public class TimeProfiler implements TornadoProfiler {
     }
 
     @Override
-    public void registerDeviceID(ProfilerType type, String taskName, String deviceID) {
+    public synchronized void registerDeviceID(ProfilerType type, String taskName, String deviceID) {
         if (!taskDeviceIdentifiers.containsKey(taskName)) {
             taskDeviceIdentifiers.put(taskName, new HashMap<>());
         }
@@ -107,7 +111,7 @@ public class TimeProfiler implements TornadoProfiler {
     }
 
     @Override
-    public void stop(ProfilerType type) {
+    public synchronized void stop(ProfilerType type) {
         long end = System.nanoTime();
         long start = profilerTime.get(type);
         long total = end - start;
@@ -115,7 +119,7 @@ public class TimeProfiler implements TornadoProfiler {
     }
 
     @Override
-    public void stop(ProfilerType type, String taskName) {
+    public synchronized void stop(ProfilerType type, String taskName) {
         long end = System.nanoTime();
         HashMap<ProfilerType, Long> profiledType = taskTimers.get(taskName);
         long start = profiledType.get(type);
@@ -125,7 +129,7 @@ public class TimeProfiler implements TornadoProfiler {
     }
 
     @Override
-    public long getTimer(ProfilerType type) {
+    public synchronized long getTimer(ProfilerType type) {
         if (!profilerTime.containsKey(type)) {
             return 0;
         }
@@ -133,7 +137,7 @@ public class TimeProfiler implements TornadoProfiler {
     }
 
     @Override
-    public long getTaskTimer(ProfilerType type, String taskName) {
+    public synchronized long getTaskTimer(ProfilerType type, String taskName) {
         if (!taskTimers.containsKey(taskName)) {
             return 0;
         }
@@ -144,12 +148,12 @@ public class TimeProfiler implements TornadoProfiler {
     }
 
     @Override
-    public void setTimer(ProfilerType type, long time) {
+    public synchronized void setTimer(ProfilerType type, long time) {
         profilerTime.put(type, time);
     }
 
     @Override
-    public void dump() {
+    public synchronized void dump() {
         for (ProfilerType p : profilerTime.keySet()) {
             System.out.println("[PROFILER] " + p.getDescription() + ": " + profilerTime.get(p));
         }
@@ -177,7 +181,7 @@ public class TimeProfiler implements TornadoProfiler {
     }
 
     @Override
-    public String createJson(StringBuffer json, String sectionName) {
+    public synchronized String createJson(StringBuffer json, String sectionName) {
         json.append("{\n");
         increaseIndent();
         json.append(indent.toString() + "\"" + sectionName + "\": " + "{\n");
@@ -224,13 +228,13 @@ public class TimeProfiler implements TornadoProfiler {
     }
 
     @Override
-    public void dumpJson(StringBuffer json, String id) {
+    public synchronized void dumpJson(StringBuffer json, String id) {
         String jsonContent = this.createJson(json, id);
         System.out.println(jsonContent);
     }
 
     @Override
-    public void clean() {
+    public synchronized void clean() {
         taskThroughputMetrics.clear();
         profilerTime.clear();
         taskTimers.clear();
@@ -238,7 +242,7 @@ public class TimeProfiler implements TornadoProfiler {
     }
 
     @Override
-    public void setTaskTimer(ProfilerType type, String taskID, long timer) {
+    public synchronized void setTaskTimer(ProfilerType type, String taskID, long timer) {
         if (!taskTimers.containsKey(taskID)) {
             taskTimers.put(taskID, new HashMap<>());
         }
@@ -246,7 +250,7 @@ public class TimeProfiler implements TornadoProfiler {
     }
 
     @Override
-    public void sum(ProfilerType acc, long value) {
+    public synchronized void sum(ProfilerType acc, long value) {
         long sum = getTimer(acc) + value;
         profilerTime.put(acc, sum);
     }
@@ -0,0 +1,174 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * School of Engineering, The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.runtime.sketcher;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+
+/**
+ * Cache of the sketches built by the {@link TornadoSketcher}. There is at most
+ * one sketch request for each method, driver and device, so concurrent callers
+ * wait for the sketch under construction instead of building it again. The
+ * number of sketches is bounded: once the bound is exceeded, the least
+ * recently used sketches that are already built are evicted. An evicted sketch
+ * is built again on its next lookup.
+ */
+public final class SketchCache {
+
+    private static final class Key {
+        private final ResolvedJavaMethod method;
+        private final int driverIndex;
+        private final int deviceIndex;
+
+        private Key(ResolvedJavaMethod method, int driverIndex, int deviceIndex) {
+            this.method = method;
+            this.driverIndex = driverIndex;
+            this.deviceIndex = deviceIndex;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return driverIndex == other.driverIndex && deviceIndex == other.deviceIndex && method.equals(other.method);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(method, driverIndex, deviceIndex);
+        }
+    }
+
+    private final int maxEntries;
+    private final LinkedHashMap<Key, SketchRequest> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param maxEntries
+     *            maximum number of sketches kept in the cache. A value of 0 or
+     *            less makes the cache unbounded.
+     */
+    SketchCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        // access-order iteration gives the least recently used entries first
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Returns the request that builds the sketch of the method for the given
+     * driver and device, or null if there is none. Lookups are not counted as
+     * hits: the request returned has been counted when it was registered.
+     */
+    synchronized SketchRequest get(ResolvedJavaMethod method, int driverIndex, int deviceIndex) {
+        return entries.get(new Key(method, driverIndex, deviceIndex));
+    }
+
+    /**
+     * Registers the request as the builder of its sketch unless another request
+     * for the same method, driver and device is already registered. Each
+     * registration counts as a hit if it reuses the registered request, or as a
+     * miss if the caller has to build the sketch.
+     *
+     * @return the request already registered, or null if the caller has to build
+     *         the sketch.
+     */
+    synchronized SketchRequest register(SketchRequest request) {
+        final Key key = new Key(request.resolvedMethod, request.meta.getDriverIndex(), request.meta.getDeviceIndex());
+        SketchRequest registered = entries.putIfAbsent(key, request);
+        if (registered != null) {
+            if (registered != request) {
+                hits.incrementAndGet();
+            }
+            return registered;
+        }
+        misses.incrementAndGet();
+        evict();
+        return null;
+    }
+
+    /**
+     * Removes a request whose sketch could not be built, so the next request for
+     * the same method builds it again.
+     */
+    synchronized void remove(SketchRequest request) {
+        final Key key = new Key(request.resolvedMethod, request.meta.getDriverIndex(), request.meta.getDeviceIndex());
+        entries.remove(key, request);
+    }
+
+    private void evict() {
+        if (maxEntries <= 0) {
+            return;
+        }
+        Iterator<Map.Entry<Key, SketchRequest>> iterator = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && iterator.hasNext()) {
+            // sketches under construction have threads waiting on them
+            if (iterator.next().getValue().isDone()) {
+                iterator.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("sketch cache: entries=%d/%d, hits=%d, misses=%d, evictions=%d", size(), maxEntries, getHits(), getMisses(), getEvictions());
+    }
+}
@@ -0,0 +1,599 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * School of Engineering, The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.runtime.sketcher;
+
+import static org.graalvm.compiler.phases.common.DeadCodeEliminationPhase.Optionality.Optional;
+import static uk.ac.manchester.tornado.runtime.TornadoCoreRuntime.getDebugContext;
+import static uk.ac.manchester.tornado.runtime.common.Tornado.info;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.graalvm.collections.EconomicMap;
+import org.graalvm.collections.Equivalence;
+import org.graalvm.collections.UnmodifiableEconomicMap;
+import org.graalvm.compiler.core.common.type.StampPair;
+import org.graalvm.compiler.debug.DebugContext;
+import org.graalvm.compiler.debug.GraalError;
+import org.graalvm.compiler.graph.CachedGraph;
+import org.graalvm.compiler.graph.Node;
+import org.graalvm.compiler.nodes.AbstractBeginNode;
+import org.graalvm.compiler.nodes.ConstantNode;
+import org.graalvm.compiler.nodes.EndNode;
+import org.graalvm.compiler.nodes.FixedNode;
+import org.graalvm.compiler.nodes.FixedWithNextNode;
+import org.graalvm.compiler.nodes.FrameState;
+import org.graalvm.compiler.nodes.IfNode;
+import org.graalvm.compiler.nodes.Invoke;
+import org.graalvm.compiler.nodes.LoopBeginNode;
+import org.graalvm.compiler.nodes.LoopEndNode;
+import org.graalvm.compiler.nodes.LoopExitNode;
+import org.graalvm.compiler.nodes.NodeView;
+import org.graalvm.compiler.nodes.ParameterNode;
+import org.graalvm.compiler.nodes.PhiNode;
+import org.graalvm.compiler.nodes.PiNode;
+import org.graalvm.compiler.nodes.ReturnNode;
+import org.graalvm.compiler.nodes.StartNode;
+import org.graalvm.compiler.nodes.StateSplit;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.ValueNode;
+import org.graalvm.compiler.nodes.ValuePhiNode;
+import org.graalvm.compiler.nodes.java.AccessIndexedNode;
+import org.graalvm.compiler.nodes.java.ArrayLengthNode;
+import org.graalvm.compiler.nodes.java.LoadIndexedNode;
+import org.graalvm.compiler.nodes.java.StoreIndexedNode;
+import org.graalvm.compiler.nodes.memory.MemoryKill;
+import org.graalvm.compiler.phases.common.DeadCodeEliminationPhase;
+
+import jdk.vm.ci.meta.JavaConstant;
+import jdk.vm.ci.meta.JavaKind;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import uk.ac.manchester.tornado.api.common.Access;
+import uk.ac.manchester.tornado.runtime.graal.nodes.ParallelOffsetNode;
+import uk.ac.manchester.tornado.runtime.graal.nodes.ParallelRangeNode;
+import uk.ac.manchester.tornado.runtime.tasks.meta.FusedTaskMetaData;
+
+/**
+ * Fuses the sketches of adjacent tasks of a task-schedule into the sketch of a
+ * single kernel.
+ * <p>
+ * A task is fused with the next one (the consumer) when both run a single 1D
+ * {@code @Parallel} loop over the same iteration space, and every array that
+ * is written by one of them and accessed by both is only accessed at the index
+ * of the parallel loop. Each thread then runs the same iterations of both loops,
+ * and it only reads the elements of the intermediate arrays that it has
+ * written itself, so the tasks do not need to be separated by a kernel
+ * boundary.
+ * <p>
+ * When the body of the parallel loop of the consumer is straight-line code, it
+ * is appended to the body of the parallel loop of the producer. The reads of
+ * the consumer are then replaced by the values stored by the producer in the
+ * same iteration, and the intermediate arrays that are no longer read, and that
+ * are neither streamed in or out nor used by other tasks, are removed from the
+ * kernel together with their stores. Otherwise, the consumer loop runs after the
+ * producer loop in the same kernel.
+ */
+public class SketchFusion {
+
+    private StructuredGraph graph;
+    private final List<Object> arguments;
+    private final List<Access> accesses;
+    private final List<Integer> sources;
+    private final List<ResolvedJavaMethod> methods;
+    private final StringBuilder layout;
+    private int numSources;
+
+    private SketchFusion(StructuredGraph graph, Object[] args, Access[] access) {
+        this.graph = graph;
+        this.arguments = new ArrayList<>(Arrays.asList(args));
+        this.accesses = new ArrayList<>();
+        this.sources = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            accesses.add(access[i]);
+            sources.add(i);
+        }
+        this.methods = new ArrayList<>();
+        this.methods.add(graph.method());
+        this.layout = new StringBuilder();
+        this.numSources = args.length;
+    }
+
+    /**
+     * Starts the fusion of a group of tasks with the sketch of its first task.
+     *
+     * @return the fusion, or null if the task cannot be fused with other tasks.
+     */
+    public static SketchFusion create(Sketch sketch, Object[] args) {
+        final StructuredGraph graph = (StructuredGraph) sketch.getGraph().getReadonlyCopy();
+        if (LoopShape.analyse(graph) == null) {
+            return null;
+        }
+        return new SketchFusion((StructuredGraph) graph.copy(getDebugContext()), args, sketch.getMeta().getArgumentsAccess());
+    }
+
+    /**
+     * Fuses the next task of the group into the kernel. The state of the fusion is
+     * left untouched when the task cannot be fused.
+     *
+     * @param sketch
+     *            sketch of the task.
+     * @param args
+     *            arguments of the task.
+     * @param isPrivate
+     *            tells whether an object is only used by the tasks of the group
+     *            and is neither streamed in nor out, so the kernel does not need to
+     *            keep it in memory.
+     * @return true if the task has been fused.
+     */
+    public boolean fuse(Sketch sketch, Object[] args, Predicate<Object> isPrivate) {
+        final StructuredGraph consumer = (StructuredGraph) sketch.getGraph().getReadonlyCopy();
+        try {
+            return fuse(consumer, args, sketch.getMeta().getArgumentsAccess(), isPrivate);
+        } catch (GraalError | ClassCastException e) {
+            // The graphs do not have the shape expected by the fusion
+            info("task %s is not fused with %s: %s", consumer.method().getName(), graph.method().getName(), e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean fuse(StructuredGraph consumer, Object[] consumerArgs, Access[] consumerAccess, Predicate<Object> isPrivate) {
+        final StructuredGraph fused = (StructuredGraph) graph.copy(getDebugContext());
+        final LoopShape producerLoop = LoopShape.analyse(fused);
+        final LoopShape consumerLoop = LoopShape.analyse(consumer);
+        if (producerLoop == null || consumerLoop == null || !producerLoop.hasSameIterationSpace(arguments.toArray(), consumerLoop, consumerArgs)) {
+            return false;
+        }
+
+        final List<Object> newArguments = new ArrayList<>(arguments);
+        final List<Access> newAccesses = new ArrayList<>(accesses);
+        final List<Integer> newSources = new ArrayList<>(sources);
+        final Set<ParameterNode> intermediates = new HashSet<>();
+        final EconomicMap<Node, Node> replacements = EconomicMap.create(Equivalence.IDENTITY);
+
+        // Parameters of the consumer that receive an object of the kernel are
+        // mapped to the parameter of the kernel
+        for (ParameterNode parameter : consumer.getNodes(ParameterNode.TYPE)) {
+            final int index = parameter.index();
+            final Object arg = consumerArgs[index];
+            final int shared = isPrimitive(arg) ? -1 : indexOfReference(newArguments, arg);
+            if (shared != -1) {
+                final ParameterNode target = getOrCreateParameter(fused, shared, parameter);
+                if (shared < arguments.size()) {
+                    if ((isWritten(accesses.get(shared)) || isWritten(consumerAccess[index]))
+                            && (!isAccessedAtIndex(target, producerLoop.phi) || !isAccessedAtIndex(parameter, consumerLoop.phi))) {
+                        info("task %s is not fused with %s: the elements of a shared array are not accessed by the same threads", consumer.method().getName(), graph.method().getName());
+                        return false;
+                    }
+                    if (accesses.get(shared) == Access.WRITE && isPrivate.test(arg)) {
+                        intermediates.add(target);
+                    }
+                }
+                newAccesses.set(shared, merge(newAccesses.get(shared), consumerAccess[index]));
+                replacements.put(parameter, target);
+            } else if (parameter.hasUsages()) {
+                final int newIndex = newArguments.size();
+                newArguments.add(arg);
+                newAccesses.add(consumerAccess[index]);
+                newSources.add(numSources + index);
+                replacements.put(parameter, fused.addWithoutUnique(new ParameterNode(newIndex, StampPair.createSingle(parameter.stamp(NodeView.DEFAULT)))));
+            }
+        }
+
+        final boolean merge = consumerLoop.isStraightLine();
+        final Set<Node> excluded = new HashSet<>();
+        excluded.add(consumer.start());
+        excluded.addAll(consumer.getNodes(ParameterNode.TYPE).snapshot());
+        if (merge) {
+            excluded.addAll(Arrays.asList(consumerLoop.loopBegin, consumerLoop.phi, consumerLoop.condition, consumerLoop.bodyBegin, consumerLoop.loopEnd, consumerLoop.loopExit,
+                    consumerLoop.loopBegin.forwardEnd(), consumerLoop.ret));
+            replacements.put(consumer.start(), AbstractBeginNode.prevBegin(producerLoop.loopBegin.forwardEnd()));
+            replacements.put(consumerLoop.loopBegin, producerLoop.loopBegin);
+            replacements.put(consumerLoop.phi, producerLoop.phi);
+            replacements.put(consumerLoop.bodyBegin, producerLoop.bodyBegin);
+            replacements.put(consumerLoop.loopExit, AbstractBeginNode.prevBegin(producerLoop.ret));
+        } else {
+            replacements.put(consumer.start(), AbstractBeginNode.prevBegin(producerLoop.ret));
+        }
+
+        final List<Node> nodes = new ArrayList<>();
+        for (Node node : consumer.getNodes()) {
+            if (!excluded.contains(node)) {
+                nodes.add(node);
+            }
+        }
+        final UnmodifiableEconomicMap<Node, Node> duplicates = fused.addDuplicates(nodes, consumer, nodes.size(), replacements);
+
+        if (merge) {
+            // Code before the loop, the loop body and the code after the loop
+            insertBefore(duplicates, consumer.start(), consumerLoop.loopBegin.forwardEnd(), producerLoop.loopBegin.forwardEnd());
+            insertBefore(duplicates, consumerLoop.bodyBegin, consumerLoop.loopEnd, producerLoop.loopEnd);
+            insertBefore(duplicates, consumerLoop.loopExit, consumerLoop.ret, producerLoop.ret);
+            forwardStores(fused, producerLoop.phi, consumer, duplicates);
+        } else {
+            final FixedWithNextNode last = (FixedWithNextNode) producerLoop.ret.predecessor();
+            last.setNext((FixedNode) duplicates.get(consumer.start().next()));
+            producerLoop.ret.safeDelete();
+        }
+
+        final Set<ParameterNode> removed = new HashSet<>();
+        for (ParameterNode intermediate : intermediates) {
+            if (merge && removeIntermediate(fused, intermediate, newArguments.get(intermediate.index()))) {
+                removed.add(intermediate);
+            }
+        }
+        new DeadCodeEliminationPhase(Optional).apply(fused);
+        compactParameters(fused, removed, newArguments, newAccesses, newSources);
+
+        getDebugContext().dump(DebugContext.BASIC_LEVEL, fused, "After fusing " + consumer.method().getName());
+        info("fused task %s into %s (%s, %d intermediate arrays removed)", consumer.method().getName(), graph.method().getName(), merge ? "merged loops" : "sequential loops", removed.size());
+
+        graph = fused;
+        arguments.clear();
+        arguments.addAll(newArguments);
+        accesses.clear();
+        accesses.addAll(newAccesses);
+        sources.clear();
+        sources.addAll(newSources);
+        methods.add(consumer.method());
+        layout.append(merge ? "merge" : "sequence").append(newSources).append(';');
+        numSources += consumerArgs.length;
+        return true;
+    }
+
+    /**
+     * @return the number of tasks of the group.
+     */
+    public int getNumTasks() {
+        return methods.size();
+    }
+
+    public Object[] getArguments() {
+        return arguments.toArray();
+    }
+
+    /**
+     * For each argument of the kernel, returns the position of the argument in
+     * the concatenation of the arguments of all the tasks of the group.
+     */
+    public int[] getSources() {
+        return sources.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Builds the sketch of the fused kernel and attaches it to the meta-data of
+     * the fused task.
+     */
+    public Sketch install(FusedTaskMetaData meta) {
+        final Access[] access = meta.getArgumentsAccess();
+        for (int i = 0; i < access.length; i++) {
+            access[i] = accesses.get(i);
+        }
+        graph.maybeCompress();
+        final Sketch sketch = new Sketch(CachedGraph.fromReadonlyCopy(graph), meta);
+        meta.setSketch(sketch, methods.toArray(new ResolvedJavaMethod[0]), layout.toString());
+        return sketch;
+    }
+
+    /**
+     * Inserts the duplicates of the straight-line code between {@code begin} and
+     * {@code end} (both excluded) before the node {@code before}.
+     */
+    private static void insertBefore(UnmodifiableEconomicMap<Node, Node> duplicates, FixedWithNextNode begin, FixedNode end, FixedNode before) {
+        if (begin.next() == end) {
+            return;
+        }
+        final FixedNode first = (FixedNode) duplicates.get(begin.next());
+        final FixedWithNextNode last = (FixedWithNextNode) duplicates.get(end.predecessor());
+        final FixedWithNextNode predecessor = (FixedWithNextNode) before.predecessor();
+        predecessor.setNext(first);
+        last.setNext(before);
+    }
+
+    /**
+     * Replaces the loads of the consumer by the value stored in the same array
+     * and at the same index by the straight-line code that precedes them in the
+     * loop body.
+     */
+    private static void forwardStores(StructuredGraph fused, PhiNode phi, StructuredGraph consumer, UnmodifiableEconomicMap<Node, Node> duplicates) {
+        for (LoadIndexedNode original : consumer.getNodes().filter(LoadIndexedNode.class)) {
+            final LoadIndexedNode load = (LoadIndexedNode) duplicates.get(original);
+            if (load == null || !load.isAlive() || load.index() != phi || !isForwardable(load.elementKind())) {
+                continue;
+            }
+            final ValueNode array = unwrap(load.array());
+            for (Node node = load.predecessor(); node instanceof FixedWithNextNode && !(node instanceof AbstractBeginNode); node = node.predecessor()) {
+                if (node instanceof StoreIndexedNode && unwrap(((StoreIndexedNode) node).array()) == array) {
+                    final StoreIndexedNode store = (StoreIndexedNode) node;
+                    if (store.index() == phi && store.elementKind() == load.elementKind()) {
+                        load.replaceAtUsages(store.value());
+                        fused.removeFixed(load);
+                    }
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes an intermediate array that is no longer read by the kernel: its
+     * stores are dead and its length is a constant.
+     *
+     * @return true if the array has been removed.
+     */
+    private static boolean removeIntermediate(StructuredGraph fused, ParameterNode parameter, Object array) {
+        final List<ValueNode> aliases = new ArrayList<>();
+        aliases.add(parameter);
+        for (int i = 0; i < aliases.size(); i++) {
+            for (Node usage : aliases.get(i).usages()) {
+                if (usage instanceof PiNode) {
+                    aliases.add((PiNode) usage);
+                } else if (usage instanceof StoreIndexedNode) {
+                    if (((StoreIndexedNode) usage).value() == aliases.get(i)) {
+                        return false;
+                    }
+                } else if (!(usage instanceof ArrayLengthNode || usage instanceof FrameState)) {
+                    return false;
+                }
+            }
+        }
+
+        final ConstantNode nullConstant = ConstantNode.defaultForKind(JavaKind.Object, fused);
+        for (ValueNode alias : aliases) {
+            for (Node usage : alias.usages().snapshot()) {
+                if (usage instanceof StoreIndexedNode) {
+                    fused.removeFixed((StoreIndexedNode) usage);
+                } else if (usage instanceof ArrayLengthNode) {
+                    fused.replaceFixedWithFloating((ArrayLengthNode) usage, ConstantNode.forInt(Array.getLength(array), fused));
+                } else if (usage instanceof FrameState) {
+                    usage.replaceAllInputs(alias, nullConstant);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes the parameters of the intermediate arrays and renumbers the rest of
+     * parameters of the kernel.
+     */
+    private static void compactParameters(StructuredGraph fused, Set<ParameterNode> removed, List<Object> args, List<Access> access, List<Integer> sourceIndexes) {
+        if (removed.isEmpty()) {
+            return;
+        }
+        final ParameterNode[] parameters = new ParameterNode[args.size()];
+        for (ParameterNode parameter : fused.getNodes(ParameterNode.TYPE)) {
+            parameters[parameter.index()] = parameter;
+        }
+
+        int next = 0;
+        for (int i = 0; i < parameters.length; i++) {
+            final ParameterNode parameter = parameters[i];
+            if (parameter != null && removed.contains(parameter) && parameter.hasNoUsages()) {
+                parameter.safeDelete();
+                args.remove(next);
+                access.remove(next);
+                sourceIndexes.remove(next);
+                continue;
+            }
+            if (parameter != null && next != i) {
+                final ParameterNode renumbered = fused.addWithoutUnique(new ParameterNode(next, StampPair.createSingle(parameter.stamp(NodeView.DEFAULT))));
+                parameter.replaceAtUsages(renumbered);
+                parameter.safeDelete();
+            }
+            next++;
+        }
+    }
+
+    private static ParameterNode getOrCreateParameter(StructuredGraph fused, int index, ParameterNode template) {
+        final ParameterNode parameter = fused.getParameter(index);
+        if (parameter != null) {
+            return parameter;
+        }
+        return fused.addWithoutUnique(new ParameterNode(index, StampPair.createSingle(template.stamp(NodeView.DEFAULT))));
+    }
+
+    /**
+     * Checks that an array is only accessed at the index given by the induction
+     * variable of the parallel loop.
+     */
+    private static boolean isAccessedAtIndex(ValueNode array, PhiNode phi) {
+        final List<ValueNode> aliases = new ArrayList<>();
+        aliases.add(array);
+        for (int i = 0; i < aliases.size(); i++) {
+            final ValueNode alias = aliases.get(i);
+            for (Node usage : alias.usages()) {
+                if (usage instanceof PiNode) {
+                    aliases.add((PiNode) usage);
+                } else if (usage instanceof AccessIndexedNode) {
+                    final AccessIndexedNode access = (AccessIndexedNode) usage;
+                    if (access.array() != alias || access.index() != phi) {
+                        return false;
+                    }
+                    if (usage instanceof StoreIndexedNode && ((StoreIndexedNode) usage).value() == alias) {
+                        return false;
+                    }
+                } else if (!(usage instanceof ArrayLengthNode || usage instanceof FrameState)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static Access merge(Access first, Access second) {
+        if (first == Access.NONE) {
+            return second;
+        } else if (second == Access.NONE || first == Access.WRITE || first == Access.READ_WRITE) {
+            // The values read by the second task are the ones written by the first
+            return first;
+        } else if (first == Access.READ && second == Access.READ) {
+            return Access.READ;
+        } else if (first == Access.READ && isWritten(second)) {
+            return Access.READ_WRITE;
+        }
+        return Access.UNKNOWN;
+    }
+
+    private static boolean isWritten(Access access) {
+        return access != Access.READ && access != Access.NONE;
+    }
+
+    private static boolean isForwardable(JavaKind kind) {
+        // Narrow types are truncated when they are stored
+        return kind == JavaKind.Int || kind == JavaKind.Long || kind == JavaKind.Float || kind == JavaKind.Double;
+    }
+
+    private static boolean isPrimitive(Object arg) {
+        return arg instanceof Number || arg instanceof Boolean || arg instanceof Character;
+    }
+
+    private static int indexOfReference(List<Object> list, Object object) {
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i) == object) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static ValueNode unwrap(ValueNode value) {
+        ValueNode node = value;
+        while (node instanceof PiNode) {
+            node = ((PiNode) node).object();
+        }
+        return node;
+    }
+
+    /**
+     * Control flow of a sketch with a single 1D parallel loop.
+     */
+    private static final class LoopShape {
+
+        private StartNode start;
+        private LoopBeginNode loopBegin;
+        private ValuePhiNode phi;
+        private IfNode condition;
+        private AbstractBeginNode bodyBegin;
+        private LoopEndNode loopEnd;
+        private LoopExitNode loopExit;
+        private ReturnNode ret;
+        private ParallelRangeNode range;
+
+        static LoopShape analyse(StructuredGraph graph) {
+            if (graph.getNodes(ReturnNode.TYPE).count() != 1 || graph.getNodes().filter(LoopBeginNode.class).count() != 1 || graph.getNodes().filter(ParallelRangeNode.class).count() != 1) {
+                return null;
+            }
+            for (Node node : graph.getNodes()) {
+                if (node instanceof Invoke || (node instanceof MemoryKill && !(node instanceof StartNode))
+                        || (node instanceof StateSplit && ((StateSplit) node).hasSideEffect() && !(node instanceof StoreIndexedNode))) {
+                    return null;
+                }
+            }
+
+            final LoopShape shape = new LoopShape();
+            shape.start = graph.start();
+            shape.ret = graph.getNodes(ReturnNode.TYPE).first();
+            shape.range = graph.getNodes().filter(ParallelRangeNode.class).first();
+            shape.loopBegin = graph.getNodes().filter(LoopBeginNode.class).first();
+            if (shape.range.index() != 0 || shape.ret.result() != null || shape.loopBegin.loopEnds().count() != 1 || shape.loopBegin.loopExits().count() != 1
+                    || shape.loopBegin.phis().count() != 1) {
+                return null;
+            }
+
+            final PhiNode phi = shape.loopBegin.phis().first();
+            if (!(phi instanceof ValuePhiNode) || phi.valueAt(0) != shape.range.offset() || !(shape.loopBegin.next() instanceof IfNode)) {
+                return null;
+            }
+            shape.phi = (ValuePhiNode) phi;
+            shape.condition = (IfNode) shape.loopBegin.next();
+            shape.loopEnd = shape.loopBegin.loopEnds().first();
+            shape.loopExit = shape.loopBegin.loopExits().first();
+            if (shape.condition.trueSuccessor() == shape.loopExit) {
+                shape.bodyBegin = shape.condition.falseSuccessor();
+            } else if (shape.condition.falseSuccessor() == shape.loopExit) {
+                shape.bodyBegin = shape.condition.trueSuccessor();
+            } else {
+                return null;
+            }
+            return shape;
+        }
+
+        /**
+         * The loop body and the code before and after the loop do not branch, so
+         * they can be inserted in the code of another kernel.
+         */
+        boolean isStraightLine() {
+            return loopExit.proxies().isEmpty() && isStraightLine(start, loopBegin.forwardEnd()) && isStraightLine(bodyBegin, loopEnd) && isStraightLine(loopExit, ret);
+        }
+
+        private static boolean isStraightLine(FixedWithNextNode begin, FixedNode end) {
+            FixedNode node = begin.next();
+            while (node != end) {
+                if (!(node instanceof FixedWithNextNode) || node instanceof AbstractBeginNode || node instanceof EndNode) {
+                    return false;
+                }
+                node = ((FixedWithNextNode) node).next();
+            }
+            return true;
+        }
+
+        boolean hasSameIterationSpace(Object[] args, LoopShape other, Object[] otherArgs) {
+            return isSameValue(resolve(range.value(), args), resolve(other.range.value(), otherArgs)) //
+                    && isSameValue(resolve(range.offset().value(), args), resolve(other.range.offset().value(), otherArgs)) //
+                    && isSameValue(resolve(range.stride().value(), args), resolve(other.range.stride().value(), otherArgs));
+        }
+
+        private static boolean isSameValue(Long value, Long other) {
+            return value != null && value.equals(other);
+        }
+
+        /**
+         * Resolves the value of a loop bound with the arguments of the task.
+         *
+         * @return the value, or null if it cannot be resolved.
+         */
+        private static Long resolve(ValueNode value, Object[] args) {
+            final ValueNode node = unwrap(value);
+            if (node instanceof ConstantNode) {
+                final JavaConstant constant = ((ConstantNode) node).asJavaConstant();
+                return (constant != null && constant.getJavaKind().isNumericInteger()) ? constant.asLong() : null;
+            } else if (node instanceof ParameterNode) {
+                final Object arg = args[((ParameterNode) node).index()];
+                return (arg instanceof Integer || arg instanceof Long || arg instanceof Short || arg instanceof Byte) ? ((Number) arg).longValue() : null;
+            } else if (node instanceof ArrayLengthNode) {
+                final ValueNode array = unwrap(((ArrayLengthNode) node).array());
+                if (array instanceof ParameterNode) {
+                    final Object arg = args[((ParameterNode) array).index()];
+                    return (arg != null && arg.getClass().isArray()) ? (long) Array.getLength(arg) : null;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -32,10 +32,11 @@ import org.graalvm.compiler.phases.util.Providers;
 import uk.ac.manchester.tornado.runtime.graal.compiler.TornadoSketchTier;
 import uk.ac.manchester.tornado.runtime.tasks.meta.TaskMetaData;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
-
-import static uk.ac.manchester.tornado.api.exceptions.TornadoInternalError.unimplemented;
+import java.util.concurrent.TimeoutException;
 
 public class SketchRequest implements Future<Sketch>, Runnable {
 
@@ -45,7 +46,10 @@ public class SketchRequest implements Future<Sketch>, Runnable {
     final ResolvedJavaMethod resolvedMethod;
     final PhaseSuite<HighTierContext> graphBuilderSuite;
     final TornadoSketchTier sketchTier;
-    public Sketch result;
+    public volatile Sketch result;
+    private volatile Throwable failure;
+    private volatile SketchRequest delegate;
+    private final CountDownLatch done = new CountDownLatch(1);
 
     public SketchRequest(TaskMetaData meta, ResolvedJavaMethod resolvedMethod, Providers providers, PhaseSuite<HighTierContext> graphBuilderSuite, TornadoSketchTier sketchTier) {
         this.resolvedMethod = resolvedMethod;
@@ -65,18 +69,49 @@ public class SketchRequest implements Future<Sketch>, Runnable {
         TornadoSketcher.buildSketch(this);
     }
 
+    void complete(Sketch sketch) {
+        result = sketch;
+        done.countDown();
+    }
+
+    void completeExceptionally(Throwable e) {
+        failure = e;
+        done.countDown();
+    }
+
+    /**
+     * Completes the request with the sketch of another request for the same
+     * method and device, which was registered first and builds it.
+     */
+    void forwardTo(SketchRequest registered) {
+        delegate = registered;
+        done.countDown();
+    }
+
     @Override
-    public Sketch get() throws InterruptedException {
-        while (!isDone()) {
-            Thread.sleep(100);
+    public Sketch get() throws InterruptedException, ExecutionException {
+        done.await();
+        if (delegate != null) {
+            return delegate.get();
+        }
+        if (failure != null) {
+            throw new ExecutionException(failure);
         }
         return result;
     }
 
     @Override
-    public Sketch get(long timeout, TimeUnit unit) {
-        unimplemented();
-        return null;
+    public Sketch get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!done.await(timeout, unit)) {
+            throw new TimeoutException();
+        }
+        if (delegate != null) {
+            return delegate.get(timeout, unit);
+        }
+        if (failure != null) {
+            throw new ExecutionException(failure);
+        }
+        return result;
     }
 
     @Override
@@ -86,6 +121,6 @@ public class SketchRequest implements Future<Sketch>, Runnable {
 
     @Override
     public boolean isDone() {
-        return result != null;
+        return done.getCount() == 0 && (delegate == null || delegate.isDone());
     }
 }
@@ -32,16 +32,12 @@ import static uk.ac.manchester.tornado.api.exceptions.TornadoInternalError.guara
 import static uk.ac.manchester.tornado.runtime.TornadoCoreRuntime.getDebugContext;
 import static uk.ac.manchester.tornado.runtime.TornadoCoreRuntime.getOptions;
 import static uk.ac.manchester.tornado.runtime.TornadoCoreRuntime.getTornadoExecutor;
+import static uk.ac.manchester.tornado.runtime.TornadoCoreRuntime.getTornadoRuntime;
 import static uk.ac.manchester.tornado.runtime.common.Tornado.fatal;
 import static uk.ac.manchester.tornado.runtime.common.Tornado.info;
 
-import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.graalvm.compiler.debug.DebugCloseable;
@@ -62,38 +58,21 @@ import jdk.vm.ci.meta.ResolvedJavaMethod;
 import uk.ac.manchester.tornado.api.exceptions.TornadoBailoutRuntimeException;
 import uk.ac.manchester.tornado.api.exceptions.TornadoInternalError;
 import uk.ac.manchester.tornado.api.exceptions.TornadoRuntimeException;
+import uk.ac.manchester.tornado.runtime.TornadoAcceleratorDriver;
 import uk.ac.manchester.tornado.runtime.common.Tornado;
+import uk.ac.manchester.tornado.runtime.common.TornadoOptions;
 import uk.ac.manchester.tornado.runtime.graal.compiler.TornadoCompilerIdentifier;
 import uk.ac.manchester.tornado.runtime.graal.compiler.TornadoSketchTier;
+import uk.ac.manchester.tornado.runtime.graal.compiler.TornadoSuitesProvider;
 import uk.ac.manchester.tornado.runtime.graal.phases.TornadoSketchTierContext;
+import uk.ac.manchester.tornado.runtime.tasks.meta.FusedTaskMetaData;
 import uk.ac.manchester.tornado.runtime.tasks.meta.TaskMetaData;
 
 public class TornadoSketcher {
 
-    private static class TornadoSketcherCacheEntry {
-
-        private final int driverIndex;
-        private final int deviceIndex;
-        private final Future<Sketch> sketchFuture;
-
-        private TornadoSketcherCacheEntry(int driverIndex, int deviceIndex, Future<Sketch> sketchFuture) {
-            this.driverIndex = driverIndex;
-            this.deviceIndex = deviceIndex;
-            this.sketchFuture = sketchFuture;
-        }
-
-        public boolean matchesDriverAndDevice(int driverIndex, int deviceIndex) {
-            return this.driverIndex == driverIndex && this.deviceIndex == deviceIndex;
-        }
-
-        public Future<Sketch> getSketchFuture() {
-            return sketchFuture;
-        }
-    }
-
     private static final AtomicInteger sketchId = new AtomicInteger(0);
 
-    private static final Map<ResolvedJavaMethod, List<TornadoSketcherCacheEntry>> cache = new ConcurrentHashMap<>();
+    private static final SketchCache cache = new SketchCache(TornadoOptions.SKETCHER_CACHE_SIZE);
 
     private static final TimerKey Sketcher = DebugContext.timer("Sketcher");
 
@@ -120,49 +99,58 @@ public class TornadoSketcher {
         openCLTokens.add("complex");
     }
 
-    private static boolean cacheContainsSketch(ResolvedJavaMethod method, int driverIndex, int deviceIndex) {
-        List<TornadoSketcherCacheEntry> entries = cache.get(method);
-        if (entries == null) {
-            return false;
-        }
-
-        for (TornadoSketcherCacheEntry entry : entries) {
-            if (entry.matchesDriverAndDevice(driverIndex, deviceIndex)) {
-                return true;
+    public static Sketch lookup(ResolvedJavaMethod resolvedMethod, TaskMetaData meta) {
+        if (meta instanceof FusedTaskMetaData) {
+            // The kernel of a fused task is rooted at the method of its first task
+            final FusedTaskMetaData fusedMeta = (FusedTaskMetaData) meta;
+            if (fusedMeta.getSketch() != null && resolvedMethod.equals(fusedMeta.getMethods()[0])) {
+                return fusedMeta.getSketch();
             }
         }
-        return false;
-    }
-
-    public static Sketch lookup(ResolvedJavaMethod resolvedMethod, int driverIndex, int deviceIndex) {
-        Sketch sketch = null;
-        guarantee(cache.containsKey(resolvedMethod), "cache miss for: %s", resolvedMethod.getName());
+        SketchRequest request = cache.get(resolvedMethod, meta.getDriverIndex(), meta.getDeviceIndex());
+        if (request == null) {
+            // The sketch has been evicted from the cache or the task has been
+            // moved to another device since it was sketched
+            TornadoAcceleratorDriver driver = getTornadoRuntime().getDriver(meta.getDriverIndex());
+            TornadoSuitesProvider suites = driver.getSuitesProvider();
+            request = buildSketch(new SketchRequest(meta, resolvedMethod, driver.getProviders(), suites.getGraphBuilderSuite(), suites.getSketchTier()));
+        }
         try {
-            List<TornadoSketcherCacheEntry> entries = cache.get(resolvedMethod);
-            for (TornadoSketcherCacheEntry entry : entries) {
-                if (entry.matchesDriverAndDevice(driverIndex, deviceIndex)) {
-                    sketch = entry.getSketchFuture().get();
-                    break;
-                }
-            }
-            guarantee(sketch != null, "No sketch available for %d:%d %s", driverIndex, deviceIndex, resolvedMethod.getName());
+            Sketch sketch = request.get();
+            guarantee(sketch != null, "No sketch available for %d:%d %s", meta.getDriverIndex(), meta.getDeviceIndex(), resolvedMethod.getName());
+            return sketch;
         } catch (InterruptedException | ExecutionException e) {
             throw new TornadoInternalError(e);
         }
-        return sketch;
     }
 
-    static void buildSketch(SketchRequest request) {
-        if (cacheContainsSketch(request.resolvedMethod, request.meta.getDriverIndex(), request.meta.getDeviceIndex())) {
-            return;
+    public static SketchCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Builds the sketch of the request unless another request for the same
+     * method and device has been registered before. In that case, the request is
+     * forwarded to the registered one, so both complete with the same sketch.
+     *
+     * @return the request that builds the sketch.
+     */
+    static SketchRequest buildSketch(SketchRequest request) {
+        SketchRequest registered = cache.register(request);
+        if (registered != null) {
+            if (registered != request) {
+                request.forwardTo(registered);
+            }
+            return registered;
         }
-        List<TornadoSketcherCacheEntry> sketches = cache.computeIfAbsent(request.resolvedMethod, k -> new ArrayList<>());
-        sketches.add(new TornadoSketcherCacheEntry(request.meta.getDriverIndex(), request.meta.getDeviceIndex(), request));
         try (DebugContext.Scope ignored = getDebugContext().scope("SketchCompiler")) {
-            request.result = buildSketch(request.meta, request.resolvedMethod, request.providers, request.graphBuilderSuite, request.sketchTier);
+            request.complete(buildSketch(request.meta, request.resolvedMethod, request.providers, request.graphBuilderSuite, request.sketchTier));
         } catch (Throwable e) {
+            cache.remove(request);
+            request.completeExceptionally(e);
             throw getDebugContext().handle(e);
         }
+        return request;
     }
 
     private static Sketch buildSketch(TaskMetaData meta, ResolvedJavaMethod resolvedMethod, Providers providers, PhaseSuite<HighTierContext> graphBuilderSuite, TornadoSketchTier sketchTier) {
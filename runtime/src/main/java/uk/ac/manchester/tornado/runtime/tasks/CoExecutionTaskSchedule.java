@@ -0,0 +1,425 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * School of Engineering, The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.runtime.tasks;
+
+import static uk.ac.manchester.tornado.runtime.TornadoCoreRuntime.getTornadoExecutor;
+import static uk.ac.manchester.tornado.runtime.TornadoCoreRuntime.getTornadoRuntime;
+import static uk.ac.manchester.tornado.runtime.common.Tornado.info;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import uk.ac.manchester.tornado.api.common.SchedulableTask;
+import uk.ac.manchester.tornado.api.common.TaskPackage;
+import uk.ac.manchester.tornado.api.exceptions.TornadoRuntimeException;
+import uk.ac.manchester.tornado.api.runtime.TornadoRuntime;
+import uk.ac.manchester.tornado.runtime.common.BatchedStorage;
+import uk.ac.manchester.tornado.runtime.common.TornadoOptions;
+import uk.ac.manchester.tornado.runtime.sketcher.Sketch;
+import uk.ac.manchester.tornado.runtime.sketcher.TornadoSketcher;
+
+/**
+ * Co-execution of a task-schedule: the iteration space is split in contiguous
+ * partitions, one per device of the default driver plus one for the host, and
+ * all of them are computed at the same time. Each device runs an internal
+ * task-schedule that only copies and computes its partition, as a batch of
+ * the whole iteration space, and copies its part of the outputs back to the
+ * host objects. The host runs the sequential implementation of the tasks over
+ * copies of its part of the objects.
+ * <p>
+ * The kernels of a partition see the loop index within the partition, and the
+ * host sees the index within its slice of the objects. Partitions are therefore
+ * only used when every task is element-wise and computes the same elements over
+ * a slice of the objects. Otherwise, a single device computes the whole
+ * iteration space.
+ * <p>
+ * The iteration space is given by the shortest output object. As with batch
+ * processing, objects whose length is a multiple of the iteration space are
+ * split, and the rest of objects are copied as a whole to every device.
+ * <p>
+ * Partitions are either static, or adapted to the throughput (iterations per
+ * second) measured for each device in the previous executions.
+ */
+class CoExecutionTaskSchedule {
+
+    private static final int DEFAULT_DRIVER_INDEX = 0;
+
+    /**
+     * Partitions are multiples of this number of iterations, except the one that
+     * takes the remaining iterations.
+     */
+    private static final long GRANULARITY = 64;
+
+    /**
+     * Weight of the last measurement in the throughput of each device.
+     */
+    private static final double SMOOTHING = 0.5;
+
+    /**
+     * Adaptive partitions are only updated when a partition changes by more than
+     * this fraction of the iteration space, because a new partition requires new
+     * TornadoVM bytecodes and copying the inputs again.
+     */
+    private static final double REPARTITION_THRESHOLD = 0.02;
+
+    private final String id;
+    private final List<TaskPackage> taskPackages;
+    private final List<Object> streamInObjects;
+    private final List<Object> streamOutObjects;
+
+    private final int numDevices;
+    private final boolean elementWise;
+    private final boolean useHost;
+    private final long iterationSpace;
+    private final TornadoTaskSchedule[] schedules;
+
+    private final long[] firstIterations;
+    private final long[] numIterations;
+    private final long[] elapsedTimes;
+    private final double[] throughputs;
+    private float[] lastRatios;
+    private int executions;
+
+    CoExecutionTaskSchedule(String id, List<TaskPackage> taskPackages, List<Object> streamInObjects, List<Object> streamOutObjects) {
+        this.id = id;
+        this.taskPackages = taskPackages;
+        this.streamInObjects = streamInObjects;
+        this.streamOutObjects = streamOutObjects;
+        this.numDevices = getTornadoRuntime().getDriver(DEFAULT_DRIVER_INDEX).getDeviceCount();
+        this.iterationSpace = computeIterationSpace(streamOutObjects);
+        this.schedules = new TornadoTaskSchedule[numDevices];
+        this.elementWise = areTasksElementWise();
+        this.useHost = TornadoOptions.CO_EXECUTION_HOST && elementWise && hasPrimitiveArrayOutputs();
+
+        final int participants = getNumParticipants();
+        this.firstIterations = new long[participants];
+        this.numIterations = new long[participants];
+        this.elapsedTimes = new long[participants];
+        this.throughputs = new double[participants];
+    }
+
+    /**
+     * The iteration space is the length of the shortest output.
+     */
+    private static long computeIterationSpace(List<Object> outputs) {
+        long iterationSpace = -1;
+        for (Object output : outputs) {
+            long length;
+            if (output.getClass().isArray()) {
+                length = Array.getLength(output);
+            } else if (BatchedStorage.isBatchedStorage(output)) {
+                length = BatchedStorage.getOuterDimension(output);
+            } else {
+                throw new TornadoRuntimeException("[UNSUPPORTED] Co-execution with output objects of type " + output.getClass().getName());
+            }
+            if (length > 0 && (iterationSpace == -1 || length < iterationSpace)) {
+                iterationSpace = length;
+            }
+        }
+        if (iterationSpace == -1) {
+            throw new TornadoRuntimeException("[UNSUPPORTED] Co-execution requires at least one non-empty array passed to streamOut()");
+        }
+        return iterationSpace;
+    }
+
+    /**
+     * The host computes its partition over copies of the split objects, which is
+     * only supported for arrays of primitive types.
+     */
+    private boolean hasPrimitiveArrayOutputs() {
+        for (Object output : streamOutObjects) {
+            if (!output.getClass().isArray() || !output.getClass().getComponentType().isPrimitive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks that the loop indexes of every task are the same in a partition as
+     * in the whole iteration space.
+     */
+    private boolean areTasksElementWise() {
+        for (SchedulableTask task : getSchedule(0).getExecutionContext().getTasks()) {
+            if (!isElementWise(task)) {
+                info("co-execution of %s runs on a single device: task %s is not element-wise", id, task.getId());
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isElementWise(SchedulableTask task) {
+        if (!(task instanceof CompilableTask)) {
+            return false;
+        }
+        final CompilableTask compilableTask = (CompilableTask) task;
+        try {
+            final Sketch sketch = TornadoSketcher.lookup(getTornadoRuntime().resolveMethod(compilableTask.getMethod()), compilableTask.meta());
+            return ElementWiseAnalysis.isElementWise(sketch, compilableTask.getArguments(), iterationSpace);
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * The host takes part whenever it is enabled, so the number of ratios does
+     * not depend on the tasks. Its partition is empty if it cannot run them.
+     */
+    private int getNumParticipants() {
+        return TornadoOptions.CO_EXECUTION_HOST ? numDevices + 1 : numDevices;
+    }
+
+    private boolean isHost(int participant) {
+        return participant == numDevices;
+    }
+
+    private TornadoTaskSchedule getSchedule(int deviceIndex) {
+        if (schedules[deviceIndex] == null) {
+            final String taskScheduleName = TornadoTaskSchedule.TASK_SCHEDULE_PREFIX + id + "_coexec" + deviceIndex;
+            final TornadoTaskSchedule schedule = new TornadoTaskSchedule(taskScheduleName);
+            schedule.streamInInner(streamInObjects.toArray());
+            for (TaskPackage taskPackage : taskPackages) {
+                TornadoRuntime.setProperty(taskScheduleName + "." + taskPackage.getId() + ".device", DEFAULT_DRIVER_INDEX + ":" + deviceIndex);
+                schedule.addTask(taskPackage);
+            }
+            schedule.streamOutInner(streamOutObjects.toArray());
+            schedules[deviceIndex] = schedule;
+        }
+        return schedules[deviceIndex];
+    }
+
+    /**
+     * Splits the iteration space proportionally to the given weights. The
+     * iterations left by rounding are given to the device with the largest
+     * weight, which computes the whole iteration space if the tasks are not
+     * element-wise.
+     */
+    private long[] computePartitionSizes(double[] weights) {
+        if (weights.length > numDevices && !useHost) {
+            weights[numDevices] = 0;
+        }
+        double total = 0;
+        int largest = 0;
+        for (int i = 0; i < weights.length; i++) {
+            total += weights[i];
+            if (weights[i] > weights[largest]) {
+                largest = i;
+            }
+        }
+        if (total <= 0) {
+            throw new TornadoRuntimeException("[ERROR] Co-execution requires at least one device with a ratio greater than 0");
+        }
+
+        final long[] sizes = new long[weights.length];
+        if (!elementWise) {
+            sizes[largest] = iterationSpace;
+            return sizes;
+        }
+        long assigned = 0;
+        for (int i = 0; i < weights.length; i++) {
+            sizes[i] = (long) ((iterationSpace * (weights[i] / total)) / GRANULARITY) * GRANULARITY;
+            assigned += sizes[i];
+        }
+        sizes[largest] += iterationSpace - assigned;
+        return sizes;
+    }
+
+    private void setPartitions(long[] sizes) {
+        long first = 0;
+        for (int i = 0; i < sizes.length; i++) {
+            firstIterations[i] = first;
+            numIterations[i] = sizes[i];
+            first += sizes[i];
+        }
+        if (TornadoOptions.DEBUG_POLICY) {
+            System.out.println("Co-execution of " + id + " partitions: " + Arrays.toString(numIterations));
+        }
+    }
+
+    private void updateStaticPartitions(float[] ratios) {
+        if (ratios.length != getNumParticipants()) {
+            throw new TornadoRuntimeException("[ERROR] Co-execution expects " + getNumParticipants() + " ratios (" + numDevices + " devices" + (TornadoOptions.CO_EXECUTION_HOST ? " and the host" : "") + "), but "
+                    + ratios.length + " were given");
+        }
+        if (Arrays.equals(ratios, lastRatios)) {
+            return;
+        }
+        final double[] weights = new double[ratios.length];
+        for (int i = 0; i < ratios.length; i++) {
+            weights[i] = Math.max(ratios[i], 0);
+        }
+        setPartitions(computePartitionSizes(weights));
+        lastRatios = ratios.clone();
+    }
+
+    private void updateAdaptivePartitions() {
+        final double[] weights = new double[getNumParticipants()];
+        if (executions == 0 || lastRatios != null) {
+            // Start with the same number of iterations per device
+            Arrays.fill(weights, 1);
+            setPartitions(computePartitionSizes(weights));
+            lastRatios = null;
+            return;
+        }
+
+        double total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = throughputs[i];
+            total += throughputs[i];
+        }
+        if (total == 0) {
+            // No measurements yet
+            return;
+        }
+        final long[] sizes = computePartitionSizes(weights);
+        for (int i = 0; i < sizes.length; i++) {
+            if (Math.abs(sizes[i] - numIterations[i]) > REPARTITION_THRESHOLD * iterationSpace) {
+                setPartitions(sizes);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Updates the throughput of each device with the last execution. The first
+     * execution is not considered, since it includes the JIT compilation of the
+     * kernels.
+     */
+    private void updateThroughputs() {
+        for (int i = 0; i < throughputs.length; i++) {
+            if (numIterations[i] == 0 || elapsedTimes[i] <= 0) {
+                continue;
+            }
+            final double throughput = numIterations[i] / (elapsedTimes[i] * 1e-9);
+            throughputs[i] = (throughputs[i] == 0) ? throughput : (1 - SMOOTHING) * throughputs[i] + SMOOTHING * throughput;
+        }
+        if (TornadoOptions.DEBUG_POLICY) {
+            System.out.println("Co-execution of " + id + " throughputs: " + Arrays.toString(throughputs));
+        }
+    }
+
+    /**
+     * Sets up the partition of every device before any of them runs: the
+     * internal task-schedules share the objects, so the objects are invalidated
+     * and the TornadoVM bytecodes and kernels are generated while no partition
+     * is running.
+     */
+    private void preparePartitions() {
+        for (int i = 0; i < numDevices; i++) {
+            if (numIterations[i] != 0) {
+                final TornadoTaskSchedule schedule = getSchedule(i);
+                schedule.setPartition(iterationSpace, firstIterations[i], numIterations[i]);
+                schedule.preparePartition();
+            }
+        }
+    }
+
+    private void runOnDevice(int deviceIndex) {
+        final TornadoTaskSchedule schedule = getSchedule(deviceIndex);
+        final long start = System.nanoTime();
+        schedule.schedule();
+        schedule.waitOn();
+        elapsedTimes[deviceIndex] = System.nanoTime() - start;
+    }
+
+    private static Object copyOfRange(Object array, long from, long length) {
+        final Object copy = Array.newInstance(array.getClass().getComponentType(), (int) length);
+        System.arraycopy(array, (int) from, copy, 0, (int) length);
+        return copy;
+    }
+
+    /**
+     * Runs the sequential implementation of the tasks over copies of the host
+     * partition of the split arrays, and copies the partition of the outputs
+     * back.
+     */
+    private void runOnHost() {
+        final long start = System.nanoTime();
+        final long first = firstIterations[numDevices];
+        final long size = numIterations[numDevices];
+        final IdentityHashMap<Object, Object> partitions = new IdentityHashMap<>();
+        for (TaskPackage taskPackage : taskPackages) {
+            final Object[] parameters = taskPackage.getTaskParameters().clone();
+            for (int i = 1; i < parameters.length; i++) {
+                final Object parameter = parameters[i];
+                if (parameter == null || !parameter.getClass().isArray() || !parameter.getClass().getComponentType().isPrimitive()) {
+                    continue;
+                }
+                final int length = Array.getLength(parameter);
+                if (length == 0 || length % iterationSpace != 0) {
+                    continue;
+                }
+                final long elements = length / iterationSpace;
+                parameters[i] = partitions.computeIfAbsent(parameter, array -> copyOfRange(array, first * elements, size * elements));
+            }
+            TornadoTaskSchedule.runSequentialCode(taskPackage.getTaskType(), parameters);
+        }
+
+        for (Object output : streamOutObjects) {
+            final Object partition = partitions.get(output);
+            if (partition != null) {
+                final long elements = Array.getLength(output) / iterationSpace;
+                System.arraycopy(partition, 0, output, (int) (first * elements), (int) (size * elements));
+            }
+        }
+        elapsedTimes[numDevices] = System.nanoTime() - start;
+    }
+
+    void execute(float[] ratios) {
+        if (ratios != null) {
+            updateStaticPartitions(ratios);
+        } else {
+            updateAdaptivePartitions();
+        }
+        preparePartitions();
+
+        final CompletableFuture<?>[] partitions = new CompletableFuture<?>[numDevices];
+        for (int i = 0; i < numDevices; i++) {
+            final int deviceIndex = i;
+            partitions[i] = (numIterations[i] == 0) ? CompletableFuture.completedFuture(null) : CompletableFuture.runAsync(() -> runOnDevice(deviceIndex), getTornadoExecutor());
+        }
+        if (useHost && numIterations[numDevices] != 0) {
+            runOnHost();
+        }
+
+        try {
+            CompletableFuture.allOf(partitions).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+
+        executions++;
+        if (executions > 1) {
+            updateThroughputs();
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * School of Engineering, The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.runtime.tasks;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import uk.ac.manchester.tornado.api.common.TaskPackage;
+import uk.ac.manchester.tornado.api.exceptions.TornadoRuntimeException;
+import uk.ac.manchester.tornado.api.runtime.TornadoRuntime;
+import uk.ac.manchester.tornado.runtime.common.TornadoInstalledCodeCache;
+
+/**
+ * Concurrent execution of a task-schedule from several threads. The TornadoVM
+ * of a task-schedule keeps its state (call stacks, event lists, bytecode
+ * cursor and device buffers) between executions, so each execution takes a
+ * context from a pool instead: an internal task-schedule with the same tasks,
+ * mapped to the same devices. Contexts are created on demand up to the bound,
+ * and a thread waits for a context to be released once the bound is reached.
+ * <p>
+ * The kernels are compiled once and shared by all the contexts through the
+ * shared kernel cache. Each context uses its own set of device buffers, so the
+ * objects that an execution does not replace are not shared on the device with
+ * other contexts. Each execution can replace the objects of the task-schedule
+ * by its own objects, which are only visible to that execution. Arrays that
+ * are replaced by arrays of the same length reuse the bytecodes and kernels of
+ * the context; any other replacement recompiles the context.
+ * <p>
+ * The contexts still share the event lists, heap allocators and kernels of
+ * the devices, which are locked by the drivers: kernel launches on the same
+ * device are serialised.
+ */
+class ConcurrentTaskSchedule {
+
+    /**
+     * An internal task-schedule and the objects that currently replace the
+     * objects of the task-schedule in it.
+     */
+    private static final class Context {
+        private final TornadoTaskSchedule schedule;
+        private final IdentityHashMap<Object, Object> bindings;
+
+        private Context(TornadoTaskSchedule schedule) {
+            this.schedule = schedule;
+            this.bindings = new IdentityHashMap<>();
+        }
+    }
+
+    private final String id;
+    private final List<TaskPackage> taskPackages;
+    private final List<Object> streamInObjects;
+    private final List<Object> streamOutObjects;
+    private final String[] taskDevices;
+    private final Set<Object> objects;
+
+    private final int maxContexts;
+    private final LinkedBlockingQueue<Context> idleContexts;
+    private int numContexts;
+
+    /**
+     * @param taskDevices
+     *            device of each task, as {@code driver:device}.
+     * @param objects
+     *            objects of the task-schedule that can be replaced in an
+     *            execution.
+     */
+    ConcurrentTaskSchedule(String id, List<TaskPackage> taskPackages, List<Object> streamInObjects, List<Object> streamOutObjects, String[] taskDevices, Set<Object> objects, int maxContexts) {
+        if (maxContexts < 1) {
+            throw new TornadoRuntimeException("[ERROR] Concurrent execution requires at least one context, but " + maxContexts + " were given");
+        }
+        this.id = id;
+        this.taskPackages = taskPackages;
+        this.streamInObjects = streamInObjects;
+        this.streamOutObjects = streamOutObjects;
+        this.taskDevices = taskDevices;
+        this.objects = objects;
+        this.maxContexts = maxContexts;
+        this.idleContexts = new LinkedBlockingQueue<>();
+        TornadoInstalledCodeCache.enable();
+    }
+
+    /**
+     * Creates a context and compiles its tasks. Contexts are created one at a
+     * time, so only the first one compiles the kernels and the rest take them
+     * from the shared kernel cache.
+     */
+    private synchronized Context createContext() {
+        final String taskScheduleName = TornadoTaskSchedule.TASK_SCHEDULE_PREFIX + id + "_ctx" + numContexts;
+        final TornadoTaskSchedule schedule = new TornadoTaskSchedule(taskScheduleName);
+        schedule.streamInInner(streamInObjects.toArray());
+        for (int i = 0; i < taskPackages.size(); i++) {
+            final TaskPackage taskPackage = taskPackages.get(i);
+            TornadoRuntime.setProperty(taskScheduleName + "." + taskPackage.getId() + ".device", taskDevices[i]);
+            // Each context replaces the parameters of its own copy of the tasks
+            schedule.addTask(taskPackage.copy());
+        }
+        schedule.streamOutInner(streamOutObjects.toArray());
+        // Buffer set 0 is used by the task-schedule itself
+        schedule.setBufferSetOffset(numContexts + 1);
+        schedule.warmup();
+        numContexts++;
+        return new Context(schedule);
+    }
+
+    private Context acquire() {
+        Context context = idleContexts.poll();
+        if (context != null) {
+            return context;
+        }
+        synchronized (this) {
+            if (numContexts < maxContexts) {
+                return createContext();
+            }
+        }
+        try {
+            return idleContexts.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TornadoRuntimeException("[ERROR] Interrupted while waiting for an execution context of " + id);
+        }
+    }
+
+    /**
+     * Replaces the objects of the context by the objects of this execution, and
+     * restores the objects that the previous execution replaced and this one
+     * does not.
+     */
+    private static void bind(Context context, Map<Object, Object> bindings) {
+        final IdentityHashMap<Object, Object> previous = new IdentityHashMap<>(context.bindings);
+        for (Map.Entry<Object, Object> binding : previous.entrySet()) {
+            if (!bindings.containsKey(binding.getKey())) {
+                context.schedule.rebind(binding.getValue(), binding.getKey());
+                context.bindings.remove(binding.getKey());
+            }
+        }
+        for (Map.Entry<Object, Object> binding : bindings.entrySet()) {
+            final Object current = context.bindings.getOrDefault(binding.getKey(), binding.getKey());
+            if (current != binding.getValue()) {
+                context.schedule.rebind(current, binding.getValue());
+                context.bindings.put(binding.getKey(), binding.getValue());
+            }
+        }
+    }
+
+    private void checkBindings(Map<Object, Object> bindings) {
+        for (Map.Entry<Object, Object> binding : bindings.entrySet()) {
+            if (!objects.contains(binding.getKey())) {
+                throw new TornadoRuntimeException("[ERROR] The object " + binding.getKey() + " is not a parameter of the task-schedule " + id);
+            }
+            if (binding.getValue() == null || binding.getValue().getClass() != binding.getKey().getClass()) {
+                throw new TornadoRuntimeException("[ERROR] The object " + binding.getKey() + " of the task-schedule " + id + " can only be replaced by an object of the same type");
+            }
+        }
+    }
+
+    /**
+     * Runs the task-schedule in a context of the pool and waits for the
+     * execution to finish.
+     *
+     * @param bindings
+     *            objects of the task-schedule (keys) and the objects that
+     *            replace them in this execution (values). It can be null.
+     */
+    void execute(Map<Object, Object> bindings) {
+        final Map<Object, Object> executionBindings = (bindings == null) ? new IdentityHashMap<>() : bindings;
+        checkBindings(executionBindings);
+        final Context context = acquire();
+        try {
+            bind(context, executionBindings);
+            context.schedule.schedule().waitOn();
+        } finally {
+            idleContexts.offer(context);
+        }
+    }
+}
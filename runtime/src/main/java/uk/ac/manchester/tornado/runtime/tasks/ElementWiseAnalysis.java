@@ -0,0 +1,208 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * School of Engineering, The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.runtime.tasks;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.graalvm.compiler.graph.Node;
+import org.graalvm.compiler.nodes.ConstantNode;
+import org.graalvm.compiler.nodes.FrameState;
+import org.graalvm.compiler.nodes.IfNode;
+import org.graalvm.compiler.nodes.Invoke;
+import org.graalvm.compiler.nodes.LoopBeginNode;
+import org.graalvm.compiler.nodes.ParameterNode;
+import org.graalvm.compiler.nodes.PhiNode;
+import org.graalvm.compiler.nodes.PiNode;
+import org.graalvm.compiler.nodes.ReturnNode;
+import org.graalvm.compiler.nodes.StartNode;
+import org.graalvm.compiler.nodes.StateSplit;
+import org.graalvm.compiler.nodes.StructuredGraph;
+import org.graalvm.compiler.nodes.ValueNode;
+import org.graalvm.compiler.nodes.java.AccessIndexedNode;
+import org.graalvm.compiler.nodes.java.ArrayLengthNode;
+import org.graalvm.compiler.nodes.java.StoreIndexedNode;
+import org.graalvm.compiler.nodes.memory.MemoryKill;
+
+import jdk.vm.ci.meta.JavaConstant;
+import uk.ac.manchester.tornado.runtime.graal.nodes.ParallelRangeNode;
+import uk.ac.manchester.tornado.runtime.sketcher.Sketch;
+
+/**
+ * Checks on the sketch of a task whether a device or the host can run it over a
+ * partition of its iteration space during co-execution, where the loop index
+ * starts from 0 in every partition.
+ */
+final class ElementWiseAnalysis {
+
+    private ElementWiseAnalysis() {
+    }
+
+    /**
+     * Checks that a task is element-wise over an iteration space: it runs a
+     * single 1D parallel loop from 0 to the length of one of its arrays, with
+     * stride 1, the induction variable is only used to index the arrays of the
+     * length of the iteration space, and these arrays are not accessed
+     * otherwise. Running the task over a contiguous slice of these arrays then
+     * computes the same elements as running it over the whole arrays.
+     */
+    static boolean isElementWise(Sketch sketch, Object[] args, long iterationSpace) {
+        final StructuredGraph graph = (StructuredGraph) sketch.getGraph().getReadonlyCopy();
+        if (!graph.method().isStatic() || !hasSingleParallelLoop(graph)) {
+            return false;
+        }
+
+        final ParallelRangeNode range = graph.getNodes().filter(ParallelRangeNode.class).first();
+        final LoopBeginNode loopBegin = graph.getNodes().filter(LoopBeginNode.class).first();
+        final PhiNode phi = loopBegin.phis().first();
+        if (range.index() != 0 || loopBegin.phis().count() != 1 || phi.valueAt(0) != range.offset() || !(loopBegin.next() instanceof IfNode)) {
+            return false;
+        }
+        final IfNode condition = (IfNode) loopBegin.next();
+        if (!isSameValue(resolve(range.offset().value(), args), 0L) || !isSameValue(resolve(range.stride().value(), args), 1L)) {
+            return false;
+        }
+        final ValueNode bound = unwrap(range.value());
+        if (!(bound instanceof ArrayLengthNode) || !isSplit(unwrap(((ArrayLengthNode) bound).array()), args, iterationSpace)) {
+            return false;
+        }
+
+        for (ParameterNode parameter : graph.getNodes(ParameterNode.TYPE)) {
+            final Object arg = args[parameter.index()];
+            if (isSplit(parameter, args, iterationSpace) && !isAccessedAtIndex(parameter, phi, range)) {
+                return false;
+            } else if (arg != null && arg.getClass().isArray() && Array.getLength(arg) != iterationSpace && Array.getLength(arg) % iterationSpace == 0) {
+                return false;
+            } else if (arg != null && !arg.getClass().isArray() && !isPrimitive(arg) && parameter.usages().filter(usage -> !(usage instanceof FrameState)).isNotEmpty()) {
+                return false;
+            }
+        }
+
+        for (Node usage : phi.usages()) {
+            if (usage instanceof AccessIndexedNode) {
+                final AccessIndexedNode access = (AccessIndexedNode) usage;
+                if (access.index() != phi || !isSplit(unwrap(access.array()), args, iterationSpace)
+                        || (usage instanceof StoreIndexedNode && ((StoreIndexedNode) usage).value() == phi)) {
+                    return false;
+                }
+            } else if (!(usage instanceof FrameState || usage == phi.valueAt(1) || usage == condition.condition())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The sketch has a single loop, which is the parallel loop, no calls and no
+     * side effects other than array stores.
+     */
+    private static boolean hasSingleParallelLoop(StructuredGraph graph) {
+        if (graph.getNodes(ReturnNode.TYPE).count() != 1 || graph.getNodes().filter(LoopBeginNode.class).count() != 1 || graph.getNodes().filter(ParallelRangeNode.class).count() != 1) {
+            return false;
+        }
+        for (Node node : graph.getNodes()) {
+            if (node instanceof Invoke || (node instanceof MemoryKill && !(node instanceof StartNode))
+                    || (node instanceof StateSplit && ((StateSplit) node).hasSideEffect() && !(node instanceof StoreIndexedNode))) {
+                return false;
+            }
+        }
+        final LoopBeginNode loopBegin = graph.getNodes().filter(LoopBeginNode.class).first();
+        return graph.getNodes(ReturnNode.TYPE).first().result() == null && loopBegin.loopEnds().count() == 1 && loopBegin.loopExits().count() == 1;
+    }
+
+    private static boolean isSplit(ValueNode array, Object[] args, long iterationSpace) {
+        if (!(array instanceof ParameterNode)) {
+            return false;
+        }
+        final Object arg = args[((ParameterNode) array).index()];
+        return arg != null && arg.getClass().isArray() && Array.getLength(arg) == iterationSpace;
+    }
+
+    /**
+     * Checks that an array is only accessed at the index given by the induction
+     * variable of the parallel loop, and that its length is only used as the
+     * range of the loop.
+     */
+    private static boolean isAccessedAtIndex(ValueNode array, PhiNode phi, ParallelRangeNode range) {
+        final List<ValueNode> aliases = new ArrayList<>();
+        aliases.add(array);
+        for (int i = 0; i < aliases.size(); i++) {
+            final ValueNode alias = aliases.get(i);
+            for (Node usage : alias.usages()) {
+                if (usage instanceof PiNode) {
+                    aliases.add((PiNode) usage);
+                } else if (usage instanceof AccessIndexedNode) {
+                    final AccessIndexedNode access = (AccessIndexedNode) usage;
+                    if (access.array() != alias || access.index() != phi) {
+                        return false;
+                    }
+                    if (usage instanceof StoreIndexedNode && ((StoreIndexedNode) usage).value() == alias) {
+                        return false;
+                    }
+                } else if (usage instanceof ArrayLengthNode) {
+                    if (((ArrayLengthNode) usage).usages().filter(length -> length != range && !(length instanceof FrameState)).isNotEmpty()) {
+                        return false;
+                    }
+                } else if (!(usage instanceof FrameState)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean isSameValue(Long value, Long other) {
+        return value != null && value.equals(other);
+    }
+
+    /**
+     * Resolves the value of a loop bound with the arguments of the task.
+     *
+     * @return the value, or null if it cannot be resolved.
+     */
+    private static Long resolve(ValueNode value, Object[] args) {
+        final ValueNode node = unwrap(value);
+        if (node instanceof ConstantNode) {
+            final JavaConstant constant = ((ConstantNode) node).asJavaConstant();
+            return (constant != null && constant.getJavaKind().isNumericInteger()) ? constant.asLong() : null;
+        } else if (node instanceof ParameterNode) {
+            final Object arg = args[((ParameterNode) node).index()];
+            return (arg instanceof Integer || arg instanceof Long || arg instanceof Short || arg instanceof Byte) ? ((Number) arg).longValue() : null;
+        }
+        return null;
+    }
+
+    private static boolean isPrimitive(Object arg) {
+        return arg instanceof Number || arg instanceof Boolean || arg instanceof Character;
+    }
+
+    private static ValueNode unwrap(ValueNode value) {
+        ValueNode node = value;
+        while (node instanceof PiNode) {
+            node = ((PiNode) node).object();
+        }
+        return node;
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * School of Engineering, The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.runtime.tasks;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+import uk.ac.manchester.tornado.api.common.Event;
+import uk.ac.manchester.tornado.api.enums.TornadoExecutionStatus;
+import uk.ac.manchester.tornado.api.exceptions.TornadoRuntimeException;
+
+/**
+ * Completes the futures of the asynchronous executions once their last event
+ * has finished. A single daemon thread polls the status of the events of all
+ * the task-schedules, so no thread is parked per execution. The interval
+ * between polls doubles while no event completes, so long executions are not
+ * polled continuously.
+ */
+final class EventPoller implements Runnable {
+
+    private static final long MIN_POLL_INTERVAL_NANOS = 50_000;
+    private static final long MAX_POLL_INTERVAL_NANOS = 1_000_000;
+
+    private static final EventPoller INSTANCE = new EventPoller();
+
+    private static final class PendingEvent {
+        private final Event event;
+        private final CompletableFuture<Void> future;
+
+        private PendingEvent(Event event, CompletableFuture<Void> future) {
+            this.event = event;
+            this.future = future;
+        }
+    }
+
+    private final ConcurrentLinkedQueue<PendingEvent> submitted = new ConcurrentLinkedQueue<>();
+    private final Thread thread;
+
+    private EventPoller() {
+        thread = new Thread(this, "tornado-event-poller");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return a future that completes once the event has finished, or
+     *         completes exceptionally if the event reports an error.
+     */
+    static CompletableFuture<Void> completion(Event event) {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        INSTANCE.submitted.add(new PendingEvent(event, future));
+        LockSupport.unpark(INSTANCE.thread);
+        return future;
+    }
+
+    @Override
+    public void run() {
+        final List<PendingEvent> pending = new ArrayList<>();
+        long interval = MIN_POLL_INTERVAL_NANOS;
+        while (true) {
+            PendingEvent next;
+            while ((next = submitted.poll()) != null) {
+                pending.add(next);
+                interval = MIN_POLL_INTERVAL_NANOS;
+            }
+            if (pending.isEmpty()) {
+                // unparked by the next submission
+                LockSupport.park(this);
+                continue;
+            }
+
+            boolean completed = false;
+            Iterator<PendingEvent> iterator = pending.iterator();
+            while (iterator.hasNext()) {
+                if (poll(iterator.next())) {
+                    iterator.remove();
+                    completed = true;
+                }
+            }
+            if (!pending.isEmpty()) {
+                interval = completed ? MIN_POLL_INTERVAL_NANOS : Math.min(2 * interval, MAX_POLL_INTERVAL_NANOS);
+                LockSupport.parkNanos(this, interval);
+            }
+        }
+    }
+
+    /**
+     * Once the event has completed, it is waited on before the future is
+     * completed: waiting runs the listeners of the device, which copy the
+     * deferred reads of the staging buffers to the host arrays.
+     *
+     * @return true if the future of the event has been completed.
+     */
+    private static boolean poll(PendingEvent pending) {
+        final TornadoExecutionStatus status;
+        try {
+            status = pending.event.getStatus();
+            if (status == TornadoExecutionStatus.COMPLETE) {
+                pending.event.waitOn();
+            }
+        } catch (Throwable e) {
+            pending.future.completeExceptionally(e);
+            return true;
+        }
+        switch (status) {
+            case COMPLETE:
+                pending.future.complete(null);
+                return true;
+            case ERROR:
+            case UNKNOWN:
+                pending.future.completeExceptionally(new TornadoRuntimeException("[ERROR] Execution failed on event " + pending.event.getName()));
+                return true;
+            default:
+                return false;
+        }
+    }
+}
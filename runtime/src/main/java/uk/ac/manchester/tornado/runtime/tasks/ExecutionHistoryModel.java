@@ -0,0 +1,198 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * School of Engineering, The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.runtime.tasks;
+
+import static uk.ac.manchester.tornado.runtime.common.RuntimeUtilities.hash;
+import static uk.ac.manchester.tornado.runtime.common.Tornado.warn;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import uk.ac.manchester.tornado.runtime.common.TornadoOptions;
+import uk.ac.manchester.tornado.runtime.common.TornadoTuningDatabase;
+
+/**
+ * Persistent model of the execution history of the dynamic reconfiguration. A
+ * model is built for each policy, metric, set of tasks and set of devices, and
+ * it keeps the metric (time or energy) measured on each device for every input
+ * size that has been profiled. The measurements are stored in the execution
+ * history database, so later runs select a device without profiling again.
+ *
+ * The device selected for an input size that has been profiled is the one with
+ * the lowest measured metric. For other sizes, the metric of each device is
+ * predicted with a least-squares fit of log(1 + metric) over log(size), which
+ * follows the power-law growth of the execution time with the input size, once
+ * the device has been profiled with enough different sizes.
+ */
+final class ExecutionHistoryModel {
+
+    private static final String KEY_PREFIX = "history.";
+    private static final ConcurrentHashMap<String, ExecutionHistoryModel> models = new ConcurrentHashMap<>();
+
+    private final TornadoTuningDatabase database;
+    private final String key;
+    private final String description;
+    private final List<TreeMap<Integer, Double>> observations;
+
+    private ExecutionHistoryModel(TornadoTuningDatabase database, String key, String description, int numDevices) {
+        this.database = database;
+        this.key = key;
+        this.description = description;
+        this.observations = new ArrayList<>(numDevices);
+        for (int i = 0; i < numDevices; i++) {
+            observations.add(decode(database.get(key + "." + i)));
+        }
+    }
+
+    /**
+     * @param policy
+     *            Name of the policy.
+     * @param metric
+     *            Unit of the metric, so measurements in different units are
+     *            not mixed.
+     * @param tasks
+     *            Signatures of the methods of the task-schedule.
+     * @param devices
+     *            Names of the devices, in the order of the device indexes.
+     * @return the model for the given tasks and devices, with the history stored
+     *         by previous runs. Task-schedules with the same tasks share the
+     *         model.
+     */
+    static ExecutionHistoryModel create(String policy, String metric, List<String> tasks, List<String> devices) {
+        final String description = policy + ";" + metric + ";" + String.join(";", tasks) + ";" + String.join(";", devices);
+        final TornadoTuningDatabase database = TornadoTuningDatabase.getDatabase(TornadoOptions.RECONFIGURATION_HISTORY_DATABASE);
+        return models.computeIfAbsent(KEY_PREFIX + hash(description), key -> new ExecutionHistoryModel(database, key, description, devices.size()));
+    }
+
+    private TreeMap<Integer, Double> decode(String value) {
+        final TreeMap<Integer, Double> points = new TreeMap<>();
+        if (value == null || value.isEmpty()) {
+            return points;
+        }
+        try {
+            for (String point : value.split(",")) {
+                final String[] sizeAndMetric = point.split(":");
+                points.put(Integer.parseInt(sizeAndMetric[0]), Double.parseDouble(sizeAndMetric[1]));
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            warn("ignoring the malformed execution history %s=%s", key, value);
+            points.clear();
+        }
+        return points;
+    }
+
+    private static String encode(TreeMap<Integer, Double> points) {
+        return points.entrySet().stream().map(e -> e.getKey() + ":" + e.getValue()).collect(Collectors.joining(","));
+    }
+
+    /**
+     * Records the metric measured on each device for an input size and writes
+     * the history to disk.
+     *
+     * @param inputSize
+     *            Input size of the task-schedule.
+     * @param metrics
+     *            Metric of each device. Devices that have not been measured
+     *            have a NaN metric.
+     * @param features
+     *            Code features of each task, when the feature extraction is
+     *            enabled, which are stored with the history so they can be used
+     *            as extra inputs of other models. It can be empty.
+     */
+    synchronized void record(int inputSize, double[] metrics, List<Map<String, Integer>> features) {
+        final Map<String, String> entries = new HashMap<>();
+        for (int i = 0; i < metrics.length && i < observations.size(); i++) {
+            final double metric = metrics[i];
+            if (Double.isNaN(metric) || Double.isInfinite(metric) || metric < 0) {
+                continue;
+            }
+            // Repeated sizes are averaged with the previous measurements
+            observations.get(i).merge(inputSize, metric, (previous, current) -> (previous + current) / 2);
+            entries.put(key + "." + i, encode(observations.get(i)));
+        }
+        entries.put(key + ".description", description);
+        for (int i = 0; i < features.size(); i++) {
+            entries.put(key + ".features." + i, features.get(i).entrySet().stream().map(e -> e.getKey() + "=" + e.getValue()).collect(Collectors.joining(",")));
+        }
+        database.putAll(entries);
+    }
+
+    /**
+     * @param inputSize
+     *            Input size of the task-schedule.
+     * @return the index of the device with the lowest measured or predicted
+     *         metric, or -1 if there is not enough history to select a device.
+     */
+    synchronized int predict(int inputSize) {
+        int winner = -1;
+        double best = Double.MAX_VALUE;
+        for (int i = 0; i < observations.size(); i++) {
+            final TreeMap<Integer, Double> points = observations.get(i);
+            if (points.isEmpty()) {
+                // Devices that have never been measured, such as ignored tasks
+                continue;
+            }
+            Double metric = points.get(inputSize);
+            if (metric == null) {
+                if (points.size() < TornadoOptions.RECONFIGURATION_HISTORY_POINTS) {
+                    return -1;
+                }
+                metric = fit(points, inputSize);
+            }
+            if (metric < best) {
+                best = metric;
+                winner = i;
+            }
+        }
+        return winner;
+    }
+
+    private static double fit(TreeMap<Integer, Double> points, int inputSize) {
+        final int n = points.size();
+        double sumX = 0;
+        double sumY = 0;
+        double sumXX = 0;
+        double sumXY = 0;
+        for (Map.Entry<Integer, Double> point : points.entrySet()) {
+            final double x = Math.log(Math.max(point.getKey(), 1));
+            final double y = Math.log1p(point.getValue());
+            sumX += x;
+            sumY += y;
+            sumXX += x * x;
+            sumXY += x * y;
+        }
+        final double denominator = n * sumXX - sumX * sumX;
+        if (denominator == 0) {
+            return Math.expm1(sumY / n);
+        }
+        final double slope = (n * sumXY - sumX * sumY) / denominator;
+        final double intercept = (sumY - slope * sumX) / n;
+        return Math.expm1(intercept + slope * Math.log(Math.max(inputSize, 1)));
+    }
+}
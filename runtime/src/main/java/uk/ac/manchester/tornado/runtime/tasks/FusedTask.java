@@ -0,0 +1,111 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * School of Engineering, The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.runtime.tasks;
+
+import java.util.List;
+
+import uk.ac.manchester.tornado.api.common.TornadoDevice;
+import uk.ac.manchester.tornado.api.profiler.TornadoProfiler;
+import uk.ac.manchester.tornado.runtime.tasks.meta.FusedTaskMetaData;
+import uk.ac.manchester.tornado.runtime.tasks.meta.ScheduleMetaData;
+
+/**
+ * Task that runs several adjacent tasks of a task-schedule in a single kernel.
+ * The kernel is rooted at the method of the first task, and its arguments are
+ * the arguments of all the tasks that are still needed once the intermediate
+ * arrays have been removed.
+ */
+public class FusedTask extends CompilableTask {
+
+    private final List<CompilableTask> tasks;
+
+    FusedTask(ScheduleMetaData scheduleMeta, List<CompilableTask> tasks, Object[] args) {
+        super(scheduleMeta, buildTaskID(scheduleMeta, tasks), tasks.get(0).getMethod(), args);
+        this.tasks = tasks;
+        this.meta = new FusedTaskMetaData(scheduleMeta, buildTaskID(scheduleMeta, tasks), args.length);
+        this.meta.setDevice(tasks.get(0).getDevice());
+        attachProfiler(tasks.get(0).getProfiler());
+    }
+
+    /**
+     * The identifier of the fused task is built from the identifiers of the
+     * tasks, so its kernel is not mixed up in the code cache of the device with
+     * the kernel of the first task.
+     */
+    private static String buildTaskID(ScheduleMetaData scheduleMeta, List<CompilableTask> tasks) {
+        final StringBuilder id = new StringBuilder();
+        for (CompilableTask task : tasks) {
+            if (id.length() > 0) {
+                id.append('_');
+            }
+            id.append(task.getId().substring(scheduleMeta.getId().length() + 1));
+        }
+        return id.toString();
+    }
+
+    @Override
+    public FusedTaskMetaData meta() {
+        return (FusedTaskMetaData) meta;
+    }
+
+    /**
+     * @return the tasks that run in the kernel, in order of execution.
+     */
+    public List<CompilableTask> getTasks() {
+        return tasks;
+    }
+
+    @Override
+    public String getFullName() {
+        final StringBuilder names = new StringBuilder();
+        for (CompilableTask task : tasks) {
+            names.append((names.length() == 0) ? "" : "+").append(task.getTaskName());
+        }
+        return "task " + meta.getId() + " - " + names;
+    }
+
+    @Override
+    public CompilableTask mapTo(final TornadoDevice mapping) {
+        for (CompilableTask task : tasks) {
+            task.mapTo(mapping);
+        }
+        return super.mapTo(mapping);
+    }
+
+    @Override
+    public void attachProfiler(TornadoProfiler tornadoProfiler) {
+        super.attachProfiler(tornadoProfiler);
+        for (CompilableTask task : tasks) {
+            task.attachProfiler(tornadoProfiler);
+        }
+    }
+
+    @Override
+    public void enableDefaultThreadScheduler(boolean useDefaultScheduler) {
+        for (CompilableTask task : tasks) {
+            task.enableDefaultThreadScheduler(useDefaultScheduler);
+        }
+        super.enableDefaultThreadScheduler(useDefaultScheduler);
+    }
+}
@@ -30,7 +30,9 @@ import uk.ac.manchester.tornado.api.mm.TornadoGlobalObjectState;
 import uk.ac.manchester.tornado.runtime.common.DeviceObjectState;
 import uk.ac.manchester.tornado.runtime.common.TornadoAcceleratorDevice;
 
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class GlobalObjectState implements TornadoGlobalObjectState {
 
@@ -40,12 +42,14 @@ public class GlobalObjectState implements TornadoGlobalObjectState {
     private TornadoAcceleratorDevice owner;
 
     private final ConcurrentHashMap<TornadoAcceleratorDevice, DeviceObjectState> deviceStates;
+    private final ConcurrentHashMap<TornadoAcceleratorDevice, List<DeviceObjectState>> bufferSets;
 
     public GlobalObjectState() {
         shared = false;
         exclusive = false;
         owner = null;
         deviceStates = new ConcurrentHashMap<>();
+        bufferSets = new ConcurrentHashMap<>();
     }
 
     public boolean isShared() {
@@ -68,10 +72,28 @@ public class GlobalObjectState implements TornadoGlobalObjectState {
         if (!(device instanceof TornadoAcceleratorDevice)) {
             throw new RuntimeException("Device not compatible");
         }
-        if (!deviceStates.containsKey(device)) {
-            deviceStates.put((TornadoAcceleratorDevice) device, new DeviceObjectState());
+        return deviceStates.computeIfAbsent((TornadoAcceleratorDevice) device, d -> new DeviceObjectState());
+    }
+
+    /**
+     * Returns the state of the object for one of the sets of buffers used to
+     * pipeline batches. The set 0 is the default state of the object on the
+     * device.
+     */
+    public DeviceObjectState getDeviceState(TornadoDevice device, int bufferSet) {
+        if (bufferSet == 0) {
+            return getDeviceState(device);
+        }
+        if (!(device instanceof TornadoAcceleratorDevice)) {
+            throw new RuntimeException("Device not compatible");
+        }
+        final List<DeviceObjectState> states = bufferSets.computeIfAbsent((TornadoAcceleratorDevice) device, d -> new CopyOnWriteArrayList<>());
+        synchronized (states) {
+            while (states.size() < bufferSet) {
+                states.add(new DeviceObjectState());
+            }
         }
-        return deviceStates.get(device);
+        return states.get(bufferSet - 1);
     }
 
     public void setOwner(TornadoDevice device) {
@@ -79,9 +101,7 @@ public class GlobalObjectState implements TornadoGlobalObjectState {
             throw new RuntimeException("Device not compatible");
         }
         owner = (TornadoAcceleratorDevice) device;
-        if (!deviceStates.containsKey(owner)) {
-            deviceStates.put((TornadoAcceleratorDevice) device, new DeviceObjectState());
-        }
+        deviceStates.computeIfAbsent(owner, d -> new DeviceObjectState());
     }
 
     public void invalidate() {
@@ -89,10 +109,63 @@ public class GlobalObjectState implements TornadoGlobalObjectState {
             final DeviceObjectState deviceState = deviceStates.get(device);
             deviceState.invalidate();
         }
+        for (List<DeviceObjectState> states : bufferSets.values()) {
+            states.forEach(DeviceObjectState::invalidate);
+        }
+    }
+
+    /**
+     * Invalidates the state of the object on a single device, including the
+     * sets of buffers used to pipeline batches.
+     */
+    public void invalidate(TornadoAcceleratorDevice device) {
+        final DeviceObjectState deviceState = deviceStates.get(device);
+        if (deviceState != null) {
+            deviceState.invalidate();
+        }
+        final List<DeviceObjectState> states = bufferSets.get(device);
+        if (states != null) {
+            states.forEach(DeviceObjectState::invalidate);
+        }
+    }
+
+    /**
+     * Records a modified region of the host object on every device that holds a
+     * copy of it, so the next copy-in only transfers the modified bytes.
+     */
+    public void markDirty(long fromOffset, long toOffset) {
+        for (DeviceObjectState deviceState : deviceStates.values()) {
+            deviceState.markDirty(fromOffset, toOffset);
+        }
+        for (List<DeviceObjectState> states : bufferSets.values()) {
+            states.forEach(deviceState -> deviceState.markDirty(fromOffset, toOffset));
+        }
+    }
+
+    /**
+     * Returns the buffers allocated for the object on each device to the device
+     * heaps.
+     */
+    public void release() {
+        for (TornadoAcceleratorDevice device : deviceStates.keySet()) {
+            final DeviceObjectState deviceState = deviceStates.get(device);
+            if (deviceState.hasBuffer()) {
+                device.deallocate(deviceState);
+            }
+        }
+        for (TornadoAcceleratorDevice device : bufferSets.keySet()) {
+            for (DeviceObjectState deviceState : bufferSets.get(device)) {
+                if (deviceState.hasBuffer()) {
+                    device.deallocate(deviceState);
+                }
+            }
+        }
+        clear();
     }
 
     public void clear() {
         deviceStates.clear();
+        bufferSets.clear();
     }
 
     @Override
@@ -48,6 +48,12 @@ public class LocalObjectState {
         streamOut = false;
     }
 
+    void copyStreamFlags(LocalObjectState other) {
+        this.streamIn = other.streamIn;
+        this.forceStreamIn = other.forceStreamIn;
+        this.streamOut = other.streamOut;
+    }
+
     public boolean isStreamIn() {
         return streamIn;
     }
@@ -109,6 +115,10 @@ public class LocalObjectState {
     }
 
     public Event sync(Object object) {
+        if (getOwner() == null) {
+            // Intermediate arrays removed by task fusion never reach a device
+            return new EmptyEvent();
+        }
         if (isModified()) {
             TornadoAcceleratorDevice owner = getOwner();
             int eventId = owner.streamOutBlocking(object, 0, global.getDeviceState(owner), null);
@@ -0,0 +1,283 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * School of Engineering, The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.runtime.tasks;
+
+import static uk.ac.manchester.tornado.runtime.TornadoCoreRuntime.getTornadoRuntime;
+import static uk.ac.manchester.tornado.runtime.common.Tornado.debug;
+import static uk.ac.manchester.tornado.runtime.common.Tornado.info;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import uk.ac.manchester.tornado.api.common.SchedulableTask;
+import uk.ac.manchester.tornado.runtime.common.TornadoAcceleratorDevice;
+import uk.ac.manchester.tornado.runtime.common.TornadoOptions;
+import uk.ac.manchester.tornado.runtime.graph.TornadoExecutionContext;
+import uk.ac.manchester.tornado.runtime.sketcher.Sketch;
+import uk.ac.manchester.tornado.runtime.sketcher.SketchFusion;
+import uk.ac.manchester.tornado.runtime.sketcher.TornadoSketcher;
+
+/**
+ * Fuses adjacent tasks of a task-schedule that run on the same device into a
+ * single task before the TornadoVM bytecodes are generated.
+ * <p>
+ * The high-level code of the task-schedule is rewritten so that each group of
+ * fused tasks is launched once, with the arguments of the fused kernel. The
+ * first task of each group is replaced by a {@link FusedTask} in the execution
+ * context, and it is restored when the task-schedule is compiled again.
+ */
+class TaskFusion {
+
+    private final TornadoExecutionContext executionContext;
+    private final List<FusedTask> fusedTasks;
+    private final List<Integer> fusedIndexes;
+
+    TaskFusion(TornadoExecutionContext executionContext) {
+        this.executionContext = executionContext;
+        this.fusedTasks = new ArrayList<>();
+        this.fusedIndexes = new ArrayList<>();
+    }
+
+    /**
+     * Launch of a task in the high-level code of the task-schedule.
+     */
+    private static final class Block {
+        private final int globalTaskId;
+        private final int taskIndex;
+        private final byte[] ops;
+        private final int[] variables;
+
+        private Block(int globalTaskId, int taskIndex, byte[] ops, int[] variables) {
+            this.globalTaskId = globalTaskId;
+            this.taskIndex = taskIndex;
+            this.ops = ops;
+            this.variables = variables;
+        }
+
+        private boolean references(byte op, int variable) {
+            for (int i = 0; i < ops.length; i++) {
+                if (ops[i] == op && variables[i] == variable) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Restores the tasks that were replaced by fused tasks.
+     *
+     * @return true if the execution context contained fused tasks.
+     */
+    boolean restore() {
+        final boolean restored = !fusedTasks.isEmpty();
+        for (int i = 0; i < fusedTasks.size(); i++) {
+            final int index = fusedIndexes.get(i);
+            final FusedTask fusedTask = fusedTasks.get(i);
+            // The task could have been replaced after a new sketch was requested
+            if (executionContext.getTask(index) == fusedTask) {
+                executionContext.setTask(index, fusedTask.getTasks().get(0));
+            }
+        }
+        fusedTasks.clear();
+        fusedIndexes.clear();
+        return restored;
+    }
+
+    /**
+     * Fuses the tasks launched by the high-level code of a task-schedule.
+     *
+     * @return the high-level code that launches the fused tasks, or the original
+     *         code if no tasks have been fused.
+     */
+    ByteBuffer fuse(ByteBuffer hlcode) {
+        restore();
+        final List<Block> blocks = parse(hlcode.duplicate().order(ByteOrder.LITTLE_ENDIAN));
+        if (blocks == null || blocks.size() < 2) {
+            return hlcode;
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocate(hlcode.remaining()).order(ByteOrder.LITTLE_ENDIAN);
+        int first = 0;
+        while (first < blocks.size()) {
+            first += fuseGroup(blocks, first, buffer);
+        }
+        buffer.flip();
+        return fusedTasks.isEmpty() ? hlcode : buffer;
+    }
+
+    /**
+     * Fuses as many tasks as possible with the task of the block {@code first},
+     * and writes the launch of the group.
+     *
+     * @return the number of blocks in the group.
+     */
+    private int fuseGroup(List<Block> blocks, int first, ByteBuffer buffer) {
+        final Block firstBlock = blocks.get(first);
+        final CompilableTask firstTask = getFusableTask(firstBlock);
+        final SketchFusion fusion = (firstTask == null) ? null : createFusion(firstTask);
+        if (fusion == null) {
+            write(buffer, firstBlock.globalTaskId, firstBlock.taskIndex, firstBlock.ops, firstBlock.variables);
+            return 1;
+        }
+
+        final List<CompilableTask> tasks = new ArrayList<>();
+        tasks.add(firstTask);
+        final List<Block> group = new ArrayList<>();
+        group.add(firstBlock);
+
+        for (int next = first + 1; next < blocks.size(); next++) {
+            final Block block = blocks.get(next);
+            final CompilableTask task = getFusableTask(block);
+            if (task == null || executionContext.getDeviceIndexForTask(block.globalTaskId) != executionContext.getDeviceIndexForTask(firstBlock.globalTaskId)) {
+                break;
+            }
+            final int end = next;
+            final Sketch sketch = lookupSketch(task);
+            if (sketch == null || !fusion.fuse(sketch, task.getArguments(), object -> isPrivate(object, blocks, first, end))) {
+                break;
+            }
+            tasks.add(task);
+            group.add(block);
+        }
+
+        if (tasks.size() == 1) {
+            write(buffer, firstBlock.globalTaskId, firstBlock.taskIndex, firstBlock.ops, firstBlock.variables);
+            return 1;
+        }
+
+        final FusedTask fusedTask = new FusedTask(executionContext.meta(), tasks, fusion.getArguments());
+        fusion.install(fusedTask.meta());
+        fusedTasks.add(fusedTask);
+        fusedIndexes.add(firstBlock.taskIndex);
+        executionContext.setTask(firstBlock.taskIndex, fusedTask);
+        info("task-schedule %s: %s", executionContext.getId(), fusedTask.getFullName());
+
+        // Arguments of the fused kernel, taken from the arguments of the tasks
+        final int[] sources = fusion.getSources();
+        final byte[] ops = new byte[sources.length];
+        final int[] variables = new int[sources.length];
+        for (int i = 0; i < sources.length; i++) {
+            int source = sources[i];
+            for (Block block : group) {
+                if (source < block.ops.length) {
+                    ops[i] = block.ops[source];
+                    variables[i] = block.variables[source];
+                    break;
+                }
+                source -= block.ops.length;
+            }
+        }
+        write(buffer, firstBlock.globalTaskId, firstBlock.taskIndex, ops, variables);
+        return group.size();
+    }
+
+    private SketchFusion createFusion(CompilableTask task) {
+        final Sketch sketch = lookupSketch(task);
+        return (sketch == null) ? null : SketchFusion.create(sketch, task.getArguments());
+    }
+
+    private static Sketch lookupSketch(CompilableTask task) {
+        try {
+            return TornadoSketcher.lookup(getTornadoRuntime().resolveMethod(task.getMethod()), task.meta());
+        } catch (RuntimeException e) {
+            debug("no sketch available to fuse task %s: %s", task.getId(), e.getMessage());
+            return null;
+        }
+    }
+
+    private CompilableTask getFusableTask(Block block) {
+        final SchedulableTask task = executionContext.getTask(block.taskIndex);
+        if (!(task instanceof CompilableTask) || task instanceof FusedTask) {
+            return null;
+        }
+        // FPGA kernels are compiled into a single binary ahead of time
+        final TornadoAcceleratorDevice device = (TornadoAcceleratorDevice) task.getDevice();
+        if (TornadoOptions.FPGA_BINARIES != null || device == null || device.getDeviceContext().isPlatformFPGA()) {
+            return null;
+        }
+        return (CompilableTask) task;
+    }
+
+    /**
+     * An object is private to the tasks {@code first} to {@code last} when it is
+     * not accessed by any other task of the task-schedule, and it is neither
+     * streamed in nor streamed out.
+     */
+    private boolean isPrivate(Object object, List<Block> blocks, int first, int last) {
+        final LocalObjectState state = executionContext.getObjectState(object);
+        if (state.isStreamIn() || state.isForcedStreamIn() || state.isStreamOut()) {
+            return false;
+        }
+        final int variable = executionContext.insertVariable(object);
+        for (int i = 0; i < blocks.size(); i++) {
+            if ((i < first || i > last) && blocks.get(i).references(TornadoGraphBitcodes.LOAD_REF.index(), variable)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<Block> parse(ByteBuffer buffer) {
+        final List<Block> blocks = new ArrayList<>();
+        while (buffer.hasRemaining()) {
+            if (buffer.get() != TornadoGraphBitcodes.CONTEXT.index()) {
+                return null;
+            }
+            final int globalTaskId = buffer.getInt();
+            final int taskIndex = buffer.getInt();
+            if (buffer.get() != TornadoGraphBitcodes.ARG_LIST.index()) {
+                return null;
+            }
+            final int numArgs = buffer.getInt();
+            final byte[] ops = new byte[numArgs];
+            final int[] variables = new int[numArgs];
+            for (int i = 0; i < numArgs; i++) {
+                ops[i] = buffer.get();
+                variables[i] = buffer.getInt();
+            }
+            if (buffer.get() != TornadoGraphBitcodes.LAUNCH.index()) {
+                return null;
+            }
+            blocks.add(new Block(globalTaskId, taskIndex, ops, variables));
+        }
+        return blocks;
+    }
+
+    private static void write(ByteBuffer buffer, int globalTaskId, int taskIndex, byte[] ops, int[] variables) {
+        buffer.put(TornadoGraphBitcodes.CONTEXT.index());
+        buffer.putInt(globalTaskId);
+        buffer.putInt(taskIndex);
+        buffer.put(TornadoGraphBitcodes.ARG_LIST.index());
+        buffer.putInt(ops.length);
+        for (int i = 0; i < ops.length; i++) {
+            buffer.put(ops[i]);
+            buffer.putInt(variables[i]);
+        }
+        buffer.put(TornadoGraphBitcodes.LAUNCH.index());
+    }
+
+}
@@ -25,6 +25,7 @@
  */
 package uk.ac.manchester.tornado.runtime.tasks;
 
+import static uk.ac.manchester.tornado.runtime.TornadoCoreRuntime.getTornadoExecutor;
 import static uk.ac.manchester.tornado.runtime.TornadoCoreRuntime.getTornadoRuntime;
 import static uk.ac.manchester.tornado.runtime.common.RuntimeUtilities.humanReadableByteCount;
 import static uk.ac.manchester.tornado.runtime.common.RuntimeUtilities.isBoxedPrimitiveClass;
@@ -40,12 +41,18 @@ import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.regex.Matcher;
@@ -54,6 +61,7 @@ import java.util.regex.Pattern;
 import org.graalvm.compiler.graph.CachedGraph;
 import org.graalvm.compiler.phases.util.Providers;
 
+import jdk.vm.ci.meta.JavaKind;
 import jdk.vm.ci.meta.ResolvedJavaMethod;
 import uk.ac.manchester.tornado.api.AbstractTaskGraph;
 import uk.ac.manchester.tornado.api.GridTask;
@@ -84,6 +92,7 @@ import uk.ac.manchester.tornado.api.common.TornadoFunctions.Task9;
 import uk.ac.manchester.tornado.api.enums.TornadoDeviceType;
 import uk.ac.manchester.tornado.api.exceptions.TornadoBailoutRuntimeException;
 import uk.ac.manchester.tornado.api.exceptions.TornadoRuntimeException;
+import uk.ac.manchester.tornado.api.mm.TaskMetaDataInterface;
 import uk.ac.manchester.tornado.api.profiler.ProfilerType;
 import uk.ac.manchester.tornado.api.profiler.TornadoProfiler;
 import uk.ac.manchester.tornado.api.runtime.TornadoRuntime;
@@ -97,6 +106,8 @@ import uk.ac.manchester.tornado.runtime.common.Tornado;
 import uk.ac.manchester.tornado.runtime.common.TornadoAcceleratorDevice;
 import uk.ac.manchester.tornado.runtime.common.TornadoOptions;
 import uk.ac.manchester.tornado.runtime.common.TornadoVMClient;
+import uk.ac.manchester.tornado.runtime.energy.EnergyMonitor;
+import uk.ac.manchester.tornado.runtime.energy.EnergyMonitors;
 import uk.ac.manchester.tornado.runtime.graal.compiler.TornadoSuitesProvider;
 import uk.ac.manchester.tornado.runtime.graph.TornadoExecutionContext;
 import uk.ac.manchester.tornado.runtime.graph.TornadoGraph;
@@ -105,6 +116,7 @@ import uk.ac.manchester.tornado.runtime.graph.TornadoVMGraphCompilationResult;
 import uk.ac.manchester.tornado.runtime.graph.TornadoVMGraphCompiler;
 import uk.ac.manchester.tornado.runtime.graph.nodes.ContextNode;
 import uk.ac.manchester.tornado.runtime.profiler.EmptyProfiler;
+import uk.ac.manchester.tornado.runtime.profiler.FeatureExtractionUtilities;
 import uk.ac.manchester.tornado.runtime.profiler.TimeProfiler;
 import uk.ac.manchester.tornado.runtime.sketcher.Sketch;
 import uk.ac.manchester.tornado.runtime.sketcher.SketchRequest;
@@ -122,10 +134,21 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
     private ByteBuffer hlBuffer;
     private TornadoVMGraphCompilationResult result;
     private long batchSizeBytes = -1;
+    private int batchBuffers = 1;
+    private int bufferSetOffset;
+    private long partitionIterationSpace = -1;
+    private long partitionFirstIteration;
+    private long partitionIterations;
+    private CoExecutionTaskSchedule coExecution;
+    private ConcurrentTaskSchedule concurrentExecution;
+    private TaskFusion taskFusion;
     private boolean bailout = false;
 
     // One TornadoVM instance per TaskSchedule
     private TornadoVM vm;
+    private CompletableFuture<Void> backgroundCompilation;
+    private boolean executedOnHost;
+    private CompletableFuture<Void> lastAsyncExecution = CompletableFuture.completedFuture(null);
     private Event event;
     private String taskScheduleName;
 
@@ -136,9 +159,9 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
     private ConcurrentHashMap<Integer, ArrayList<Object>> multiHeapManagerOutputs = new ConcurrentHashMap<>();
     private ConcurrentHashMap<Integer, ArrayList<Object>> multiHeapManagerInputs = new ConcurrentHashMap<>();
     private ConcurrentHashMap<Integer, TaskSchedule> taskScheduleIndex = new ConcurrentHashMap<>();
+    private ConcurrentHashMap<Policy, ExecutionHistoryModel> executionHistory = new ConcurrentHashMap<>();
 
     private static ConcurrentHashMap<Integer, TaskSchedule> globalTaskScheduleIndex = new ConcurrentHashMap<>();
-    private static int baseGlobalIndex = 0;
     private static AtomicInteger offsetGlobalIndex = new AtomicInteger(0);
 
     private StringBuffer bufferLogProfiler = new StringBuffer();
@@ -150,10 +173,9 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
     private static final boolean EXEPERIMENTAL_MULTI_HOST_HEAP = false;
     private static final int DEFAULT_DRIVER_INDEX = 0;
     private static final int PERFORMANCE_WARMUP = 3;
+    private static final int ENERGY_INVOCATIONS = 10;
     private final static boolean TIME_IN_NANOSECONDS = Tornado.TIME_IN_NANOSECONDS;
-    private static final String TASK_SCHEDULE_PREFIX = "XXX";
-    private static final ConcurrentHashMap<Policy, ConcurrentHashMap<String, HistoryTable>> executionHistoryPolicy = new ConcurrentHashMap<>();
-    private static final int HISTORY_POINTS_PREDICTION = 5;
+    static final String TASK_SCHEDULE_PREFIX = "XXX";
     private static final boolean USE_GLOBAL_TASK_CACHE = false;
 
     /**
@@ -181,6 +203,7 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
      */
     public TornadoTaskSchedule(String taskScheduleName) {
         executionContext = new TornadoExecutionContext(taskScheduleName);
+        taskFusion = new TaskFusion(executionContext);
         hlBuffer = ByteBuffer.wrap(highLevelCode);
         hlBuffer.order(ByteOrder.LITTLE_ENDIAN);
         hlBuffer.rewind();
@@ -203,7 +226,7 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
     private void updateReference(Object oldRef, Object newRef, List<Object> list) {
         int i = 0;
         for (Object o : list) {
-            if (o.equals(oldRef)) {
+            if (o == oldRef) {
                 list.set(i, newRef);
             }
             i++;
@@ -212,21 +235,26 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
 
     @Override
     public void updateReference(Object oldRef, Object newRef) {
+        awaitBackgroundCompilation();
+
         // 1. Update from the streamIn list of objects
         updateReference(oldRef, newRef, streamInObjects);
 
         // 2. Update from the stream out list of objects
         updateReference(oldRef, newRef, streamOutObjects);
 
-        // 3. Update from graphContext
-        updateReference(oldRef, newRef, executionContext.getObjects());
+        // 3. Update the object table of the execution context
+        final LocalObjectState oldState = executionContext.replaceVariable(oldRef, newRef);
+        if (oldState != null) {
+            executionContext.getObjectState(newRef).copyStreamFlags(oldState);
+        }
 
         // 4. Update task-parameters
         // Force to recompile the task-sketcher
         for (TaskPackage tp : taskPackages) {
             Object[] params = tp.getTaskParameters();
             for (int k = 1; k < params.length; k++) {
-                if (params[k].equals(oldRef)) {
+                if (params[k] == oldRef) {
                     params[k] = newRef;
                 }
             }
@@ -235,6 +263,62 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
         triggerRecompile();
     }
 
+    /**
+     * Replaces an array of the task-schedule by another array of the same type
+     * and length, without generating the TornadoVM bytecodes or compiling the
+     * kernels again: kernels are specialised for the length of the arrays, not
+     * for the arrays themselves. The new array takes the index of the old one in
+     * the object table, so its device buffers are allocated and copied by the
+     * same bytecodes. Other objects are replaced with
+     * {@link #updateReference(Object, Object)}.
+     */
+    void rebind(Object oldRef, Object newRef) {
+        if (vm == null || !oldRef.getClass().isArray() || oldRef.getClass() != newRef.getClass() || Array.getLength(oldRef) != Array.getLength(newRef)) {
+            updateReference(oldRef, newRef);
+            return;
+        }
+        awaitBackgroundCompilation();
+
+        updateReference(oldRef, newRef, streamInObjects);
+        updateReference(oldRef, newRef, streamOutObjects);
+
+        final LocalObjectState oldState = executionContext.replaceVariable(oldRef, newRef);
+        if (oldState == null) {
+            return;
+        }
+        executionContext.getObjectState(newRef).copyStreamFlags(oldState);
+
+        for (TaskPackage tp : taskPackages) {
+            replaceParameter(tp.getTaskParameters(), 1, oldRef, newRef);
+        }
+        for (SchedulableTask task : executionContext.getTasks()) {
+            if (task instanceof CompilableTask) {
+                replaceParameter(((CompilableTask) task).getArguments(), 0, oldRef, newRef);
+            }
+        }
+        vm.replaceObject(executionContext.getObjectIndex(newRef));
+    }
+
+    private static void replaceParameter(Object[] parameters, int first, Object oldRef, Object newRef) {
+        for (int k = first; k < parameters.length; k++) {
+            if (parameters[k] == oldRef) {
+                parameters[k] = newRef;
+            }
+        }
+    }
+
+    /**
+     * Moves the sets of device buffers used by the task-schedule. Internal
+     * task-schedules that run at the same time on the same objects use different
+     * offsets, so that each of them has its own device buffers.
+     */
+    void setBufferSetOffset(int offset) {
+        bufferSetOffset = offset;
+        if (vm != null) {
+            vm.setBufferSetOffset(offset);
+        }
+    }
+
     @Override
     public void useDefaultThreadScheduler(boolean use) {
         executionContext.setDefaultThreadScheduler(use);
@@ -257,6 +341,7 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
 
     private void triggerRecompile() {
         // 1. Force to recompile the task-sketcher
+        taskFusion.restore();
         int i = 0;
         for (TaskPackage tp : taskPackages) {
             updateTask(tp, i);
@@ -275,6 +360,11 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
     public void setDevice(TornadoDevice device) {
         meta().setDevice(device);
 
+        // Fused tasks are built again for the new device
+        if (taskFusion.restore()) {
+            updateData = true;
+        }
+
         // Make sure that a sketch is available for the device.
         for (int i = 0; i < executionContext.getTaskCount(); i++) {
             SchedulableTask task = executionContext.getTask(i);
@@ -313,7 +403,7 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
             final ResolvedJavaMethod resolvedMethod = getTornadoRuntime().resolveMethod(compilableTask.getMethod());
             new SketchRequest(compilableTask.meta(), resolvedMethod, providers, suites.getGraphBuilderSuite(), suites.getSketchTier()).run();
 
-            Sketch lookup = TornadoSketcher.lookup(resolvedMethod, compilableTask.meta().getDriverIndex(), compilableTask.meta().getDeviceIndex());
+            Sketch lookup = TornadoSketcher.lookup(resolvedMethod, compilableTask.meta());
             this.graph = lookup.getGraph();
         }
     }
@@ -333,7 +423,7 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
             final ResolvedJavaMethod resolvedMethod = getTornadoRuntime().resolveMethod(compilableTask.getMethod());
             new SketchRequest(compilableTask.meta(), resolvedMethod, providers, suites.getGraphBuilderSuite(), suites.getSketchTier()).run();
 
-            Sketch lookup = TornadoSketcher.lookup(resolvedMethod, compilableTask.meta().getDriverIndex(), compilableTask.meta().getDeviceIndex());
+            Sketch lookup = TornadoSketcher.lookup(resolvedMethod, compilableTask.meta());
             this.graph = lookup.getGraph();
         }
 
@@ -403,19 +493,28 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
      *            boolean that specifies if set a new device or not.
      */
     private void compile(boolean setNewDevice) {
-        final ByteBuffer buffer = ByteBuffer.wrap(highLevelCode);
+        ByteBuffer buffer = ByteBuffer.wrap(highLevelCode);
         buffer.order(ByteOrder.LITTLE_ENDIAN);
         buffer.limit(hlBuffer.position());
 
+        if (meta().enableTaskFusion() && batchSizeBytes == -1 && partitionIterationSpace == -1 && gridTask == null) {
+            buffer = taskFusion.fuse(buffer);
+        }
+
         final TornadoGraph graph = TornadoGraphBuilder.buildGraph(executionContext, buffer);
         if (setNewDevice) {
             updateDeviceContext(graph);
         }
 
         // TornadoVM byte-code generation
-        result = TornadoVMGraphCompiler.compile(graph, executionContext, batchSizeBytes);
+        if (partitionIterationSpace != -1) {
+            result = TornadoVMGraphCompiler.compilePartition(graph, executionContext, partitionIterationSpace, partitionFirstIteration, partitionIterations);
+        } else {
+            result = TornadoVMGraphCompiler.compile(graph, executionContext, batchSizeBytes, batchBuffers);
+        }
 
         vm = new TornadoVM(executionContext, result.getCode(), result.getCodeSize(), timeProfiler, gridTask);
+        vm.setBufferSetOffset(bufferSetOffset);
 
         if (meta().shouldDumpSchedule()) {
             executionContext.print();
@@ -554,12 +653,75 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
         runAllTasksJavaSequential();
     }
 
+    /**
+     * Tiered execution: while the kernels of the task-schedule are compiled in
+     * the background, the tasks run on the host with their sequential Java
+     * implementation. Once all the kernels are installed, the task-schedule
+     * switches to the device. The host and the device never run at the same
+     * time, so the data is always consistent: the first execution on the device
+     * copies the inputs that were updated by the host. The execution that starts
+     * the background compilation always runs on the host. Internal task-schedules,
+     * such as the ones generated for reductions and dynamic reconfiguration, are
+     * always compiled in the calling thread.
+     *
+     * @return true if the task-schedule has been executed on the host.
+     */
+    private boolean runOnHostWhileCompiling() {
+        if (backgroundCompilation == null) {
+            return false;
+        }
+        if (!backgroundCompilation.isDone()) {
+            runAllTasksJavaSequential();
+            return true;
+        }
+        try {
+            backgroundCompilation.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof TornadoBailoutRuntimeException) {
+                deoptimizeToSequentialJava((TornadoBailoutRuntimeException) e.getCause());
+                return true;
+            }
+            throw e;
+        } finally {
+            backgroundCompilation = null;
+        }
+        return false;
+    }
+
+    /**
+     * Waits for the background compilation of the kernels, before the TornadoVM
+     * instance is used from the calling thread. Compilation errors are reported
+     * by the next execution, which compiles the failed tasks again.
+     */
+    private void awaitBackgroundCompilation() {
+        if (backgroundCompilation != null) {
+            try {
+                backgroundCompilation.join();
+            } catch (CompletionException e) {
+                warn("background compilation of %s failed: %s", getId(), e.getCause());
+            } finally {
+                backgroundCompilation = null;
+            }
+        }
+    }
+
     @Override
     public void scheduleInner() {
+        getTornadoRuntime().releaseCollectedObjects();
+        executedOnHost = runOnHostWhileCompiling();
+        if (executedOnHost) {
+            return;
+        }
+
         boolean compile = compileToTornadoVMBytecode();
         TornadoAcceleratorDevice deviceForTask = executionContext.getDeviceForTask(0);
         if (compile && deviceForTask.getDeviceContext().isPlatformFPGA()) {
             preCompilationForFPGA();
+        } else if (compile && TornadoOptions.TIERED_EXECUTION && !getId().startsWith(TASK_SCHEDULE_PREFIX)) {
+            backgroundCompilation = CompletableFuture.runAsync(vm::compile, getTornadoExecutor());
+            runAllTasksJavaSequential();
+            executedOnHost = true;
+            return;
         }
 
         try {
@@ -568,6 +730,7 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
             updateProfiler();
         } catch (TornadoBailoutRuntimeException e) {
             deoptimizeToSequentialJava(e);
+            executedOnHost = true;
         }
     }
 
@@ -634,6 +797,19 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
         }
     }
 
+    @Override
+    public void markDirty(Object array, int fromIndex, int toIndex) {
+        if (array == null || !array.getClass().isArray() || !array.getClass().getComponentType().isPrimitive()) {
+            throw new TornadoRuntimeException("[ERROR] markDirty() expects a primitive array in schedule " + executionContext.getId());
+        }
+        final int length = Array.getLength(array);
+        if (fromIndex < 0 || toIndex > length || fromIndex > toIndex) {
+            throw new TornadoRuntimeException(String.format("[ERROR] Invalid range [%d, %d) for an array of length %d", fromIndex, toIndex, length));
+        }
+        final long elementSize = JavaKind.fromJavaClass(array.getClass().getComponentType()).getByteCount();
+        getTornadoRuntime().resolveObject(array).markDirty(fromIndex * elementSize, toIndex * elementSize);
+    }
+
     @Override
     public void streamOutInner(Object... objects) {
         for (Object object : objects) {
@@ -668,6 +844,7 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
 
     @Override
     public void warmup() {
+        awaitBackgroundCompilation();
         getDevice().getDeviceContext().setResetToFalse();
         timeProfiler.clean();
 
@@ -684,9 +861,24 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
         }
     }
 
+    /**
+     * Checks whether the objects of the task-schedule have to be copied back
+     * from the devices, and waits for the background compilation before the
+     * TornadoVM instance is used. After an execution on the host, such as the
+     * host tier of the tiered execution or a bailout, the objects are already
+     * up to date on the host and no device owns them.
+     */
+    private boolean isSyncRequired() {
+        if (vm == null || executedOnHost) {
+            return false;
+        }
+        awaitBackgroundCompilation();
+        return true;
+    }
+
     @Override
     public void syncObject(Object object) {
-        if (vm == null) {
+        if (!isSyncRequired()) {
             return;
         }
         executionContext.sync();
@@ -702,7 +894,7 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
 
     @Override
     public void syncObjects() {
-        if (vm == null) {
+        if (!isSyncRequired()) {
             return;
         }
         executionContext.sync();
@@ -710,7 +902,7 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
 
     @Override
     public void syncObjects(Object... objects) {
-        if (vm == null) {
+        if (!isSyncRequired()) {
             return;
         }
 
@@ -773,6 +965,40 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
         return graph;
     }
 
+    /**
+     * Restricts the task-schedule to a partition of the iteration space. It is
+     * used by co-execution, where each device computes its own partition. The
+     * TornadoVM bytecodes are generated again when the partition changes.
+     */
+    void setPartition(long iterationSpace, long firstIteration, long numIterations) {
+        if (iterationSpace == partitionIterationSpace && firstIteration == partitionFirstIteration && numIterations == partitionIterations) {
+            return;
+        }
+        partitionIterationSpace = iterationSpace;
+        partitionFirstIteration = firstIteration;
+        partitionIterations = numIterations;
+        updateData = true;
+        // The device buffers hold the previous partition. Other partitions of the
+        // same objects live on other devices, so they are kept.
+        if (vm != null) {
+            vm.invalidateObjectsOnDevices();
+        }
+    }
+
+    /**
+     * Generates the TornadoVM bytecodes and compiles the kernels of the current
+     * partition, so that the partition can then run at the same time as the
+     * partitions of other devices.
+     */
+    void preparePartition() {
+        if (!updateData && vm != null) {
+            return;
+        }
+        compileToTornadoVMBytecode();
+        vm.compile();
+        updateData = false;
+    }
+
     private void cleanUp() {
         updateData = false;
         isFinished = true;
@@ -786,11 +1012,15 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
                 throw new TornadoBailoutRuntimeException("[TornadoVM] Error - Recover option disabled");
             } else {
                 runAllTasksJavaSequential();
+                executedOnHost = true;
                 return this;
             }
         }
 
-        timeProfiler.clean();
+        if (backgroundCompilation == null) {
+            // The timers are updated by the background compilation
+            timeProfiler.clean();
+        }
         timeProfiler.start(ProfilerType.TOTAL_TASK_SCHEDULE_TIME);
 
         AbstractTaskGraph executionGraph = null;
@@ -813,94 +1043,101 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
         return schedule();
     }
 
-    @SuppressWarnings("unchecked")
     private void runSequentialCodeInThread(TaskPackage taskPackage) {
-        int type = taskPackage.getTaskType();
+        runSequentialCode(taskPackage.getTaskType(), taskPackage.getTaskParameters());
+    }
+
+    /**
+     * Runs the sequential Java implementation of a task with the given
+     * parameters. The first parameter is the task itself.
+     */
+    @SuppressWarnings("unchecked")
+    static void runSequentialCode(int type, Object[] parameters) {
         switch (type) {
             case 0:
-                @SuppressWarnings("rawtypes") Task task = (Task) taskPackage.getTaskParameters()[0];
+                @SuppressWarnings("rawtypes") Task task = (Task) parameters[0];
                 task.apply();
                 break;
             case 1:
-                @SuppressWarnings("rawtypes") Task1 task1 = (Task1) taskPackage.getTaskParameters()[0];
-                task1.apply(taskPackage.getTaskParameters()[1]);
+                @SuppressWarnings("rawtypes") Task1 task1 = (Task1) parameters[0];
+                task1.apply(parameters[1]);
                 break;
             case 2:
-                @SuppressWarnings("rawtypes") Task2 task2 = (Task2) taskPackage.getTaskParameters()[0];
-                task2.apply(taskPackage.getTaskParameters()[1], taskPackage.getTaskParameters()[2]);
+                @SuppressWarnings("rawtypes") Task2 task2 = (Task2) parameters[0];
+                task2.apply(parameters[1], parameters[2]);
                 break;
             case 3:
-                @SuppressWarnings("rawtypes") Task3 task3 = (Task3) taskPackage.getTaskParameters()[0];
-                task3.apply(taskPackage.getTaskParameters()[1], taskPackage.getTaskParameters()[2], taskPackage.getTaskParameters()[3]);
+                @SuppressWarnings("rawtypes") Task3 task3 = (Task3) parameters[0];
+                task3.apply(parameters[1], parameters[2], parameters[3]);
                 break;
             case 4:
-                @SuppressWarnings("rawtypes") Task4 task4 = (Task4) taskPackage.getTaskParameters()[0];
-                task4.apply(taskPackage.getTaskParameters()[1], taskPackage.getTaskParameters()[2], taskPackage.getTaskParameters()[3], taskPackage.getTaskParameters()[4]);
+                @SuppressWarnings("rawtypes") Task4 task4 = (Task4) parameters[0];
+                task4.apply(parameters[1], parameters[2], parameters[3], parameters[4]);
                 break;
             case 5:
-                @SuppressWarnings("rawtypes") Task5 task5 = (Task5) taskPackage.getTaskParameters()[0];
-                task5.apply(taskPackage.getTaskParameters()[1], taskPackage.getTaskParameters()[2], taskPackage.getTaskParameters()[3], taskPackage.getTaskParameters()[4],
-                        taskPackage.getTaskParameters()[5]);
+                @SuppressWarnings("rawtypes") Task5 task5 = (Task5) parameters[0];
+                task5.apply(parameters[1], parameters[2], parameters[3], parameters[4],
+                        parameters[5]);
                 break;
             case 6:
-                @SuppressWarnings("rawtypes") Task6 task6 = (Task6) taskPackage.getTaskParameters()[0];
-                task6.apply(taskPackage.getTaskParameters()[1], taskPackage.getTaskParameters()[2], taskPackage.getTaskParameters()[3], taskPackage.getTaskParameters()[4],
-                        taskPackage.getTaskParameters()[5], taskPackage.getTaskParameters()[6]);
+                @SuppressWarnings("rawtypes") Task6 task6 = (Task6) parameters[0];
+                task6.apply(parameters[1], parameters[2], parameters[3], parameters[4],
+                        parameters[5], parameters[6]);
                 break;
             case 7:
-                @SuppressWarnings("rawtypes") Task7 task7 = (Task7) taskPackage.getTaskParameters()[0];
-                task7.apply(taskPackage.getTaskParameters()[1], taskPackage.getTaskParameters()[2], taskPackage.getTaskParameters()[3], taskPackage.getTaskParameters()[4],
-                        taskPackage.getTaskParameters()[5], taskPackage.getTaskParameters()[6], taskPackage.getTaskParameters()[7]);
+                @SuppressWarnings("rawtypes") Task7 task7 = (Task7) parameters[0];
+                task7.apply(parameters[1], parameters[2], parameters[3], parameters[4],
+                        parameters[5], parameters[6], parameters[7]);
                 break;
             case 8:
-                @SuppressWarnings("rawtypes") Task8 task8 = (Task8) taskPackage.getTaskParameters()[0];
-                task8.apply(taskPackage.getTaskParameters()[1], taskPackage.getTaskParameters()[2], taskPackage.getTaskParameters()[3], taskPackage.getTaskParameters()[4],
-                        taskPackage.getTaskParameters()[5], taskPackage.getTaskParameters()[6], taskPackage.getTaskParameters()[7], taskPackage.getTaskParameters()[8]);
+                @SuppressWarnings("rawtypes") Task8 task8 = (Task8) parameters[0];
+                task8.apply(parameters[1], parameters[2], parameters[3], parameters[4],
+                        parameters[5], parameters[6], parameters[7], parameters[8]);
                 break;
             case 9:
-                @SuppressWarnings("rawtypes") Task9 task9 = (Task9) taskPackage.getTaskParameters()[0];
-                task9.apply(taskPackage.getTaskParameters()[1], taskPackage.getTaskParameters()[2], taskPackage.getTaskParameters()[3], taskPackage.getTaskParameters()[4],
-                        taskPackage.getTaskParameters()[5], taskPackage.getTaskParameters()[6], taskPackage.getTaskParameters()[7], taskPackage.getTaskParameters()[8],
-                        taskPackage.getTaskParameters()[9]);
+                @SuppressWarnings("rawtypes") Task9 task9 = (Task9) parameters[0];
+                task9.apply(parameters[1], parameters[2], parameters[3], parameters[4],
+                        parameters[5], parameters[6], parameters[7], parameters[8],
+                        parameters[9]);
                 break;
             case 10:
-                @SuppressWarnings("rawtypes") Task10 task10 = (Task10) taskPackage.getTaskParameters()[0];
-                task10.apply(taskPackage.getTaskParameters()[1], taskPackage.getTaskParameters()[2], taskPackage.getTaskParameters()[3], taskPackage.getTaskParameters()[4],
-                        taskPackage.getTaskParameters()[5], taskPackage.getTaskParameters()[6], taskPackage.getTaskParameters()[7], taskPackage.getTaskParameters()[8],
-                        taskPackage.getTaskParameters()[9], taskPackage.getTaskParameters()[10]);
+                @SuppressWarnings("rawtypes") Task10 task10 = (Task10) parameters[0];
+                task10.apply(parameters[1], parameters[2], parameters[3], parameters[4],
+                        parameters[5], parameters[6], parameters[7], parameters[8],
+                        parameters[9], parameters[10]);
                 break;
             case 11:
-                @SuppressWarnings("rawtypes") Task11 task11 = (Task11) taskPackage.getTaskParameters()[0];
-                task11.apply(taskPackage.getTaskParameters()[1], taskPackage.getTaskParameters()[2], taskPackage.getTaskParameters()[3], taskPackage.getTaskParameters()[4],
-                        taskPackage.getTaskParameters()[5], taskPackage.getTaskParameters()[6], taskPackage.getTaskParameters()[7], taskPackage.getTaskParameters()[8],
-                        taskPackage.getTaskParameters()[9], taskPackage.getTaskParameters()[10], taskPackage.getTaskParameters()[11]);
+                @SuppressWarnings("rawtypes") Task11 task11 = (Task11) parameters[0];
+                task11.apply(parameters[1], parameters[2], parameters[3], parameters[4],
+                        parameters[5], parameters[6], parameters[7], parameters[8],
+                        parameters[9], parameters[10], parameters[11]);
                 break;
             case 12:
-                @SuppressWarnings("rawtypes") Task12 task12 = (Task12) taskPackage.getTaskParameters()[0];
-                task12.apply(taskPackage.getTaskParameters()[1], taskPackage.getTaskParameters()[2], taskPackage.getTaskParameters()[3], taskPackage.getTaskParameters()[4],
-                        taskPackage.getTaskParameters()[5], taskPackage.getTaskParameters()[6], taskPackage.getTaskParameters()[7], taskPackage.getTaskParameters()[8],
-                        taskPackage.getTaskParameters()[9], taskPackage.getTaskParameters()[10], taskPackage.getTaskParameters()[11], taskPackage.getTaskParameters()[12]);
+                @SuppressWarnings("rawtypes") Task12 task12 = (Task12) parameters[0];
+                task12.apply(parameters[1], parameters[2], parameters[3], parameters[4],
+                        parameters[5], parameters[6], parameters[7], parameters[8],
+                        parameters[9], parameters[10], parameters[11], parameters[12]);
                 break;
             case 13:
-                @SuppressWarnings("rawtypes") Task13 task13 = (Task13) taskPackage.getTaskParameters()[0];
-                task13.apply(taskPackage.getTaskParameters()[1], taskPackage.getTaskParameters()[2], taskPackage.getTaskParameters()[3], taskPackage.getTaskParameters()[4],
-                        taskPackage.getTaskParameters()[5], taskPackage.getTaskParameters()[6], taskPackage.getTaskParameters()[7], taskPackage.getTaskParameters()[8],
-                        taskPackage.getTaskParameters()[9], taskPackage.getTaskParameters()[10], taskPackage.getTaskParameters()[11], taskPackage.getTaskParameters()[12],
-                        taskPackage.getTaskParameters()[13]);
+                @SuppressWarnings("rawtypes") Task13 task13 = (Task13) parameters[0];
+                task13.apply(parameters[1], parameters[2], parameters[3], parameters[4],
+                        parameters[5], parameters[6], parameters[7], parameters[8],
+                        parameters[9], parameters[10], parameters[11], parameters[12],
+                        parameters[13]);
                 break;
             case 14:
-                @SuppressWarnings("rawtypes") Task14 task14 = (Task14) taskPackage.getTaskParameters()[0];
-                task14.apply(taskPackage.getTaskParameters()[1], taskPackage.getTaskParameters()[2], taskPackage.getTaskParameters()[3], taskPackage.getTaskParameters()[4],
-                        taskPackage.getTaskParameters()[5], taskPackage.getTaskParameters()[6], taskPackage.getTaskParameters()[7], taskPackage.getTaskParameters()[8],
-                        taskPackage.getTaskParameters()[9], taskPackage.getTaskParameters()[10], taskPackage.getTaskParameters()[11], taskPackage.getTaskParameters()[12],
-                        taskPackage.getTaskParameters()[13], taskPackage.getTaskParameters()[14]);
+                @SuppressWarnings("rawtypes") Task14 task14 = (Task14) parameters[0];
+                task14.apply(parameters[1], parameters[2], parameters[3], parameters[4],
+                        parameters[5], parameters[6], parameters[7], parameters[8],
+                        parameters[9], parameters[10], parameters[11], parameters[12],
+                        parameters[13], parameters[14]);
                 break;
             case 15:
-                @SuppressWarnings("rawtypes") Task15 task15 = (Task15) taskPackage.getTaskParameters()[0];
-                task15.apply(taskPackage.getTaskParameters()[1], taskPackage.getTaskParameters()[2], taskPackage.getTaskParameters()[3], taskPackage.getTaskParameters()[4],
-                        taskPackage.getTaskParameters()[5], taskPackage.getTaskParameters()[6], taskPackage.getTaskParameters()[7], taskPackage.getTaskParameters()[8],
-                        taskPackage.getTaskParameters()[9], taskPackage.getTaskParameters()[10], taskPackage.getTaskParameters()[11], taskPackage.getTaskParameters()[12],
-                        taskPackage.getTaskParameters()[13], taskPackage.getTaskParameters()[14], taskPackage.getTaskParameters()[15]);
+                @SuppressWarnings("rawtypes") Task15 task15 = (Task15) parameters[0];
+                task15.apply(parameters[1], parameters[2], parameters[3], parameters[4],
+                        parameters[5], parameters[6], parameters[7], parameters[8],
+                        parameters[9], parameters[10], parameters[11], parameters[12],
+                        parameters[13], parameters[14], parameters[15]);
                 break;
             default:
                 System.out.println("Sequential Runner not supported yet. Number of parameters: " + type);
@@ -908,7 +1145,38 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
         }
     }
 
-    private int synchronizeWithPolicy(Policy policy, long[] totalTimers) {
+    private static int getMinPosition(long[] values) {
+        int position = 0;
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < values.length; i++) {
+            if (min > values[i]) {
+                min = values[i];
+                position = i;
+            }
+        }
+        return position;
+    }
+
+    private static int getMinPosition(double[] values) {
+        int position = 0;
+        double min = Double.MAX_VALUE;
+        for (int i = 0; i < values.length; i++) {
+            if (min > values[i]) {
+                min = values[i];
+                position = i;
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Selects the device for the policy. PERFORMANCE and END_2_END select the
+     * shortest execution time, with and without the warm-up, and LATENCY selects
+     * the shortest time to the first result, including the JIT compilation.
+     * ENERGY selects the lowest energy per invocation, and it falls back to the
+     * execution time when there is no energy monitor available.
+     */
+    private int synchronizeWithPolicy(Policy policy, long[] totalTimers, double[] totalEnergy) {
         // Set the Performance policy by default;
         if (policy == null) {
             policy = Policy.PERFORMANCE;
@@ -919,15 +1187,16 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
         switch (policy) {
             case END_2_END:
             case PERFORMANCE:
-                int position = 0;
-                long min = Long.MAX_VALUE;
-                for (int i = 0; i < totalTimers.length; i++) {
-                    if (min > totalTimers[i]) {
-                        min = totalTimers[i];
-                        position = i;
-                    }
+            case LATENCY:
+                deviceWinnerIndex = getMinPosition(totalTimers);
+                break;
+            case ENERGY:
+                if (totalEnergy != null && EnergyMonitors.getMonitor().isAvailable()) {
+                    deviceWinnerIndex = getMinPosition(totalEnergy);
+                } else {
+                    warn("No energy monitor available for the policy %s. Selecting the device by execution time", policy);
+                    deviceWinnerIndex = getMinPosition(totalTimers);
                 }
-                deviceWinnerIndex = position;
                 break;
             default:
                 throw new RuntimeException("Policy " + policy + " not defined yet");
@@ -936,29 +1205,25 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
         return deviceWinnerIndex;
     }
 
-    private int syncWinner(Thread[] threads) {
-        int winner = 0;
-        boolean isAlive = true;
-        while (isAlive) {
-
-            for (int i = 0; i < threads.length; i++) {
-                isAlive = threads[i].isAlive();
-                if (!isAlive) {
-                    if (TornadoOptions.DEBUG_POLICY) {
-                        System.out.println("Thread " + threads[i].getName() + " finished");
-                    }
-                    winner = i;
-                    // kill the others
-                    for (int j = 0; j < threads.length; j++) {
-                        if (i != j) {
-                            threads[j].interrupt();
-                        }
-                    }
-                    break;
-                }
-            }
+    /**
+     * Measures the energy per invocation of a task-schedule that has already been
+     * compiled and warmed up.
+     *
+     * @param deviceIndex
+     *            Device in which the task-schedule runs, or
+     *            {@link EnergyMonitor#HOST} for the sequential implementation.
+     */
+    private static double measureEnergyPerInvocation(int deviceIndex, Runnable execution) {
+        final EnergyMonitor monitor = EnergyMonitors.getMonitor();
+        if (!monitor.isAvailable()) {
+            return 0;
+        }
+        final double start = monitor.readEnergy(DEFAULT_DRIVER_INDEX, deviceIndex);
+        for (int k = 0; k < ENERGY_INVOCATIONS; k++) {
+            execution.run();
         }
-        return winner;
+        final double end = monitor.readEnergy(DEFAULT_DRIVER_INDEX, deviceIndex);
+        return (end - start) / ENERGY_INVOCATIONS;
     }
 
     static void performStreamInThread(TaskSchedule task, ArrayList<Object> inputObjects) {
@@ -1091,35 +1356,55 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
         }
     }
 
-    private void runParallelSequential(Policy policy, Thread[] threads, int indexSequential, Timer timer, long[] totalTimers) {
-        // Last Thread runs the sequential code
-        threads[indexSequential] = new Thread(() -> {
-            long start = System.currentTimeMillis();
+    /**
+     * Profiles the sequential implementation on the host. It runs on the last
+     * position of the profiling round.
+     *
+     * @return a future that completes with the index of the host, once the
+     *         sequential code has finished or it has been cancelled.
+     */
+    private CompletableFuture<Integer> runParallelSequential(Policy policy, int indexSequential, Timer timer, long[] totalTimers, AtomicBoolean cancelled) {
+        return CompletableFuture.supplyAsync(() -> {
+            totalTimers[indexSequential] = Long.MAX_VALUE;
+            long start = timer.time();
             if (policy == Policy.PERFORMANCE) {
                 for (int k = 0; k < PERFORMANCE_WARMUP; k++) {
                     runAllTasksJavaSequential();
                 }
                 start = timer.time();
             }
+            for (TaskPackage taskPackage : taskPackages) {
+                if (cancelled.get()) {
+                    return indexSequential;
+                }
+                runSequentialCodeInThread(taskPackage);
+            }
             final long endSequentialCode = timer.time();
-            Thread.currentThread().setName("Thread-sequential");
             if (TornadoOptions.DEBUG_POLICY) {
-                System.out.println("Seq finished: " + Thread.currentThread().getName());
+                System.out.println("Seq finished");
             }
-
             totalTimers[indexSequential] = (endSequentialCode - start);
-        });
+            return indexSequential;
+        }, getTornadoExecutor());
     }
 
-    private void runParallelTaskSchedules(int numDevices, Thread[] threads, Timer timer, Policy policy, long[] totalTimers) {
+    /**
+     * Profiles one internal task-schedule per device. The task-schedules check
+     * the cancellation flag before every execution, so the devices that lose a
+     * LATENCY round stop at the next execution instead of running to the end.
+     * The kernel that is already running on a device can not be stopped.
+     *
+     * @return a future per device that completes with the index of the device.
+     */
+    private CompletableFuture<?>[] runParallelTaskSchedules(int numDevices, Timer timer, Policy policy, long[] totalTimers, AtomicBoolean cancelled) {
+        CompletableFuture<?>[] profilers = new CompletableFuture<?>[numDevices];
         for (int i = 0; i < numDevices; i++) {
             final int taskScheduleNumber = i;
-            threads[i] = new Thread(() -> {
+            profilers[i] = CompletableFuture.supplyAsync(() -> {
+                totalTimers[taskScheduleNumber] = Long.MAX_VALUE;
                 String taskScheduleName = TASK_SCHEDULE_PREFIX + taskScheduleNumber;
                 TaskSchedule task = new TaskSchedule(taskScheduleName);
 
-                Thread.currentThread().setName("Thread-DEV: " + TornadoRuntime.getTornadoRuntime().getDriver(0).getDevice(taskScheduleNumber).getDevice().getDeviceName());
-
                 long start = timer.time();
                 performStreamInThread(task, streamInObjects);
                 for (int k = 0; k < taskPackages.size(); k++) {
@@ -1139,6 +1424,9 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
                     }
                     start = timer.time();
                 }
+                if (cancelled.get()) {
+                    return taskScheduleNumber;
+                }
                 task.execute();
                 final long end = timer.time();
                 taskScheduleIndex.put(taskScheduleNumber, task);
@@ -1151,9 +1439,41 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
                 }
 
                 totalTimers[taskScheduleNumber] = end - start;
-            });
+                if (TornadoOptions.DEBUG_POLICY) {
+                    System.out.println("Device finished: " + TornadoRuntime.getTornadoRuntime().getDriver(DEFAULT_DRIVER_INDEX).getDevice(taskScheduleNumber).getDevice().getDeviceName());
+                }
+                return taskScheduleNumber;
+            }, getTornadoExecutor());
         }
+        return profilers;
+    }
+
+    /**
+     * Waits for the first profiler that completes normally. The future completes
+     * with -1 if all the profilers fail.
+     */
+    private static int waitForFirst(CompletableFuture<?>[] profilers) {
+        CompletableFuture<Integer> first = new CompletableFuture<>();
+        for (CompletableFuture<?> profiler : profilers) {
+            profiler.thenAccept(index -> first.complete((Integer) index));
+        }
+        CompletableFuture.allOf(profilers).whenComplete((ignored, error) -> first.complete(-1));
+        return first.join();
+    }
 
+    /**
+     * Drains the command queues of the devices that lost a LATENCY round and
+     * releases their events, so the next execution of the task-schedule does
+     * not find commands of the profiling round in flight.
+     */
+    private static void releaseLosers(TornadoDriver tornadoDriver, int numDevices, int deviceWinnerIndex) {
+        for (int i = 0; i < numDevices; i++) {
+            if (i != deviceWinnerIndex) {
+                TornadoDevice device = tornadoDriver.getDevice(i);
+                device.sync();
+                device.flushEvents();
+            }
+        }
     }
 
     private void runScheduleWithParallelProfiler(Policy policy) {
@@ -1161,42 +1481,48 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
         final Timer timer = (TIME_IN_NANOSECONDS) ? new NanoSecTimer() : new MillesecTimer();
         TornadoDriver tornadoDriver = getTornadoRuntime().getDriver(DEFAULT_DRIVER_INDEX);
         int numDevices = tornadoDriver.getDeviceCount();
-        long masterThreadID = Thread.currentThread().getId();
 
-        // One additional threads is reserved for sequential CPU execution
-        final int numThreads = numDevices + 1;
+        // One additional profiler is reserved for sequential CPU execution
+        final int numProfilers = numDevices + 1;
         final int indexSequential = numDevices;
-        Thread[] threads = new Thread[numThreads];
-        long[] totalTimers = new long[numThreads];
+        long[] totalTimers = new long[numProfilers];
+        final AtomicBoolean cancelled = new AtomicBoolean(false);
 
-        // Last Thread runs the sequential code
-        runParallelSequential(policy, threads, indexSequential, timer, totalTimers);
+        CompletableFuture<?>[] profilers = new CompletableFuture<?>[numProfilers];
 
         // Run all task schedules in parallel
-        runParallelTaskSchedules(numDevices, threads, timer, policy, totalTimers);
+        CompletableFuture<?>[] deviceProfilers = runParallelTaskSchedules(numDevices, timer, policy, totalTimers, cancelled);
+        System.arraycopy(deviceProfilers, 0, profilers, 0, numDevices);
 
-        // FORK
-        for (int i = 0; i < numThreads; i++) {
-            threads[i].start();
-        }
+        // Last profiler runs the sequential code
+        profilers[indexSequential] = runParallelSequential(policy, indexSequential, timer, totalTimers, cancelled);
 
-        // Define the winner, based on the first thread to finish
+        // Define the winner, based on the first profiler to finish
+        int deviceWinnerIndex = -1;
         if (policy == Policy.LATENCY) {
-            int deviceWinnerIndex = syncWinner(threads);
-            policyTimeTable.put(policy, deviceWinnerIndex);
+            deviceWinnerIndex = waitForFirst(profilers);
+            cancelled.set(true);
         }
 
-        // JOIN
-        for (Thread t : threads) {
-            try {
-                t.join();
-            } catch (InterruptedException e) {
-                throw new RuntimeException(e);
+        // The losers share the streamOut objects with the winner, so all of them
+        // have to stop before the results are read on the host.
+        try {
+            CompletableFuture.allOf(profilers).join();
+        } catch (CompletionException e) {
+            if (deviceWinnerIndex == -1) {
+                throw e;
             }
+            warn("Device profiling failed after the LATENCY winner was selected: %s", e.getCause());
         }
 
-        if ((policy == Policy.PERFORMANCE || policy == Policy.END_2_END) && (masterThreadID == Thread.currentThread().getId())) {
-            int deviceWinnerIndex = synchronizeWithPolicy(policy, totalTimers);
+        if (policy == Policy.LATENCY) {
+            releaseLosers(tornadoDriver, numDevices, deviceWinnerIndex);
+            policyTimeTable.put(policy, deviceWinnerIndex);
+            if (TornadoOptions.DEBUG_POLICY) {
+                System.out.println("LATENCY winner: #" + deviceWinnerIndex);
+            }
+        } else if (policy == Policy.PERFORMANCE || policy == Policy.END_2_END) {
+            deviceWinnerIndex = synchronizeWithPolicy(policy, totalTimers, null);
             policyTimeTable.put(policy, deviceWinnerIndex);
             if (TornadoOptions.DEBUG_POLICY) {
                 System.out.println(getListDevices());
@@ -1246,9 +1572,77 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
         task.execute();
     }
 
+    @Override
+    public AbstractTaskGraph scheduleWithCoExecution(float[] ratios) {
+        if (batchSizeBytes != -1) {
+            throw new TornadoRuntimeException("[UNSUPPORTED] Co-execution of task-schedules that are processed in batches");
+        }
+        if (coExecution == null) {
+            coExecution = new CoExecutionTaskSchedule(getId(), taskPackages, streamInObjects, streamOutObjects);
+        }
+        coExecution.execute(ratios);
+        return this;
+    }
+
+    /**
+     * Dispatches the execution to the executor, which returns once the bytecodes
+     * of the TornadoVM have been enqueued. The future is then completed by the
+     * {@link EventPoller} from the last event of the TornadoVM (the final
+     * marker). The TornadoVM of a task-schedule runs one execution at a time, so
+     * each execution is chained to the previous one, whether it failed or not.
+     */
+    @Override
+    public synchronized CompletableFuture<Void> scheduleAsync(Executor executor) {
+        final Executor target = (executor == null) ? getTornadoExecutor() : executor;
+        final CompletableFuture<Void> execution = lastAsyncExecution.handle((ignored, error) -> (Void) null).thenComposeAsync(ignored -> dispatchAsync(), target);
+        lastAsyncExecution = execution;
+        return execution;
+    }
+
+    private CompletableFuture<Void> dispatchAsync() {
+        schedule();
+        if (!VM_USE_DEPS || event == null) {
+            // Without events, the executor thread has to synchronise the devices
+            waitOn();
+            return CompletableFuture.completedFuture(null);
+        }
+        // The final marker has to be submitted before the poller checks it
+        executionContext.getDevices().forEach(TornadoDevice::flush);
+        return EventPoller.completion(event);
+    }
+
+    private synchronized ConcurrentTaskSchedule getConcurrentExecution() {
+        if (concurrentExecution == null) {
+            if (batchSizeBytes != -1) {
+                throw new TornadoRuntimeException("[UNSUPPORTED] Concurrent execution of task-schedules that are processed in batches");
+            }
+            if (executionContext.getTaskCount() != taskPackages.size()) {
+                throw new TornadoRuntimeException("[UNSUPPORTED] Concurrent execution of task-schedules with prebuilt tasks");
+            }
+            final String[] taskDevices = new String[taskPackages.size()];
+            for (int i = 0; i < taskDevices.length; i++) {
+                final TaskMetaDataInterface taskMeta = executionContext.getTask(i).meta();
+                taskDevices[i] = taskMeta.getDriverIndex() + ":" + taskMeta.getDeviceIndex();
+            }
+            final Set<Object> objects = Collections.newSetFromMap(new IdentityHashMap<>());
+            objects.addAll(executionContext.getObjects());
+            concurrentExecution = new ConcurrentTaskSchedule(getId(), taskPackages, streamInObjects, streamOutObjects, taskDevices, objects, TornadoOptions.CONCURRENT_CONTEXTS);
+        }
+        return concurrentExecution;
+    }
+
+    @Override
+    public void scheduleConcurrently(Map<Object, Object> bindings) {
+        getConcurrentExecution().execute(bindings);
+    }
+
     @Override
     public AbstractTaskGraph scheduleWithProfile(Policy policy) {
-        if (policyTimeTable.get(policy) == null) {
+        if (policyTimeTable.get(policy) == null && policy == Policy.ENERGY) {
+            // The energy counters are shared by the devices, so the devices are
+            // profiled one after the other
+            runWithSequentialProfiler(policy);
+        } else if (policyTimeTable.get(policy) == null) {
             runScheduleWithParallelProfiler(policy);
         } else {
             // Run with the winner device
@@ -1305,9 +1699,9 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
         }
     }
 
-    private void runSequentialTaskSchedule(Policy policy, Timer timer, long[] totalTimers, int indexSequential) {
+    private void runSequentialTaskSchedule(Policy policy, Timer timer, long[] totalTimers, double[] totalEnergy, int indexSequential) {
         long startSequential = timer.time();
-        if (policy == Policy.PERFORMANCE) {
+        if (policy == Policy.PERFORMANCE || policy == Policy.ENERGY) {
             for (int k = 0; k < PERFORMANCE_WARMUP; k++) {
                 runAllTasksJavaSequential();
             }
@@ -1316,9 +1710,13 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
         runAllTasksJavaSequential();
         final long endSequentialCode = timer.time();
         totalTimers[indexSequential] = (endSequentialCode - startSequential);
+
+        if (policy == Policy.ENERGY) {
+            totalEnergy[indexSequential] = measureEnergyPerInvocation(EnergyMonitor.HOST, this::runAllTasksJavaSequential);
+        }
     }
 
-    private void runAllTaskSchedulesInAcceleratorsSequentually(int numDevices, Timer timer, Policy policy, long[] totalTimers) {
+    private void runAllTaskSchedulesInAcceleratorsSequentually(int numDevices, Timer timer, Policy policy, long[] totalTimers, double[] totalEnergy) {
         String[] ignoreTaskNames = System.getProperties().getProperty("tornado.ignore.tasks", "").split(",");
 
         // Running sequentially for all the devices
@@ -1337,6 +1735,7 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
                 for (String s : ignoreTaskNames) {
                     if (s.equals(name)) {
                         totalTimers[taskNumber] = Long.MAX_VALUE;
+                        totalEnergy[taskNumber] = Double.MAX_VALUE;
                         ignoreTask = true;
                         break;
                     }
@@ -1354,7 +1753,7 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
             }
             performStreamOutThreads(task, streamOutObjects);
 
-            if (policy == Policy.PERFORMANCE) {
+            if (policy == Policy.PERFORMANCE || policy == Policy.ENERGY) {
                 for (int k = 0; k < PERFORMANCE_WARMUP; k++) {
                     task.execute();
                 }
@@ -1362,6 +1761,7 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
             }
 
             task.execute();
+            final long end = timer.time();
             taskScheduleIndex.put(taskNumber, task);
 
             // TaskSchedules Global
@@ -1372,46 +1772,66 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
                 globalTaskScheduleIndex.put(taskNumber, task);
             }
 
-            final long end = timer.time();
             totalTimers[taskNumber] = end - start;
+
+            if (policy == Policy.ENERGY) {
+                totalEnergy[taskNumber] = measureEnergyPerInvocation(taskNumber, task::execute);
+            }
         }
     }
 
-    private void updateHistoryTables(Policy policy, int deviceWinnerIndex) {
-        // Matching the name
-        for (TaskPackage taskPackage : taskPackages) {
-            Object code = taskPackage.getTaskParameters()[0];
-            Method m = TaskUtils.resolveMethodHandle(code);
-            ConcurrentHashMap<String, HistoryTable> tableSizes = null;
-
-            int dev = baseGlobalIndex + deviceWinnerIndex;
+    /**
+     * @return the execution history of the task-schedule for the policy, which
+     *         is loaded from the execution history database the first time.
+     */
+    private ExecutionHistoryModel getExecutionHistory(Policy policy) {
+        return executionHistory.computeIfAbsent(policy, p -> {
+            List<String> tasks = new ArrayList<>();
+            for (TaskPackage taskPackage : taskPackages) {
+                tasks.add(TaskUtils.resolveMethodHandle(taskPackage.getTaskParameters()[0]).toGenericString());
+            }
+            List<String> devices = new ArrayList<>();
+            TornadoDriver driver = getTornadoRuntime().getDriver(DEFAULT_DRIVER_INDEX);
+            for (int i = 0; i < driver.getDeviceCount(); i++) {
+                devices.add(driver.getDevice(i).getDeviceName());
+            }
+            devices.add("JVM");
+            return ExecutionHistoryModel.create(p.name(), getHistoryMetric(p), tasks, devices);
+        });
+    }
 
-            if (!executionHistoryPolicy.containsKey(policy)) {
-                tableSizes = new ConcurrentHashMap<>();
-                HistoryTable table = new HistoryTable();
-                int size = getMaxInputSize();
-                table.getTree().put(size, dev);
+    private static boolean isEnergyMeasured(Policy policy) {
+        return policy == Policy.ENERGY && EnergyMonitors.getMonitor().isAvailable();
+    }
 
-                tableSizes.put(m.toGenericString(), table);
+    private static String getHistoryMetric(Policy policy) {
+        if (isEnergyMeasured(policy)) {
+            return "J";
+        }
+        return TIME_IN_NANOSECONDS ? "ns" : "ms";
+    }
 
+    private void updateExecutionHistory(Policy policy, long[] totalTimers, double[] totalEnergy) {
+        final boolean energy = isEnergyMeasured(policy);
+        double[] metrics = new double[totalTimers.length];
+        for (int i = 0; i < metrics.length; i++) {
+            if (totalTimers[i] == Long.MAX_VALUE) {
+                // Ignored tasks are not measured
+                metrics[i] = Double.NaN;
             } else {
-                tableSizes = executionHistoryPolicy.get(policy);
-                if (!tableSizes.containsKey(m.toGenericString())) {
-                    HistoryTable table = new HistoryTable();
-                    int size = getMaxInputSize();
-                    table.getTree().put(size, dev);
-                    tableSizes.put(m.toGenericString(), table);
-                } else {
-                    // update the size
-                    HistoryTable table = tableSizes.get(m.toGenericString());
-                    int size = getMaxInputSize();
-                    table.getTree().put(size, dev);
-                    tableSizes.put(m.toGenericString(), table);
-                }
+                metrics[i] = energy ? totalEnergy[i] : totalTimers[i];
             }
-            executionHistoryPolicy.put(policy, tableSizes);
-            baseGlobalIndex = offsetGlobalIndex.get();
         }
+
+        List<Map<String, Integer>> features = new ArrayList<>();
+        for (TaskPackage taskPackage : taskPackages) {
+            Method m = TaskUtils.resolveMethodHandle(taskPackage.getTaskParameters()[0]);
+            Map<String, Integer> taskFeatures = FeatureExtractionUtilities.getFeatures(m.getDeclaringClass().getName() + "." + m.getName());
+            if (taskFeatures != null) {
+                features.add(taskFeatures);
+            }
+        }
+        getExecutionHistory(policy).record(getMaxInputSize(), metrics, features);
     }
 
     private String getListDevices() {
@@ -1446,22 +1866,24 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
         int numDevices = getTornadoRuntime().getDriver(DEFAULT_DRIVER_INDEX).getDeviceCount();
         final int totalTornadoDevices = numDevices + 1;
         long[] totalTimers = new long[totalTornadoDevices];
+        double[] totalEnergy = new double[totalTornadoDevices];
 
         // Run Sequential
-        runSequentialTaskSchedule(policy, timer, totalTimers, numDevices);
+        runSequentialTaskSchedule(policy, timer, totalTimers, totalEnergy, numDevices);
 
         // Run Task Schedules on the accelerator
-        runAllTaskSchedulesInAcceleratorsSequentually(numDevices, timer, policy, totalTimers);
+        runAllTaskSchedulesInAcceleratorsSequentually(numDevices, timer, policy, totalTimers, totalEnergy);
 
-        if (policy == Policy.PERFORMANCE || policy == Policy.END_2_END) {
-            int deviceWinnerIndex = synchronizeWithPolicy(policy, totalTimers);
-            policyTimeTable.put(policy, deviceWinnerIndex);
+        int deviceWinnerIndex = synchronizeWithPolicy(policy, totalTimers, totalEnergy);
+        policyTimeTable.put(policy, deviceWinnerIndex);
 
-            updateHistoryTables(policy, deviceWinnerIndex);
+        updateExecutionHistory(policy, totalTimers, totalEnergy);
 
-            if (TornadoOptions.DEBUG_POLICY) {
-                System.out.println(getListDevices());
-                System.out.println("BEST Position: #" + deviceWinnerIndex + " " + Arrays.toString(totalTimers));
+        if (TornadoOptions.DEBUG_POLICY) {
+            System.out.println(getListDevices());
+            System.out.println("BEST Position: #" + deviceWinnerIndex + " " + Arrays.toString(totalTimers));
+            if (policy == Policy.ENERGY) {
+                System.out.println("Energy per invocation (J) with " + EnergyMonitors.getMonitor().getName() + ": " + Arrays.toString(totalEnergy));
             }
         }
     }
@@ -1523,88 +1945,27 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
     }
 
     /**
-     * Class that keeps the history of executions based on their data sizes. It has
-     * a sorted map (TreeMap) that keeps the relationship between the input size and
-     * the actual Tornado device in which the task was executed based on the
-     * profiler for the dynamic reconfiguration.
+     * Selects the device with the execution history of previous runs. The
+     * task-schedule is profiled on all devices when the history has no
+     * measurements for the input size and not enough measurements to predict
+     * them.
      */
-    private static class HistoryTable {
-        /**
-         * TreeMap between input size -> device index
-         */
-        private TreeMap<Integer, Integer> table = new TreeMap<>();
-
-        private int getClosestKey(int goal) {
-            Set<Integer> keySet = table.keySet();
-            return keySet.stream().reduce((prev, current) -> Math.abs(current - goal) < Math.abs(prev - goal) ? current : prev).get();
-        }
-
-        private TreeMap<Integer, Integer> getTree() {
-            return table;
-        }
-
-        private int getNumKeys() {
-            return table.keySet().size();
-        }
-
-        private int getDeviceNumber(int key) {
-            return table.get(key);
-        }
-
-        private boolean isKeyInTable(int key) {
-            return table.containsKey(key);
-        }
-    }
-
     @Override
     public AbstractTaskGraph scheduleWithProfileSequentialGlobal(Policy policy) {
         int numDevices = TornadoRuntime.getTornadoRuntime().getDriver(DEFAULT_DRIVER_INDEX).getDeviceCount();
 
-        if (!executionHistoryPolicy.containsKey(policy)) {
+        int deviceWinnerIndex = getExecutionHistory(policy).predict(getMaxInputSize());
+        if (deviceWinnerIndex < 0) {
             runWithSequentialProfiler(policy);
 
             if (EXEPERIMENTAL_MULTI_HOST_HEAP) {
                 restoreVarsIntoJavaHeap(policy, numDevices);
             }
-
         } else {
-            Object codeTask0 = taskPackages.get(0).getTaskParameters()[0];
-            String fullMethodName = Objects.requireNonNull(TaskUtils.resolveMethodHandle(codeTask0)).toGenericString();
-            // if policy registered but method not explored yet
-            ConcurrentHashMap<String, HistoryTable> methodHistory = executionHistoryPolicy.get(policy);
-            if (!methodHistory.containsKey(fullMethodName)) {
-                // current methods to be compiled are not registered with the
-                // current policy.
-                runWithSequentialProfiler(policy);
-            } else {
-
-                // If current methods are found with the current policy -> match
-                // the device, a) exact size is found, b) closest size
-                HistoryTable table = methodHistory.get(fullMethodName);
-
-                // 1. Infer sizes
-                // We get the first set of parameters for the first task as a
-                // reference
-                int inputSize = getMaxInputSize();
-
-                // 2. Make decision
-                if (table.isKeyInTable(inputSize)) {
-                    int deviceWinnerIndex = table.getDeviceNumber(inputSize);
-                    runInParallel(deviceWinnerIndex, numDevices);
-                } else {
-                    // Input size not found
-                    if (table.getNumKeys() < HISTORY_POINTS_PREDICTION) {
-                        // not enough to make a decision -> run with the whole
-                        // profiler
-                        runWithSequentialProfiler(policy);
-                    } else {
-                        // get the closet one to the input history data
-                        int closestKey = table.getClosestKey(inputSize);
-                        int deviceWinnerIndex = table.getTree().get(closestKey);
-                        runInParallel(deviceWinnerIndex, numDevices);
-                    }
-                }
+            if (TornadoOptions.DEBUG_POLICY) {
+                System.out.println("Device selected from the execution history: #" + deviceWinnerIndex);
             }
+            runInParallel(deviceWinnerIndex, numDevices);
         }
         return this;
     }
@@ -1861,6 +2222,15 @@ public class TornadoTaskSchedule implements AbstractTaskGraph {
         }
     }
 
+    @Override
+    public void batch(String batchSize, int numBuffers) {
+        if (numBuffers < 1) {
+            throw new TornadoRuntimeException("Invalid number of buffers for batch processing: " + numBuffers);
+        }
+        batch(batchSize);
+        this.batchBuffers = numBuffers;
+    }
+
     @Override
     public long getTotalTime() {
         return timeProfiler.getTimer(ProfilerType.TOTAL_TASK_SCHEDULE_TIME);
@@ -250,6 +250,14 @@ public abstract class AbstractMetaData implements TaskMetaDataInterface {
         return vmUseDeps;
     }
 
+    public boolean enableTaskFusion() {
+        return enableTaskFusion;
+    }
+
+    public boolean enableAutoTuning() {
+        return enableAutoTuning;
+    }
+
     /*
      * Forces the executing kernel to output its arguments before execution
      */
@@ -288,6 +296,8 @@ public abstract class AbstractMetaData implements TaskMetaDataInterface {
     private final boolean useThreadCoarsener;
     private final boolean dumpTaskSchedule;
     private final boolean vmUseDeps;
+    private final boolean enableTaskFusion;
+    private final boolean enableAutoTuning;
     private final boolean coarsenWithCpuConfig;
     private final boolean enableAutoParallelisation;
     private final boolean isEnableParallelizationDefined;
@@ -446,6 +456,8 @@ public abstract class AbstractMetaData implements TaskMetaDataInterface {
         useThreadCoarsener = Boolean.parseBoolean(getDefault("coarsener", id, "False"));
         enableAutoParallelisation = Boolean.parseBoolean(getDefault("parallelise.auto", id, "False"));
         vmUseDeps = Boolean.parseBoolean(getDefault("vm.deps", id, "False"));
+        enableTaskFusion = Boolean.parseBoolean(getDefault("fusion", id, "False"));
+        enableAutoTuning = Boolean.parseBoolean(getDefault("autotune", id, "False"));
     }
 
     public void attachProfiler(TornadoProfiler profiler) {
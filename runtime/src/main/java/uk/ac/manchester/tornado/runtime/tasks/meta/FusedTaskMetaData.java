@@ -0,0 +1,69 @@
+/*
+ * This file is part of Tornado: A heterogeneous programming framework:
+ * https://github.com/beehive-lab/tornadovm
+ *
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * School of Engineering, The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package uk.ac.manchester.tornado.runtime.tasks.meta;
+
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import uk.ac.manchester.tornado.runtime.sketcher.Sketch;
+
+/**
+ * Meta-data of a task that runs several adjacent tasks of a task-schedule in
+ * a single kernel. The sketch of the fused kernel is not registered in the
+ * sketch cache, which is indexed by method, so it is kept with the meta-data
+ * of the task.
+ */
+public class FusedTaskMetaData extends TaskMetaData {
+
+    private Sketch sketch;
+    private ResolvedJavaMethod[] methods;
+    private String layout;
+
+    public FusedTaskMetaData(ScheduleMetaData scheduleMetaData, String taskID, int numParameters) {
+        super(scheduleMetaData, taskID, numParameters);
+    }
+
+    public Sketch getSketch() {
+        return sketch;
+    }
+
+    /**
+     * @return the methods of the fused tasks, in order of execution.
+     */
+    public ResolvedJavaMethod[] getMethods() {
+        return methods;
+    }
+
+    /**
+     * @return a description of how the arguments of the fused tasks are mapped
+     *         to the arguments of the kernel.
+     */
+    public String getLayout() {
+        return layout;
+    }
+
+    public void setSketch(Sketch sketch, ResolvedJavaMethod[] methods, String layout) {
+        this.sketch = sketch;
+        this.methods = methods;
+        this.layout = layout;
+    }
+}
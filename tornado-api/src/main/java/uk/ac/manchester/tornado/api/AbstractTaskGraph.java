@@ -41,6 +41,9 @@
  */
 package uk.ac.manchester.tornado.api;
 
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 
 import uk.ac.manchester.tornado.api.common.Access;
@@ -70,6 +73,8 @@ public interface AbstractTaskGraph extends ProfileInterface {
 
     void batch(String batchSize);
 
+    void batch(String batchSize, int numBuffers);
+
     void apply(Consumer<SchedulableTask> consumer);
 
     void mapAllToInner(TornadoDevice device);
@@ -88,6 +93,8 @@ public interface AbstractTaskGraph extends ProfileInterface {
 
     void forceStreamInInner(Object... objects);
 
+    void markDirty(Object array, int fromIndex, int toIndex);
+
     void streamOutInner(Object... objects);
 
     void dump();
@@ -116,6 +123,12 @@ public interface AbstractTaskGraph extends ProfileInterface {
 
     AbstractTaskGraph scheduleWithProfileSequentialGlobal(Policy policy);
 
+    AbstractTaskGraph scheduleWithCoExecution(float[] ratios);
+
+    CompletableFuture<Void> scheduleAsync(Executor executor);
+
+    void scheduleConcurrently(Map<Object, Object> bindings);
+
     void addTask(TaskPackage taskPackage);
 
     void addPrebuiltTask(String id, String entryPoint, String filename, Object[] args, Access[] accesses, TornadoDevice device, int[] dimensions);
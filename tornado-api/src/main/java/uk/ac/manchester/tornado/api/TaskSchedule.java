@@ -41,6 +41,10 @@
  */
 package uk.ac.manchester.tornado.api;
 
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 import uk.ac.manchester.tornado.api.common.Access;
 import uk.ac.manchester.tornado.api.common.SchedulableTask;
 import uk.ac.manchester.tornado.api.common.TaskPackage;
@@ -248,6 +252,12 @@ public class TaskSchedule implements TornadoAPI, ProfileInterface {
         return this;
     }
 
+    @Override
+    public TaskSchedule markDirty(Object array, int fromIndex, int toIndex) {
+        taskScheduleImpl.markDirty(array, fromIndex, toIndex);
+        return this;
+    }
+
     @Override
     public TaskSchedule streamOut(Object... objects) {
         taskScheduleImpl.streamOutInner(objects);
@@ -266,6 +276,12 @@ public class TaskSchedule implements TornadoAPI, ProfileInterface {
         return this;
     }
 
+    @Override
+    public TaskSchedule batch(String batchSize, int numBuffers) {
+        taskScheduleImpl.batch(batchSize, numBuffers);
+        return this;
+    }
+
     @Override
     public void execute() {
         taskScheduleImpl.schedule().waitOn();
@@ -291,6 +307,36 @@ public class TaskSchedule implements TornadoAPI, ProfileInterface {
         taskScheduleImpl.scheduleWithProfileSequentialGlobal(policy).waitOn();
     }
 
+    @Override
+    public void executeWithCoExecution() {
+        taskScheduleImpl.scheduleWithCoExecution(null).waitOn();
+    }
+
+    @Override
+    public void executeWithCoExecution(float[] ratios) {
+        taskScheduleImpl.scheduleWithCoExecution(ratios).waitOn();
+    }
+
+    @Override
+    public CompletableFuture<Void> executeAsync() {
+        return taskScheduleImpl.scheduleAsync(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> executeAsync(Executor executor) {
+        return taskScheduleImpl.scheduleAsync(executor);
+    }
+
+    @Override
+    public void executeConcurrently() {
+        taskScheduleImpl.scheduleConcurrently(null);
+    }
+
+    @Override
+    public void executeConcurrently(Map<Object, Object> bindings) {
+        taskScheduleImpl.scheduleConcurrently(bindings);
+    }
+
     @Override
     public void warmup() {
         taskScheduleImpl.warmup();
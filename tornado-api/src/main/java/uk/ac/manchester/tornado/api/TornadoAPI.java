@@ -41,6 +41,10 @@
  */
 package uk.ac.manchester.tornado.api;
 
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 import uk.ac.manchester.tornado.api.common.Access;
 import uk.ac.manchester.tornado.api.common.SchedulableTask;
 import uk.ac.manchester.tornado.api.common.TaskPackage;
@@ -571,6 +575,22 @@ public interface TornadoAPI {
 
     TornadoAPI forceCopyIn(Object... objects);
 
+    /**
+     * Marks the elements {@code [fromIndex, toIndex)} of an input array as
+     * modified by the host since the last execution. The next execution only
+     * copies the marked regions to the device instead of the whole array. The
+     * ranges are accumulated until the next transfer of the array.
+     * 
+     * @param array
+     *            primitive array that is an input of the task-schedule.
+     * @param fromIndex
+     *            first modified element (inclusive).
+     * @param toIndex
+     *            last modified element (exclusive).
+     * @return link to the {@TornadoAPI} to allow function composition.
+     */
+    TornadoAPI markDirty(Object array, int fromIndex, int toIndex);
+
     /**
      * Open a stream channel between the device and the host.
      * 
@@ -598,6 +618,21 @@ public interface TornadoAPI {
      */
     TornadoAPI batch(String batchSize);
 
+    /**
+     * It enables pipelined batch processing on the target device. Each batch uses
+     * one of {@code numBuffers} sets of device buffers, so the transfers of the
+     * neighbouring batches can overlap with the kernel of the current batch.
+     * 
+     * @param batchSize
+     *            size of the batch represented as a string. For example "512MB",
+     *            "1GB".
+     * @param numBuffers
+     *            number of sets of device buffers. With 1, the batches are
+     *            processed in sequence, as with {@link #batch(String)}.
+     * @return link to the {@TornadoAPI} to allow function composition.
+     */
+    TornadoAPI batch(String batchSize, int numBuffers);
+
     /**
      * Execute the task-schedule
      */
@@ -632,6 +667,75 @@ public interface TornadoAPI {
      */
     void executeWithProfilerSequentialGlobal(Policy policy);
 
+    /**
+     * Run with co-execution: the iteration space of the task-schedule is split
+     * across all the devices of the default driver and the host, and each device
+     * computes its own partition. The partitions are adapted to the throughput
+     * measured for each device in the previous executions.
+     */
+    void executeWithCoExecution();
+
+    /**
+     * Run with co-execution using static partitions.
+     *
+     * @param ratios
+     *            Share of the iteration space computed by each device of the
+     *            default driver, followed by the share of the host. A ratio of 0
+     *            excludes the device. If a task is not element-wise, the device
+     *            with the largest ratio computes the whole iteration space.
+     */
+    void executeWithCoExecution(float[] ratios);
+
+    /**
+     * Execute the task-schedule without blocking the calling thread. The
+     * executions of the same task-schedule run in the order in which they are
+     * requested. The objects of the task-schedule must not be modified by the
+     * host until the returned future completes.
+     *
+     * The execution is dispatched from a thread of the TornadoVM executor. This
+     * thread is busy until the bytecodes of the execution have been enqueued,
+     * which includes the JIT compilation of the first execution and the blocking
+     * copies. The completion of the last event is then detected by a single
+     * thread shared by all the task-schedules.
+     *
+     * @return a future that completes once the last event of the execution has
+     *         finished and the streamOut objects are available on the host.
+     */
+    CompletableFuture<Void> executeAsync();
+
+    /**
+     * Execute the task-schedule without blocking the calling thread.
+     *
+     * @param executor
+     *            Executor that dispatches the execution. Each execution keeps
+     *            one of its threads busy until the execution has been enqueued,
+     *            and this can block on the compilation and on the blocking
+     *            copies. Use an executor dedicated to I/O-bound tasks, not the
+     *            common fork-join pool.
+     * @return a future that completes once the last event of the execution has
+     *         finished and the streamOut objects are available on the host.
+     */
+    CompletableFuture<Void> executeAsync(Executor executor);
+
+    /**
+     * Execute the task-schedule in an execution context taken from a pool, so
+     * several threads can execute the same task-schedule at the same time. The
+     * contexts share the compiled kernels, and each of them keeps its own device
+     * buffers.
+     */
+    void executeConcurrently();
+
+    /**
+     * Execute the task-schedule in an execution context taken from a pool, with
+     * objects that are only used by this execution.
+     *
+     * @param bindings
+     *            Objects passed to the tasks of the task-schedule (keys), and the
+     *            objects of the same type that replace them in this execution
+     *            (values).
+     */
+    void executeConcurrently(Map<Object, Object> bindings);
+
     /**
      * It performs JIT compilation without running the task-schedule
      */
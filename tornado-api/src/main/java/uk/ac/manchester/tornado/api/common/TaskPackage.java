@@ -169,6 +169,21 @@ public class TaskPackage {
         this.taskParameters = new Object[] { code, arg1, arg2, arg3, arg4, arg5, arg6, arg7, arg8, arg9, arg10, arg11, arg12, arg13, arg14, arg15 };
     }
 
+    private TaskPackage(TaskPackage other) {
+        this.id = other.id;
+        this.taskType = other.taskType;
+        this.taskParameters = other.taskParameters.clone();
+        this.numThreadsToRun = other.numThreadsToRun;
+    }
+
+    /**
+     * Creates a package with the same code and a copy of the parameters, so the
+     * parameters of the copy can be updated without affecting this package.
+     */
+    public TaskPackage copy() {
+        return new TaskPackage(this);
+    }
+
     public String getId() {
         return id;
     }
@@ -41,7 +41,6 @@
  */
 package uk.ac.manchester.tornado.api.common;
 
-import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 
 import uk.ac.manchester.tornado.api.TornadoDeviceContext;
@@ -68,6 +67,17 @@ public interface TornadoDevice {
      */
     int ensureAllocated(Object object, long batchSize, TornadoDeviceObjectState state);
 
+    /**
+     * It releases the device buffer of an object and returns its region to the
+     * heap of the target device. The next allocation for the same state reserves
+     * a new region.
+     *
+     * @param state
+     *            state of the object in the target device
+     *            {@link TornadoDeviceObjectState}
+     */
+    void deallocate(TornadoDeviceObjectState state);
+
     /**
      * It allocates and copy in the content of the object to the target device.
      *
@@ -86,7 +96,7 @@ public interface TornadoDevice {
      *            object)
      * @return an event ID
      */
-    List<Integer> ensurePresent(Object object, TornadoDeviceObjectState objectState, int[] events, long batchSize, long hostOffset);
+    int[] ensurePresent(Object object, TornadoDeviceObjectState objectState, int[] events, long batchSize, long hostOffset);
 
     /**
      * It always copies in the input data (object) from the host to the target
@@ -107,7 +117,7 @@ public interface TornadoDevice {
      *            list of previous events
      * @return and event ID
      */
-    List<Integer> streamIn(Object object, long batchSize, long hostOffset, TornadoDeviceObjectState objectState, int[] events);
+    int[] streamIn(Object object, long batchSize, long hostOffset, TornadoDeviceObjectState objectState, int[] events);
 
     /**
      * It copies a device buffer from the target device to the host. Copies are
@@ -44,8 +44,6 @@ package uk.ac.manchester.tornado.api.mm;
 import uk.ac.manchester.tornado.api.exceptions.TornadoMemoryException;
 import uk.ac.manchester.tornado.api.exceptions.TornadoOutOfMemoryException;
 
-import java.util.List;
-
 public interface ObjectBuffer {
 
     long toBuffer();
@@ -64,10 +62,22 @@ public interface ObjectBuffer {
 
     int enqueueRead(Object reference, long hostOffset, int[] events, boolean useDeps);
 
-    List<Integer> enqueueWrite(Object reference, long batchSize, long hostOffset, int[] events, boolean useDeps);
+    int[] enqueueWrite(Object reference, long batchSize, long hostOffset, int[] events, boolean useDeps);
+
+    /**
+     * Copies the bytes in {@code [hostOffset, hostOffset + bytes)} of the host
+     * data to the same position of a buffer that already holds a copy of the
+     * object. Buffers that cannot transfer a part of the object copy the whole
+     * object.
+     */
+    default int[] enqueueWriteRange(Object reference, long hostOffset, long bytes, int[] events, boolean useDeps) {
+        return enqueueWrite(reference, 0, 0, events, useDeps);
+    }
 
     void allocate(Object reference, long batchSize) throws TornadoOutOfMemoryException, TornadoMemoryException;
 
+    void deallocate();
+
     int getAlignment();
 
     boolean isValid();
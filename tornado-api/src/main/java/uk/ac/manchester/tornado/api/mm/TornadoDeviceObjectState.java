@@ -41,6 +41,8 @@
  */
 package uk.ac.manchester.tornado.api.mm;
 
+import java.util.List;
+
 public interface TornadoDeviceObjectState {
 
     void setBuffer(ObjectBuffer value);
@@ -70,4 +72,21 @@ public interface TornadoDeviceObjectState {
     long getOffset();
 
     void setAtomicRegion();
+
+    /**
+     * Records that the bytes in {@code [fromOffset, toOffset)} of the host data
+     * have been modified since the last transfer to the device. The offsets are
+     * relative to the first element of the array.
+     */
+    void markDirty(long fromOffset, long toOffset);
+
+    boolean hasDirtyRanges();
+
+    /**
+     * @return the dirty ranges, sorted and without overlaps, as pairs
+     *         {@code {fromOffset, toOffset}}.
+     */
+    List<long[]> getDirtyRanges();
+
+    void clearDirtyRanges();
 }
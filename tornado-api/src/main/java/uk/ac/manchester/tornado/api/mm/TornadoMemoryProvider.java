@@ -55,6 +55,17 @@ public interface TornadoMemoryProvider {
 
     long getHeapAllocated();
 
+    /**
+     * Peak number of bytes of the heap in use since the last reset.
+     */
+    long getHeapHighWaterMark();
+
+    /**
+     * External fragmentation of the heap, between 0 (all free memory is
+     * contiguous) and 1.
+     */
+    double getHeapFragmentation();
+
     boolean isInitialised();
 
 }
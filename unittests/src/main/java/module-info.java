@@ -1,6 +1,7 @@
 open module tornado.unittests {
     requires transitive junit;
     requires transitive tornado.api;
+    requires tornado.runtime;
     requires lucene.core;
 
     exports uk.ac.manchester.tornado.unittests;
@@ -17,14 +18,17 @@ open module tornado.unittests {
     exports uk.ac.manchester.tornado.unittests.functional;
     exports uk.ac.manchester.tornado.unittests.images;
     exports uk.ac.manchester.tornado.unittests.instances;
+    exports uk.ac.manchester.tornado.unittests.kernelcache;
     exports uk.ac.manchester.tornado.unittests.lambdas;
     exports uk.ac.manchester.tornado.unittests.logic;
     exports uk.ac.manchester.tornado.unittests.loops;
     exports uk.ac.manchester.tornado.unittests.math;
+    exports uk.ac.manchester.tornado.unittests.mm;
     exports uk.ac.manchester.tornado.unittests.matrices;
     exports uk.ac.manchester.tornado.unittests.prebuilt;
     exports uk.ac.manchester.tornado.unittests.profiler;
     exports uk.ac.manchester.tornado.unittests.reductions;
+    exports uk.ac.manchester.tornado.unittests.sketcher;
     exports uk.ac.manchester.tornado.unittests.slam.graphics;
     exports uk.ac.manchester.tornado.unittests.tasks;
     exports uk.ac.manchester.tornado.unittests.tools;
@@ -20,12 +20,21 @@ package uk.ac.manchester.tornado.unittests.api;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.IntStream;
 
 import org.junit.Test;
 
 import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.runtime.TornadoCoreRuntime;
+import uk.ac.manchester.tornado.runtime.common.TornadoInstalledCodeCache;
 import uk.ac.manchester.tornado.unittests.arrays.TestArrays;
 import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
 
@@ -99,4 +108,153 @@ public class TestAPI extends TornadoTestBase {
         }
     }
 
+    @Test
+    public void testMarkDirty() {
+        final int N = 1024;
+        float[] a = new float[N];
+        float[] b = new float[N];
+        float[] c = new float[N];
+
+        IntStream.range(0, N).parallel().forEach(idx -> {
+            a[idx] = idx;
+            b[idx] = 1;
+        });
+
+        TaskSchedule s0 = new TaskSchedule("s0");
+        assertNotNull(s0);
+
+        s0.task("t0", TestArrays::vectorAddFloat, a, b, c).streamOut(c);
+        s0.execute();
+
+        for (int i = 0; i < N; i++) {
+            assertEquals(i + 1, c[i], 0.0f);
+        }
+
+        // Only the modified regions of a are copied again
+        for (int i = 16; i < 32; i++) {
+            a[i] = 100;
+        }
+        for (int i = 512; i < 520; i++) {
+            a[i] = 200;
+        }
+        s0.markDirty(a, 16, 32).markDirty(a, 512, 520);
+        s0.execute();
+
+        for (int i = 0; i < N; i++) {
+            float expected = i + 1;
+            if (i >= 16 && i < 32) {
+                expected = 101;
+            } else if (i >= 512 && i < 520) {
+                expected = 201;
+            }
+            assertEquals(expected, c[i], 0.0f);
+        }
+    }
+
+    @Test
+    public void testExecuteAsync() {
+        final int N = 1024;
+        float[] a = new float[N];
+        float[] b = new float[N];
+        float[] c = new float[N];
+
+        IntStream.range(0, N).parallel().forEach(idx -> {
+            a[idx] = idx;
+            b[idx] = 1;
+        });
+
+        TaskSchedule s0 = new TaskSchedule("s0");
+        assertNotNull(s0);
+
+        s0.task("t0", TestArrays::vectorAddFloat, a, b, c).streamOut(c);
+
+        // The executions of the same task-schedule run in order
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            CompletableFuture<Void> first = s0.executeAsync();
+            CompletableFuture<Void> second = s0.executeAsync(executor);
+            second.join();
+            assertTrue(first.isDone());
+        } finally {
+            executor.shutdown();
+        }
+
+        for (int i = 0; i < N; i++) {
+            assertEquals(i + 1, c[i], 0.0f);
+        }
+    }
+
+    @Test
+    public void testExecuteConcurrently() {
+        final int N = 1024;
+        final int numRequests = 8;
+        float[] a = new float[N];
+        float[] b = new float[N];
+        float[] c = new float[N];
+
+        TaskSchedule s0 = new TaskSchedule("s0");
+        assertNotNull(s0);
+
+        s0.task("t0", TestArrays::vectorAddFloat, a, b, c).streamOut(c);
+
+        float[][] inputs = new float[numRequests][N];
+        float[][] outputs = new float[numRequests][N];
+        for (int k = 0; k < numRequests; k++) {
+            Arrays.fill(inputs[k], k);
+        }
+
+        // Each request replaces a and c with its own arrays
+        IntStream.range(0, numRequests).parallel().forEach(k -> {
+            Map<Object, Object> bindings = new IdentityHashMap<>();
+            bindings.put(a, inputs[k]);
+            bindings.put(c, outputs[k]);
+            s0.executeConcurrently(bindings);
+        });
+
+        for (int k = 0; k < numRequests; k++) {
+            for (int i = 0; i < N; i++) {
+                assertEquals(k, outputs[k][i], 0.0f);
+            }
+        }
+    }
+
+    @Test
+    public void testExecuteConcurrentlyWithoutRecompilation() {
+        final int N = 1024;
+        final int numRequests = 8;
+        float[] a = new float[N];
+        float[] b = new float[N];
+        float[] c = new float[N];
+
+        TaskSchedule s0 = new TaskSchedule("s1");
+        s0.task("t0", TestArrays::vectorAddFloat, a, b, c).streamOut(c);
+
+        // Warm-up: creates the first context and compiles its kernel
+        s0.executeConcurrently(null);
+
+        TornadoInstalledCodeCache cache = TornadoCoreRuntime.getInstalledCodeCache();
+        final long hits = cache.getHits();
+        final long misses = cache.getMisses();
+
+        // Executions from one thread reuse the same context
+        float[][] outputs = new float[numRequests][N];
+        for (int k = 0; k < numRequests; k++) {
+            float[] input = new float[N];
+            Arrays.fill(input, k);
+            Map<Object, Object> bindings = new IdentityHashMap<>();
+            bindings.put(a, input);
+            bindings.put(c, outputs[k]);
+            s0.executeConcurrently(bindings);
+        }
+
+        // Arrays of the same length are bound without compiling the kernel again
+        assertEquals(hits, cache.getHits());
+        assertEquals(misses, cache.getMisses());
+        for (int k = 0; k < numRequests; k++) {
+            for (int i = 0; i < N; i++) {
+                assertEquals(k, outputs[k][i], 0.0f);
+            }
+        }
+    }
+
 }
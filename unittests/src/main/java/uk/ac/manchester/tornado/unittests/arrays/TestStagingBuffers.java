@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2021, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.manchester.tornado.unittests.arrays;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+
+/**
+ * Transfers through the pinned staging buffers of the OpenCL backend. The
+ * tests are run with {@code -Dtornado.opencl.staging=True} and a pool of 8MB,
+ * so that the pool evicts buffers.
+ *
+ * <p>
+ * How to run?
+ * </p>
+ * <code>
+ *     tornado-test.py -V --jvm="-Dtornado.opencl.staging=True -Dtornado.opencl.staging.size=8388608" uk.ac.manchester.tornado.unittests.arrays.TestStagingBuffers
+ * </code>
+ */
+public class TestStagingBuffers extends TornadoTestBase {
+
+    private static final int SIZE = 1 << 20;
+
+    private static void scale(float[] a, float[] b, float factor) {
+        for (@Parallel int i = 0; i < a.length; i++) {
+            b[i] = a[i] * factor;
+        }
+    }
+
+    private static void scaleTwice(float[] a, float[] b, float[] c) {
+        for (@Parallel int i = 0; i < a.length; i++) {
+            b[i] = a[i] * 2;
+            c[i] = a[i] * 3;
+        }
+    }
+
+    private static void split(float[] a, float[] b, float[] c, float[] d) {
+        for (@Parallel int i = 0; i < a.length; i++) {
+            b[i] = a[i] + 1;
+            c[i] = a[i] + 2;
+            d[i] = a[i] + 3;
+        }
+    }
+
+    @Test
+    public void testStagedReadsAcrossExecutions() {
+        float[] a = new float[SIZE];
+        float[] b = new float[SIZE];
+
+        //@formatter:off
+        TaskSchedule schedule = new TaskSchedule("s0")
+                .streamIn(a)
+                .task("t0", TestStagingBuffers::scale, a, b, 2.0f)
+                .streamOut(b);
+        //@formatter:on
+
+        for (int iteration = 0; iteration < 5; iteration++) {
+            final int base = iteration;
+            IntStream.range(0, SIZE).parallel().forEach(i -> a[i] = i + base);
+            schedule.execute();
+            for (int i = 0; i < SIZE; i++) {
+                assertEquals((i + base) * 2.0f, b[i], 0.01f);
+            }
+        }
+    }
+
+    @Test
+    public void testStagedReadsWithEviction() {
+        float[] a = new float[SIZE];
+        float[] b = new float[SIZE];
+        float[] c = new float[SIZE];
+        float[] d = new float[SIZE];
+
+        //@formatter:off
+        TaskSchedule schedule = new TaskSchedule("s0")
+                .streamIn(a)
+                .task("t0", TestStagingBuffers::split, a, b, c, d)
+                .streamOut(b, c, d);
+        //@formatter:on
+
+        for (int iteration = 0; iteration < 3; iteration++) {
+            final int base = iteration * 10;
+            IntStream.range(0, SIZE).parallel().forEach(i -> a[i] = base + (i % 1000));
+            schedule.execute();
+            for (int i = 0; i < SIZE; i++) {
+                assertEquals(a[i] + 1, b[i], 0.01f);
+                assertEquals(a[i] + 2, c[i], 0.01f);
+                assertEquals(a[i] + 3, d[i], 0.01f);
+            }
+        }
+    }
+
+    @Test
+    public void testStagedReadsWithExecuteAsync() {
+        float[] a = new float[SIZE];
+        float[] b = new float[SIZE];
+        float[] c = new float[SIZE];
+
+        //@formatter:off
+        TaskSchedule schedule = new TaskSchedule("s0")
+                .streamIn(a)
+                .task("t0", TestStagingBuffers::scaleTwice, a, b, c)
+                .streamOut(b, c);
+        //@formatter:on
+
+        // The deferred reads must be copied before the future is completed
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            for (int iteration = 0; iteration < 3; iteration++) {
+                final int base = iteration;
+                IntStream.range(0, SIZE).parallel().forEach(i -> a[i] = i + base);
+                schedule.executeAsync(executor).join();
+                for (int i = 0; i < SIZE; i++) {
+                    assertEquals((i + base) * 2.0f, b[i], 0.01f);
+                    assertEquals((i + base) * 3.0f, c[i], 0.01f);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testSmallTransfersAreNotStaged() {
+        final int size = 256;
+        float[] a = new float[size];
+        float[] b = new float[size];
+        IntStream.range(0, size).forEach(i -> a[i] = i);
+
+        //@formatter:off
+        TaskSchedule schedule = new TaskSchedule("s0")
+                .streamIn(a)
+                .task("t0", TestStagingBuffers::scale, a, b, 3.0f)
+                .streamOut(b);
+        //@formatter:on
+        schedule.execute();
+
+        for (int i = 0; i < size; i++) {
+            assertEquals(i * 3.0f, b[i], 0.01f);
+        }
+    }
+}
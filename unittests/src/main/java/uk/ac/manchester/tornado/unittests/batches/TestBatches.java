@@ -21,6 +21,7 @@ package uk.ac.manchester.tornado.unittests.batches;
 import org.junit.Test;
 import uk.ac.manchester.tornado.api.TaskSchedule;
 import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.api.collections.types.VectorFloat;
 import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
 import uk.ac.manchester.tornado.unittests.tools.Exceptions.UnsupportedConfigurationException;
 
@@ -74,6 +75,24 @@ public class TestBatches extends TornadoTestBase {
         }
     }
 
+    public static void compute(float[] arrayA, double[] arrayB, short[] arrayC, long[] arrayD) {
+        for (@Parallel int i = 0; i < arrayD.length; i++) {
+            arrayD[i] = (long) (arrayA[i] + arrayB[i]) + arrayC[i];
+        }
+    }
+
+    public static void lookup(int[] table, int[] input, int[] output) {
+        for (@Parallel int i = 0; i < output.length; i++) {
+            output[i] = table[input[i] & 0xFF];
+        }
+    }
+
+    public static void compute(VectorFloat input, VectorFloat output) {
+        for (@Parallel int i = 0; i < output.size(); i++) {
+            output.set(i, input.get(i) * 2);
+        }
+    }
+
     @Test
     public void test100MB() {
 
@@ -334,6 +353,177 @@ public class TestBatches extends TornadoTestBase {
         }
     }
 
+    @Test
+    public void test50MBMixedTypes() {
+
+        long maxAllocMemory = checkMaxHeapAllocation(50, MemSize.MB);
+
+        // Arrays with elements of 4, 8, 2 and 8 bytes
+        int size = 20000000;
+        // or as much as we can
+        if (size * 8 > maxAllocMemory) {
+            size = (int) ((maxAllocMemory / 8 / 4) * 0.9);
+        }
+        float[] arrayA = new float[size];
+        double[] arrayB = new double[size];
+        short[] arrayC = new short[size];
+        long[] arrayD = new long[size];
+
+        IntStream.range(0, arrayA.length).sequential().forEach(idx -> {
+            arrayA[idx] = idx % 1000;
+            arrayB[idx] = idx;
+            arrayC[idx] = (short) (idx % 100);
+        });
+
+        TaskSchedule ts = new TaskSchedule("s0");
+
+        // @formatter:off
+        ts.batch("50MB")   // Process Slots of 50 MB
+                .task("t0", TestBatches::compute, arrayA, arrayB, arrayC, arrayD)
+                .streamOut((Object) arrayD)
+                .execute();
+        // @formatter:on
+
+        for (int i = 0; i < arrayD.length; i++) {
+            assertEquals((long) (arrayA[i] + arrayB[i]) + arrayC[i], arrayD[i]);
+        }
+    }
+
+    @Test
+    public void test50MBLookupTable() {
+
+        long maxAllocMemory = checkMaxHeapAllocation(50, MemSize.MB);
+
+        // Fill 80MB of input Array
+        int size = 20000000;
+        // or as much as we can
+        if (size * 4 > maxAllocMemory) {
+            size = (int) ((maxAllocMemory / 4 / 2) * 0.9);
+        }
+        int[] table = new int[256];
+        int[] input = new int[size];
+        int[] output = new int[size];
+
+        IntStream.range(0, table.length).sequential().forEach(idx -> table[idx] = idx * 2);
+        IntStream.range(0, input.length).sequential().forEach(idx -> input[idx] = idx);
+
+        TaskSchedule ts = new TaskSchedule("s0");
+
+        // @formatter:off
+        ts.batch("50MB")   // The table is copied as a whole
+                .task("t0", TestBatches::lookup, table, input, output)
+                .streamOut((Object) output)
+                .execute();
+        // @formatter:on
+
+        for (int i = 0; i < output.length; i++) {
+            assertEquals(table[input[i] & 0xFF], output[i]);
+        }
+    }
+
+    @Test
+    public void test50MBPipelined() {
+
+        // Two sets of buffers for three arrays
+        long maxAllocMemory = checkMaxHeapAllocation(300, MemSize.MB);
+
+        // Fill 200MB of input Array
+        int size = 50000000;
+        // or as much as we can
+        if (size * 4 > maxAllocMemory) {
+            size = (int) ((maxAllocMemory / 4 / 3) * 0.9);
+        }
+        float[] arrayA = new float[size];
+        float[] arrayB = new float[size];
+        float[] arrayC = new float[size];
+
+        IntStream.range(0, arrayA.length).sequential().forEach(idx -> {
+            arrayA[idx] = idx;
+            arrayB[idx] = idx;
+        });
+
+        TaskSchedule ts = new TaskSchedule("s0");
+
+        // @formatter:off
+        ts.batch("50MB", 2)   // Process Slots of 50 MB with two sets of buffers
+                .task("t0", TestBatches::compute, arrayA, arrayB, arrayC)
+                .streamOut((Object) arrayC)
+                .execute();
+        // @formatter:on
+
+        for (int i = 0; i < arrayA.length; i++) {
+            assertEquals(arrayA[i] + arrayB[i], arrayC[i], 0.01f);
+        }
+    }
+
+    /**
+     * Eight chunks run over two sets of buffers, so each set is reused by several
+     * chunks with different data. The schedule is executed again with new data
+     * to check the arguments of the kernels on every set.
+     */
+    @Test
+    public void test2MBPipelinedChunks() {
+
+        checkMaxHeapAllocation(12, MemSize.MB);
+
+        // Eight chunks of 2MB for each array
+        final int size = 8 * 2 * 1024 * 1024 / 4;
+        float[] arrayA = new float[size];
+        float[] arrayB = new float[size];
+        float[] arrayC = new float[size];
+
+        TaskSchedule ts = new TaskSchedule("s0");
+
+        // @formatter:off
+        ts.batch("2MB", 2)   // Process Slots of 2 MB with two sets of buffers
+                .task("t0", TestBatches::compute, arrayA, arrayB, arrayC)
+                .streamOut((Object) arrayC);
+        // @formatter:on
+
+        for (int iteration = 0; iteration < 2; iteration++) {
+            final int base = iteration * 10;
+            IntStream.range(0, size).sequential().forEach(idx -> {
+                arrayA[idx] = idx;
+                arrayB[idx] = base;
+            });
+
+            ts.execute();
+
+            for (int i = 0; i < size; i++) {
+                assertEquals(arrayA[i] + arrayB[i], arrayC[i], 0.01f);
+            }
+        }
+    }
+
+    @Test
+    public void test50MBVectorFloat() {
+
+        long maxAllocMemory = checkMaxHeapAllocation(50, MemSize.MB);
+
+        // Fill 80MB of input Array
+        int size = 20000000;
+        // or as much as we can
+        if (size * 4 > maxAllocMemory) {
+            size = (int) ((maxAllocMemory / 4 / 2) * 0.9);
+        }
+        VectorFloat input = new VectorFloat(size);
+        VectorFloat output = new VectorFloat(size);
+
+        IntStream.range(0, size).sequential().forEach(idx -> input.set(idx, idx));
+
+        TaskSchedule ts = new TaskSchedule("s0");
+
+        // @formatter:off
+        ts.batch("50MB")   // Process Slots of 50 MB
+                .task("t0", TestBatches::compute, input, output)
+                .streamOut(output)
+                .execute();
+        // @formatter:on
+
+        for (int i = 0; i < size; i++) {
+            assertEquals(input.get(i) * 2, output.get(i), 0.01f);
+        }
+    }
 
     private long checkMaxHeapAllocation(int size, MemSize memSize) throws UnsupportedConfigurationException {
         long maxAllocMemory = getTornadoRuntime().getDefaultDevice().getDeviceContext().getMemoryManager().getHeapSize();
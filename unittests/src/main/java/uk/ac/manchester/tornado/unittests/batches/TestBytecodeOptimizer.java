@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2021, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.manchester.tornado.unittests.batches;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.runtime.graph.TornadoGraphAssembler.TornadoVMBytecodes;
+import uk.ac.manchester.tornado.runtime.graph.TornadoVMBytecodeOptimizer;
+import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+
+/**
+ * Schedules whose TornadoVM bytecodes are rewritten by the bytecode optimizer.
+ * The class is run twice, with {@code -Dtornado.tvm.optimize=False} and with
+ * {@code -Dtornado.tvm.optimize=True -Dtornado.tvm.optimize.verify=True}, and
+ * both runs are checked against the sequential Java code. The passes of the
+ * optimizer are also checked on hand-written bytecodes.
+ */
+public class TestBytecodeOptimizer extends TornadoTestBase {
+
+    private static final int SIZE = 1024 * 1024 * 4;
+    private static final int COEFFICIENTS = 16;
+
+    public static void scale(float[] input, float[] coefficients, float[] output) {
+        for (@Parallel int i = 0; i < input.length; i++) {
+            output[i] = input[i] * coefficients[i % 16];
+        }
+    }
+
+    public static void increment(float[] input, float[] output) {
+        for (@Parallel int i = 0; i < input.length; i++) {
+            output[i] = input[i] + 1;
+        }
+    }
+
+    /**
+     * Writes TornadoVM bytecodes with the layout decoded by the TornadoVM.
+     */
+    private static class BytecodeWriter {
+        private final byte[] code = new byte[4096];
+        private final ByteBuffer buffer = ByteBuffer.wrap(code).order(ByteOrder.LITTLE_ENDIAN);
+
+        BytecodeWriter op(TornadoVMBytecodes op, int... operands) {
+            buffer.put(op.value());
+            for (int operand : operands) {
+                buffer.putInt(operand);
+            }
+            return this;
+        }
+
+        BytecodeWriter allocate(int object, long size) {
+            op(TornadoVMBytecodes.ALLOCATE, object, 0);
+            buffer.putLong(size);
+            return this;
+        }
+
+        BytecodeWriter transfer(TornadoVMBytecodes op, int object, int eventList, long offset, long size) {
+            op(op, object, 0, eventList);
+            buffer.putLong(offset);
+            buffer.putLong(size);
+            return this;
+        }
+
+        BytecodeWriter launch(int eventList, long offset, long threads, int... objects) {
+            op(TornadoVMBytecodes.LAUNCH, 0, 0, 0, objects.length, eventList);
+            buffer.putLong(offset);
+            buffer.putLong(threads);
+            for (int object : objects) {
+                op(TornadoVMBytecodes.REFERENCE_ARGUMENT, object);
+            }
+            return this;
+        }
+
+        int size() {
+            return buffer.position();
+        }
+    }
+
+    private static float[] createInput(int size) {
+        float[] input = new float[size];
+        IntStream.range(0, size).parallel().forEach(i -> input[i] = i % 100);
+        return input;
+    }
+
+    private static float[] createCoefficients() {
+        float[] coefficients = new float[COEFFICIENTS];
+        IntStream.range(0, COEFFICIENTS).forEach(i -> coefficients[i] = i + 1);
+        return coefficients;
+    }
+
+    /**
+     * Bytecodes of two chunks of {@link #scale}, where the coefficients (object
+     * 1) are not split.
+     */
+    private static BytecodeWriter writeBatchWithInvariantObject() {
+        final long chunk = 1024;
+        BytecodeWriter writer = new BytecodeWriter();
+        writer.op(TornadoVMBytecodes.SETUP, 1, 1, 1).op(TornadoVMBytecodes.CONTEXT, 0).op(TornadoVMBytecodes.BEGIN);
+        for (int i = 0; i < 2; i++) {
+            writer.allocate(0, chunk).allocate(1, 0).op(TornadoVMBytecodes.ADD_DEP, 0).allocate(2, chunk);
+            writer.transfer(TornadoVMBytecodes.COPY_IN, 0, -1, i * chunk, chunk).transfer(TornadoVMBytecodes.COPY_IN, 1, -1, 0, 0);
+            writer.launch(-1, i * chunk, chunk, 0, 1, 2).op(TornadoVMBytecodes.ADD_DEP, 0).op(TornadoVMBytecodes.ADD_DEP, 0);
+            writer.transfer(TornadoVMBytecodes.STREAM_OUT, 2, 0, i * chunk, chunk);
+        }
+        writer.op(TornadoVMBytecodes.ADD_DEP, 0).op(TornadoVMBytecodes.BARRIER, 0).op(TornadoVMBytecodes.BARRIER, 0).op(TornadoVMBytecodes.END);
+        return writer;
+    }
+
+    @Test
+    public void testOptimizedBytecodes() {
+        BytecodeWriter writer = writeBatchWithInvariantObject();
+        final byte[] code = writer.code;
+        final int size = writer.size();
+        assertEquals(6, TornadoVMBytecodeOptimizer.countBytecodes(code, size, TornadoVMBytecodes.ALLOCATE));
+        assertEquals(4, TornadoVMBytecodeOptimizer.countBytecodes(code, size, TornadoVMBytecodes.COPY_IN));
+        assertEquals(7, TornadoVMBytecodeOptimizer.countBytecodes(code, size, TornadoVMBytecodes.ADD_DEP));
+        assertEquals(2, TornadoVMBytecodeOptimizer.countBytecodes(code, size, TornadoVMBytecodes.BARRIER));
+
+        final int optimizedSize = TornadoVMBytecodeOptimizer.optimize(code, size);
+        assertTrue(optimizedSize < size);
+
+        // The coefficients are allocated and copied once
+        assertEquals(5, TornadoVMBytecodeOptimizer.countBytecodes(code, optimizedSize, TornadoVMBytecodes.ALLOCATE));
+        assertEquals(3, TornadoVMBytecodeOptimizer.countBytecodes(code, optimizedSize, TornadoVMBytecodes.COPY_IN));
+        // Dependencies on allocations and duplicated dependencies are removed
+        assertEquals(3, TornadoVMBytecodeOptimizer.countBytecodes(code, optimizedSize, TornadoVMBytecodes.ADD_DEP));
+        // Adjacent barriers are merged
+        assertEquals(1, TornadoVMBytecodeOptimizer.countBytecodes(code, optimizedSize, TornadoVMBytecodes.BARRIER));
+        // Launches and streams are kept
+        assertEquals(2, TornadoVMBytecodeOptimizer.countBytecodes(code, optimizedSize, TornadoVMBytecodes.LAUNCH));
+        assertEquals(2, TornadoVMBytecodeOptimizer.countBytecodes(code, optimizedSize, TornadoVMBytecodes.STREAM_OUT));
+    }
+
+    @Test
+    public void testOptimizedBytecodesAreStable() {
+        BytecodeWriter writer = writeBatchWithInvariantObject();
+        final int optimizedSize = TornadoVMBytecodeOptimizer.optimize(writer.code, writer.size());
+        assertEquals(optimizedSize, TornadoVMBytecodeOptimizer.optimize(writer.code, optimizedSize));
+    }
+
+    @Test
+    public void testBatchWithInvariantObject() {
+        float[] input = createInput(SIZE);
+        float[] coefficients = createCoefficients();
+        float[] output = new float[SIZE];
+        float[] expected = new float[SIZE];
+
+        // The coefficients are not split, so they are copied once per set of
+        // buffers when the optimizer is enabled
+        TaskSchedule ts = new TaskSchedule("s0") //
+                .batch("4MB") //
+                .task("t0", TestBytecodeOptimizer::scale, input, coefficients, output) //
+                .streamOut(output);
+        ts.execute();
+
+        scale(input, coefficients, expected);
+        for (int i = 0; i < SIZE; i++) {
+            assertEquals(expected[i], output[i], 0.01f);
+        }
+    }
+
+    @Test
+    public void testBatchWithMultipleBuffers() {
+        float[] input = createInput(SIZE);
+        float[] coefficients = createCoefficients();
+        float[] output = new float[SIZE];
+        float[] expected = new float[SIZE];
+
+        TaskSchedule ts = new TaskSchedule("s0") //
+                .batch("2MB", 2) //
+                .task("t0", TestBytecodeOptimizer::scale, input, coefficients, output) //
+                .streamOut(output);
+        ts.execute();
+        ts.execute();
+
+        scale(input, coefficients, expected);
+        for (int i = 0; i < SIZE; i++) {
+            assertEquals(expected[i], output[i], 0.01f);
+        }
+    }
+
+    @Test
+    public void testBatchMultipleTasks() {
+        float[] input = createInput(SIZE);
+        float[] coefficients = createCoefficients();
+        float[] temp = new float[SIZE];
+        float[] output = new float[SIZE];
+        float[] expectedTemp = new float[SIZE];
+        float[] expected = new float[SIZE];
+
+        TaskSchedule ts = new TaskSchedule("s0") //
+                .batch("4MB") //
+                .task("t0", TestBytecodeOptimizer::scale, input, coefficients, temp) //
+                .task("t1", TestBytecodeOptimizer::increment, temp, output) //
+                .streamOut(output);
+        ts.execute();
+
+        scale(input, coefficients, expectedTemp);
+        increment(expectedTemp, expected);
+        for (int i = 0; i < SIZE; i++) {
+            assertEquals(expected[i], output[i], 0.01f);
+        }
+    }
+
+    @Test
+    public void testMultipleTasks() {
+        final int size = 8192;
+        float[] input = createInput(size);
+        float[] coefficients = createCoefficients();
+        float[] temp = new float[size];
+        float[] temp2 = new float[size];
+        float[] output = new float[size];
+        float[] expectedTemp = new float[size];
+        float[] expectedTemp2 = new float[size];
+        float[] expected = new float[size];
+
+        TaskSchedule ts = new TaskSchedule("s0") //
+                .streamIn(input) //
+                .task("t0", TestBytecodeOptimizer::scale, input, coefficients, temp) //
+                .task("t1", TestBytecodeOptimizer::increment, temp, temp2) //
+                .task("t2", TestBytecodeOptimizer::increment, temp2, output) //
+                .streamOut(output);
+
+        for (int iteration = 0; iteration < 3; iteration++) {
+            final int base = iteration;
+            IntStream.range(0, size).forEach(i -> input[i] = (i + base) % 100);
+            ts.execute();
+
+            scale(input, coefficients, expectedTemp);
+            increment(expectedTemp, expectedTemp2);
+            increment(expectedTemp2, expected);
+            for (int i = 0; i < size; i++) {
+                assertEquals(expected[i], output[i], 0.01f);
+            }
+        }
+    }
+}
@@ -18,6 +18,7 @@
 package uk.ac.manchester.tornado.unittests.dynamic;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
 
@@ -26,6 +27,7 @@ import org.junit.Test;
 import uk.ac.manchester.tornado.api.Policy;
 import uk.ac.manchester.tornado.api.TaskSchedule;
 import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.api.runtime.TornadoRuntime;
 import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
 
 public class TestDynamic extends TornadoTestBase {
@@ -215,4 +217,79 @@ public class TestDynamic extends TornadoTestBase {
         }
     }
 
+    @Test
+    public void testDynamicWithProfilerLatency() {
+        int numElements = 4096;
+        int[] a = new int[numElements];
+        int[] b = new int[numElements];
+
+        Arrays.fill(a, 10);
+
+        //@formatter:off
+        TaskSchedule taskSchedule = new TaskSchedule("lat")
+            .task("t0", TestDynamic::compute, a, b)
+            .streamOut(b);
+        //@formatter:on
+
+        // Run first time to obtain the device with the lowest latency
+        taskSchedule.executeWithProfilerSequential(Policy.LATENCY);
+
+        // Run a few iterations to get the device.
+        for (int i = 0; i < 10; i++) {
+            taskSchedule.executeWithProfilerSequential(Policy.LATENCY);
+        }
+
+        for (int i = 0; i < b.length; i++) {
+            assertEquals(a[i] * 2, b[i]);
+        }
+    }
+
+    /**
+     * The parallel LATENCY profiler keeps the first device, or the host, that
+     * finishes and cancels the rest. The inputs change after the profiling
+     * round, so results written late by a cancelled device would be detected.
+     */
+    @Test
+    public void testDynamicWithParallelProfilerLatency() {
+        int numElements = 16000;
+        int[] a = new int[numElements];
+        int[] b = new int[numElements];
+
+        Arrays.fill(a, 10);
+
+        //@formatter:off
+        TaskSchedule taskSchedule = new TaskSchedule("latParallel")
+            .streamIn(a)
+            .task("t0", TestDynamic::compute, a, b)
+            .streamOut(b);
+        //@formatter:on
+
+        taskSchedule.executeWithProfiler(Policy.LATENCY);
+        for (int i = 0; i < b.length; i++) {
+            assertEquals(a[i] * 2, b[i]);
+        }
+
+        // The winner is either a device of the default driver or the host, which
+        // does not set the device of the task. The same winner runs every
+        // following execution.
+        String winner = null;
+        for (int iteration = 1; iteration <= 10; iteration++) {
+            Arrays.fill(a, iteration);
+            taskSchedule.executeWithProfiler(Policy.LATENCY);
+            for (int i = 0; i < b.length; i++) {
+                assertEquals(a[i] * 2, b[i]);
+            }
+            if (iteration == 1) {
+                winner = TornadoRuntime.getProperty("latParallel.t0.device");
+            } else {
+                assertEquals(winner, TornadoRuntime.getProperty("latParallel.t0.device"));
+            }
+        }
+        if (winner != null) {
+            final int numDevices = TornadoRuntime.getTornadoRuntime().getDriver(0).getDeviceCount();
+            final int deviceIndex = Integer.parseInt(winner.substring(winner.indexOf(':') + 1));
+            assertTrue(deviceIndex >= 0 && deviceIndex < numDevices);
+        }
+    }
+
 }
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2021, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.manchester.tornado.unittests.dynamic;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.api.Policy;
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.runtime.TornadoRuntime;
+import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+
+/**
+ * ENERGY policy of the dynamic reconfiguration with the file energy monitor.
+ * The class is run with
+ * {@code -Dtornado.energy.monitor=file -Dtornado.energy.file=<file>}, and the
+ * file is written before the monitor reads it: the last device of the default
+ * driver draws much less power than the rest of devices and the host, so it is
+ * selected regardless of the execution times.
+ */
+public class TestDynamicEnergy extends TornadoTestBase {
+
+    private static Path powerFile;
+
+    @BeforeClass
+    public static void writePowerFile() throws IOException {
+        final int lastDevice = TornadoRuntime.getTornadoRuntime().getDriver(0).getDeviceCount() - 1;
+        powerFile = Paths.get(TornadoRuntime.getProperty("tornado.energy.file", "energy.properties"));
+        Files.write(powerFile, Arrays.asList("host=1000", "default=1000", "0:" + lastDevice + "=0.001"));
+    }
+
+    @AfterClass
+    public static void deletePowerFile() throws IOException {
+        Files.deleteIfExists(powerFile);
+    }
+
+    @Test
+    public void testDynamicWithProfilerEnergy() {
+        int numElements = 4096;
+        int[] a = new int[numElements];
+        int[] b = new int[numElements];
+
+        Arrays.fill(a, 10);
+
+        //@formatter:off
+        TaskSchedule taskSchedule = new TaskSchedule("energy")
+            .task("t0", TestDynamic::compute, a, b)
+            .streamOut(b);
+        //@formatter:on
+
+        // Run first time to obtain the device with the lowest energy
+        taskSchedule.executeWithProfiler(Policy.ENERGY);
+
+        // Run a few iterations with the selected device
+        for (int i = 0; i < 10; i++) {
+            taskSchedule.executeWithProfiler(Policy.ENERGY);
+        }
+
+        final int lastDevice = TornadoRuntime.getTornadoRuntime().getDriver(0).getDeviceCount() - 1;
+        assertEquals("0:" + lastDevice, TornadoRuntime.getProperty("energy.t0.device"));
+
+        for (int i = 0; i < b.length; i++) {
+            assertEquals(a[i] * 2, b[i]);
+        }
+    }
+}
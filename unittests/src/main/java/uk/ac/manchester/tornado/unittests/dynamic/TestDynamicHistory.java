@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2021, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.manchester.tornado.unittests.dynamic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.api.Policy;
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.runtime.TornadoRuntime;
+import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+
+/**
+ * Device selection of the dynamic reconfiguration with the execution history.
+ * The class is run with {@code -Dtornado.reconfiguration.history.db=<file>},
+ * a history that is created by the test and deleted once it has finished.
+ */
+public class TestDynamicHistory extends TornadoTestBase {
+
+    private static Path historyFile;
+
+    @BeforeClass
+    public static void createHistory() throws IOException {
+        historyFile = Paths.get(TornadoRuntime.getProperty("tornado.reconfiguration.history.db", "reconfiguration-history.properties"));
+        Files.deleteIfExists(historyFile);
+    }
+
+    @AfterClass
+    public static void deleteHistory() throws IOException {
+        Files.deleteIfExists(historyFile);
+    }
+
+    /**
+     * @return the input sizes measured on any device, as stored in the history.
+     */
+    private static Set<Integer> getProfiledSizes() throws IOException {
+        final Properties entries = new Properties();
+        try (InputStream in = Files.newInputStream(historyFile)) {
+            entries.load(in);
+        }
+        final Set<Integer> sizes = new HashSet<>();
+        for (String key : entries.stringPropertyNames()) {
+            // history.<model>.<device>=<size>:<metric>,...
+            if (key.matches("history\\.[0-9a-f]+\\.[0-9]+")) {
+                for (String point : entries.getProperty(key).split(",")) {
+                    sizes.add(Integer.parseInt(point.split(":")[0]));
+                }
+            }
+        }
+        return sizes;
+    }
+
+    @Test
+    public void testDynamicWithExecutionHistory() throws IOException {
+        // The last size has not been profiled: its device is predicted from the
+        // execution history of the previous sizes
+        int[] sizes = new int[] { 256, 512, 1024, 2048, 4096, 8192, 3000 };
+
+        for (int numElements : sizes) {
+            int[] a = new int[numElements];
+            int[] b = new int[numElements];
+
+            Arrays.fill(a, 10);
+
+            //@formatter:off
+            TaskSchedule taskSchedule = new TaskSchedule("history")
+                .task("t0", TestDynamic::compute2, a, b)
+                .streamOut(b);
+            //@formatter:on
+
+            taskSchedule.executeWithProfilerSequentialGlobal(Policy.PERFORMANCE);
+
+            for (int i = 0; i < b.length; i++) {
+                assertEquals(a[i] * 10, b[i]);
+            }
+        }
+
+        // Only profiled sizes are recorded in the history
+        Set<Integer> profiled = getProfiledSizes();
+        assertTrue(profiled.contains(8192));
+        assertFalse(profiled.contains(3000));
+    }
+
+}
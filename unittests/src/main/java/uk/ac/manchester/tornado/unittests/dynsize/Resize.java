@@ -40,6 +40,34 @@ public class Resize {
         }
     }
 
+    /**
+     * Values that are equal, and have the same hash code, when they have the same
+     * number of elements, whatever their contents.
+     */
+    public static class FloatValues {
+        float[] values;
+
+        FloatValues(float[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof FloatValues && ((FloatValues) other).values.length == values.length;
+        }
+
+        @Override
+        public int hashCode() {
+            return values.length;
+        }
+    }
+
+    public static void resize03(FloatValues a, float[] b) {
+        for (@Parallel int i = 0; i < b.length; i++) {
+            b[i] = a.values[i] + 10;
+        }
+    }
+
     public float[] createArray(int numElements) {
         float[] a = new float[numElements];
         IntStream.range(0, numElements).sequential().forEach(i -> {
@@ -126,4 +154,69 @@ public class Resize {
             assertEquals(20.0f, v, 0.001f);
         }
     }
+
+    @Test
+    public void testUpdateReferenceSameSize() {
+        float[] a = createArray(1024);
+        float[] b = createArray(1024);
+
+        TaskSchedule ts = new TaskSchedule("s0") //
+                .streamIn(a) //
+                .task("t0", Resize::resize02, a, b) //
+                .streamOut(b); //
+        ts.execute();
+
+        // New input with the same size: it must replace the old array in the
+        // object table of the schedule
+        float[] c = new float[1024];
+        IntStream.range(0, c.length).forEach(i -> c[i] = i);
+        ts.updateReference(a, c);
+        ts.execute();
+
+        for (int i = 0; i < b.length; i++) {
+            assertEquals(i + 10.0f, b[i], 0.001f);
+            assertEquals(10.0f, a[i], 0.001f);
+        }
+
+        float[] d = createArray(1024);
+        ts.updateReference(b, d);
+        ts.execute();
+
+        for (int i = 0; i < d.length; i++) {
+            assertEquals(i + 10.0f, d[i], 0.001f);
+        }
+    }
+
+    /**
+     * Two distinct objects that are equal are used by different tasks: each one
+     * must have its own device buffer.
+     */
+    @Test
+    public void testEqualObjects() {
+        float[] valuesA = new float[1024];
+        float[] valuesB = new float[1024];
+        IntStream.range(0, valuesA.length).forEach(i -> {
+            valuesA[i] = i;
+            valuesB[i] = 2 * i;
+        });
+        FloatValues a = new FloatValues(valuesA);
+        FloatValues b = new FloatValues(valuesB);
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+
+        float[] outputA = new float[1024];
+        float[] outputB = new float[1024];
+
+        TaskSchedule ts = new TaskSchedule("s0") //
+                .streamIn(a, b) //
+                .task("t0", Resize::resize03, a, outputA) //
+                .task("t1", Resize::resize03, b, outputB) //
+                .streamOut(outputA, outputB); //
+        ts.execute();
+
+        for (int i = 0; i < outputA.length; i++) {
+            assertEquals(i + 10.0f, outputA[i], 0.001f);
+            assertEquals(2 * i + 10.0f, outputB[i], 0.001f);
+        }
+    }
 }
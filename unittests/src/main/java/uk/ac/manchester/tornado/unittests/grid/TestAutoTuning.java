@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.manchester.tornado.unittests.grid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+
+/**
+ * Testing the auto-tuning of work-group sizes, enabled with
+ * {@code -Ds0.t0.autotune=True}. Results must be correct while the candidate
+ * work-group sizes are measured and once the best one has been selected.
+ * <p>
+ * The class is run with {@code -Dtornado.autotune.db=<file>}, a database that
+ * is created by the tests and deleted once they have finished.
+ */
+public class TestAutoTuning extends TornadoTestBase {
+
+    // Enough invocations to measure all the candidates
+    private static final int ITERATIONS = 50;
+
+    private static void vectorAdd(float[] a, float[] b, float[] c) {
+        for (@Parallel int i = 0; i < c.length; i++) {
+            c[i] = a[i] + b[i];
+        }
+    }
+
+    private static void matrixAdd(float[] a, float[] b, float[] c, int rows, int columns) {
+        for (@Parallel int i = 0; i < rows; i++) {
+            for (@Parallel int j = 0; j < columns; j++) {
+                c[i * columns + j] = a[i * columns + j] + b[i * columns + j];
+            }
+        }
+    }
+
+    private static Path database;
+
+    @BeforeClass
+    public static void createDatabase() throws IOException {
+        final String fileName = System.getProperty("tornado.autotune.db");
+        assertNotNull("The tests require -Dtornado.autotune.db", fileName);
+        database = Paths.get(fileName);
+        Files.deleteIfExists(database);
+    }
+
+    @AfterClass
+    public static void deleteDatabase() throws IOException {
+        Files.deleteIfExists(database);
+    }
+
+    /**
+     * @return the work-group size stored for a kernel and a bucket of global
+     *         sizes, or null if the kernel has not been tuned.
+     */
+    private static long[] getTunedLocalWork(String kernelName, String bucket) throws IOException {
+        final Properties entries = new Properties();
+        if (Files.isRegularFile(database)) {
+            try (InputStream in = Files.newInputStream(database)) {
+                entries.load(in);
+            }
+        }
+        for (String key : entries.stringPropertyNames()) {
+            if (key.startsWith(kernelName + ".") && key.endsWith("." + bucket)) {
+                final String[] values = entries.getProperty(key).split(",");
+                final long[] local = new long[values.length];
+                for (int i = 0; i < values.length; i++) {
+                    local[i] = Long.parseLong(values[i].trim());
+                }
+                return local;
+            }
+        }
+        return null;
+    }
+
+    @After
+    public void disableAutoTuning() {
+        System.clearProperty("autotune0.t0.autotune");
+        System.clearProperty("autotune1.t0.autotune");
+    }
+
+    @Test
+    public void testAutoTunePrimeSize() throws IOException {
+        // A prime size selects work-groups of one thread with the default heuristic
+        final int numElements = 8191;
+        float[] a = new float[numElements];
+        float[] b = new float[numElements];
+        float[] c = new float[numElements];
+
+        Random r = new Random();
+        for (int i = 0; i < numElements; i++) {
+            b[i] = r.nextFloat();
+        }
+
+        System.setProperty("autotune0.t0.autotune", "True");
+
+        TaskSchedule ts = new TaskSchedule("autotune0") //
+                .streamIn(a, b) //
+                .task("t0", TestAutoTuning::vectorAdd, a, b, c) //
+                .streamOut(c); //
+
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            for (int i = 0; i < numElements; i++) {
+                a[i] = iteration + i;
+            }
+            ts.execute();
+            for (int i = 0; i < numElements; i++) {
+                assertEquals(a[i] + b[i], c[i], 0.01f);
+            }
+        }
+
+        // 8191 is in the bucket of global sizes up to 2^13. The tuned size pads
+        // the global size instead of using work-groups of one thread.
+        long[] local = getTunedLocalWork("vectorAdd", "13");
+        assertNotNull(local);
+        assertTrue(local[0] > 1);
+    }
+
+    @Test
+    public void testAutoTune2D() throws IOException {
+        final int rows = 251;
+        final int columns = 509;
+        float[] a = new float[rows * columns];
+        float[] b = new float[rows * columns];
+        float[] c = new float[rows * columns];
+
+        Random r = new Random();
+        for (int i = 0; i < b.length; i++) {
+            b[i] = r.nextFloat();
+        }
+
+        System.setProperty("autotune1.t0.autotune", "True");
+
+        TaskSchedule ts = new TaskSchedule("autotune1") //
+                .streamIn(a, b) //
+                .task("t0", TestAutoTuning::matrixAdd, a, b, c, rows, columns) //
+                .streamOut(c); //
+
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            for (int i = 0; i < a.length; i++) {
+                a[i] = iteration * 2 + i;
+            }
+            ts.execute();
+            for (int i = 0; i < c.length; i++) {
+                assertEquals(a[i] + b[i], c[i], 0.01f);
+            }
+        }
+
+        assertNotNull(getTunedLocalWork("matrixAdd", "8x9"));
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2021, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.manchester.tornado.unittests.kernelcache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.api.mm.ObjectBuffer;
+import uk.ac.manchester.tornado.runtime.TornadoCoreRuntime;
+import uk.ac.manchester.tornado.runtime.common.CallStack;
+import uk.ac.manchester.tornado.runtime.common.TornadoCodeCache;
+import uk.ac.manchester.tornado.runtime.common.TornadoInstalledCode;
+import uk.ac.manchester.tornado.runtime.common.TornadoInstalledCodeCache;
+import uk.ac.manchester.tornado.runtime.tasks.meta.TaskMetaData;
+import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+
+/**
+ * Kernels shared between task-schedules. The class is run with
+ * {@code -Dtornado.kernelcache.shared=True}.
+ */
+public class TestInstalledCodeCache extends TornadoTestBase {
+
+    public static void vectorAdd(int[] a, int[] b, int[] c) {
+        for (@Parallel int i = 0; i < c.length; i++) {
+            c[i] = a[i] + b[i];
+        }
+    }
+
+    private static void checkResult(int[] a, int[] b, int[] c) {
+        for (int i = 0; i < c.length; i++) {
+            assertEquals(a[i] + b[i], c[i]);
+        }
+    }
+
+    private static class NoKernel implements TornadoInstalledCode {
+        @Override
+        public int launchWithDependencies(CallStack stack, ObjectBuffer atomicSpace, TaskMetaData meta, long batchThreads, int[] waitEvents) {
+            return -1;
+        }
+
+        @Override
+        public int launchWithoutDependencies(CallStack stack, ObjectBuffer atomicSpace, TaskMetaData meta, long batchThreads) {
+            return -1;
+        }
+    }
+
+    private static class ReleasingCodeCache implements TornadoCodeCache {
+        private final List<TornadoInstalledCode> released = new ArrayList<>();
+
+        @Override
+        public void release(TornadoInstalledCode code) {
+            released.add(code);
+        }
+    }
+
+    private static TaskSchedule createSchedule(String name, int[] a, int[] b, int[] c) {
+        return new TaskSchedule(name) //
+                .streamIn(a, b) //
+                .task("t0", TestInstalledCodeCache::vectorAdd, a, b, c) //
+                .streamOut(c);
+    }
+
+    @Test
+    public void testSharedKernel() {
+        final int size = 4096;
+        int[] a = new int[size];
+        int[] b = new int[size];
+        int[] c = new int[size];
+        int[] d = new int[size];
+        IntStream.range(0, size).forEach(i -> {
+            a[i] = i;
+            b[i] = 2 * i;
+        });
+
+        TornadoInstalledCodeCache cache = TornadoCoreRuntime.getInstalledCodeCache();
+        assertTrue(TornadoInstalledCodeCache.isEnabled());
+
+        createSchedule("shared0", a, b, c).execute();
+        final long hits = cache.getHits();
+
+        // Same task and same specialisation: the kernel of shared0 is reused
+        createSchedule("shared1", a, b, d).execute();
+        assertEquals(hits + 1, cache.getHits());
+
+        checkResult(a, b, c);
+        checkResult(a, b, d);
+    }
+
+    @Test
+    public void testDifferentSpecialisationIsNotShared() {
+        int[] a = new int[1024];
+        int[] b = new int[1024];
+        int[] c = new int[1024];
+        int[] x = new int[2048];
+        int[] y = new int[2048];
+        int[] z = new int[2048];
+        IntStream.range(0, 1024).forEach(i -> a[i] = b[i] = i);
+        IntStream.range(0, 2048).forEach(i -> x[i] = y[i] = i);
+
+        TornadoInstalledCodeCache cache = TornadoCoreRuntime.getInstalledCodeCache();
+
+        createSchedule("specialised0", a, b, c).execute();
+        final long hits = cache.getHits();
+        final long misses = cache.getMisses();
+
+        // The array lengths are part of the specialisation key
+        createSchedule("specialised1", x, y, z).execute();
+        assertEquals(hits, cache.getHits());
+        assertEquals(misses + 1, cache.getMisses());
+
+        checkResult(a, b, c);
+        checkResult(x, y, z);
+    }
+
+    @Test
+    public void testEvictionReleasesKernels() {
+        TornadoInstalledCodeCache cache = new TornadoInstalledCodeCache(1);
+        ReleasingCodeCache codeCache = new ReleasingCodeCache();
+        TornadoInstalledCode used = new NoKernel();
+        TornadoInstalledCode unused = new NoKernel();
+        Object owner = new Object();
+
+        cache.put(codeCache, "used", used, null, owner);
+        // A kernel without owner is not referenced by any task
+        cache.put(codeCache, "unused", unused, null, null);
+
+        // The referenced kernel is kept, the other one is released by its backend
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertEquals(1, codeCache.released.size());
+        assertSame(unused, codeCache.released.get(0));
+        assertSame(used, cache.lookup(codeCache, "used", owner).getCode());
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2021, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.manchester.tornado.unittests.kernelcache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import uk.ac.manchester.tornado.runtime.TornadoCoreRuntime;
+import uk.ac.manchester.tornado.runtime.common.TornadoKernelCache;
+import uk.ac.manchester.tornado.runtime.tasks.meta.ScheduleMetaData;
+import uk.ac.manchester.tornado.runtime.tasks.meta.TaskMetaData;
+import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+
+/**
+ * Testing the keys and the entries of the persistent kernel cache.
+ * <p>
+ * The class is run with {@code -Dtornado.kernelcache.dir=<directory>}, a cache
+ * directory that is created by the tests and deleted once they have finished.
+ */
+public class TestKernelCache extends TornadoTestBase {
+
+    public abstract static class Scale {
+        public abstract float factor();
+    }
+
+    public static class Identity extends Scale {
+        @Override
+        public float factor() {
+            return 1.0f;
+        }
+    }
+
+    public static class Twice extends Scale {
+        @Override
+        public float factor() {
+            return 2.0f;
+        }
+    }
+
+    private static final Scale DEFAULT_SCALE = new Twice();
+
+    public static void scale(Scale scale, float[] a) {
+        for (int i = 0; i < a.length; i++) {
+            a[i] = a[i] * scale.factor();
+        }
+    }
+
+    public static void scaleDefault(float[] a) {
+        for (int i = 0; i < a.length; i++) {
+            a[i] = a[i] * DEFAULT_SCALE.factor();
+        }
+    }
+
+    private static Path cacheDirectory;
+
+    @BeforeClass
+    public static void createCacheDirectory() throws IOException {
+        final String directoryName = System.getProperty("tornado.kernelcache.dir");
+        assertNotNull("The tests require -Dtornado.kernelcache.dir", directoryName);
+        cacheDirectory = Paths.get(directoryName).toAbsolutePath();
+        deleteCacheDirectory();
+        Files.createDirectories(cacheDirectory);
+    }
+
+    @AfterClass
+    public static void deleteCacheDirectory() throws IOException {
+        if (!Files.exists(cacheDirectory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(cacheDirectory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private static Method getMethod(String methodName) {
+        for (Method method : TestKernelCache.class.getDeclaredMethods()) {
+            if (method.getName().equals(methodName)) {
+                return method;
+            }
+        }
+        throw new IllegalArgumentException(methodName);
+    }
+
+    private static String computeKey(TornadoKernelCache cache, String methodName, Object... args) {
+        Method method = getMethod(methodName);
+        ResolvedJavaMethod resolvedMethod = TornadoCoreRuntime.getTornadoRuntime().resolveMethod(method);
+        TaskMetaData meta = TaskMetaData.create(new ScheduleMetaData("cache"), "t0", method, false);
+        return (cache == null) ? TornadoKernelCache.computeSpecialisationKey(resolvedMethod, args, meta, 0) : cache.computeKey(resolvedMethod, args, meta, 0);
+    }
+
+    @Test
+    public void testVirtualCallsResolvedForReceiverTypes() {
+        float[] a = new float[1024];
+
+        String identityKey = computeKey(null, "scale", new Identity(), a);
+        String otherIdentityKey = computeKey(null, "scale", new Identity(), new float[1024]);
+        String twiceKey = computeKey(null, "scale", new Twice(), a);
+
+        assertNotNull(identityKey);
+        assertNotNull(twiceKey);
+        // Same receiver type: the kernel is reused
+        assertEquals(identityKey, otherIdentityKey);
+        // The call devirtualises to a different method
+        assertNotEquals(identityKey, twiceKey);
+    }
+
+    @Test
+    public void testUnresolvedVirtualCallIsNotCached() {
+        // The receiver of the call is not reachable from the arguments, so the
+        // method it resolves to is unknown
+        assertNull(computeKey(null, "scaleDefault", new float[1024]));
+    }
+
+    @Test
+    public void testHitAndMiss() throws IOException {
+        TornadoKernelCache cache = new TornadoKernelCache("unittest-device-" + System.nanoTime(), TestKernelCache.class);
+        float[] a = new float[1024];
+        String key = computeKey(cache, "scale", new Identity(), a);
+        String otherKey = computeKey(cache, "scale", new Twice(), a);
+        assertNotNull(key);
+        assertNotNull(otherKey);
+
+        byte[] source = "__kernel void scale() {}".getBytes(StandardCharsets.UTF_8);
+        try {
+            assertNull(cache.lookup(key));
+            cache.store(key, "scale", null, source, null);
+            try (Stream<Path> entries = Files.list(cacheDirectory)) {
+                assertTrue(entries.findAny().isPresent());
+            }
+
+            TornadoKernelCache.Entry entry = cache.lookup(key);
+            assertNotNull(entry);
+            assertEquals("scale", entry.getEntryPoint());
+            assertArrayEquals(source, entry.getSource());
+
+            assertNull(cache.lookup(otherKey));
+        } finally {
+            cache.invalidate(key);
+            cache.invalidate(otherKey);
+        }
+    }
+}
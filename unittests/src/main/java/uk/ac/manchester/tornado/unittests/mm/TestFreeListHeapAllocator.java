@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.manchester.tornado.unittests.mm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.runtime.mm.FreeListHeapAllocator;
+
+/**
+ * Tests of the free-list heap allocator used for the device buffers. They do
+ * not need a device.
+ */
+public class TestFreeListHeapAllocator {
+
+    private static final int HEAP_SIZE = 16384;
+    private static final int ALIGNMENT = 64;
+
+    private FreeListHeapAllocator allocator;
+
+    @Before
+    public void reset() {
+        allocator = new FreeListHeapAllocator();
+        allocator.reset(0, HEAP_SIZE);
+    }
+
+    @Test
+    public void testSplit() {
+        long a = allocator.allocate(4096, 0, ALIGNMENT);
+        long b = allocator.allocate(4096, 0, ALIGNMENT);
+        assertEquals(0, a);
+        assertEquals(4096, b);
+
+        assertTrue(allocator.free(a));
+
+        // The free block of 4096 bytes is split into three allocations
+        assertEquals(0, allocator.allocate(1024, 0, ALIGNMENT));
+        assertEquals(1024, allocator.allocate(2048, 0, ALIGNMENT));
+        assertEquals(3072, allocator.allocate(1024, 0, ALIGNMENT));
+
+        // The heap top has not moved
+        assertEquals(HEAP_SIZE - 8192, allocator.getFreeBytes());
+        assertEquals(8192, allocator.getAllocatedBytes());
+    }
+
+    @Test
+    public void testCoalesce() {
+        long a = allocator.allocate(4096, 0, ALIGNMENT);
+        long b = allocator.allocate(4096, 0, ALIGNMENT);
+        long c = allocator.allocate(4096, 0, ALIGNMENT);
+
+        assertTrue(allocator.free(a));
+        assertTrue(allocator.free(b));
+
+        // The two neighbours have been merged into one block
+        assertEquals(8192, allocator.getLargestFreeBlock());
+        assertEquals(0, allocator.allocate(8192, 0, ALIGNMENT));
+        assertTrue(allocator.free(0));
+
+        // Releasing the last block gives all the space back to the top of the heap
+        assertTrue(allocator.free(c));
+        assertEquals(0, allocator.getAllocatedBytes());
+        assertEquals(HEAP_SIZE, allocator.getFreeBytes());
+        assertEquals(HEAP_SIZE, allocator.getLargestFreeBlock());
+        assertEquals(0, allocator.getFragmentation(), 0.0);
+        assertEquals(12288, allocator.getHighWaterMark());
+    }
+
+    @Test
+    public void testFragmentation() {
+        long a = allocator.allocate(4096, 0, ALIGNMENT);
+        allocator.allocate(4096, 0, ALIGNMENT);
+        allocator.allocate(4096, 0, ALIGNMENT);
+
+        assertTrue(allocator.free(a));
+
+        // 4096 bytes in the free list and 4096 bytes at the top of the heap
+        assertEquals(8192, allocator.getFreeBytes());
+        assertEquals(4096, allocator.getLargestFreeBlock());
+        assertEquals(0.5, allocator.getFragmentation(), 0.001);
+
+        // A request larger than any free block does not fit
+        assertEquals(-1, allocator.allocate(8192, 0, ALIGNMENT));
+    }
+
+    @Test
+    public void testHeaderAlignment() {
+        long offset = allocator.allocate(100, 16, ALIGNMENT);
+        assertEquals(0, (offset + 16) % ALIGNMENT);
+        assertEquals(offset + 100, allocator.getAllocatedBytes());
+    }
+
+    @Test
+    public void testInvalidFree() {
+        long a = allocator.allocate(1024, 0, ALIGNMENT);
+        assertFalse(allocator.free(a + 8));
+        assertTrue(allocator.free(a));
+        assertFalse(allocator.free(a));
+    }
+}
@@ -20,6 +20,8 @@ package uk.ac.manchester.tornado.unittests.prebuilt;
 
 import static org.junit.Assert.assertEquals;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Arrays;
 
 import org.junit.Test;
@@ -102,4 +104,44 @@ public class PrebuiltTest extends TornadoTestBase {
         }
     }
 
+    @Test
+    public void testPrebuildDirectBuffers() {
+
+        final int numElements = 8;
+        ByteBuffer a = ByteBuffer.allocateDirect(numElements * Integer.BYTES).order(ByteOrder.nativeOrder());
+        ByteBuffer b = ByteBuffer.allocateDirect(numElements * Integer.BYTES).order(ByteOrder.nativeOrder());
+        ByteBuffer c = ByteBuffer.allocateDirect(numElements * Integer.BYTES).order(ByteOrder.nativeOrder());
+
+        String tornadoSDK = System.getenv("TORNADO_SDK");
+
+        for (int i = 0; i < numElements; i++) {
+            a.putInt(i * Integer.BYTES, 1);
+            b.putInt(i * Integer.BYTES, 2);
+        }
+
+        TornadoDevice defaultDevice = TornadoRuntime.getTornadoRuntime().getDriver(0).getDevice(0);
+        if (defaultDevice.getDeviceName().contains("cuda")) {
+            // Direct buffers are only supported by the OpenCL backend
+            return;
+        }
+        String filePath = tornadoSDK + "/examples/generated/add.cl";
+
+        // @formatter:off
+        new TaskSchedule("s0")
+                .prebuiltTask("t0",
+                        "add",
+                        filePath,
+                        new Object[] { a, b, c },
+                        new Access[] { Access.READ, Access.READ, Access.WRITE },
+                        defaultDevice,
+                        new int[] { numElements })
+                .streamOut(c)
+                .execute();
+        // @formatter:on
+
+        for (int i = 0; i < numElements; i++) {
+            assertEquals(a.getInt(i * Integer.BYTES) + b.getInt(i * Integer.BYTES), c.getInt(i * Integer.BYTES));
+        }
+    }
+
 }
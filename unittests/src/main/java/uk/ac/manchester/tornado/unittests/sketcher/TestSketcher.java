@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2021, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.manchester.tornado.unittests.sketcher;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.runtime.TornadoAcceleratorDriver;
+import uk.ac.manchester.tornado.runtime.TornadoCoreRuntime;
+import uk.ac.manchester.tornado.runtime.graal.compiler.TornadoSuitesProvider;
+import uk.ac.manchester.tornado.runtime.sketcher.Sketch;
+import uk.ac.manchester.tornado.runtime.sketcher.SketchRequest;
+import uk.ac.manchester.tornado.runtime.tasks.meta.ScheduleMetaData;
+import uk.ac.manchester.tornado.runtime.tasks.meta.TaskMetaData;
+import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+
+/**
+ * Requests that sketch the same method on the same device: only the first
+ * registered request builds the sketch, and the others complete with it.
+ */
+public class TestSketcher extends TornadoTestBase {
+
+    private static final long TIMEOUT_SECONDS = 60;
+
+    public static void sketchedSequentially(int[] a) {
+        for (@Parallel int i = 0; i < a.length; i++) {
+            a[i] = a[i] + 1;
+        }
+    }
+
+    public static void sketchedConcurrently(int[] a) {
+        for (@Parallel int i = 0; i < a.length; i++) {
+            a[i] = a[i] * 2;
+        }
+    }
+
+    private static SketchRequest createRequest(String methodName) throws NoSuchMethodException {
+        Method method = TestSketcher.class.getDeclaredMethod(methodName, int[].class);
+        ResolvedJavaMethod resolvedMethod = TornadoCoreRuntime.getTornadoRuntime().resolveMethod(method);
+        TaskMetaData meta = TaskMetaData.create(new ScheduleMetaData("sketcher"), "t0", method, false);
+        TornadoAcceleratorDriver driver = TornadoCoreRuntime.getTornadoRuntime().getDriver(meta.getDriverIndex());
+        TornadoSuitesProvider suites = driver.getSuitesProvider();
+        return new SketchRequest(meta, resolvedMethod, driver.getProviders(), suites.getGraphBuilderSuite(), suites.getSketchTier());
+    }
+
+    @Test
+    public void testSecondRequestIsForwarded() throws Exception {
+        SketchRequest first = createRequest("sketchedSequentially");
+        SketchRequest second = createRequest("sketchedSequentially");
+
+        first.run();
+        // The method is already registered: the second request does not build
+        // the sketch, but it has to complete
+        second.run();
+
+        Sketch sketch = first.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull(sketch);
+        assertSame(sketch, second.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testConcurrentRequests() throws Exception {
+        SketchRequest first = createRequest("sketchedConcurrently");
+        SketchRequest second = createRequest("sketchedConcurrently");
+
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Sketch> firstSketch = executor.submit(() -> {
+                barrier.await();
+                first.run();
+                return first.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            });
+            Future<Sketch> secondSketch = executor.submit(() -> {
+                barrier.await();
+                second.run();
+                return second.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            });
+
+            Sketch sketch = firstSketch.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            assertNotNull(sketch);
+            assertSame(sketch, secondSketch.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2021, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.manchester.tornado.unittests.tasks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.api.runtime.TornadoRuntime;
+import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+
+/**
+ * Co-execution of a task-schedule across all the devices of the default driver
+ * and the host. The executions alternate between the same static share for
+ * every device and the host, and partitions adapted on every execution, so
+ * there are at least two partitions and they move while the results are
+ * checked. Tasks that are not element-wise run on a single device.
+ */
+public class TestCoExecution extends TornadoTestBase {
+
+    private static final int SIZE = 8192;
+    private static final int ITERATIONS = 8;
+
+    public static void saxpy(float alpha, float[] x, float[] y, float[] z) {
+        for (@Parallel int i = 0; i < x.length; i++) {
+            z[i] = alpha * x[i] + y[i];
+        }
+    }
+
+    public static void addIndex(int[] input, int[] output) {
+        for (@Parallel int i = 0; i < output.length; i++) {
+            output[i] = input[i] + i;
+        }
+    }
+
+    public static void shiftLeft(int[] input, int[] output) {
+        for (@Parallel int i = 0; i < output.length; i++) {
+            output[i] = input[i + 1];
+        }
+    }
+
+    /**
+     * The same share for every device of the default driver and the host.
+     */
+    private static float[] createEvenRatios() {
+        final int numDevices = TornadoRuntime.getTornadoRuntime().getDriver(0).getDeviceCount();
+        final boolean useHost = Boolean.parseBoolean(System.getProperty("tornado.coexec.host", "True"));
+        float[] ratios = new float[useHost ? numDevices + 1 : numDevices];
+        Arrays.fill(ratios, 1.0f);
+        // At least two partitions are requested
+        assumeTrue(ratios.length > 1);
+        return ratios;
+    }
+
+    private static void executeWithCoExecution(TaskSchedule ts, float[] ratios, int iteration) {
+        if (iteration % 2 == 0) {
+            ts.executeWithCoExecution(ratios);
+        } else {
+            ts.executeWithCoExecution();
+        }
+    }
+
+    @Test
+    public void testElementWise() {
+        float[] x = new float[SIZE];
+        float[] y = new float[SIZE];
+        float[] z = new float[SIZE];
+        IntStream.range(0, SIZE).forEach(i -> y[i] = 2);
+
+        float[] ratios = createEvenRatios();
+        TaskSchedule ts = new TaskSchedule("s0") //
+                .streamIn(x, y) //
+                .task("t0", TestCoExecution::saxpy, 2.0f, x, y, z) //
+                .streamOut(z);
+
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            final int base = iteration;
+            IntStream.range(0, SIZE).forEach(i -> x[i] = i + base);
+            executeWithCoExecution(ts, ratios, iteration);
+            for (int i = 0; i < SIZE; i++) {
+                assertEquals(2.0f * x[i] + y[i], z[i], 0.01f);
+            }
+        }
+    }
+
+    /**
+     * The value of the loop index is stored, so the task cannot run over a
+     * partition of the arrays and a single device computes all the iterations.
+     */
+    @Test
+    public void testIndexDependent() {
+        int[] input = new int[SIZE];
+        int[] output = new int[SIZE];
+
+        float[] ratios = createEvenRatios();
+        TaskSchedule ts = new TaskSchedule("s1") //
+                .streamIn(input) //
+                .task("t0", TestCoExecution::addIndex, input, output) //
+                .streamOut(output);
+
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            final int base = iteration * 10;
+            IntStream.range(0, SIZE).forEach(i -> input[i] = base);
+            executeWithCoExecution(ts, ratios, iteration);
+            for (int i = 0; i < SIZE; i++) {
+                assertEquals(base + i, output[i]);
+            }
+        }
+    }
+
+    /**
+     * The input is one element longer than the iteration space, so it is copied
+     * as a whole, and the last element of each partition would read the first
+     * element of the next one, so a single device computes all the iterations.
+     */
+    @Test
+    public void testNeighbourAccess() {
+        int[] input = new int[SIZE + 1];
+        int[] output = new int[SIZE];
+
+        float[] ratios = createEvenRatios();
+        TaskSchedule ts = new TaskSchedule("s2") //
+                .streamIn(input) //
+                .task("t0", TestCoExecution::shiftLeft, input, output) //
+                .streamOut(output);
+
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            final int base = iteration;
+            IntStream.range(0, SIZE + 1).forEach(i -> input[i] = i * base);
+            executeWithCoExecution(ts, ratios, iteration);
+            for (int i = 0; i < SIZE; i++) {
+                assertEquals((i + 1) * base, output[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2021, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.manchester.tornado.unittests.tasks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+
+/**
+ * Task-schedules whose tasks are compiled concurrently. The class is run with
+ * {@code -Dtornado.compile.concurrent=True}.
+ */
+public class TestConcurrentCompilation extends TornadoTestBase {
+
+    private static final int SIZE = 1024;
+
+    public static void add(int[] a, int[] b) {
+        for (@Parallel int i = 0; i < a.length; i++) {
+            b[i] = a[i] + 1;
+        }
+    }
+
+    public static void multiply(int[] a, int[] b) {
+        for (@Parallel int i = 0; i < a.length; i++) {
+            b[i] = a[i] * 2;
+        }
+    }
+
+    public static void square(int[] a, int[] b) {
+        for (@Parallel int i = 0; i < a.length; i++) {
+            b[i] = a[i] * a[i];
+        }
+    }
+
+    public static void negate(int[] a, int[] b) {
+        for (@Parallel int i = 0; i < a.length; i++) {
+            b[i] = -a[i];
+        }
+    }
+
+    public static void counterA(int[] input) {
+        AtomicInteger counter = new AtomicInteger(200);
+        for (@Parallel int i = 0; i < input.length; i++) {
+            input[i] = counter.incrementAndGet();
+        }
+    }
+
+    public static void counterB(int[] input) {
+        AtomicInteger counter = new AtomicInteger(5000);
+        for (@Parallel int i = 0; i < input.length; i++) {
+            input[i] = counter.incrementAndGet();
+        }
+    }
+
+    private static boolean hasUniqueValuesFrom(int[] values, int first) {
+        Set<Integer> seen = new HashSet<>();
+        for (int value : values) {
+            if (value <= first || value > first + values.length || !seen.add(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Test
+    public void testIndependentTasks() {
+        int[] input = new int[SIZE];
+        int[] b = new int[SIZE];
+        int[] c = new int[SIZE];
+        int[] d = new int[SIZE];
+        int[] e = new int[SIZE];
+        IntStream.range(0, SIZE).forEach(i -> input[i] = i);
+
+        TaskSchedule ts = new TaskSchedule("s0") //
+                .streamIn(input) //
+                .task("t0", TestConcurrentCompilation::add, input, b) //
+                .task("t1", TestConcurrentCompilation::multiply, input, c) //
+                .task("t2", TestConcurrentCompilation::square, input, d) //
+                .task("t3", TestConcurrentCompilation::negate, input, e) //
+                .streamOut(b, c, d, e);
+        ts.execute();
+
+        for (int i = 0; i < SIZE; i++) {
+            assertEquals(i + 1, b[i]);
+            assertEquals(i * 2, c[i]);
+            assertEquals(i * i, d[i]);
+            assertEquals(-i, e[i]);
+        }
+    }
+
+    @Test
+    public void testDependentTasks() {
+        int[] input = new int[SIZE];
+        int[] b = new int[SIZE];
+        int[] c = new int[SIZE];
+        int[] d = new int[SIZE];
+        IntStream.range(0, SIZE).forEach(i -> input[i] = i);
+
+        TaskSchedule ts = new TaskSchedule("s0") //
+                .streamIn(input) //
+                .task("t0", TestConcurrentCompilation::add, input, b) //
+                .task("t1", TestConcurrentCompilation::multiply, b, c) //
+                .task("t2", TestConcurrentCompilation::negate, c, d) //
+                .streamOut(d);
+
+        for (int iteration = 0; iteration < 3; iteration++) {
+            ts.execute();
+            for (int i = 0; i < SIZE; i++) {
+                assertEquals(-(i + 1) * 2, d[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testTasksWithAtomics() {
+        // The atomics of both tasks are registered in the global table of the
+        // OpenCL backend by concurrent compilations
+        checkForPTX();
+
+        final int size = 32;
+        int[] a = new int[size];
+        int[] b = new int[size];
+
+        TaskSchedule ts = new TaskSchedule("s0") //
+                .task("t0", TestConcurrentCompilation::counterA, a) //
+                .task("t1", TestConcurrentCompilation::counterB, b) //
+                .streamOut(a, b);
+        ts.execute();
+
+        assertTrue(hasUniqueValuesFrom(a, 200));
+        assertTrue(hasUniqueValuesFrom(b, 5000));
+    }
+}
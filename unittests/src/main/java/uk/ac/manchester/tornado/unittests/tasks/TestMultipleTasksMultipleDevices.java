@@ -26,6 +26,7 @@ import java.util.stream.IntStream;
 import org.junit.Test;
 
 import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
 import uk.ac.manchester.tornado.api.runtime.TornadoRuntime;
 
 /**
@@ -40,6 +41,18 @@ import uk.ac.manchester.tornado.api.runtime.TornadoRuntime;
  **/
 public class TestMultipleTasksMultipleDevices {
 
+    public static void produce(int[] input, int[] output) {
+        for (@Parallel int i = 0; i < input.length; i++) {
+            output[i] = input[i] * 2;
+        }
+    }
+
+    public static void consume(int[] input, int[] output) {
+        for (@Parallel int i = 0; i < input.length; i++) {
+            output[i] = input[i] + i;
+        }
+    }
+
     @Test
     public void testTwoTasksTwoDevices() {
         final int numElements = 8192;
@@ -112,4 +125,48 @@ public class TestMultipleTasksMultipleDevices {
             assertEquals((12 * 120) + 120, d[i]);
         }
     }
+
+    /**
+     * The consumer runs on a different device than the producer, so the data
+     * written by the producer is copied across devices, and the consumer waits
+     * for the events of the other context.
+     */
+    @Test
+    public void testProducerConsumerTwoDevices() {
+        final int numElements = 8192;
+        int[] a = new int[numElements];
+        int[] b = new int[numElements];
+        int[] c = new int[numElements];
+        int[] d = new int[numElements];
+        int devices = TornadoRuntime.getTornadoRuntime().getDriver(0).getDeviceCount();
+
+        if (devices == 1) {
+            assertTrue("This test needs at least 2 OpenCL-compatible devices.", devices == 1);
+        } else {
+            System.setProperty("s1.t0.device", "0:1");
+            System.setProperty("s1.t1.device", "0:0");
+            System.setProperty("s1.t2.device", "0:1");
+        }
+
+        // t0 -> t1 crosses from device 1 to device 0, and t1 -> t2 goes back
+        TaskSchedule ts = new TaskSchedule("s1")//
+                .streamIn(a) //
+                .task("t0", TestMultipleTasksMultipleDevices::produce, a, b) //
+                .task("t1", TestMultipleTasksMultipleDevices::consume, b, c) //
+                .task("t2", TestMultipleTasksMultipleDevices::produce, c, d) //
+                .streamOut(b, d); //
+
+        for (int iteration = 0; iteration < 3; iteration++) {
+            final int base = iteration * 10;
+            IntStream.range(0, numElements).forEach(i -> a[i] = base + (i % 100));
+
+            ts.execute();
+
+            for (int i = 0; i < numElements; i++) {
+                int produced = a[i] * 2;
+                assertEquals(produced, b[i]);
+                assertEquals((produced + i) * 2, d[i]);
+            }
+        }
+    }
 }
@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2020, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+
+package uk.ac.manchester.tornado.unittests.tasks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.runtime.tasks.FusedTask;
+import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+
+/**
+ * Testing the fusion of adjacent tasks of a {@link TaskSchedule} into a single
+ * kernel, enabled with {@code -D<schedule>.fusion=True}.
+ *
+ */
+public class TestTaskFusion extends TornadoTestBase {
+
+    private static final int NUM_ELEMENTS = 4096;
+
+    public static void normalize(float[] input, float[] output, float mean, float deviation) {
+        for (@Parallel int i = 0; i < input.length; i++) {
+            output[i] = (input[i] - mean) / deviation;
+        }
+    }
+
+    public static void scale(float[] input, float[] output, float alpha) {
+        for (@Parallel int i = 0; i < input.length; i++) {
+            output[i] = alpha * input[i];
+        }
+    }
+
+    public static void clamp(float[] input, float[] output) {
+        for (@Parallel int i = 0; i < input.length; i++) {
+            output[i] = Math.min(Math.max(input[i], -1.0f), 1.0f);
+        }
+    }
+
+    public static void relu(float[] input, float[] output) {
+        for (@Parallel int i = 0; i < input.length; i++) {
+            if (input[i] > 0) {
+                output[i] = input[i];
+            } else {
+                output[i] = 0;
+            }
+        }
+    }
+
+    public static void shift(float[] input, float[] output) {
+        for (@Parallel int i = 0; i < input.length; i++) {
+            output[i] = input[Math.min(i + 1, input.length - 1)];
+        }
+    }
+
+    private static float[] createInput() {
+        float[] input = new float[NUM_ELEMENTS];
+        Random r = new Random(31);
+        for (int i = 0; i < input.length; i++) {
+            input[i] = r.nextFloat() * 100;
+        }
+        return input;
+    }
+
+    @After
+    public void disableFusion() {
+        System.clearProperty("fusion0.fusion");
+        System.clearProperty("fusion1.fusion");
+        System.clearProperty("fusion2.fusion");
+        System.clearProperty("fusion3.fusion");
+    }
+
+    @Test
+    public void testFuseElementWiseTasks() {
+        float[] input = createInput();
+        float[] normalized = new float[NUM_ELEMENTS];
+        float[] scaled = new float[NUM_ELEMENTS];
+        float[] output = new float[NUM_ELEMENTS];
+        float[] sequential = new float[NUM_ELEMENTS];
+
+        System.setProperty("fusion0.fusion", "True");
+
+        //@formatter:off
+        TaskSchedule ts = new TaskSchedule("fusion0")
+            .streamIn(input)
+            .task("t0", TestTaskFusion::normalize, input, normalized, 50.0f, 25.0f)
+            .task("t1", TestTaskFusion::scale, normalized, scaled, 0.5f)
+            .task("t2", TestTaskFusion::clamp, scaled, output)
+            .streamOut(output);
+        //@formatter:on
+        ts.execute();
+
+        // The three tasks run in a single kernel
+        assertTrue(ts.getTask("t0_t1_t2") instanceof FusedTask);
+
+        float[] tmp0 = new float[NUM_ELEMENTS];
+        float[] tmp1 = new float[NUM_ELEMENTS];
+        normalize(input, tmp0, 50.0f, 25.0f);
+        scale(tmp0, tmp1, 0.5f);
+        clamp(tmp1, sequential);
+
+        for (int i = 0; i < NUM_ELEMENTS; i++) {
+            assertEquals(sequential[i], output[i], 0.01f);
+        }
+    }
+
+    @Test
+    public void testFuseWithStreamedOutIntermediate() {
+        float[] input = createInput();
+        float[] normalized = new float[NUM_ELEMENTS];
+        float[] output = new float[NUM_ELEMENTS];
+        float[] sequentialNormalized = new float[NUM_ELEMENTS];
+        float[] sequential = new float[NUM_ELEMENTS];
+
+        System.setProperty("fusion1.fusion", "True");
+
+        //@formatter:off
+        TaskSchedule ts = new TaskSchedule("fusion1")
+            .streamIn(input)
+            .task("t0", TestTaskFusion::normalize, input, normalized, 50.0f, 25.0f)
+            .task("t1", TestTaskFusion::scale, normalized, output, 2.0f)
+            .streamOut(normalized, output);
+        //@formatter:on
+
+        normalize(input, sequentialNormalized, 50.0f, 25.0f);
+        scale(sequentialNormalized, sequential, 2.0f);
+
+        for (int iteration = 0; iteration < 3; iteration++) {
+            ts.execute();
+            assertTrue(ts.getTask("t0_t1") instanceof FusedTask);
+            for (int i = 0; i < NUM_ELEMENTS; i++) {
+                assertEquals(sequentialNormalized[i], normalized[i], 0.01f);
+                assertEquals(sequential[i], output[i], 0.01f);
+            }
+        }
+    }
+
+    @Test
+    public void testFuseTaskWithBranches() {
+        float[] input = createInput();
+        float[] normalized = new float[NUM_ELEMENTS];
+        float[] output = new float[NUM_ELEMENTS];
+        float[] sequential = new float[NUM_ELEMENTS];
+
+        System.setProperty("fusion2.fusion", "True");
+
+        //@formatter:off
+        TaskSchedule ts = new TaskSchedule("fusion2")
+            .streamIn(input)
+            .task("t0", TestTaskFusion::normalize, input, normalized, 50.0f, 25.0f)
+            .task("t1", TestTaskFusion::relu, normalized, output)
+            .streamOut(output);
+        //@formatter:on
+        ts.execute();
+
+        assertTrue(ts.getTask("t0_t1") instanceof FusedTask);
+
+        float[] tmp = new float[NUM_ELEMENTS];
+        normalize(input, tmp, 50.0f, 25.0f);
+        relu(tmp, sequential);
+
+        for (int i = 0; i < NUM_ELEMENTS; i++) {
+            assertEquals(sequential[i], output[i], 0.01f);
+        }
+    }
+
+    @Test
+    public void testNoFusionOfNeighbourAccess() {
+        float[] input = createInput();
+        float[] normalized = new float[NUM_ELEMENTS];
+        float[] output = new float[NUM_ELEMENTS];
+        float[] sequential = new float[NUM_ELEMENTS];
+
+        System.setProperty("fusion3.fusion", "True");
+
+        // The element i + 1 of normalized is written by another thread of the
+        // producer, so the tasks cannot run in the same kernel
+        //@formatter:off
+        TaskSchedule ts = new TaskSchedule("fusion3")
+            .streamIn(input)
+            .task("t0", TestTaskFusion::normalize, input, normalized, 50.0f, 25.0f)
+            .task("t1", TestTaskFusion::shift, normalized, output)
+            .streamOut(output);
+        //@formatter:on
+        ts.execute();
+
+        assertNull(ts.getTask("t0_t1"));
+        assertFalse(ts.getTask("t0") instanceof FusedTask);
+
+        float[] tmp = new float[NUM_ELEMENTS];
+        normalize(input, tmp, 50.0f, 25.0f);
+        shift(tmp, sequential);
+
+        for (int i = 0; i < NUM_ELEMENTS; i++) {
+            assertEquals(sequential[i], output[i], 0.01f);
+        }
+    }
+}
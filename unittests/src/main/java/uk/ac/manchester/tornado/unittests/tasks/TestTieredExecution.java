@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2021, APT Group, Department of Computer Science,
+ * The University of Manchester.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package uk.ac.manchester.tornado.unittests.tasks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import uk.ac.manchester.tornado.api.TaskSchedule;
+import uk.ac.manchester.tornado.api.annotations.Parallel;
+import uk.ac.manchester.tornado.unittests.common.TornadoTestBase;
+
+/**
+ * Tiered execution: the task-schedule runs on the host while its kernels are
+ * compiled in the background. The class is run with
+ * {@code -Dtornado.tiered=True -Dtornado.profiler=True}; the device kernel time
+ * is 0 for the executions on the host.
+ */
+public class TestTieredExecution extends TornadoTestBase {
+
+    private static final int SIZE = 8192;
+    private static final long TIMEOUT_MILLIS = 60000;
+
+    public static void saxpy(float alpha, float[] x, float[] y, float[] z) {
+        for (@Parallel int i = 0; i < x.length; i++) {
+            z[i] = alpha * x[i] + y[i];
+        }
+    }
+
+    private static void checkResult(float alpha, float[] x, float[] y, float[] z) {
+        for (int i = 0; i < SIZE; i++) {
+            assertEquals(alpha * x[i] + y[i], z[i], 0.01f);
+        }
+    }
+
+    @Test
+    public void testHostWhileCompiling() throws InterruptedException {
+        float[] x = new float[SIZE];
+        float[] y = new float[SIZE];
+        float[] z = new float[SIZE];
+        IntStream.range(0, SIZE).forEach(i -> {
+            x[i] = i;
+            y[i] = 2;
+        });
+
+        TaskSchedule ts = new TaskSchedule("s0") //
+                .streamIn(x, y) //
+                .task("t0", TestTieredExecution::saxpy, 2.0f, x, y, z) //
+                .streamOut(z);
+
+        // The first execution starts the compilation and always runs on the
+        // host, so there is nothing to copy back from the device
+        ts.execute();
+        ts.syncObjects(z);
+        ts.syncObjects();
+        assertEquals(0, ts.getDeviceKernelTime());
+        checkResult(2.0f, x, y, z);
+
+        // The inputs change on every execution, so the first execution on the
+        // device has to copy the values written while running on the host
+        final long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        boolean onDevice = false;
+        for (int iteration = 1; !onDevice && System.currentTimeMillis() < deadline; iteration++) {
+            final int base = iteration;
+            IntStream.range(0, SIZE).forEach(i -> x[i] = i + base);
+            ts.execute();
+            ts.syncObjects(z);
+            checkResult(2.0f, x, y, z);
+            onDevice = ts.getDeviceKernelTime() > 0;
+            Thread.sleep(10);
+        }
+        assertTrue(onDevice);
+
+        IntStream.range(0, SIZE).forEach(i -> x[i] = -i);
+        ts.execute();
+        ts.syncObjects(z);
+        assertTrue(ts.getDeviceKernelTime() > 0);
+        checkResult(2.0f, x, y, z);
+    }
+}